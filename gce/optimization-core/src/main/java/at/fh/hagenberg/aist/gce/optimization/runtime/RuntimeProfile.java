@@ -158,6 +158,25 @@ public class RuntimeProfile {
         this.standardDeviationNoOutliers = Math.sqrt(Arrays.stream(values).filter(x -> x <= thirdQuartile + iqr + iqr).mapToDouble(x ->  Math.pow(x - this.mean, 2)).sum() / (count - groups[7]));
     }
 
+    /**
+     * Creates the profile from a streaming builder, without ever materializing the values.
+     * Use {@link RuntimeProfileBuilder#build()}
+     *
+     * @param builder containing the values
+     */
+    RuntimeProfile(RuntimeProfileBuilder builder) {
+        this.count = (int) builder.getCount();
+        this.minimum = builder.getMinimum();
+        this.maximum = builder.getMaximum();
+        this.mean = builder.getMean();
+        this.median = builder.quartile(50);
+        this.firstQuartile = builder.quartile(25);
+        this.thirdQuartile = builder.quartile(75);
+        this.standardDeviation = builder.getStandardDeviation();
+        this.groups = builder.groups(firstQuartile, median, thirdQuartile);
+        this.standardDeviationNoOutliers = builder.standardDeviationUpTo(thirdQuartile + 2 * (thirdQuartile - firstQuartile));
+    }
+
     private double quartile(long[] values, double lowerPercent) {
         if (values == null || values.length == 0) {
             throw new IllegalArgumentException("We need at least ONE value to calculate quartiles");
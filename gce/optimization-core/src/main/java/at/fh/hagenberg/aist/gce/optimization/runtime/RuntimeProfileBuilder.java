@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.runtime;
+
+/**
+ * Streaming builder for a {@link RuntimeProfile}.
+ * Values are never stored or sorted. Mean and standard deviation are tracked exactly (Welford), the quartiles and groups
+ * are calculated from a log-linear histogram (values below 256 ns are exact, above that the relative error is below 0.4%).
+ * The memory is constant no matter how many values are added, and builders can be merged (e.g. one per executor).
+ */
+public class RuntimeProfileBuilder {
+
+    /**
+     * Bits of precision per power of two
+     */
+    private static final int SUB_BUCKET_BITS = 8;
+
+    /**
+     * Buckets per power of two (the first 2^SUB_BUCKET_BITS values have one bucket per value)
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Half of the sub buckets, as the highest bit of the mantissa is always set
+     */
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    /**
+     * Buckets needed to hold every positive long
+     */
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    /**
+     * Histogram of all added values
+     */
+    private final long[] buckets = new long[BUCKETS];
+
+    /**
+     * amount of values added
+     */
+    private long count;
+
+    /**
+     * running mean
+     */
+    private double mean;
+
+    /**
+     * running sum of squared differences from the mean
+     */
+    private double m2;
+
+    private long minimum = Long.MAX_VALUE;
+
+    private long maximum = Long.MIN_VALUE;
+
+    /**
+     * Adds a single runtime value
+     *
+     * @param value to be added
+     * @return this builder
+     */
+    public RuntimeProfileBuilder add(long value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        minimum = Math.min(minimum, value);
+        maximum = Math.max(maximum, value);
+        buckets[bucket(value)]++;
+        return this;
+    }
+
+    /**
+     * Adds a range of runtime values, without copying them
+     *
+     * @param values to be added
+     * @param from   first index (inclusive)
+     * @param to     last index (exclusive)
+     * @return this builder
+     */
+    public RuntimeProfileBuilder addAll(long[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(values[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Merges the values of another builder into this one
+     *
+     * @param other builder to be merged
+     * @return this builder
+     */
+    public RuntimeProfileBuilder merge(RuntimeProfileBuilder other) {
+        if (other.count == 0) {
+            return this;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+        minimum = Math.min(minimum, other.minimum);
+        maximum = Math.max(maximum, other.maximum);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] += other.buckets[i];
+        }
+        return this;
+    }
+
+    /**
+     * Builds the runtime profile of all values added so far
+     *
+     * @return runtime profile
+     */
+    public RuntimeProfile build() {
+        if (count == 0) {
+            throw new IllegalArgumentException("We need at least ONE value to create a runtime profile");
+        }
+        return new RuntimeProfile(this);
+    }
+
+    /**
+     * Quartile calculated the same way as in {@link RuntimeProfile#RuntimeProfile(long[])}
+     *
+     * @param lowerPercent percentage of values below the quartile
+     * @return the quartile
+     */
+    double quartile(double lowerPercent) {
+        long position = (long) Math.ceil(count * lowerPercent / 100) - 1;
+        if (count % 2 == 1) {
+            return valueAt(position);
+        } else {
+            return (valueAt(position) + valueAt(position + 1)) / 2.0;
+        }
+    }
+
+    /**
+     * Calculates the box plot groups (see {@link RuntimeProfile#getGroups()})
+     *
+     * @param firstQuartile of the values
+     * @param median        of the values
+     * @param thirdQuartile of the values
+     * @return groups of the values
+     */
+    int[] groups(double firstQuartile, double median, double thirdQuartile) {
+        int[] groups = new int[8];
+        double iqr = thirdQuartile - firstQuartile;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            double val = representative(i);
+            int group;
+            if (val < (firstQuartile - iqr - iqr)) {
+                group = 0;
+            } else if (val < firstQuartile - iqr) {
+                group = 1;
+            } else if (val < firstQuartile) {
+                group = 2;
+            } else if (val <= median) {
+                group = 3;
+            } else if (val <= thirdQuartile) {
+                group = 4;
+            } else if (val <= thirdQuartile + iqr) {
+                group = 5;
+            } else if (val <= thirdQuartile + iqr + iqr) {
+                group = 6;
+            } else {
+                group = 7;
+            }
+            groups[group] += buckets[i];
+        }
+        return groups;
+    }
+
+    /**
+     * Standard deviation (around the mean of all values) of all values up to a given limit
+     *
+     * @param limit highest value to be included
+     * @return standard deviation
+     */
+    double standardDeviationUpTo(double limit) {
+        double sum = 0;
+        long included = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            double val = representative(i);
+            if (val <= limit) {
+                sum += buckets[i] * Math.pow(val - mean, 2);
+                included += buckets[i];
+            }
+        }
+        return Math.sqrt(sum / included);
+    }
+
+    /**
+     * Finds the value at a given position if all values were sorted
+     *
+     * @param position in the sorted values
+     * @return value (exact for small values, otherwise the middle of its bucket)
+     */
+    private double valueAt(long position) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen > position) {
+                return representative(i);
+            }
+        }
+        return maximum;
+    }
+
+    /**
+     * Value that stands for all values in a bucket. Clamped to min and max, so single values are always exact.
+     *
+     * @param bucket index of the bucket
+     * @return value
+     */
+    private double representative(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return Math.max(minimum, Math.min(maximum, bucket));
+        }
+        int exponent = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + SUB_BUCKET_BITS;
+        long mantissa = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        double lower = (double) (mantissa << shift);
+        double width = (double) (1L << shift);
+        return Math.max(minimum, Math.min(maximum, lower + (width - 1) / 2));
+    }
+
+    /**
+     * Finds the bucket of a value
+     *
+     * @param value runtime value (negative values are counted as 0)
+     * @return index of the bucket
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + (int) ((value >>> shift) - HALF_SUB_BUCKETS);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStandardDeviation() {
+        return count == 0 ? 0 : Math.sqrt(m2 / count);
+    }
+
+    public long getMinimum() {
+        return minimum;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+}
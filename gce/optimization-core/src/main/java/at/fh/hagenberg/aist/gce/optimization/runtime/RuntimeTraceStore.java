@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.runtime;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Append-only binary store for the raw runtime values (performance arrays) of benchmark runs.
+ * Replaces the comma separated .rtp files with two files in one directory:
+ * <ul>
+ * <li>traces.bin - all runtime values as longs, one trace after the other</li>
+ * <li>traces.idx - one entry per trace (tree id, test id, system, offset, length)</li>
+ * </ul>
+ * Traces are read as {@link LongBuffer} views of the memory mapped data file, so they never have to be parsed.
+ * If the same trace is written twice the newer one wins.
+ * <p>
+ * A store has a single writer: inside the JVM {@link #getStore(String)} hands out one instance per directory,
+ * across processes the data file is locked exclusively for as long as the store is open.
+ * Analyzers that only read use {@link #getReadOnlyStore(String)}, which only takes a shared lock, so any amount of
+ * readers can work on the same store at once.
+ */
+public class RuntimeTraceStore implements Closeable {
+
+    /**
+     * Open stores, by directory. Several writers for the same files would corrupt the index.
+     * Other processes are kept out by {@link #lock}.
+     */
+    private static final Map<String, RuntimeTraceStore> STORES = new HashMap<>();
+
+    /**
+     * System identifier used when no system is given (same as in {@link RuntimeProfile})
+     */
+    public static final String CURRENT_SYSTEM = SystemInformation.getCurrentSystem().toString();
+
+    /**
+     * File containing the runtime values
+     */
+    private final File dataFile;
+
+    /**
+     * File containing the index of the traces
+     */
+    private final File indexFile;
+
+    /**
+     * Channel of the runtime values, read only if the store is read only
+     */
+    private FileChannel data;
+
+    /**
+     * Lock on the data file, held until the store is closed. Exclusive for writers, shared for readers.
+     */
+    private FileLock lock;
+
+    /**
+     * Index of the traces, null if the store is read only
+     */
+    private DataOutputStream index;
+
+    /**
+     * Length (in bytes) of the index without a partially written last entry
+     */
+    private long validIndex;
+
+    /**
+     * Buffer the traces are written from, reused (and grown) across writes
+     */
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(0);
+
+    /**
+     * Traces in the store by tree id, test id and system
+     */
+    private final Map<TraceKey, long[]> traces = new LinkedHashMap<>();
+
+    /**
+     * Position (in bytes) where the next trace will be written
+     */
+    private long end;
+
+    /**
+     * Returns the store in the given directory, and creates it if it doesn't exist.
+     * If the store is open read only in this JVM, it becomes writable.
+     *
+     * @param directory the store is located in
+     * @return store
+     */
+    public static synchronized RuntimeTraceStore getStore(String directory) {
+        String key = new File(directory).toPath().toAbsolutePath().normalize().toString();
+        try {
+            RuntimeTraceStore store = STORES.get(key);
+            if (store == null) {
+                store = new RuntimeTraceStore(new File(key), false);
+                STORES.put(key, store);
+            } else if (store.isReadOnly()) {
+                store.makeWritable();
+            }
+            return store;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open runtime trace store " + key, e);
+        }
+    }
+
+    /**
+     * Returns the store in the given directory for reading only, and creates it if it doesn't exist.
+     * If the store is already open in this JVM, the open store is returned (even if it is writable).
+     *
+     * @param directory the store is located in
+     * @return store
+     */
+    public static synchronized RuntimeTraceStore getReadOnlyStore(String directory) {
+        String key = new File(directory).toPath().toAbsolutePath().normalize().toString();
+        try {
+            RuntimeTraceStore store = STORES.get(key);
+            if (store == null) {
+                store = new RuntimeTraceStore(new File(key), true);
+                STORES.put(key, store);
+            }
+            return store;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open runtime trace store " + key, e);
+        }
+    }
+
+    private RuntimeTraceStore(File directory, boolean readOnly) throws IOException {
+        directory.mkdirs();
+        dataFile = new File(directory, "traces.bin");
+        indexFile = new File(directory, "traces.idx");
+        if (readOnly) {
+            // an empty store is created just as for writers, so readers never have to check if it exists
+            dataFile.createNewFile();
+            data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+            lock = data.tryLock(0, Long.MAX_VALUE, true);
+        } else {
+            data = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            lock = data.tryLock();
+        }
+        if (lock == null) {
+            data.close();
+            throw new IOException("Runtime trace store " + directory + (readOnly ? " is being written by another process" : " is already in use by another process"));
+        }
+        try {
+            readIndex();
+            if (!readOnly) {
+                openIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the locations of all traces from the index
+     */
+    private void readIndex() throws IOException {
+        traces.clear();
+        validIndex = 0;
+        if (indexFile.exists()) {
+            byte[] bytes = Files.readAllBytes(indexFile.toPath());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            try {
+                while (in.available() > 0) {
+                    TraceKey key = new TraceKey(in.readLong(), in.readLong(), in.readUTF());
+                    traces.put(key, new long[]{in.readLong(), in.readInt()});
+                    validIndex = bytes.length - in.available();
+                }
+            } catch (EOFException e) {
+                // last entry was only partially written (crash during write), the trace is lost and the entry is removed by the next writer
+            }
+        }
+        end = data.size();
+    }
+
+    /**
+     * Removes a partially written last entry from the index, and opens it for appending
+     */
+    private void openIndex() throws IOException {
+        if (indexFile.exists() && indexFile.length() > validIndex) {
+            try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validIndex);
+            }
+        }
+        index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    }
+
+    /**
+     * Turns a read only store into a writable one, so readers in this JVM keep using the same instance
+     */
+    private synchronized void makeWritable() throws IOException {
+        FileChannel writable = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // locks within one JVM may not overlap, so the shared lock has to go first
+        lock.release();
+        FileLock exclusive = writable.tryLock();
+        if (exclusive == null) {
+            writable.close();
+            lock = data.tryLock(0, Long.MAX_VALUE, true);
+            throw new IOException("Runtime trace store " + dataFile.getParent() + " is already in use by another process");
+        }
+        data.close();
+        data = writable;
+        lock = exclusive;
+        // another process may have written in between releasing the shared lock and getting the exclusive one
+        readIndex();
+        openIndex();
+    }
+
+    /**
+     * @return if the store can't be written to
+     */
+    public synchronized boolean isReadOnly() {
+        return index == null;
+    }
+
+    /**
+     * Writes a trace for the current system
+     *
+     * @param treeId id of the tree that was run
+     * @param testId id of the test that was run
+     * @param values runtime values
+     */
+    public void write(long treeId, long testId, long[] values) {
+        write(treeId, testId, CURRENT_SYSTEM, values);
+    }
+
+    /**
+     * Writes a trace
+     *
+     * @param treeId id of the tree that was run
+     * @param testId id of the test that was run
+     * @param system the trace was measured on
+     * @param values runtime values
+     */
+    public synchronized void write(long treeId, long testId, String system, long[] values) {
+        if (index == null) {
+            throw new IllegalStateException("Runtime trace store " + dataFile.getParent() + " is read only");
+        }
+        try {
+            if (writeBuffer.capacity() < values.length * Long.BYTES) {
+                writeBuffer = ByteBuffer.allocate(values.length * Long.BYTES);
+            }
+            writeBuffer.clear().limit(values.length * Long.BYTES);
+            writeBuffer.asLongBuffer().put(values);
+            long offset = end;
+            while (writeBuffer.hasRemaining()) {
+                end += data.write(writeBuffer, end);
+            }
+
+            TraceKey key = new TraceKey(treeId, testId, system);
+            index.writeLong(treeId);
+            index.writeLong(testId);
+            index.writeUTF(system);
+            index.writeLong(offset);
+            index.writeInt(values.length);
+            index.flush();
+            traces.put(key, new long[]{offset, values.length});
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write runtime trace " + treeId + "_" + testId, e);
+        }
+    }
+
+    /**
+     * Reads a trace of the current system
+     *
+     * @param treeId id of the tree that was run
+     * @param testId id of the test that was run
+     * @return read only view of the runtime values, or null if the trace does not exist
+     */
+    public LongBuffer read(long treeId, long testId) {
+        return read(treeId, testId, CURRENT_SYSTEM);
+    }
+
+    /**
+     * Reads a trace
+     *
+     * @param treeId id of the tree that was run
+     * @param testId id of the test that was run
+     * @param system the trace was measured on
+     * @return read only view of the runtime values, or null if the trace does not exist
+     */
+    public synchronized LongBuffer read(long treeId, long testId, String system) {
+        long[] location = traces.get(new TraceKey(treeId, testId, system));
+        if (location == null) {
+            return null;
+        }
+        try {
+            return data.map(FileChannel.MapMode.READ_ONLY, location[0], location[1] * Long.BYTES).asLongBuffer();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read runtime trace " + treeId + "_" + testId, e);
+        }
+    }
+
+    /**
+     * Reads a trace of the current system into an array
+     *
+     * @param treeId id of the tree that was run
+     * @param testId id of the test that was run
+     * @return runtime values, or null if the trace does not exist
+     */
+    public long[] readArray(long treeId, long testId) {
+        LongBuffer buffer = read(treeId, testId);
+        if (buffer == null) {
+            return null;
+        }
+        long[] values = new long[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    /**
+     * @return all traces in this store
+     */
+    public synchronized Set<TraceKey> getTraces() {
+        return new LinkedHashSet<>(traces.keySet());
+    }
+
+    /**
+     * @return amount of traces in this store
+     */
+    public synchronized int size() {
+        return traces.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (RuntimeTraceStore.class) {
+            STORES.values().remove(this);
+        }
+        synchronized (this) {
+            if (index != null) {
+                index.close();
+            }
+            if (lock != null) {
+                lock.release();
+            }
+            data.close();
+        }
+    }
+
+    /**
+     * Identifies a trace in the store
+     */
+    public static class TraceKey {
+
+        private final long treeId;
+
+        private final long testId;
+
+        private final String system;
+
+        public TraceKey(long treeId, long testId, String system) {
+            this.treeId = treeId;
+            this.testId = testId;
+            this.system = system;
+        }
+
+        public long getTreeId() {
+            return treeId;
+        }
+
+        public long getTestId() {
+            return testId;
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TraceKey traceKey = (TraceKey) o;
+            return treeId == traceKey.treeId && testId == traceKey.testId && Objects.equals(system, traceKey.system);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(treeId, testId, system);
+        }
+    }
+}
@@ -150,7 +150,11 @@ public class ExtendedNodeUtil {
      * @return amount of nodes in tree (inclusive!)
      */
     public static int size(Node tree) {
-        return 1 + StreamSupport.stream(tree.getChildren().spliterator(), true).mapToInt(ExtendedNodeUtil::size).sum();
+        int size = 1;
+        for (Node child : tree.getChildren()) {
+            size += size(child);
+        }
+        return size;
     }
 
     /**
@@ -165,12 +169,14 @@ public class ExtendedNodeUtil {
 
     /**
      * Turns a Tree into a flat stream (as stream to enable subsequent filtering etc.)
+     * The stream is sequential, as parallelizing every (usually tiny) subtree costs more than it gains.
+     * If the same tree is queried repeatedly use a {@link TruffleTreeIndex} instead.
      *
      * @param nodes to be turned into a flat stream
      * @return stream of all nodes intree
      */
     public static Stream<Node> flatten(Stream<Node> nodes) {
-        return nodes.flatMap(x -> Stream.concat(Stream.of(x), flatten(StreamSupport.stream(x.getChildren().spliterator(), true))));
+        return nodes.flatMap(x -> Stream.concat(Stream.of(x), flatten(StreamSupport.stream(x.getChildren().spliterator(), false))));
     }
 
     /**
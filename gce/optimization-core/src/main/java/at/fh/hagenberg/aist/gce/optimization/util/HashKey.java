@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * 128 bit hash as two longs. Used as key in caches instead of the Base64 encoded hash strings.
+ * Keys created from a longer hash (e.g. SHA-512) use the first 16 bytes.
+ */
+public final class HashKey {
+
+    private final long high;
+
+    private final long low;
+
+    public HashKey(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Creates a key from a hash string as returned by {@link #encode()} or {@link HashUtil#hashAndEncode(byte[])}.
+     * Strings that are no Base64 are hashed instead.
+     *
+     * @param hash to be turned into a key
+     * @return key of hash, or null if hash is null
+     */
+    public static HashKey of(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = HashUtil.decodeHash(hash);
+        } catch (IllegalArgumentException e) {
+            return new HashUtil.Murmur3().putString(hash).finish();
+        }
+        if (bytes.length < 16) {
+            return new HashUtil.Murmur3().putBytes(bytes).finish();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new HashKey(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return Base64 encoding of the key (for persisting)
+     */
+    public String encode() {
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(16).putLong(high).putLong(low).array());
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HashKey hashKey = (HashKey) o;
+        return high == hashKey.high && low == hashKey.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -19,6 +19,25 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class HashUtil {
 
+    /**
+     * Algorithms for hashing trees (see {@link at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper#hash}).
+     * The hashes of both are NOT compatible, so a database must only ever contain trees hashed with one of them.
+     */
+    public enum Algorithm {
+        /**
+         * SHA-512 over the concatenated hashes, Base64 encoded per node (default, matches existing databases)
+         */
+        SHA512,
+        /**
+         * Streaming {@link Murmur3} into a {@link HashKey}. No intermediate arrays, only the result is Base64 encoded
+         */
+        MURMUR3
+    }
+
+    /**
+     * Algorithm used for hashing trees, can be set with the system property "gce.hash.algorithm"
+     */
+    private static Algorithm algorithm = Algorithm.valueOf(System.getProperty("gce.hash.algorithm", Algorithm.SHA512.name()));
 
     private static Base64.Decoder decoder = Base64.getDecoder();
 
@@ -85,5 +104,136 @@ public class HashUtil {
         return null;
     }
 
+    public static Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public static void setAlgorithm(Algorithm algorithm) {
+        HashUtil.algorithm = algorithm;
+    }
+
+    /**
+     * Streaming MurmurHash3 (x64, 128 bit) over a sequence of 64 bit words.
+     * Ints, strings and byte arrays are length prefixed and packed into words, so different inputs can't produce the same word sequence.
+     * Not cryptographic, only meant for hashing trees and cache keys.
+     */
+    public static final class Murmur3 {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long h1;
+
+        private long h2;
+
+        /**
+         * first word of the current 16 byte block
+         */
+        private long pending;
+
+        private boolean hasPending;
+
+        /**
+         * amount of bytes hashed
+         */
+        private long length;
+
+        public Murmur3 putLong(long value) {
+            if (hasPending) {
+                mix(pending, value);
+                hasPending = false;
+            } else {
+                pending = value;
+                hasPending = true;
+            }
+            length += 8;
+            return this;
+        }
+
+        public Murmur3 putInt(int value) {
+            return putLong(value);
+        }
+
+        public Murmur3 putKey(HashKey key) {
+            return putLong(key.getHigh()).putLong(key.getLow());
+        }
+
+        public Murmur3 putString(String value) {
+            int length = value.length();
+            putInt(length);
+            for (int i = 0; i < length; i += 4) {
+                long word = 0;
+                for (int j = i; j < i + 4 && j < length; j++) {
+                    word |= (long) value.charAt(j) << ((j - i) * 16);
+                }
+                putLong(word);
+            }
+            return this;
+        }
+
+        public Murmur3 putBytes(byte[] value) {
+            putInt(value.length);
+            for (int i = 0; i < value.length; i += 8) {
+                long word = 0;
+                for (int j = i; j < i + 8 && j < value.length; j++) {
+                    word |= (value[j] & 0xFFL) << ((j - i) * 8);
+                }
+                putLong(word);
+            }
+            return this;
+        }
+
+        private void mix(long k1, long k2) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
 
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        /**
+         * Finishes the hash. The hasher must not be used afterwards
+         *
+         * @return hash of everything put into the hasher
+         */
+        public HashKey finish() {
+            long h1 = this.h1;
+            long h2 = this.h2;
+            if (hasPending) {
+                long k1 = pending * C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+            }
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new HashKey(h1, h2);
+        }
+    }
 }
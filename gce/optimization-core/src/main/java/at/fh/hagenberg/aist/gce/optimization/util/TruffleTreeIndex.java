@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.util;
+
+import com.oracle.truffle.api.nodes.Node;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Flattened view of a Truffle tree, created in a single traversal.
+ * Nodes are stored in pre-order (the same order as {@link ExtendedNodeUtil#flatten(Node)}), so every subtree is the
+ * contiguous range [i, i + subtreeSize(i)). Metrics of a subtree are looked up instead of traversing it again.
+ * The index is a snapshot, it does NOT follow replacements in the tree.
+ */
+public class TruffleTreeIndex {
+
+    private Node[] nodes = new Node[64];
+
+    /**
+     * Position of the parent, -1 for roots
+     */
+    private int[] parents = new int[64];
+
+    /**
+     * Depth below the root (root = 0)
+     */
+    private int[] depths = new int[64];
+
+    /**
+     * Amount of nodes in the subtree (inclusive)
+     */
+    private int[] sizes = new int[64];
+
+    /**
+     * Amount of direct children
+     */
+    private int[] childCounts = new int[64];
+
+    /**
+     * {@link ExtendedNodeUtil#maxDepth(Node)} of the subtree
+     */
+    private int[] maxDepths = new int[64];
+
+    /**
+     * {@link ExtendedNodeUtil#maxWidth(Node)} of the subtree
+     */
+    private int[] maxWidths = new int[64];
+
+    private int size;
+
+    /**
+     * Positions by node identity, created on first lookup
+     */
+    private Map<Node, Integer> positions;
+
+    /**
+     * Indexes the given tree
+     *
+     * @param tree to be indexed (will be at position 0)
+     */
+    public TruffleTreeIndex(Node tree) {
+        add(tree, -1, 0);
+        trim();
+    }
+
+    private TruffleTreeIndex(Collection<Node> trees) {
+        trees.forEach(x -> add(x, -1, 0));
+        trim();
+    }
+
+    /**
+     * Indexes the trees the given nodes belong to (each tree is indexed from its topmost parent, and only once)
+     *
+     * @param nodes to be contained in the index
+     * @return index containing all given nodes
+     */
+    public static TruffleTreeIndex of(Collection<Node> nodes) {
+        Set<Node> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Node> trees = new ArrayList<>();
+        nodes.forEach(x -> {
+            while (x.getParent() != null) {
+                x = x.getParent();
+            }
+            if (roots.add(x)) {
+                trees.add(x);
+            }
+        });
+        return new TruffleTreeIndex(trees);
+    }
+
+    private void add(Node node, int parent, int depth) {
+        int i = size++;
+        if (i == nodes.length) {
+            grow();
+        }
+        nodes[i] = node;
+        parents[i] = parent;
+        depths[i] = depth;
+
+        int children = 0;
+        int last = -1;
+        int maxDepth = 0;
+        for (Node child : node.getChildren()) {
+            last = size;
+            add(child, i, depth + 1);
+            children++;
+            maxDepth = Math.max(maxDepth, maxDepths[last]);
+        }
+        sizes[i] = size - i;
+        childCounts[i] = children;
+        maxDepths[i] = maxDepth + 1;
+        // mirrors ExtendedNodeUtil.maxWidth, which only compares against the last child
+        maxWidths[i] = children == 0 ? 1 : Math.max(children + 1, maxWidths[last]);
+    }
+
+    private void grow() {
+        int length = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, length);
+        parents = Arrays.copyOf(parents, length);
+        depths = Arrays.copyOf(depths, length);
+        sizes = Arrays.copyOf(sizes, length);
+        childCounts = Arrays.copyOf(childCounts, length);
+        maxDepths = Arrays.copyOf(maxDepths, length);
+        maxWidths = Arrays.copyOf(maxWidths, length);
+    }
+
+    private void trim() {
+        nodes = Arrays.copyOf(nodes, size);
+    }
+
+    /**
+     * @return amount of indexed nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    public Node node(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * @param node to be found
+     * @return position of node, or -1 if it is not indexed
+     */
+    public int indexOf(Node node) {
+        if (positions == null) {
+            Map<Node, Integer> map = new IdentityHashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                map.put(nodes[i], i);
+            }
+            positions = map;
+        }
+        return positions.getOrDefault(node, -1);
+    }
+
+    /**
+     * @param i position of node
+     * @return position of the parent, -1 if node is a root
+     */
+    public int parent(int i) {
+        return parents[i];
+    }
+
+    /**
+     * @param i position of node
+     * @return depth below the indexed root (root = 0)
+     */
+    public int depth(int i) {
+        return depths[i];
+    }
+
+    /**
+     * @param i position of node
+     * @return amount of nodes in the subtree of node (inclusive)
+     */
+    public int subtreeSize(int i) {
+        return sizes[i];
+    }
+
+    /**
+     * @param i position of node
+     * @return amount of direct children. The children are at i + 1, and then each following child after the subtree of the previous one
+     */
+    public int childCount(int i) {
+        return childCounts[i];
+    }
+
+    /**
+     * @param i position of node
+     * @return same as {@link ExtendedNodeUtil#maxDepth(Node)}
+     */
+    public int maxDepth(int i) {
+        return maxDepths[i];
+    }
+
+    /**
+     * @param i position of node
+     * @return same as {@link ExtendedNodeUtil#maxWidth(Node)}
+     */
+    public int maxWidth(int i) {
+        return maxWidths[i];
+    }
+
+    /**
+     * @return all nodes in pre-order
+     */
+    public List<Node> nodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    /**
+     * @param i position of node
+     * @return node and all its descendants in pre-order
+     */
+    public List<Node> subtree(int i) {
+        return nodes().subList(i, i + sizes[i]);
+    }
+
+    /**
+     * Counts the nodes matching a predicate up to each position. Used with {@link #count(int[], int)} to count in any subtree in O(1).
+     *
+     * @param predicate nodes to be counted
+     * @return prefix counts (length size + 1)
+     */
+    public int[] prefixCounts(Predicate<Node> predicate) {
+        int[] prefix = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            prefix[i + 1] = prefix[i] + (predicate.test(nodes[i]) ? 1 : 0);
+        }
+        return prefix;
+    }
+
+    /**
+     * @param prefix result of {@link #prefixCounts(Predicate)}
+     * @param i      position of node
+     * @return amount of matching nodes in the subtree of node
+     */
+    public int count(int[] prefix, int i) {
+        return prefix[i + sizes[i]] - prefix[i];
+    }
+}
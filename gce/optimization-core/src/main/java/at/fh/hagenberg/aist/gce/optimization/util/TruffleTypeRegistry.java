@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the types (class names) of nodes into dense int ids, so hot paths can use arrays instead of String keyed maps.
+ * Registering a {@link TruffleLanguageInformation} gives all node classes of the language consecutive ids,
+ * any other type gets an id the first time it is seen.
+ * Ids are only valid within the running JVM (never persist or send them).
+ */
+public final class TruffleTypeRegistry {
+
+    /**
+     * Id of an unknown (null) type. Real types start at 1, so a default int means "not resolved yet"
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Ids by type name
+     */
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Type names by id. Replaced (not modified) when it grows, so readers never need a lock
+     */
+    private static volatile String[] names = new String[256];
+
+    /**
+     * Hash of the type name by id, see {@link #typeHash(int)}
+     */
+    private static volatile byte[][] hashes = new byte[256][];
+
+    /**
+     * {@link HashUtil.Murmur3} key of the type name by id, see {@link #typeKey(int)}
+     */
+    private static volatile HashKey[] keys = new HashKey[256];
+
+    /**
+     * amount of ids given out (including NONE)
+     */
+    private static volatile int size = 1;
+
+    private TruffleTypeRegistry() {
+    }
+
+    /**
+     * Returns the id of a type, and registers the type if it is unknown
+     *
+     * @param type class name
+     * @return id of type, or NONE if type is null
+     */
+    public static int id(String type) {
+        if (type == null) {
+            return NONE;
+        }
+        Integer id = ids.get(type);
+        return id != null ? id : register(type);
+    }
+
+    /**
+     * Registers all node classes of a language (sorted by name, so the ids are the same in every run that registers the same languages)
+     *
+     * @param tli language to be registered
+     */
+    public static void register(TruffleLanguageInformation tli) {
+        tli.getNodes().keySet().stream().map(Class::getName).sorted().forEach(TruffleTypeRegistry::id);
+    }
+
+    private static synchronized int register(String type) {
+        Integer existing = ids.get(type);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id >= names.length) {
+            hashes = Arrays.copyOf(hashes, names.length * 2);
+            keys = Arrays.copyOf(keys, names.length * 2);
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        hashes[id] = HashUtil.hash(type.getBytes());
+        keys[id] = new HashUtil.Murmur3().putString(type).finish();
+        names[id] = type;
+        size = id + 1;
+        // published last, so everyone finding the id also finds the name and hash
+        ids.put(type, id);
+        return id;
+    }
+
+    /**
+     * @param id of type
+     * @return class name of the type
+     */
+    public static String name(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    /**
+     * Hash of the type name as used in {@link at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper#hash}.
+     * Calculated once per type. DO NOT MODIFY the returned array.
+     *
+     * @param id of type
+     * @return hash of the class name
+     */
+    public static byte[] typeHash(int id) {
+        return hashes[id];
+    }
+
+    /**
+     * Key of the type name as used in {@link at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper#hash}
+     * with {@link HashUtil.Algorithm#MURMUR3}. Calculated once per type.
+     *
+     * @param id of type
+     * @return key of the class name
+     */
+    public static HashKey typeKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @return amount of ids given out, all ids are smaller than this
+     */
+    public static int size() {
+        return size;
+    }
+}
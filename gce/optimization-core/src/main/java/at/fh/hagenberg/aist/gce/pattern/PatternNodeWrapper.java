@@ -29,6 +29,7 @@ public class PatternNodeWrapper extends NodeWrapper {
     private void copyPrototype(NodeWrapper proto) {
         id = proto.getId();
         type = proto.getType();
+        typeId = proto.getTypeId();
         values = new HashMap<>(proto.getValues());
         hash = proto.getHash();
         children = new TreeSet<>();
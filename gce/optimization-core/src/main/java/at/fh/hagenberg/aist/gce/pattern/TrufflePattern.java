@@ -75,15 +75,17 @@ public class TrufflePattern {
      */
     public TrufflePattern(TracableBitwisePattern bitwisePattern, PatternNodeWrapper patternNode) {
         this.patternNode = patternNode;
-        this.size = bitwisePattern.getNodeIds().length;
+        // finished patterns decode their node ids on every call, so we only fetch them once
+        long[][] bitwiseNodeIds = bitwisePattern.getNodeIds();
+        this.size = bitwiseNodeIds.length;
         this.count = bitwisePattern.getCount();
 
         // move over tree ids
         this.treeIds.addAll(bitwisePattern.getTreeIds());
         // move over node ids
         for (int i = 0; i < bitwisePattern.getCount(); i++) {
-            for (int j = 0; j < bitwisePattern.getNodeIds().length; j++) {
-                this.nodeIds.add(bitwisePattern.getNodeIds()[j][i]);
+            for (int j = 0; j < bitwiseNodeIds.length; j++) {
+                this.nodeIds.add(bitwiseNodeIds[j][i]);
             }
         }
     }
@@ -97,15 +99,18 @@ public class TrufflePattern {
      */
     public TrufflePattern(TracableBitwisePattern bitwisePattern, PatternNodeWrapper patternNode, int cluster) {
         this.patternNode = patternNode;
-        this.size = bitwisePattern.getNodeIds().length;
+        long[][] bitwiseNodeIds = bitwisePattern.getNodeIds();
+        long[] bitwiseTreeIds = bitwisePattern.getTreeId();
+        int[] bitwiseClusterIds = bitwisePattern.getClusterId();
+        this.size = bitwiseNodeIds.length;
         this.count = bitwisePattern.getClusterCount(cluster);
 
         // move over node permutations
         for (int i = 0; i < bitwisePattern.getCount(); i++) {
-            if (bitwisePattern.getClusterId()[i] == cluster) {
-                this.treeIds.add(bitwisePattern.getTreeId()[i]);
-                for (int j = 0; j < bitwisePattern.getNodeIds().length; j++) {
-                    this.nodeIds.add(bitwisePattern.getNodeIds()[j][i]);
+            if (bitwiseClusterIds[i] == cluster) {
+                this.treeIds.add(bitwiseTreeIds[i]);
+                for (int j = 0; j < bitwiseNodeIds.length; j++) {
+                    this.nodeIds.add(bitwiseNodeIds[j][i]);
                 }
             }
         }
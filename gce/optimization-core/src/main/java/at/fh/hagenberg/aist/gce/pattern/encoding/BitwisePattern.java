@@ -101,7 +101,7 @@ public class BitwisePattern {
 
     protected long[] dfs(long[] pattern, NodeWrapper node) {
         // add mask
-        pattern[nodePos] = meta.mask(node.getType());
+        pattern[nodePos] = meta.mask(node.getTypeId());
 
         // add children
         for (OrderedRelationship orderedRelationship : node.getChildren()) {
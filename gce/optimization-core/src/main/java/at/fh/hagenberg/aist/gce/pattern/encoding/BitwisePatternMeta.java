@@ -14,6 +14,7 @@ import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.InterfaceMarker;
 import at.fh.hagenberg.aist.gce.optimization.util.Logger;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTypeRegistry;
 import at.fh.hagenberg.aist.gce.pattern.Wildcard;
 import com.oracle.truffle.api.nodes.Node;
 
@@ -60,6 +61,11 @@ public class BitwisePatternMeta {
 
     private Map<String, List<String>> classHierarchy;
 
+    /**
+     * Cache of {@link #mask(String)} by {@link TruffleTypeRegistry} id, so encoding nodes does not need String lookups
+     */
+    private volatile Long[] masksById = new Long[0];
+
     /**
      * Default pattern meta created from the class hierarchy of the tli
      *
@@ -70,6 +76,7 @@ public class BitwisePatternMeta {
     public BitwisePatternMeta(TruffleLanguageInformation tli, boolean superclass) {
         this(BitwisePatternMetaLoader.loadClassHierarchy(tli, superclass), Node.class.getName());
         this.tli = tli;
+        TruffleTypeRegistry.register(tli);
     }
 
     /**
@@ -250,6 +257,33 @@ public class BitwisePatternMeta {
         return this.bitmask.getOrDefault(clazz, ExtendedNodeUtil.isAPINode(clazz) ? this.bitmask.getOrDefault(API_NODE, this.bitmask.get(EXCLUDED_NODE)) : this.bitmask.get(EXCLUDED_NODE));
     }
 
+    /**
+     * Produces a Bitmask from a given type id, identical to {@link #mask(String)} with the name of the type
+     *
+     * @param typeId to be masked, see {@link TruffleTypeRegistry}
+     */
+    public Long mask(int typeId) {
+        Long[] masks = this.masksById;
+        if (typeId >= masks.length) {
+            masks = masksById(typeId);
+        }
+        return masks[typeId];
+    }
+
+    private synchronized Long[] masksById(int typeId) {
+        Long[] masks = this.masksById;
+        if (typeId < masks.length) {
+            return masks;
+        }
+        int size = Math.max(typeId + 1, TruffleTypeRegistry.size());
+        Long[] grown = Arrays.copyOf(masks, size);
+        for (int i = Math.max(masks.length, 1); i < size; i++) {
+            grown[i] = mask(TruffleTypeRegistry.name(i));
+        }
+        this.masksById = grown;
+        return grown;
+    }
+
     /**
      * Returns the class of the bitmask
      *
@@ -345,6 +379,13 @@ public class BitwisePatternMeta {
         return this.bitlayer.size();
     }
 
+    /**
+     * @return every size {@link #maskSize(long)} can return, smallest first
+     */
+    public int[] maskSizes() {
+        return bitlayer.values().stream().mapToInt(x -> x).distinct().sorted().toArray();
+    }
+
     /**
      * returns the size of the mask this class has
      *
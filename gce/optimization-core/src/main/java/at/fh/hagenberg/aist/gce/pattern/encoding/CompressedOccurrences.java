@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.pattern.encoding;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only, columnar encoding of the locations of a {@link TracableBitwisePattern}.
+ * Every column (tree ids, cluster ids, node ids and variable identities per position) is stored as zig-zag encoded
+ * deltas in variable length bytes, one column after the other in a single byte array.
+ * Ids of the same column are usually close to each other (same tree, nodes in dfs order), so most values need 1-2 bytes instead of 8.
+ * <p>
+ * Decoded columns are kept softly reachable, so repeated reads (e.g. ranking the same pattern per cluster) don't decode again,
+ * but the heap can still reclaim them. Decoded arrays are shared between callers and must not be modified.
+ */
+final class CompressedOccurrences {
+
+    /**
+     * Marks a column that does not exist (e.g. no variable identities at a position)
+     */
+    private static final int NO_COLUMN = -1;
+
+    /**
+     * All columns
+     */
+    private final byte[] data;
+
+    /**
+     * Start of each column in data: tree ids, cluster ids, node ids (size columns), variable identities (size columns)
+     */
+    private final int[] offsets;
+
+    /**
+     * amount of locations (values per column)
+     */
+    private final int count;
+
+    /**
+     * Columns that were already decoded, can be cleared by the garbage collector at any time
+     */
+    private volatile SoftReference<View> view = new SoftReference<>(null);
+
+    private CompressedOccurrences(byte[] data, int[] offsets, int count) {
+        this.data = data;
+        this.offsets = offsets;
+        this.count = count;
+    }
+
+    /**
+     * Compresses the first count locations of the given columns
+     *
+     * @param count              amount of locations
+     * @param treeId             tree ids per location
+     * @param clusterId          cluster ids per location
+     * @param nodeIds            node ids [pos][loc]
+     * @param variableIdentities variable identities [pos][loc], rows may be null
+     * @return compressed locations
+     */
+    static CompressedOccurrences compress(int count, long[] treeId, int[] clusterId, long[][] nodeIds, long[][] variableIdentities) {
+        int size = nodeIds.length;
+        int[] offsets = new int[2 + 2 * size];
+        Writer writer = new Writer(count * (2 + 2 * size) * 2);
+
+        offsets[0] = writer.position;
+        writer.write(treeId, count);
+        offsets[1] = writer.position;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            writer.write(clusterId[i] - previous);
+            previous = clusterId[i];
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[2 + i] = writer.position;
+            writer.write(nodeIds[i], count);
+        }
+        for (int i = 0; i < size; i++) {
+            if (variableIdentities[i] == null) {
+                offsets[2 + size + i] = NO_COLUMN;
+            } else {
+                offsets[2 + size + i] = writer.position;
+                writer.write(variableIdentities[i], count);
+            }
+        }
+        return new CompressedOccurrences(Arrays.copyOf(writer.data, writer.position), offsets, count);
+    }
+
+    long[] treeIds() {
+        View view = view();
+        long[] treeIds = view.treeIds;
+        if (treeIds == null) {
+            treeIds = decode(offsets[0]);
+            view.treeIds = treeIds;
+        }
+        return treeIds;
+    }
+
+    int[] clusterIds() {
+        View view = view();
+        int[] clusterIds = view.clusterIds;
+        if (clusterIds == null) {
+            long[] decoded = decode(offsets[1]);
+            clusterIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                clusterIds[i] = (int) decoded[i];
+            }
+            view.clusterIds = clusterIds;
+        }
+        return clusterIds;
+    }
+
+    long[][] nodeIds() {
+        long[][] nodeIds = new long[size()][];
+        for (int i = 0; i < nodeIds.length; i++) {
+            nodeIds[i] = nodeIds(i);
+        }
+        return nodeIds;
+    }
+
+    /**
+     * @param position in the pattern
+     * @return node ids of all locations at the given position
+     */
+    long[] nodeIds(int position) {
+        View view = view();
+        long[] nodeIds = view.nodeIds.get(position);
+        if (nodeIds == null) {
+            nodeIds = decode(offsets[2 + position]);
+            view.nodeIds.set(position, nodeIds);
+        }
+        return nodeIds;
+    }
+
+    long[][] variableIdentities() {
+        View view = view();
+        long[][] variableIdentities = view.variableIdentities;
+        if (variableIdentities == null) {
+            variableIdentities = new long[size()][];
+            for (int i = 0; i < variableIdentities.length; i++) {
+                int offset = offsets[2 + variableIdentities.length + i];
+                variableIdentities[i] = offset == NO_COLUMN ? null : decode(offset);
+            }
+            view.variableIdentities = variableIdentities;
+        }
+        return variableIdentities;
+    }
+
+    /**
+     * @return bytes used by the encoded columns
+     */
+    int byteSize() {
+        return data.length;
+    }
+
+    private int size() {
+        return (offsets.length - 2) / 2;
+    }
+
+    /**
+     * Decoding the same column concurrently is harmless, both threads get equal arrays
+     *
+     * @return decoded columns that are still reachable, or a new empty view
+     */
+    private View view() {
+        View current = view.get();
+        if (current == null) {
+            current = new View(size());
+            view = new SoftReference<>(current);
+        }
+        return current;
+    }
+
+    private long[] decode(int offset) {
+        long[] values = new long[count];
+        int pos = offset;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                raw |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            // undo zig-zag, then delta
+            previous += (raw >>> 1) ^ -(raw & 1);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    /**
+     * Columns decoded so far, null until they are read the first time
+     */
+    private static class View {
+
+        private volatile long[] treeIds;
+
+        private volatile int[] clusterIds;
+
+        private final AtomicReferenceArray<long[]> nodeIds;
+
+        private volatile long[][] variableIdentities;
+
+        View(int size) {
+            nodeIds = new AtomicReferenceArray<>(size);
+        }
+    }
+
+    /**
+     * Growable byte buffer writing zig-zag delta varints
+     */
+    private static class Writer {
+
+        private byte[] data;
+
+        private int position;
+
+        Writer(int capacity) {
+            data = new byte[Math.max(16, capacity)];
+        }
+
+        void write(long[] values, int count) {
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                write(values[i] - previous);
+                previous = values[i];
+            }
+        }
+
+        void write(long delta) {
+            if (position + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                data[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            data[position++] = (byte) zigzag;
+        }
+    }
+}
@@ -21,7 +21,9 @@ import java.util.stream.Collectors;
  * Class representing a Truffle pattern in a bit array.
  * Also contains information on which trees and nodes correspond to this pattern.
  * <p>
- * Note that we use long[] instead of ArrayList as the current bottleneck is MEMORY and not run-time performance
+ * Note that we use long[] instead of ArrayList as the current bottleneck is MEMORY and not run-time performance.
+ * Patterns waiting to be grown and finished (fully grown) patterns move their locations into {@link CompressedOccurrences},
+ * as they stay in memory for a whole level, and as results and origin of their grown patterns.
  *
  * @author Oliver Krauss on 11.04.2019R
  */
@@ -94,6 +96,11 @@ public class TracableBitwisePattern extends BitwisePattern {
      */
     private int growthOpportunities;
 
+    /**
+     * Compressed tree ids, cluster ids, node ids and variable identities after {@link #compress()} or {@link #finish()} (the arrays are null then)
+     */
+    private CompressedOccurrences occurrences;
+
     protected TracableBitwisePattern() {
         // Constructor for copy purposes
     }
@@ -189,27 +196,27 @@ public class TracableBitwisePattern extends BitwisePattern {
     }
 
     public long[][] getVariableIdentities() {
-        return variableIdentities;
+        return occurrences != null ? occurrences.variableIdentities() : variableIdentities;
     }
 
     public long[] getTreeId() {
-        return treeId;
+        return occurrences != null ? occurrences.treeIds() : treeId;
     }
 
     public int[] getClusterId() {
-        return clusterId;
+        return occurrences != null ? occurrences.clusterIds() : clusterId;
     }
 
     public long[][] getNodeIds() {
-        return nodeIds;
+        return occurrences != null ? occurrences.nodeIds() : nodeIds;
     }
 
     public int getTreeCount() {
-        return (int) Arrays.stream(treeId).filter(x -> x != 0).distinct().count();
+        return (int) Arrays.stream(getTreeId()).filter(x -> x != 0).distinct().count();
     }
 
     public int getClusterCount() {
-        return (int) Arrays.stream(clusterId).filter(x -> x != 0).distinct().count();
+        return (int) Arrays.stream(getClusterId()).filter(x -> x != 0).distinct().count();
     }
 
     public int getCount() {
@@ -237,12 +244,12 @@ public class TracableBitwisePattern extends BitwisePattern {
     }
 
     public void addLocation(TracableBitwisePattern encoded) {
+        decompress();
+        encoded.decompress();
         // check and resize arrays
         if (this.count + encoded.count > this.nodeIds[0].length) {
-            int newLen = this.nodeIds[0].length + INCREMENT_SIZE;
-            while (newLen - this.nodeIds[0].length < encoded.count) {
-                newLen += INCREMENT_SIZE;
-            }
+            // grow by half the current length so adding n locations one by one only copies O(n) values
+            int newLen = Math.max(this.nodeIds[0].length + Math.max(INCREMENT_SIZE, this.nodeIds[0].length / 2), this.count + encoded.count);
             long[] newTreeId = new long[newLen];
             System.arraycopy(this.treeId, 0, newTreeId, 0, this.count);
             this.treeId = newTreeId;
@@ -299,6 +306,7 @@ public class TracableBitwisePattern extends BitwisePattern {
     }
 
     public TracableBitwisePattern copy() {
+        decompress();
         TracableBitwisePattern copy = new TracableBitwisePattern();
 
         // from root
@@ -350,6 +358,8 @@ public class TracableBitwisePattern extends BitwisePattern {
      * @return the grown pattern
      */
     public List<TracableBitwisePattern> grow(int pos, long[][] ext_tuples, TracableBitwisePattern target, boolean embedded) {
+        decompress();
+        target.decompress();
         // checking length is cheaper than over / re allocating arrays
         int newCount = ext_tuples.length - 1;
         while (newCount > 0) {
@@ -627,28 +637,71 @@ public class TracableBitwisePattern extends BitwisePattern {
         return ggp;
     }
 
+    /**
+     * Finishes the pattern after it was grown. Drops the growth points and compresses the locations.
+     * A finished pattern can't be grown, copied or extended anymore.
+     */
     public void finish() {
         this.growthOpportunities = 0;
         this.growthPoints = null;
+        compress();
+    }
+
+    /**
+     * Compresses the locations of a pattern that waits to be grown. Growth points are kept,
+     * the locations are decompressed when the pattern is grown, copied or extended.
+     */
+    public void compress() {
+        if (occurrences == null) {
+            occurrences = CompressedOccurrences.compress(count, treeId, clusterId, nodeIds, variableIdentities);
+            treeId = null;
+            clusterId = null;
+            nodeIds = null;
+            variableIdentities = null;
+        }
+    }
+
+    /**
+     * Restores the location arrays of a compressed pattern, trimmed to the amount of locations
+     */
+    private void decompress() {
+        if (occurrences != null) {
+            treeId = occurrences.treeIds().clone();
+            clusterId = occurrences.clusterIds().clone();
+            nodeIds = occurrences.nodeIds();
+            for (int i = 0; i < nodeIds.length; i++) {
+                nodeIds[i] = nodeIds[i].clone();
+            }
+            variableIdentities = occurrences.variableIdentities().clone();
+            for (int i = 0; i < variableIdentities.length; i++) {
+                if (variableIdentities[i] != null) {
+                    variableIdentities[i] = variableIdentities[i].clone();
+                }
+            }
+            occurrences = null;
+        }
     }
 
     public Collection<Long> getNodeIdsAtPos(int position) {
+        long[] atPos = occurrences != null ? occurrences.nodeIds(position) : nodeIds[position];
         List<Long> ids = new ArrayList<>(this.count);
         for (int i = 0; i < count; i++) {
-            ids.add(nodeIds[position][i]);
+            ids.add(atPos[i]);
         }
         return ids;
     }
 
     public Collection<Long> getNodeIdsAtPosDisplay(int position) {
+        long[] atPos = occurrences != null ? occurrences.nodeIds(position) : nodeIds[position];
         List<Long> ids = new ArrayList<>(this.count);
         for (int i = 0; i < count; i++) {
-            ids.add(Math.abs(nodeIds[position][i]));
+            ids.add(Math.abs(atPos[i]));
         }
         return ids;
     }
 
     public Collection<Long> getTreeIds() {
+        long[] treeId = getTreeId();
         Set<Long> ids = new HashSet<>(this.count);
         for (int i = 0; i < count; i++) {
             ids.add(treeId[i]);
@@ -657,6 +710,7 @@ public class TracableBitwisePattern extends BitwisePattern {
     }
 
     public Collection<Integer> getClusterIds() {
+        int[] clusterId = getClusterId();
         Set<Integer> ids = new HashSet<>(this.count);
         for (int i = 0; i < count; i++) {
             ids.add(clusterId[i]);
@@ -665,13 +719,15 @@ public class TracableBitwisePattern extends BitwisePattern {
     }
 
     public long getClusterCount(Integer cluster) {
-        return Arrays.stream(clusterId).filter(x -> x == cluster).count();
+        return Arrays.stream(getClusterId()).filter(x -> x == cluster).count();
     }
 
     public long getClusterTreeCount(Integer cluster) {
+        long[] treeId = getTreeId();
+        int[] clusterId = getClusterId();
         Set<Long> ids = new HashSet<>(this.count);
         for (int i = 0; i < count; i++) {
-            if (this.clusterId[i] == cluster) {
+            if (clusterId[i] == cluster) {
                 ids.add(treeId[i]);
             }
         }
@@ -699,6 +755,7 @@ public class TracableBitwisePattern extends BitwisePattern {
         debugEstimate += System.lineSeparator() + "  CNT     " + DecimalFormat.getNumberInstance().format(SizeOf.newInstance().deepSizeOf(this.count));
         debugEstimate += System.lineSeparator() + "  GROWPOI " + DecimalFormat.getNumberInstance().format(SizeOf.newInstance().deepSizeOf(this.growthPoints));
         debugEstimate += System.lineSeparator() + "  GROWOP  " + DecimalFormat.getNumberInstance().format(SizeOf.newInstance().deepSizeOf(this.growthOpportunities));
+        debugEstimate += System.lineSeparator() + "  OCCURS  " + DecimalFormat.getNumberInstance().format(occurrences != null ? occurrences.byteSize() : 0);
 
         long size = SizeOf.newInstance().deepSizeOf(this) - (origin != null ? SizeOf.newInstance().deepSizeOf(origin) : SizeOf.newInstance().deepSizeOf(this.meta));
 
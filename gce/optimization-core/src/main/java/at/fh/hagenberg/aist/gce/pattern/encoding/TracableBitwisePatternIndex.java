@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.pattern.encoding;
+
+import java.util.*;
+
+/**
+ * Index of {@link TracableBitwisePattern}s that answers "which patterns generalize / are generalized by this one"
+ * without comparing against every indexed pattern.
+ * Patterns are bucketed by everything {@link TracableBitwisePattern#generalizesEqContent(TracableBitwisePattern)}
+ * requires to be equal (count, structure, nodes, variables). Inside a bucket the masks are stored in a trie (one level per position).
+ * As masks are hierarchical prefixes, the specializations of a mask are a contiguous (unsigned) range of children,
+ * and the generalizations are the truncations of the mask to the layers of the {@link BitwisePatternMeta}.
+ * Every candidate found is confirmed with generalizesEqContent, so the results are identical to a full scan
+ * (as long as masks only set bits within their {@link BitwisePatternMeta#maskSize(long)}, which all hierarchy masks do).
+ * Patterns must not be changed (e.g. {@link TracableBitwisePattern#addLocation(TracableBitwisePattern)}) while they are indexed.
+ */
+public class TracableBitwisePatternIndex {
+
+    /**
+     * Meta info of all patterns in the index
+     */
+    private final BitwisePatternMeta meta;
+
+    /**
+     * all sizes a mask can have, see {@link BitwisePatternMeta#maskSizes()}
+     */
+    private final int[] maskSizes;
+
+    /**
+     * Tries of all patterns with equal content
+     */
+    private final Map<Bucket, TrieNode> buckets = new HashMap<>();
+
+    /**
+     * amount of indexed patterns
+     */
+    private int size;
+
+    public TracableBitwisePatternIndex(BitwisePatternMeta meta) {
+        this.meta = meta;
+        this.maskSizes = meta.maskSizes();
+    }
+
+    public TracableBitwisePatternIndex(BitwisePatternMeta meta, Collection<TracableBitwisePattern> patterns) {
+        this(meta);
+        patterns.forEach(this::add);
+    }
+
+    /**
+     * Adds a pattern to the index
+     *
+     * @param pattern to be added
+     */
+    public void add(TracableBitwisePattern pattern) {
+        long[] masks = pattern.getPattern();
+        TrieNode node = buckets.computeIfAbsent(new Bucket(pattern), x -> new TrieNode());
+        for (long mask : masks) {
+            node = node.children.computeIfAbsent(mask, x -> new TrieNode());
+        }
+        if (node.patterns == null) {
+            node.patterns = new ArrayList<>(1);
+        }
+        node.patterns.add(pattern);
+        size++;
+    }
+
+    /**
+     * Removes a pattern (the same instance, not an equal one) from the index
+     *
+     * @param pattern to be removed
+     * @return if the pattern was in the index
+     */
+    public boolean remove(TracableBitwisePattern pattern) {
+        Bucket bucket = new Bucket(pattern);
+        TrieNode root = buckets.get(bucket);
+        if (root == null || !remove(root, pattern.getPattern(), 0, pattern)) {
+            return false;
+        }
+        if (root.children.isEmpty()) {
+            buckets.remove(bucket);
+        }
+        size--;
+        return true;
+    }
+
+    private boolean remove(TrieNode node, long[] masks, int pos, TracableBitwisePattern pattern) {
+        if (pos == masks.length) {
+            if (node.patterns == null) {
+                return false;
+            }
+            Iterator<TracableBitwisePattern> iterator = node.patterns.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == pattern) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+        TrieNode child = node.children.get(masks[pos]);
+        if (child == null || !remove(child, masks, pos + 1, pattern)) {
+            return false;
+        }
+        if (child.children.isEmpty() && (child.patterns == null || child.patterns.isEmpty())) {
+            node.children.remove(masks[pos]);
+        }
+        return true;
+    }
+
+    /**
+     * Finds all indexed patterns the given pattern generalizes (pattern.generalizesEqContent(result))
+     *
+     * @param pattern to be checked
+     * @return indexed specializations of pattern (includes pattern itself if indexed)
+     */
+    public List<TracableBitwisePattern> specializations(TracableBitwisePattern pattern) {
+        List<TracableBitwisePattern> result = new ArrayList<>();
+        TrieNode root = buckets.get(new Bucket(pattern));
+        if (root != null) {
+            specializations(root, pattern, 0, result, false);
+        }
+        return result;
+    }
+
+    /**
+     * Checks if any indexed pattern is generalized by the given pattern
+     *
+     * @param pattern to be checked
+     * @return true if at least one specialization of pattern is indexed
+     */
+    public boolean hasSpecialization(TracableBitwisePattern pattern) {
+        List<TracableBitwisePattern> result = new ArrayList<>(1);
+        TrieNode root = buckets.get(new Bucket(pattern));
+        return root != null && specializations(root, pattern, 0, result, true);
+    }
+
+    private boolean specializations(TrieNode node, TracableBitwisePattern pattern, int pos, List<TracableBitwisePattern> result, boolean first) {
+        long[] masks = pattern.getPattern();
+        if (pos == masks.length) {
+            if (node.patterns != null) {
+                for (TracableBitwisePattern candidate : node.patterns) {
+                    if (pattern.generalizesEqContent(candidate)) {
+                        result.add(candidate);
+                        if (first) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        // every mask sharing the significant bits of the generalizing mask, see BitwisePattern#generalizes
+        int shift = shift(meta.maskSize(masks[pos]));
+        Collection<TrieNode> candidates;
+        if (shift == 0) {
+            TrieNode child = node.children.get(masks[pos]);
+            candidates = child == null ? Collections.emptyList() : Collections.singletonList(child);
+        } else {
+            long lower = masks[pos] & (-1L << shift);
+            long upper = lower | ~(-1L << shift);
+            candidates = node.children.subMap(lower, true, upper, true).values();
+        }
+        for (TrieNode child : candidates) {
+            if (specializations(child, pattern, pos + 1, result, first) && first) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds all indexed patterns that generalize the given pattern (result.generalizesEqContent(pattern))
+     *
+     * @param pattern to be checked
+     * @return indexed generalizations of pattern (includes pattern itself if indexed)
+     */
+    public List<TracableBitwisePattern> generalizations(TracableBitwisePattern pattern) {
+        List<TracableBitwisePattern> result = new ArrayList<>();
+        TrieNode root = buckets.get(new Bucket(pattern));
+        if (root != null) {
+            generalizations(root, pattern, 0, result);
+        }
+        return result;
+    }
+
+    private void generalizations(TrieNode node, TracableBitwisePattern pattern, int pos, List<TracableBitwisePattern> result) {
+        long[] masks = pattern.getPattern();
+        if (pos == masks.length) {
+            if (node.patterns != null) {
+                node.patterns.stream().filter(x -> x.generalizesEqContent(pattern)).forEach(result::add);
+            }
+            return;
+        }
+
+        // a generalizing mask is the given mask truncated to its own size (or the mask itself)
+        long mask = masks[pos];
+        Set<Long> visited = new HashSet<>();
+        for (int i = -1; i < maskSizes.length; i++) {
+            int shift = i < 0 ? 0 : shift(maskSizes[i]);
+            long truncated = shift == 0 ? mask : mask & (-1L << shift);
+            if (!visited.add(truncated)) {
+                continue;
+            }
+            TrieNode child = node.children.get(truncated);
+            if (child != null && truncated >>> shift(meta.maskSize(truncated)) == mask >>> shift(meta.maskSize(truncated))) {
+                generalizations(child, pattern, pos + 1, result);
+            }
+        }
+    }
+
+    /**
+     * Shift used by {@link BitwisePattern#generalizes(BitwisePattern)} for a mask of the given size
+     *
+     * @param size of the mask
+     * @return shift distance as java applies it (mod 64)
+     */
+    private static int shift(long size) {
+        return (int) ((64 - size) & 63);
+    }
+
+    /**
+     * @return amount of indexed patterns
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Level in the mask trie
+     */
+    private static class TrieNode {
+
+        /**
+         * Children by mask, ordered unsigned so a mask prefix is a contiguous range
+         */
+        private final TreeMap<Long, TrieNode> children = new TreeMap<>(Long::compareUnsigned);
+
+        /**
+         * Patterns ending in this node (only at the depth of the pattern length)
+         */
+        private List<TracableBitwisePattern> patterns;
+    }
+
+    /**
+     * Everything that must be equal for one pattern to generalize another, apart from the masks
+     */
+    private static class Bucket {
+
+        private final int count;
+
+        private final int length;
+
+        private final long[] openclosetags;
+
+        private final long[] nodes;
+
+        private final long[] variables;
+
+        private final int hash;
+
+        Bucket(TracableBitwisePattern pattern) {
+            this.count = pattern.getCount();
+            this.length = pattern.getPattern().length;
+            this.openclosetags = pattern.getOpenclosetags();
+            this.nodes = pattern.getNodes();
+            this.variables = pattern.getVariables();
+            this.hash = Objects.hash(count, length, Arrays.hashCode(openclosetags), Arrays.hashCode(nodes), Arrays.hashCode(variables));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Bucket bucket = (Bucket) o;
+            return count == bucket.count && length == bucket.length && Arrays.equals(openclosetags, bucket.openclosetags)
+                && Arrays.equals(nodes, bucket.nodes) && Arrays.equals(variables, bucket.variables);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -105,11 +105,7 @@ public class TrufflePatternSearchSpace implements Iterator<Pair<NodeWrapper[], O
         LinkedList<Pair<NodeWrapper[], OrderedRelationship[]>> check = new LinkedList<>(searchSpace);
 
         check.forEach(unresolvedTree -> {
-            // TODO #250 -> this will fail on wildcard patterns
-            NodeWrapper resolvedTree = resolve(unresolvedTree);
-            NodeWrapper.reHash(resolvedTree);
-            // for each pattern group check if all patterns are contained in the tree, if not a single group is fulfilled remove the tree
-            if (patterns.stream().noneMatch(andGroup -> andGroup.stream().allMatch(pattern -> resolvedTree.contains(pattern.getPatternNode())))) {
+            if (!adheres(unresolvedTree, patterns)) {
                 searchSpace.remove(unresolvedTree);
             }
         });
@@ -117,7 +113,22 @@ public class TrufflePatternSearchSpace implements Iterator<Pair<NodeWrapper[], O
         iterator = searchSpace.iterator();
     }
 
-    private NodeWrapper resolve(Pair<NodeWrapper[], OrderedRelationship[]> unresolvedTree) {
+    /**
+     * Checks if a tree adheres to the given patterns. The patterns must already be hashed (see {@link NodeWrapper#reHash(NodeWrapper)})
+     *
+     * @param unresolvedTree tree to be checked
+     * @param patterns       that must be contained in trees (outer list OR, inner list AND)
+     * @return true if all patterns of at least one group are contained in the tree
+     */
+    public static boolean adheres(Pair<NodeWrapper[], OrderedRelationship[]> unresolvedTree, List<List<TrufflePattern>> patterns) {
+        // TODO #250 -> this will fail on wildcard patterns
+        NodeWrapper resolvedTree = resolve(unresolvedTree);
+        NodeWrapper.reHash(resolvedTree);
+        // for each pattern group check if all patterns are contained in the tree, if not a single group is fulfilled remove the tree
+        return patterns.stream().anyMatch(andGroup -> andGroup.stream().allMatch(pattern -> resolvedTree.contains(pattern.getPatternNode())));
+    }
+
+    private static NodeWrapper resolve(Pair<NodeWrapper[], OrderedRelationship[]> unresolvedTree) {
         Map<NodeWrapper, NodeWrapper> sourceTargetMap = new HashMap<>();
 
         for (NodeWrapper nodeWrapper : unresolvedTree.getKey()) {
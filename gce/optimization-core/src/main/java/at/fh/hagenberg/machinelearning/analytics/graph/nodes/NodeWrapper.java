@@ -17,11 +17,6 @@ import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.nodes.Node;
-import org.ehcache.Cache;
-import org.ehcache.CacheManager;
-import org.ehcache.config.builders.CacheConfigurationBuilder;
-import org.ehcache.config.builders.CacheManagerBuilder;
-import org.ehcache.config.builders.ResourcePoolsBuilder;
 import org.neo4j.driver.internal.value.FloatValue;
 import org.neo4j.ogm.annotation.Id;
 import org.neo4j.ogm.annotation.NodeEntity;
@@ -32,6 +27,7 @@ import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -50,11 +46,23 @@ public class NodeWrapper implements Serializable {
      */
     protected String type;
 
+    /**
+     * Interned id of the type (see {@link TruffleTypeRegistry}), resolved lazily as the db sets the type directly
+     */
+    @Transient
+    protected transient int typeId = TruffleTypeRegistry.NONE;
+
     /**
      * hash code that is (hopefully) uniqe for this (sub)tree
      */
     protected String hash;
 
+    /**
+     * hash as key object, either calculated directly (see {@link HashUtil.Algorithm#MURMUR3}) or lazily from the hash string
+     */
+    @Transient
+    protected transient HashKey hashKey;
+
     /**
      * Terminal Values of the node that are NOT a Node
      */
@@ -71,6 +79,7 @@ public class NodeWrapper implements Serializable {
 
     public NodeWrapper(String type) {
         this.type = type;
+        this.typeId = TruffleTypeRegistry.id(type);
     }
 
     public Long getId() {
@@ -85,6 +94,16 @@ public class NodeWrapper implements Serializable {
         return type;
     }
 
+    /**
+     * @return interned id of the type (see {@link TruffleTypeRegistry})
+     */
+    public int getTypeId() {
+        if (typeId == TruffleTypeRegistry.NONE) {
+            typeId = TruffleTypeRegistry.id(type);
+        }
+        return typeId;
+    }
+
     public String simplifiedType() {
         String name = type;
         // TODO #63 make this more generic, just hacked in since I was going insane during pattern mining
@@ -116,6 +135,7 @@ public class NodeWrapper implements Serializable {
 
     public void setType(String type) {
         this.type = type;
+        this.typeId = TruffleTypeRegistry.id(type);
     }
 
     public void addChild(OrderedRelationship childNode) {
@@ -139,17 +159,23 @@ public class NodeWrapper implements Serializable {
     }
 
 
-    @Transient
-    private static Cache<Integer, NodeWrapper> microCache = init();
+    /**
+     * Maximum amount of wrapped trees kept in the {@link #wrapCache}
+     */
+    private static final int WRAP_CACHE_SIZE = 1000;
 
-    private static Cache<Integer, NodeWrapper> init() {
-        CacheManager cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .withCache("NodeWrapperCache",
-                        CacheConfigurationBuilder.newCacheConfigurationBuilder(Integer.class, NodeWrapper.class, ResourcePoolsBuilder.heap(5)))
-                .build();
-        cacheManager.init();
-        return cacheManager.getCache("NodeWrapperCache", Integer.class, NodeWrapper.class);
-    }
+    /**
+     * Wrapped trees by the identity of their top-level node (Truffle nodes don't override equals/hashCode).
+     * Least recently used trees are dropped when the cache is full, as populations keep their trees alive for a long time.
+     * The identity doesn't change when a tree is rewritten, so every replacement in a tree must be reported via {@link #invalidate(Node)}.
+     */
+    @Transient
+    private static final Map<Node, NodeWrapper> wrapCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Node, NodeWrapper> eldest) {
+            return size() > WRAP_CACHE_SIZE;
+        }
+    });
 
     /**
      * Helper function that transforms a Truffle node into this class for logging to a graph Database
@@ -159,20 +185,138 @@ public class NodeWrapper implements Serializable {
      */
     public static NodeWrapper wrap(Node node) {
         // little helper that makes sure we don't repeatedly wrap the same node
-        if (microCache.containsKey(node.hashCode())) {
-            return microCache.get(node.hashCode());
+        NodeWrapper w = wrapCache.get(node);
+        if (w != null) {
+            return w;
         }
         // Caching only works top-level (as subtrees are NEVER the same objects!)
-        NodeWrapper w = new NodeWrapper(node.getClass().getName());
-        microCache.put(node.hashCode(), w);
-        return wrapChildren(w, node);
+        w = wrapChildren(new NodeWrapper(node.getClass().getName()), node);
+        wrapCache.put(node, w);
+        return w;
+    }
+
+    /**
+     * Incrementally wraps a tree in which a single subtree was replaced (see {@link Node#replace(Node)}).
+     * Only the replacement is wrapped. The nodes on the path up to the root are copied from the original and re-hashed,
+     * all other subtrees are copied with their existing hashes. The result is cached for node, the same as {@link #wrap(Node)}.
+     * Falls back to wrapping the whole tree if the replacement can't be located in the original.
+     *
+     * @param node        tree after the replacement
+     * @param original    wrapper of the tree before the replacement (must have been wrapped from the same structure)
+     * @param replacement node that was inserted into the tree
+     * @return wrapper identical to wrapping the whole tree
+     */
+    public static NodeWrapper wrap(Node node, NodeWrapper original, Node replacement) {
+        invalidate(replacement);
+        NodeWrapper w = original != null && replacement != node ? wrapReplaced(node, original, replacement) : null;
+        if (w == null) {
+            wrapCache.remove(node);
+            return wrap(node);
+        }
+        wrapCache.put(node, w);
+        return w;
+    }
+
+    private static NodeWrapper wrapReplaced(Node node, NodeWrapper original, Node replacement) {
+        // positions (field, order) from the root down to the replacement
+        Deque<OrderedRelationship> path = new ArrayDeque<>();
+        Node current = replacement;
+        while (current != node) {
+            Node parent = current.getParent();
+            OrderedRelationship slot = parent != null ? slot(parent, current) : null;
+            if (slot == null) {
+                return null;
+            }
+            path.push(slot);
+            current = parent;
+        }
+        return replace(original, path.iterator(), wrapChildren(new NodeWrapper(replacement.getClass().getName()), replacement));
+    }
+
+    /**
+     * Finds the field (and position in the field) that holds a child, the same way {@link #wrapChildren(NodeWrapper, Node)} records them
+     *
+     * @param parent of child
+     * @param child  to be found
+     * @return relationship without nodes, or null if child is not a child of parent
+     */
+    private static OrderedRelationship slot(Node parent, Node child) {
+        Class fieldClass = parent.getClass();
+        while (fieldClass != null && fieldClass != Node.class) {
+            for (Field field : fieldClass.getDeclaredFields()) {
+                if (Arrays.stream(field.getDeclaredAnnotations()).anyMatch(x -> x.annotationType().equals(Node.Child.class))) {
+                    if (JavaAssistUtil.safeFieldAccess(field, parent) == child) {
+                        return new OrderedRelationship(null, null, field.getName(), 0);
+                    }
+                } else if (field.getType().isArray() && Arrays.stream(field.getDeclaredAnnotations()).anyMatch(x -> x.annotationType().equals(Node.Children.class))) {
+                    Object[] value = (Object[]) JavaAssistUtil.safeFieldAccess(field, parent);
+                    for (int i = 0; value != null && i < value.length; i++) {
+                        if (value[i] == child) {
+                            return new OrderedRelationship(null, null, field.getName(), i);
+                        }
+                    }
+                }
+            }
+            fieldClass = fieldClass.getSuperclass();
+        }
+        return null;
+    }
+
+    private static NodeWrapper replace(NodeWrapper original, Iterator<OrderedRelationship> path, NodeWrapper replacement) {
+        if (!path.hasNext()) {
+            return replacement;
+        }
+        OrderedRelationship slot = path.next();
+        NodeWrapper copy = new NodeWrapper(original.type);
+        copy.values = new HashMap<>(original.values);
+        boolean replaced = false;
+        for (OrderedRelationship child : original.children) {
+            if (!replaced && child.compareTo(slot) == 0) {
+                NodeWrapper replacedChild = replace(child.getChild(), path, replacement);
+                if (replacedChild == null) {
+                    return null;
+                }
+                copy.addChild(replacedChild, child.getField(), child.getOrder());
+                replaced = true;
+            } else {
+                copy.addChild(copyUnchanged(child.getChild()), child.getField(), child.getOrder());
+            }
+        }
+        return replaced ? hash(copy) : null;
+    }
+
+    /**
+     * Copies an unchanged subtree including its hashes, but without database ids (the copy belongs to a different tree)
+     *
+     * @param original subtree to be copied
+     * @return copy of subtree
+     */
+    private static NodeWrapper copyUnchanged(NodeWrapper original) {
+        NodeWrapper copy = new NodeWrapper(original.type);
+        copy.values = new HashMap<>(original.values);
+        copy.hash = original.hash;
+        copy.hashKey = original.hashKey;
+        original.children.forEach(x -> copy.addChild(copyUnchanged(x.getChild()), x.getField(), x.getOrder()));
+        return hash(copy);
+    }
+
+    /**
+     * Removes all cached trees that contain the given node, which are the node itself and all of its parents.
+     * Must be called with the replacement whenever a node in a tree was replaced (see {@link Node#replace(Node)}).
+     *
+     * @param node that was inserted into a tree
+     */
+    public static void invalidate(Node node) {
+        for (Node current = node; current != null; current = current.getParent()) {
+            wrapCache.remove(current);
+        }
     }
 
     /**
      * Clears cache in case we modified a given node
      */
     public static void clearCache() {
-        microCache.clear();
+        wrapCache.clear();
     }
 
     /**
@@ -444,16 +588,27 @@ public class NodeWrapper implements Serializable {
 
     public void setHash(String hash) {
         this.hash = hash;
+        this.hashKey = null;
     }
 
     public String getHash() {
         return hash;
     }
 
+    /**
+     * @return hash of this (sub)tree as key object, null if not hashed
+     */
+    public HashKey getHashKey() {
+        if (hashKey == null && hash != null) {
+            hashKey = HashKey.of(hash);
+        }
+        return hashKey;
+    }
+
     protected byte[][] selfHash() {
         // hash this node
         byte[][] selfHash = new byte[this.getValues().keySet().size() * 2 + 1][];
-        selfHash[0] = HashUtil.hash(this.getType().getBytes());
+        selfHash[0] = TruffleTypeRegistry.typeHash(this.getTypeId());
         int i = 1;
 
         // hash all values
@@ -491,21 +646,7 @@ public class NodeWrapper implements Serializable {
         if (node.getHash() != null) {
             return node;
         }
-
-        byte[][] hashes = Arrays.copyOf(node.selfHash(), node.selfHash().length + node.getChildren().size());
-        int i = 1 + node.getValues().keySet().size() * 2;
-
-        // hash all children
-        // TODO: #67 When we log commutativity of children (so order irrelevant) we also need to make sure that a->b|c and a->c|b get the same hash
-        Iterator<OrderedRelationship> it = node.getChildren().iterator();
-        while (it.hasNext()) {
-            hashes[i] = HashUtil.decodeHash(it.next().getChild().getHash());
-            i++;
-        }
-
-        // set the hash
-        node.setHash(HashUtil.hashAndEncode(hashes));
-
+        hashNode(node, UnaryOperator.identity());
         return node;
     }
 
@@ -517,21 +658,7 @@ public class NodeWrapper implements Serializable {
      * @return node with a hash set (dependent on children!)
      */
     public static NodeWrapper reHashChildren(NodeWrapper node) {
-        byte[][] hashes = Arrays.copyOf(node.selfHash(), node.selfHash().length + node.getChildren().size());
-        int i = 1 + node.getValues().keySet().size() * 2;
-
-
-        // hash all children
-        // TODO: #67 When we log commutativity of children (so order irrelevant) we also need to make sure that a->b|c and a->c|b get the same hash
-        Iterator<OrderedRelationship> it = node.getChildren().iterator();
-        while (it.hasNext()) {
-            hashes[i] = HashUtil.decodeHash(reHashChildren(it.next().getChild()).getHash());
-            i++;
-        }
-
-        // set the hash
-        node.setHash(HashUtil.hashAndEncode(hashes));
-
+        hashNode(node, NodeWrapper::reHashChildren);
         return node;
     }
 
@@ -543,22 +670,47 @@ public class NodeWrapper implements Serializable {
      * @return node with a hash set (dependent on children!)
      */
     public static <T extends NodeWrapper> T reHash(T node) {
-        byte[][] hashes = Arrays.copyOf(node.selfHash(), node.selfHash().length + node.getChildren().size());
-        int i = 1 + node.getValues().keySet().size() * 2;
+        hashNode(node, NodeWrapper::reHash);
+        return node;
+    }
 
+    /**
+     * Sets the hash of a node from its own values and the hashes of its children, with the {@link HashUtil#getAlgorithm()}
+     *
+     * @param node      to be hashed
+     * @param hashChild applied to every child before its hash is used
+     */
+    private static void hashNode(NodeWrapper node, UnaryOperator<NodeWrapper> hashChild) {
+        if (HashUtil.getAlgorithm() == HashUtil.Algorithm.MURMUR3) {
+            HashUtil.Murmur3 hasher = new HashUtil.Murmur3().putKey(TruffleTypeRegistry.typeKey(node.getTypeId()));
+            String[] keys = node.getValues().keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            for (String key : keys) {
+                Object value = node.getValues().get(key);
+                hasher.putString(key).putString(value != null ? value.toString() : "");
+            }
+            for (OrderedRelationship child : node.getChildren()) {
+                hasher.putKey(hashChild.apply(child.getChild()).getHashKey());
+            }
+            node.hashKey = hasher.finish();
+            node.hash = node.hashKey.encode();
+            return;
+        }
+
+        byte[][] selfHash = node.selfHash();
+        byte[][] hashes = Arrays.copyOf(selfHash, selfHash.length + node.getChildren().size());
+        int i = 1 + node.getValues().keySet().size() * 2;
 
         // hash all children
         // TODO: #67 When we log commutativity of children (so order irrelevant) we also need to make sure that a->b|c and a->c|b get the same hash
         Iterator<OrderedRelationship> it = node.getChildren().iterator();
         while (it.hasNext()) {
-            hashes[i] = HashUtil.decodeHash(reHash(it.next().getChild()).getHash());
+            hashes[i] = HashUtil.decodeHash(hashChild.apply(it.next().getChild()).getHash());
             i++;
         }
 
         // set the hash
         node.setHash(HashUtil.hashAndEncode(hashes));
-
-        return node;
     }
 
     /**
@@ -576,6 +728,7 @@ public class NodeWrapper implements Serializable {
 
     private static void purge(NodeWrapper node) {
         node.hash = null;
+        node.hashKey = null;
         node.getChildren().stream().map(OrderedRelationship::getChild).forEach(NodeWrapper::purge);
     }
 
@@ -597,6 +750,7 @@ public class NodeWrapper implements Serializable {
         copy.values = new HashMap<>(this.values);
         copy.id = this.id;
         copy.hash = this.hash;
+        copy.hashKey = this.hashKey;
 
         return copy;
     }
@@ -611,6 +765,7 @@ public class NodeWrapper implements Serializable {
         copy.values = new HashMap<>(this.values);
         copy.id = this.id;
         copy.hash = this.hash;
+        copy.hashKey = this.hashKey;
         this.children.forEach(x -> copy.addChild(x.getChild().deepCopy(), x.getField(), x.getOrder()));
         return copy;
     }
@@ -737,7 +892,9 @@ public class NodeWrapper implements Serializable {
             // tci can be nullable!
             complexity += 1;
         }
-        complexity += StreamSupport.stream(tree.getChildren().spliterator(), true).mapToDouble(x -> cyclomaticComplexity(x, tli)).sum();
+        for (Node child : tree.getChildren()) {
+            complexity += cyclomaticComplexity(child, tli);
+        }
         return complexity;
     }
 
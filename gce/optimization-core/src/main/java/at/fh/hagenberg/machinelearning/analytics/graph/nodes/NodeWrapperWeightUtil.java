@@ -15,13 +15,15 @@ import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleClassInformation;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleClassProperty;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTypeRegistry;
 import com.oracle.truffle.api.nodes.Node;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.stream.StreamSupport;
 
 public class NodeWrapperWeightUtil {
 
@@ -50,6 +52,16 @@ public class NodeWrapperWeightUtil {
      */
     private Map<String, Double> weights;
 
+    /**
+     * Weights by {@link TruffleTypeRegistry} id (NaN if the weight is missing), so weighting a NodeWrapper needs no String lookups
+     */
+    private double[] weightsById;
+
+    /**
+     * Class information by {@link TruffleTypeRegistry} id
+     */
+    private TruffleClassInformation[] tciById;
+
     /**
      * Average value to approximate uknown nodes
      */
@@ -67,6 +79,25 @@ public class NodeWrapperWeightUtil {
         average = tli.getInstantiableNodes().values().stream().filter(x -> x.getSystemWeight() > 0).mapToDouble(TruffleClassInformation::getSystemWeight).average().orElse(1.0);
         tli.getInstantiableNodes().values().stream().filter(x -> !x.getWeight().containsKey(SystemInformation.getCurrentSystem()))
             .forEach(x -> weights.put(x.getClazz().getName(), average));
+
+        TruffleTypeRegistry.register(tli);
+        weightsById = new double[TruffleTypeRegistry.size()];
+        tciById = new TruffleClassInformation[weightsById.length];
+        Arrays.fill(weightsById, Double.NaN);
+        tli.getNodes().forEach((key, value) -> {
+            int id = TruffleTypeRegistry.id(key.getName());
+            tciById[id] = value;
+            weightsById[id] = weights.getOrDefault(key.getName(), Double.NaN);
+        });
+    }
+
+    /**
+     * @param node to be looked up
+     * @return class information of the type of the node, or null if the type is not part of the language
+     */
+    private TruffleClassInformation tci(NodeWrapper node) {
+        int id = node.getTypeId();
+        return id < tciById.length ? tciById[id] : null;
     }
 
     public NodeWrapperWeightUtil(String languageId) {
@@ -95,7 +126,8 @@ public class NodeWrapperWeightUtil {
             // skip api nodes
             return node.getChildren().stream().mapToDouble(x -> weight(x.getChild())).sum();
         }
-        if (!weights.containsKey(node.getType())) {
+        int id = node.getTypeId();
+        if (id >= weightsById.length || Double.isNaN(weightsById[id])) {
             if (!warned) {
                 warned = true;
                 System.out.println("Warning: Weight is missing for type: " + node.getType());
@@ -105,7 +137,7 @@ public class NodeWrapperWeightUtil {
 
         // calculate child weights
         double childWeights = node.getChildren().stream().mapToDouble(x -> weight(x.getChild())).sum();
-        TruffleClassInformation tci = tli.getTci(node.getType());
+        TruffleClassInformation tci = tciById[id];
         if (tci.hasProperty(TruffleClassProperty.LOOP)) {
             // for loops we assume an average call amount (other option woudld be to do childWeight^2 or childweight + log(childWeight)...
             childWeights *= LOOP_ASSERTION;
@@ -116,16 +148,40 @@ public class NodeWrapperWeightUtil {
             childWeights *= CONDITION_ASSERTION;
         }
 
-        return weights.get(node.getType()) + childWeights;
+        return weightsById[id] + childWeights;
     }
 
     public double weight(Node node) {
         if (node == null) {
             return 0;
         }
+        return weights(new TruffleTreeIndex(node))[0];
+    }
+
+    /**
+     * Same as {@link #weight(Node)} for every subtree of the index, calculated bottom up in one pass
+     *
+     * @param index of tree to be weighted
+     * @return weight of the subtree at each position of the index
+     */
+    public double[] weights(TruffleTreeIndex index) {
+        double[] weights = new double[index.size()];
+        for (int i = index.size() - 1; i >= 0; i--) {
+            // children come after their parent in pre-order, so they are already weighted
+            double[] childWeights = new double[index.childCount(i)];
+            for (int child = i + 1, c = 0; c < childWeights.length; child += index.subtreeSize(child), c++) {
+                childWeights[c] = weights[child];
+            }
+            // summed as stream, so the result is the same as for weight(NodeWrapper)
+            weights[i] = weight(index.node(i), Arrays.stream(childWeights).sum(), childWeights.length);
+        }
+        return weights;
+    }
+
+    private double weight(Node node, double childWeights, int childCount) {
         if (ExtendedNodeUtil.isAPINode(node)) {
             // skip api nodes
-            return StreamSupport.stream(node.getChildren().spliterator(), true).mapToDouble(this::weight).sum();
+            return childWeights;
         }
         if (!weights.containsKey(node.getClass().getName())) {
             if (!warned) {
@@ -135,15 +191,13 @@ public class NodeWrapperWeightUtil {
             return average;
         }
 
-        // calculate child weights
-        double childWeights = StreamSupport.stream(node.getChildren().spliterator(), true).mapToDouble(this::weight).sum();
         TruffleClassInformation tci = tli.getTci(node.getClass());
         if (tci.hasProperty(TruffleClassProperty.LOOP)) {
             // for loops we assume an average call amount (other option woudld be to do childWeight^2 or childweight + log(childWeight)...
             childWeights *= LOOP_ASSERTION;
         } else if (tci.hasProperty(TruffleClassProperty.BRANCH)) {
             // for branches we assert that all branches are taken equally often (we assume 1 condition node)
-            childWeights /= StreamSupport.stream(node.getChildren().spliterator(), true).count() - 1;
+            childWeights /= childCount - 1;
             // we also don't know which node is the condition. As that one was "folded" into the branches we must increase our assumption
             childWeights *= CONDITION_ASSERTION;
         }
@@ -212,7 +266,7 @@ public class NodeWrapperWeightUtil {
             return 0;
         }
         // find tli
-        TruffleClassInformation tci = tli.getTci(node);
+        TruffleClassInformation tci = tci(node);
 
         // weight = amount of executions * assumed node weight
         double weight = traces.get(traceKey) * (optimized ? tci.getWeight() : tci.getWeightUnoptimized()).get(this.information);
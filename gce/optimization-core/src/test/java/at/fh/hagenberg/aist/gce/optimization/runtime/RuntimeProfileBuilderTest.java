@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.runtime;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class RuntimeProfileBuilderTest {
+
+    @Test
+    public void testSmallValuesExact() {
+        // given
+        long[] values = new long[]{5, 1, 9, 3, 7, 100, 2};
+
+        // when
+        RuntimeProfile expected = new RuntimeProfile(values.clone());
+        RuntimeProfile profile = new RuntimeProfileBuilder().addAll(values, 0, values.length).build();
+
+        // then
+        Assert.assertEquals(profile.getCount(), expected.getCount());
+        Assert.assertEquals(profile.getMinimum(), expected.getMinimum());
+        Assert.assertEquals(profile.getMaximum(), expected.getMaximum());
+        Assert.assertEquals(profile.getMedian(), expected.getMedian());
+        Assert.assertEquals(profile.getFirstQuartile(), expected.getFirstQuartile());
+        Assert.assertEquals(profile.getThirdQuartile(), expected.getThirdQuartile());
+        Assert.assertEquals(profile.getMean(), expected.getMean(), 0.0001);
+        Assert.assertEquals(profile.getStandardDeviation(), expected.getStandardDeviation(), 0.0001);
+        Assert.assertEquals(profile.getGroups(), expected.getGroups());
+    }
+
+    @Test
+    public void testLargeValuesApproximate() {
+        // given
+        Random random = new Random(42);
+        long[] values = new long[200000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 10000 + (long) (Math.abs(random.nextGaussian()) * 5000);
+        }
+
+        // when
+        RuntimeProfile profile = new RuntimeProfileBuilder().addAll(values, 0, values.length).build();
+        RuntimeProfile expected = new RuntimeProfile(values);
+
+        // then
+        Assert.assertEquals(profile.getMinimum(), expected.getMinimum());
+        Assert.assertEquals(profile.getMaximum(), expected.getMaximum());
+        Assert.assertEquals(profile.getMean(), expected.getMean(), 0.0001);
+        Assert.assertEquals(profile.getStandardDeviation(), expected.getStandardDeviation(), 0.0001);
+        Assert.assertEquals(profile.getMedian(), expected.getMedian(), expected.getMedian() * 0.005);
+        Assert.assertEquals(profile.getFirstQuartile(), expected.getFirstQuartile(), expected.getFirstQuartile() * 0.005);
+        Assert.assertEquals(profile.getThirdQuartile(), expected.getThirdQuartile(), expected.getThirdQuartile() * 0.005);
+    }
+
+    @Test
+    public void testMerge() {
+        // given
+        long[] values = new long[]{1000, 2000, 3000, 4000, 5000, 6000};
+
+        // when
+        RuntimeProfileBuilder first = new RuntimeProfileBuilder().addAll(values, 0, 2);
+        RuntimeProfileBuilder second = new RuntimeProfileBuilder().addAll(values, 2, values.length);
+        RuntimeProfile merged = first.merge(second).build();
+        RuntimeProfile expected = new RuntimeProfileBuilder().addAll(values, 0, values.length).build();
+
+        // then
+        Assert.assertEquals(merged.getCount(), 6);
+        Assert.assertEquals(merged.getMean(), expected.getMean(), 0.0001);
+        Assert.assertEquals(merged.getStandardDeviation(), expected.getStandardDeviation(), 0.0001);
+        Assert.assertEquals(merged.getMedian(), expected.getMedian());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testEmpty() {
+        new RuntimeProfileBuilder().build();
+    }
+}
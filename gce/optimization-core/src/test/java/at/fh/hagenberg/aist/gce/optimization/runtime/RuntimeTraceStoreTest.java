@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.runtime;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class RuntimeTraceStoreTest {
+
+    private File directory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("traces").toFile();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        RuntimeTraceStore.getStore(directory.getAbsolutePath()).close();
+        try (Stream<java.nio.file.Path> files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testWriteRead() {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+
+        // when
+        store.write(1, 2, new long[]{5, 1, 9});
+        store.write(1, 3, "other", new long[]{7});
+
+        // then
+        Assert.assertEquals(store.readArray(1, 2), new long[]{5, 1, 9});
+        Assert.assertEquals(store.read(1, 3, "other").get(0), 7);
+        Assert.assertNull(store.read(1, 3));
+        Assert.assertEquals(store.size(), 2);
+    }
+
+    @Test
+    public void testNewerTraceWins() {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+
+        // when
+        store.write(1, 2, new long[]{5, 1, 9});
+        store.write(1, 2, new long[]{4, 2});
+
+        // then
+        Assert.assertEquals(store.readArray(1, 2), new long[]{4, 2});
+        Assert.assertEquals(store.size(), 1);
+    }
+
+    @Test
+    public void testSameStorePerDirectory() {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+
+        // when
+        RuntimeTraceStore other = RuntimeTraceStore.getStore(directory.getAbsolutePath() + File.separator + ".." + File.separator + directory.getName());
+
+        // then
+        Assert.assertSame(other, store);
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        store.write(1, 2, new long[]{5, 1, 9});
+        store.write(1, 2, new long[]{4, 2});
+        store.write(3, 4, new long[]{8});
+        store.close();
+
+        // when
+        RuntimeTraceStore reopened = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        reopened.write(5, 6, new long[]{1, 2, 3});
+
+        // then
+        Assert.assertNotSame(reopened, store);
+        Assert.assertEquals(reopened.size(), 3);
+        Assert.assertEquals(reopened.readArray(1, 2), new long[]{4, 2});
+        Assert.assertEquals(reopened.readArray(3, 4), new long[]{8});
+        Assert.assertEquals(reopened.readArray(5, 6), new long[]{1, 2, 3});
+    }
+
+    @Test
+    public void testReopenAfterPartialIndexEntry() throws IOException {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        store.write(1, 2, new long[]{5, 1, 9});
+        store.write(3, 4, new long[]{8});
+        store.close();
+        File index = new File(directory, "traces.idx");
+        try (FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // when
+        RuntimeTraceStore reopened = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        reopened.write(5, 6, new long[]{7});
+
+        // then
+        Assert.assertEquals(reopened.size(), 2);
+        Assert.assertEquals(reopened.readArray(1, 2), new long[]{5, 1, 9});
+        Assert.assertNull(reopened.readArray(3, 4));
+        Assert.assertEquals(reopened.readArray(5, 6), new long[]{7});
+    }
+
+    @Test
+    public void testReadOnlyStore() throws IOException {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        store.write(1, 2, new long[]{5, 1, 9});
+        store.close();
+
+        // when
+        RuntimeTraceStore readOnly = RuntimeTraceStore.getReadOnlyStore(directory.getAbsolutePath());
+
+        // then
+        Assert.assertTrue(readOnly.isReadOnly());
+        Assert.assertEquals(readOnly.size(), 1);
+        Assert.assertEquals(readOnly.readArray(1, 2), new long[]{5, 1, 9});
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testReadOnlyStoreRejectsWrites() {
+        // given
+        RuntimeTraceStore readOnly = RuntimeTraceStore.getReadOnlyStore(directory.getAbsolutePath());
+
+        // when
+        readOnly.write(1, 2, new long[]{5});
+
+        // then - exception
+    }
+
+    @Test
+    public void testReadOnlyStoreOfOpenWriter() {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+
+        // when
+        RuntimeTraceStore readOnly = RuntimeTraceStore.getReadOnlyStore(directory.getAbsolutePath());
+
+        // then
+        Assert.assertSame(readOnly, store);
+        Assert.assertFalse(readOnly.isReadOnly());
+    }
+
+    @Test
+    public void testWriterUpgradesReadOnlyStore() throws IOException {
+        // given
+        RuntimeTraceStore store = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        store.write(1, 2, new long[]{5, 1, 9});
+        store.write(3, 4, new long[]{8});
+        store.close();
+        File index = new File(directory, "traces.idx");
+        try (FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        RuntimeTraceStore readOnly = RuntimeTraceStore.getReadOnlyStore(directory.getAbsolutePath());
+
+        // when
+        RuntimeTraceStore writer = RuntimeTraceStore.getStore(directory.getAbsolutePath());
+        writer.write(5, 6, new long[]{7});
+
+        // then
+        Assert.assertSame(writer, readOnly);
+        Assert.assertFalse(readOnly.isReadOnly());
+        Assert.assertEquals(readOnly.size(), 2);
+        Assert.assertEquals(readOnly.readArray(1, 2), new long[]{5, 1, 9});
+        Assert.assertEquals(readOnly.readArray(5, 6), new long[]{7});
+    }
+
+    @Test(expectedExceptions = OverlappingFileLockException.class)
+    public void testWriterLocksDataFile() throws IOException {
+        // given
+        RuntimeTraceStore.getStore(directory.getAbsolutePath());
+
+        // when
+        try (FileChannel channel = FileChannel.open(new File(directory, "traces.bin").toPath(), StandardOpenOption.WRITE)) {
+            channel.tryLock();
+        }
+
+        // then - exception
+    }
+
+    @Test(expectedExceptions = OverlappingFileLockException.class)
+    public void testReadOnlyStoreLocksDataFile() throws IOException {
+        // given
+        RuntimeTraceStore.getReadOnlyStore(directory.getAbsolutePath());
+
+        // when - a writer in this JVM would have to go through getStore
+        try (FileChannel channel = FileChannel.open(new File(directory, "traces.bin").toPath(), StandardOpenOption.WRITE)) {
+            channel.tryLock();
+        }
+
+        // then - exception
+    }
+}
@@ -16,6 +16,8 @@ import at.fh.hagenberg.aist.gce.minic.nodes.impl.control.MinicIfNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.impl.control.MinicReturnNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.impl.control.MinicWhileNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.impl.literals.MinicSimpleLiteralNode;
+import at.fh.hagenberg.aist.gce.optimization.util.HashKey;
+import at.fh.hagenberg.aist.gce.optimization.util.HashUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
 import com.oracle.truffle.api.nodes.Node;
 import org.testng.Assert;
@@ -111,6 +113,100 @@ public class NodeWrapperTest {
         Assert.assertNotNull(n.getChildren().iterator().next().getChildren().iterator().next().getChildren().iterator().next());
     }
 
+    @Test
+    public void testWrapReplaced() {
+        // given
+        MinicSimpleLiteralNode.MinicIntLiteralNode five = new MinicSimpleLiteralNode.MinicIntLiteralNode(5);
+        MinicBlockNode block = new MinicBlockNode(
+            new MinicIfNode(
+                new MinicSimpleLiteralNode.MinicIntLiteralNode(1),
+                new MinicReturnNode(five),
+                new MinicReturnNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(3))));
+        block.adoptChildren();
+        NodeWrapper original = NodeWrapper.wrap(block);
+        String originalHash = original.getHash();
+        MinicSimpleLiteralNode.MinicIntLiteralNode seven = new MinicSimpleLiteralNode.MinicIntLiteralNode(7);
+        five.replace(seven);
+
+        // when
+        NodeWrapper incremental = NodeWrapper.wrap(block, original, seven);
+        NodeWrapper.clearCache();
+        NodeWrapper full = NodeWrapper.wrap(block);
+
+        // then
+        Assert.assertNotSame(incremental, full);
+        Assert.assertEquals(incremental.getHash(), full.getHash());
+        Assert.assertNotEquals(incremental.getHash(), originalHash);
+        Assert.assertEquals(original.getHash(), originalHash);
+        Assert.assertEquals(incremental.treeSize(), full.treeSize());
+    }
+
+    @Test
+    public void testWrapCacheBounded() {
+        // given
+        NodeWrapper.clearCache();
+        Node first = new MinicSimpleLiteralNode.MinicIntLiteralNode(0);
+        NodeWrapper firstWrapper = NodeWrapper.wrap(first);
+        Node last = null;
+        NodeWrapper lastWrapper = null;
+
+        // when
+        for (int i = 1; i <= 2000; i++) {
+            last = new MinicSimpleLiteralNode.MinicIntLiteralNode(i);
+            lastWrapper = NodeWrapper.wrap(last);
+        }
+
+        // then
+        Assert.assertSame(NodeWrapper.wrap(last), lastWrapper);
+        Assert.assertNotSame(NodeWrapper.wrap(first), firstWrapper);
+        Assert.assertEquals(NodeWrapper.wrap(first).getHash(), firstWrapper.getHash());
+    }
+
+    @Test
+    public void testInvalidateReplaced() {
+        // given
+        MinicSimpleLiteralNode.MinicIntLiteralNode five = new MinicSimpleLiteralNode.MinicIntLiteralNode(5);
+        MinicReturnNode ret = new MinicReturnNode(five);
+        MinicReturnNode other = new MinicReturnNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(3));
+        MinicBlockNode block = new MinicBlockNode(ret, other);
+        block.adoptChildren();
+        NodeWrapper blockWrapper = NodeWrapper.wrap(block);
+        NodeWrapper retWrapper = NodeWrapper.wrap(ret);
+        NodeWrapper otherWrapper = NodeWrapper.wrap(other);
+        MinicSimpleLiteralNode.MinicIntLiteralNode seven = new MinicSimpleLiteralNode.MinicIntLiteralNode(7);
+        five.replace(seven);
+
+        // when
+        NodeWrapper.invalidate(seven);
+
+        // then
+        Assert.assertNotEquals(NodeWrapper.wrap(block).getHash(), blockWrapper.getHash());
+        Assert.assertNotEquals(NodeWrapper.wrap(ret).getHash(), retWrapper.getHash());
+        Assert.assertSame(NodeWrapper.wrap(other), otherWrapper);
+    }
+
+    @Test
+    public void testHashMurmur3() {
+        HashUtil.setAlgorithm(HashUtil.Algorithm.MURMUR3);
+        try {
+            // given
+            NodeWrapper wrap = NodeWrapper.wrap(new MinicReturnNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(5)));
+            NodeWrapper same = NodeWrapper.wrap(new MinicReturnNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(5)));
+            NodeWrapper other = NodeWrapper.wrap(new MinicReturnNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(6)));
+
+            // when
+            HashKey key = wrap.getHashKey();
+
+            // then
+            Assert.assertEquals(same.getHashKey(), key);
+            Assert.assertEquals(same.getHash(), wrap.getHash());
+            Assert.assertNotEquals(other.getHashKey(), key);
+            Assert.assertEquals(HashKey.of(wrap.getHash()), key);
+        } finally {
+            HashUtil.setAlgorithm(HashUtil.Algorithm.SHA512);
+        }
+    }
+
     @Test
     public void testSerialize() {
         // given
@@ -17,7 +17,9 @@ import at.fh.hagenberg.aist.gce.minic.nodes.impl.control.MinicWhileNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.impl.literals.MinicSimpleLiteralNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.impl.op.rel.integer.signed.MinicIntRelationalNodeFactory;
 import at.fh.hagenberg.aist.gce.optimization.runtime.SystemInformation;
+import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
 import com.oracle.truffle.api.nodes.Node;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
@@ -101,4 +103,29 @@ public class NodeWrapperWeightUtilTest {
         Assert.assertEquals(weight, 11 * 10 + 2.2 + 2.2);
         Assert.assertEquals(weight, weightNode);
     }
+
+    @Test
+    public void testWeights() {
+        // given
+        NodeWrapperWeightUtil util = new NodeWrapperWeightUtil(MinicLanguage.ID);
+        Node n = new MinicWhileNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(2),
+            new MinicIfNode(
+                new MinicSimpleLiteralNode.MinicIntLiteralNode(2),
+                MinicIntRelationalNodeFactory.MinicIntEqualsNodeGen.create(new MinicSimpleLiteralNode.MinicIntLiteralNode(2), new MinicSimpleLiteralNode.MinicIntLiteralNode(3)),
+                new MinicBlockNode(new MinicSimpleLiteralNode.MinicIntLiteralNode(5), new MinicSimpleLiteralNode.MinicCharLiteralNode('c'))
+            ));
+        TruffleTreeIndex index = new TruffleTreeIndex(n);
+
+        // when
+        double[] weights = util.weights(index);
+
+        // then
+        Assert.assertEquals(weights.length, index.size());
+        for (int i = 0; i < index.size(); i++) {
+            Assert.assertEquals(weights[i], util.weight(NodeWrapper.wrap(index.node(i))));
+            Assert.assertEquals(index.subtreeSize(i), ExtendedNodeUtil.size(index.node(i)));
+            Assert.assertEquals(index.maxDepth(i), ExtendedNodeUtil.maxDepth(index.node(i)));
+            Assert.assertEquals(index.maxWidth(i), ExtendedNodeUtil.maxWidth(index.node(i)));
+        }
+    }
 }
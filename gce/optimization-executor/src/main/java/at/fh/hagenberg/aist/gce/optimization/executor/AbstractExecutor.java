@@ -12,6 +12,9 @@ package at.fh.hagenberg.aist.gce.optimization.executor;
 
 import at.fh.hagenberg.aist.gce.optimization.language.Accessor;
 import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.frame.Frame;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.RootNode;
@@ -20,6 +23,8 @@ import org.graalvm.polyglot.Source;
 
 import java.io.ByteArrayOutputStream;
 import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.*;
 
 /**
@@ -36,6 +41,16 @@ public abstract class AbstractExecutor implements Executor {
      */
     private MaterializedFrame globalScope;
 
+    /**
+     * Values of the global scope after the code was evaluated, see {@link #resetGlobalScope()}
+     */
+    private Map<FrameSlot, Object> initialGlobals = new HashMap<>();
+
+    /**
+     * Kinds the globals were stored as after the code was evaluated, see {@link #resetGlobalScope()}
+     */
+    private Map<FrameSlot, FrameSlotKind> initialGlobalKinds = new HashMap<>();
+
     /**
      * Id of language this executor is running in
      */
@@ -94,6 +109,12 @@ public abstract class AbstractExecutor implements Executor {
      */
     protected long timeout = -1;
 
+    /**
+     * If set, the executor stops repeating as soon as the measurement is precise enough (see {@link AdaptiveMeasurement}).
+     * {@link #repeats} is then the maximum amount of repeats.
+     */
+    protected AdaptiveMeasurement adaptiveMeasurement;
+
     /**
      * The Executor will initialize an accessor for the language we want to use
      *
@@ -128,6 +149,74 @@ public abstract class AbstractExecutor implements Executor {
         this.root = access.getRootNode(function);
         this.origin = access.getNodeToOptimize(root);
         this.globalScope = access.getGlobalScope();
+        this.initialGlobals.clear();
+        this.initialGlobalKinds.clear();
+        if (this.globalScope != null) {
+            this.globalScope.getFrameDescriptor().getSlots().forEach(slot -> {
+                initialGlobals.put(slot, globalScope.getValue(slot));
+                initialGlobalKinds.put(slot, getKind(globalScope, slot));
+            });
+        }
+    }
+
+    /**
+     * Resets the globals to the values they had after the code was evaluated, so the globals a test wrote
+     * don't leak into the next test of the same executor. Globals that were added later are cleared.
+     * Note that only the values of the globals are reset, objects they reference (ex. arrays) are not copied.
+     * Every global is stored as the kind it was stored as initially, as nodes reading primitive globals can't read boxed values.
+     */
+    public void resetGlobalScope() {
+        if (globalScope == null) {
+            return;
+        }
+        globalScope.getFrameDescriptor().getSlots().forEach(slot -> {
+            Object value = initialGlobals.get(slot);
+            FrameSlotKind kind = value != null ? initialGlobalKinds.get(slot) : FrameSlotKind.Object;
+            switch (kind) {
+                case Int:
+                    globalScope.setInt(slot, (Integer) value);
+                    break;
+                case Long:
+                    globalScope.setLong(slot, (Long) value);
+                    break;
+                case Double:
+                    globalScope.setDouble(slot, (Double) value);
+                    break;
+                case Float:
+                    globalScope.setFloat(slot, (Float) value);
+                    break;
+                case Boolean:
+                    globalScope.setBoolean(slot, (Boolean) value);
+                    break;
+                case Byte:
+                    globalScope.setByte(slot, (Byte) value);
+                    break;
+                default:
+                    globalScope.setObject(slot, value);
+            }
+        });
+    }
+
+    /**
+     * @param frame containing the slot
+     * @param slot  to be checked
+     * @return the kind the value of the slot is currently stored as in the frame
+     */
+    private static FrameSlotKind getKind(Frame frame, FrameSlot slot) {
+        if (frame.isInt(slot)) {
+            return FrameSlotKind.Int;
+        } else if (frame.isLong(slot)) {
+            return FrameSlotKind.Long;
+        } else if (frame.isDouble(slot)) {
+            return FrameSlotKind.Double;
+        } else if (frame.isFloat(slot)) {
+            return FrameSlotKind.Float;
+        } else if (frame.isBoolean(slot)) {
+            return FrameSlotKind.Boolean;
+        } else if (frame.isByte(slot)) {
+            return FrameSlotKind.Byte;
+        }
+        return FrameSlotKind.Object;
     }
 
     public RootNode getRoot() {
@@ -154,6 +243,15 @@ public abstract class AbstractExecutor implements Executor {
         this.repeats = repeats;
     }
 
+    /**
+     * More than 10 repeats are assumed to create a runtime profile (same as in the evaluator), where tests run sequentially
+     *
+     * @return if the runtime is being measured
+     */
+    public boolean isBenchmark() {
+        return repeats > 10;
+    }
+
     public MaterializedFrame getGlobalScope() {
         return globalScope;
     }
@@ -166,6 +264,26 @@ public abstract class AbstractExecutor implements Executor {
         this.timeout = timeout;
     }
 
+    public AdaptiveMeasurement getAdaptiveMeasurement() {
+        return adaptiveMeasurement;
+    }
+
+    public void setAdaptiveMeasurement(AdaptiveMeasurement adaptiveMeasurement) {
+        this.adaptiveMeasurement = adaptiveMeasurement;
+    }
+
+    /**
+     * Sets the median runtime (ns) of the best candidate so far, so slower candidates can be aborted early.
+     * Does nothing if the executor doesn't measure adaptively.
+     *
+     * @param bound median runtime, NaN for no bound
+     */
+    public void setAdaptiveBound(double bound) {
+        if (adaptiveMeasurement != null) {
+            adaptiveMeasurement.setBound(bound);
+        }
+    }
+
     /**
      * Executor that actually conducts the test
      */
@@ -205,6 +323,16 @@ public abstract class AbstractExecutor implements Executor {
         return new ExecutionResult(e, out.toString(), new long[repeats], false);
     }
 
+    /**
+     * Executors are stateful (ex. the global scope or the timeout service), so by default a test must not be
+     * started while another test of the same executor is running.
+     *
+     * @return if several threads may call {@link #test(Node, Object[])} at the same time
+     */
+    public boolean supportsConcurrentTests() {
+        return false;
+    }
+
     /**
      * Option for implementations to shut down services, etc. after an interrupt has been thrown.
      */
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.executor;
+
+import at.fh.hagenberg.aist.gce.optimization.language.util.CommandProcessor;
+import at.fh.hagenberg.aist.gce.optimization.language.util.WorkerPool;
+import com.oracle.truffle.api.nodes.Node;
+import science.aist.seshat.SimpleFileLogger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Executor that runs the tests in a separate worker process.
+ * By default the tests are run on warm workers of a {@link WorkerPool}. With {@link #setPooled(boolean)} false
+ * every test starts a new process instead, which is slower but guarantees an untouched VM per test.
+ * Pooled executors without timeout can be used by several threads at once, as every test borrows its own worker.
+ * Executors that measure the cold (unoptimized) performance must use {@link #freshWorkers}, as a worker is only cold for its first test.
+ */
+public abstract class AbstractProcessExecutor extends AbstractExecutor {
+
+    private static SimpleFileLogger logger = new SimpleFileLogger(AbstractProcessExecutor.class);
+
+    /**
+     * If the tests are run on pooled workers
+     */
+    protected boolean pooled = true;
+
+    /**
+     * If every pooled test runs on a worker that didn't run anything before (see {@link WorkerPool#getFreshPool(String)})
+     */
+    protected boolean freshWorkers = false;
+
+    /**
+     * Workers (and their pool) of the currently running tests, so they can be discarded on a timeout
+     */
+    private final Map<WorkerPool.PooledWorker, WorkerPool> active = new ConcurrentHashMap<>();
+
+    public AbstractProcessExecutor(String languageId, String code, String entryPoint, String function) {
+        super(languageId, code, entryPoint, function);
+    }
+
+    /**
+     * Runs the test on a worker of the pool for the given launch command
+     *
+     * @param launchCommand command that starts the worker process
+     * @param node          to be tested
+     * @param input         for the main function
+     * @return result the worker sent back
+     * @throws IOException if no worker could be started or the worker crashed
+     */
+    protected ExecutionResult conductPooledTest(String launchCommand, Node node, Object[] input) throws IOException {
+        WorkerPool pool = freshWorkers ? WorkerPool.getFreshPool(launchCommand) : WorkerPool.getPool(launchCommand);
+        WorkerPool.PooledWorker worker = pool.borrow();
+        active.put(worker, pool);
+        try {
+            ExecutionResult result = worker.run(CommandProcessor.prepareCommand(this.languageId, this.code, this.entryPoint, this.function, this.repeats, input), node);
+            pool.release(worker);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // the worker is in an unknown state
+            logger.warn("Pooled test failed, discarding worker", e);
+            pool.discard(worker);
+            throw e;
+        } finally {
+            active.remove(worker);
+        }
+    }
+
+    /**
+     * Pooled tests run on their own worker and port, unpooled tests share the fixed ports of the {@link CommandProcessor}
+     * and tests with a timeout share the timeout service.
+     */
+    @Override
+    public boolean supportsConcurrentTests() {
+        return pooled && timeout < 0;
+    }
+
+    @Override
+    protected void cleanup() {
+        // workers are still busy with the test that timed out
+        active.forEach((worker, pool) -> pool.discard(worker));
+        active.clear();
+        super.cleanup();
+    }
+
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    public boolean isFreshWorkers() {
+        return freshWorkers;
+    }
+
+    public void setFreshWorkers(boolean freshWorkers) {
+        this.freshWorkers = freshWorkers;
+    }
+}
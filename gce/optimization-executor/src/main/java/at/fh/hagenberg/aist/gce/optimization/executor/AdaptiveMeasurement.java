@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.executor;
+
+import java.util.Arrays;
+
+/**
+ * Sequential stopping rule for performance measurements. Instead of a fixed amount of repeats the measurement stops
+ * as soon as the median runtime is known precisely enough, or the candidate is provably slower than a given bound.
+ * <p>
+ * The runtimes are grouped into batches, and only the batch medians are analyzed (at the end of every batch):
+ * - Warmup: the MSER rule truncates the batches that minimize the standard error of the remaining batch medians.
+ * If the best truncation point is in the second half of the batches the runtime has not stabilized yet.
+ * - Stopping: the median of the steady state batch medians with a normal confidence interval over the batch medians.
+ * The measurement stops when the half width of the interval is below {@link #precision} of the median.
+ * - Abort: the measurement stops early if the lower end of the interval exceeds {@link #bound} by {@link #abortMargin}.
+ * <p>
+ * A measurement is stateful and not thread safe. Use {@link #start(int)} before every run, and
+ * {@link #AdaptiveMeasurement(AdaptiveMeasurement)} to get an independent measurement with the same settings.
+ */
+public class AdaptiveMeasurement {
+
+    /**
+     * Amount of runs in a batch
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Minimum amount of steady state batches before the measurement may stop
+     */
+    private int minBatches = 20;
+
+    /**
+     * Relative half width of the confidence interval of the median at which the measurement stops
+     */
+    private double precision;
+
+    /**
+     * Quantile of the normal distribution for the confidence interval (1.96 = 95%)
+     */
+    private double z = 1.96;
+
+    /**
+     * Median runtime (ns) of the best candidate so far. Candidates that are provably slower are aborted.
+     * NaN if there is no bound.
+     */
+    private double bound = Double.NaN;
+
+    /**
+     * Relative margin a candidate must be slower than the bound before it is aborted
+     */
+    private double abortMargin = 0.05;
+
+    /**
+     * Runtimes of the current run
+     */
+    private long[] performance;
+
+    /**
+     * Amount of runtimes in the current run
+     */
+    private int count;
+
+    /**
+     * Medians of the finished batches of the current run
+     */
+    private double[] batchMedians;
+
+    /**
+     * Amount of finished batches
+     */
+    private int batches;
+
+    /**
+     * Batches that were detected as warmup at the last check
+     */
+    private int warmupBatches = -1;
+
+    /**
+     * If the current run was stopped because it is slower than the bound
+     */
+    private boolean aborted;
+
+    /**
+     * Buffer for calculating the batch medians
+     */
+    private long[] scratch;
+
+    /**
+     * @param precision relative half width of the confidence interval of the median at which the measurement stops
+     */
+    public AdaptiveMeasurement(double precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * Copies the settings (not the state of the current run) of another measurement
+     *
+     * @param settings measurement to copy the settings from
+     */
+    public AdaptiveMeasurement(AdaptiveMeasurement settings) {
+        this.batchSize = settings.batchSize;
+        this.minBatches = settings.minBatches;
+        this.precision = settings.precision;
+        this.z = settings.z;
+        this.bound = settings.bound;
+        this.abortMargin = settings.abortMargin;
+    }
+
+    /**
+     * Starts a new run
+     *
+     * @param maxRepeats maximum amount of runs (at least one)
+     */
+    public void start(int maxRepeats) {
+        if (maxRepeats <= 0) {
+            throw new IllegalArgumentException("An adaptive measurement needs at least one run");
+        }
+        if (performance == null || performance.length != maxRepeats) {
+            performance = new long[maxRepeats];
+        }
+        // the batch size may have changed since the last run
+        if (batchMedians == null || batchMedians.length != maxRepeats / batchSize + 1) {
+            batchMedians = new double[maxRepeats / batchSize + 1];
+        }
+        if (scratch == null || scratch.length != batchSize) {
+            scratch = new long[batchSize];
+        }
+        count = 0;
+        batches = 0;
+        warmupBatches = -1;
+        aborted = false;
+    }
+
+    /**
+     * Adds the runtime of one run
+     *
+     * @param runtime of the run in ns
+     * @return true if the measurement is finished
+     */
+    public boolean add(long runtime) {
+        performance[count++] = runtime;
+        if (count >= performance.length) {
+            return true;
+        }
+        if (count % batchSize != 0) {
+            return false;
+        }
+        batchMedians[batches++] = median(performance, count - batchSize, count, scratch);
+        return check();
+    }
+
+    private boolean check() {
+        int warmup = mser(batchMedians, batches);
+        if (warmup < 0) {
+            return false;
+        }
+        warmupBatches = warmup;
+        int steady = batches - warmup;
+        if (steady < minBatches) {
+            return false;
+        }
+
+        // confidence interval of the median from the batch medians
+        double[] steadyMedians = Arrays.copyOfRange(batchMedians, warmup, batches);
+        double mean = 0;
+        for (double x : steadyMedians) {
+            mean += x;
+        }
+        mean /= steady;
+        double variance = 0;
+        for (double x : steadyMedians) {
+            variance += (x - mean) * (x - mean);
+        }
+        variance /= steady - 1;
+        Arrays.sort(steadyMedians);
+        double median = steady % 2 == 1 ? steadyMedians[steady / 2] : (steadyMedians[steady / 2 - 1] + steadyMedians[steady / 2]) / 2.0;
+        double halfWidth = z * Math.sqrt(variance / steady);
+
+        if (!Double.isNaN(bound) && median - halfWidth > bound * (1 + abortMargin)) {
+            aborted = true;
+            return true;
+        }
+        return halfWidth <= precision * median;
+    }
+
+    /**
+     * @return the runtimes of the current run
+     */
+    public long[] getPerformance() {
+        return Arrays.copyOf(performance, count);
+    }
+
+    /**
+     * @return amount of runs that were detected as warmup, or -1 if the run did not stabilize
+     */
+    public int getWarmup() {
+        return warmupBatches < 0 ? -1 : warmupBatches * batchSize;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Detects the warmup of a finished measurement with the same rule used during adaptive measurements
+     *
+     * @param performance runtimes of the measurement
+     * @param batchSize   amount of runs in a batch
+     * @return amount of runs that are warmup, or -1 if the runtimes did not stabilize
+     */
+    public static int detectWarmup(long[] performance, int batchSize) {
+        int batches = performance.length / batchSize;
+        double[] batchMedians = new double[batches];
+        long[] scratch = new long[batchSize];
+        for (int i = 0; i < batches; i++) {
+            batchMedians[i] = median(performance, i * batchSize, (i + 1) * batchSize, scratch);
+        }
+        int warmup = mser(batchMedians, batches);
+        return warmup < 0 ? -1 : warmup * batchSize;
+    }
+
+    /**
+     * Marginal Standard Error Rule on the batch medians: finds the truncation point d that minimizes
+     * the variance of the remaining values divided by their count
+     *
+     * @param values  batch medians
+     * @param batches amount of valid values
+     * @return batches to truncate, or -1 if the values did not stabilize (best truncation in the second half)
+     */
+    private static int mser(double[] values, int batches) {
+        if (batches < 2) {
+            return -1;
+        }
+        // suffix sums, so every truncation point is evaluated in O(1)
+        double sum = 0;
+        double squares = 0;
+        double best = Double.MAX_VALUE;
+        int bestD = -1;
+        for (int d = batches - 1; d >= 0; d--) {
+            sum += values[d];
+            squares += values[d] * values[d];
+            int n = batches - d;
+            if (n < 2) {
+                continue;
+            }
+            double deviation = squares - sum * sum / n;
+            double mser = deviation / ((double) n * n);
+            if (mser <= best) {
+                best = mser;
+                bestD = d;
+            }
+        }
+        return bestD > batches / 2 ? -1 : bestD;
+    }
+
+    private static double median(long[] values, int from, int to, long[] scratch) {
+        int n = to - from;
+        System.arraycopy(values, from, scratch, 0, n);
+        Arrays.sort(scratch, 0, n);
+        return n % 2 == 1 ? scratch[n / 2] : (scratch[n / 2 - 1] + scratch[n / 2]) / 2.0;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMinBatches() {
+        return minBatches;
+    }
+
+    public void setMinBatches(int minBatches) {
+        this.minBatches = minBatches;
+    }
+
+    public double getPrecision() {
+        return precision;
+    }
+
+    public void setPrecision(double precision) {
+        this.precision = precision;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public void setZ(double z) {
+        this.z = z;
+    }
+
+    public double getBound() {
+        return bound;
+    }
+
+    public void setBound(double bound) {
+        this.bound = bound;
+    }
+
+    public double getAbortMargin() {
+        return abortMargin;
+    }
+
+    public void setAbortMargin(double abortMargin) {
+        this.abortMargin = abortMargin;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.executor;
+
+import com.oracle.truffle.api.nodes.Node;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Executor that does not block the caller while a test is running.
+ * Intended for executors that run tests remotely, where many tests can be in flight at the same time.
+ */
+public interface AsyncExecutor extends Executor {
+
+    /**
+     * Submits a program to be run (node replaces the origin!)
+     *
+     * @param node  to be run in context
+     * @param input for the main function!
+     * @return future that completes with the execution results
+     */
+    CompletableFuture<ExecutionResult> submit(Node node, Object[] input);
+
+    /**
+     * Submits a program to be run with several inputs
+     *
+     * @param node   to be run in context
+     * @param inputs for the main function, one run per input
+     * @return futures in the same order as the inputs
+     */
+    default List<CompletableFuture<ExecutionResult>> submitBatch(Node node, List<Object[]> inputs) {
+        return inputs.stream().map(x -> submit(node, x)).collect(Collectors.toList());
+    }
+}
@@ -23,7 +23,7 @@ import java.io.IOException;
  *
  * @author Oliver Krauss on 28.10.2019
  */
-public class ConsoleExecutor extends AbstractExecutor {
+public class ConsoleExecutor extends AbstractProcessExecutor {
 
     /**
      * Where the JAR with {@link at.fh.hagenberg.aist.gce.optimization.language.ConsoleWorker} is located.
@@ -48,9 +48,18 @@ public class ConsoleExecutor extends AbstractExecutor {
         long[] performance = new long[repeats];
         Throwable e = null;
 
+        String launchCommand = EngineConfig.JAVA_LOCATION + " -Xmx128m" + " " + EngineConfig.JAVA_CALL_PARAMS + " -jar " + languageLocation;
+        if (pooled) {
+            try {
+                return conductPooledTest(launchCommand, node, input);
+            } catch (IOException ex) {
+                return new ExecutionResult(ex, null, performance, false);
+            }
+        }
+
         try {
             // create process and send node
-            pr = rt.exec(EngineConfig.JAVA_LOCATION + " -Xmx128m" + " " + EngineConfig.JAVA_CALL_PARAMS + " -jar " + languageLocation, CommandProcessor.prepareCommand(this.languageId, this.code, this.function, this.repeats, input));
+            pr = rt.exec(launchCommand, CommandProcessor.prepareCommand(this.languageId, this.code, this.function, this.repeats, input));
             CommandProcessor.sendNode(node);
 
             // parse results
@@ -68,8 +77,10 @@ public class ConsoleExecutor extends AbstractExecutor {
 
     @Override
     protected void cleanup() {
-        pr.destroyForcibly();
-        CommandProcessor.forceReleaseSockets();
+        if (pr != null) {
+            pr.destroyForcibly();
+            CommandProcessor.forceReleaseSockets();
+        }
         super.cleanup();
     }
 
@@ -49,6 +49,11 @@ public class ExecutionResult implements Serializable {
      */
     boolean success;
 
+    /**
+     * if the runs were stopped early because the candidate is provably slower than the bound (see {@link AdaptiveMeasurement})
+     */
+    boolean aborted;
+
     public ExecutionResult(Object returnValue, String outStreamValue, long[] performance, boolean success) {
         this.returnValue = returnValue;
         this.outStreamValue = outStreamValue;
@@ -80,6 +85,14 @@ public class ExecutionResult implements Serializable {
         return success;
     }
 
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public void setAborted(boolean aborted) {
+        this.aborted = aborted;
+    }
+
     @Override
     public String toString() {
         return "ExecutionResult{" +
@@ -87,6 +100,7 @@ public class ExecutionResult implements Serializable {
             ", outStreamValue='" + outStreamValue + '\'' +
             ", performance=" + Arrays.toString(performance) +
             ", success=" + success +
+            ", aborted=" + aborted +
             '}';
     }
 
@@ -48,25 +48,45 @@ public class InternalExecutor extends AbstractExecutor {
 
         Throwable e = null;
         long[] performance = new long[repeats];
+        // only benchmarks are measured adaptively, every test gets its own measurement as tests may run in parallel
+        AdaptiveMeasurement adaptive = isBenchmark() && this.adaptiveMeasurement != null ? new AdaptiveMeasurement(this.adaptiveMeasurement) : null;
 
         // run the test
         try {
             // run the node
             Object result = null;
-            for (int i = 0; i < repeats; i++) {
-                out.reset();
-                long start = System.nanoTime();
-                //ctx.enter();
-                result = input == null ?
-                    main.call() :
-                    main.call(input);
-                //ctx.leave();
-                long end = System.nanoTime();
-                performance[i] = end - start;
+            if (adaptive != null) {
+                // repeat until the measurement is precise enough
+                adaptive.start(repeats);
+                boolean finished = false;
+                while (!finished) {
+                    out.reset();
+                    long start = System.nanoTime();
+                    result = input == null ?
+                        main.call() :
+                        main.call(input);
+                    long end = System.nanoTime();
+                    finished = adaptive.add(end - start);
+                }
+                performance = adaptive.getPerformance();
+            } else {
+                for (int i = 0; i < repeats; i++) {
+                    out.reset();
+                    long start = System.nanoTime();
+                    //ctx.enter();
+                    result = input == null ?
+                        main.call() :
+                        main.call(input);
+                    //ctx.leave();
+                    long end = System.nanoTime();
+                    performance[i] = end - start;
+                }
             }
 
             result = modifier.fromLanguage(result);
-            return new ExecutionResult(result, out.toString(), performance, true);
+            ExecutionResult executionResult = new ExecutionResult(result, out.toString(), performance, true);
+            executionResult.setAborted(adaptive != null && adaptive.isAborted());
+            return executionResult;
         } catch (Exception | Error ex) {
             e = ex;
         }
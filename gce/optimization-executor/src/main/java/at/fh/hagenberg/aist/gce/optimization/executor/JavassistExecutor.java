@@ -12,16 +12,11 @@ package at.fh.hagenberg.aist.gce.optimization.executor;
 
 import at.fh.hagenberg.aist.gce.optimization.language.JavassistWorker;
 import at.fh.hagenberg.aist.gce.optimization.language.util.*;
-import at.fh.hagenberg.aist.gce.optimization.util.ClassLoadingHelper;
-import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
 import science.aist.seshat.Logger;
 import com.oracle.truffle.api.nodes.Node;
-import com.oracle.truffle.api.nodes.RootNode;
 import javassist.*;
 
 import java.io.*;
-import java.net.URI;
-import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -31,7 +26,7 @@ import java.util.*;
  *
  * @author Oliver Krauss on 28.10.2019
  */
-public class JavassistExecutor extends AbstractExecutor {
+public class JavassistExecutor extends AbstractProcessExecutor {
 
     /**
      * Prefix that the Executor will insert in pre-processed languages
@@ -40,6 +35,11 @@ public class JavassistExecutor extends AbstractExecutor {
 
     protected static final String CALLBACK_FIELDNAME = "_CALLBACK";
 
+    /**
+     * Version of the instrumentation. Increase whenever the instrumentation changes to invalidate the cached jars.
+     */
+    protected static final int INSTRUMENTATION_VERSION = 1;
+
     /**
      * Where the JAR with {@link at.fh.hagenberg.aist.gce.optimization.language.JavassistWorker} is located.
      */
@@ -50,7 +50,7 @@ public class JavassistExecutor extends AbstractExecutor {
     List<String> methods = Arrays.asList("execute", "AndSpecialize");
 
     /**
-     * Where the JAR is located that was preprocessed by Javassist
+     * Where the JAR is located that was preprocessed by Javassist (in the {@link InstrumentedJarCache})
      */
     private String analysisLanguageLocation;
 
@@ -59,92 +59,45 @@ public class JavassistExecutor extends AbstractExecutor {
 
         if (languageLocation == null) {
             languageLocation = new File(EngineConfig.DIST_LOCATION).getAbsolutePath() + "/" + ACCESSOR_PREFIX + this.languageId + ".jar";
-            analysisLanguageLocation = new File(EngineConfig.DIST_LOCATION).getAbsolutePath() + "/" + JAVASSIST_PREFIX + ACCESSOR_PREFIX + this.languageId + ".jar";
         }
         this.languageLocation = languageLocation;
 
-        File analysisLanguage = new File(analysisLanguageLocation);
-        if (!analysisLanguage.exists()) {
-            // pre-load the language as the class-modification will create errors otherwise in the current system
-            TruffleLanguageInformation.getLanguageInformation(languageId);
-            // if analysis language doesn't exist, create it and modify with Javassist
-            try {
-                // create new jar
-                Files.copy(new File(languageLocation).toPath(), analysisLanguage.toPath());
-                Map<String, String> env = new HashMap<>();
-                env.put("create", "true");
-                FileSystem newJar = FileSystems.newFileSystem(URI.create("jar:" + analysisLanguage.toURI()), env);
-
-                // find classes to modify
-                ClassLoadingHelper helper = new ClassLoadingHelper();
-                helper.setPaths(new LinkedList<>());
-                helper.getPaths().add(analysisLanguageLocation);
-                helper.setParentClasses(Arrays.asList(Node.class, RootNode.class));
-                helper.setPackages(Arrays.asList("com.oracle.truffle", "at.fh.hagenberg"));
-                helper.setExcludes(Arrays.asList("com.oracle.truffle.polyglot", "com.oracle.truffle.api", "com.oracle.truffle.tck"));
-                List<Class> classes = helper.findClasses();
-
-                // get classpool of original jar
-                ClassPool classPool = new ClassPool(ClassPool.getDefault());
-                classPool.appendClassPath(languageLocation);
-
-                // edit classes in new jar
-                for (Class nodeClass : classes) {
-                    logger.error("Modifying " + nodeClass.getName());
-                    CtClass ctClass = classPool.get(nodeClass.getName());
-
-                    if (!ctClass.isFrozen()) {
-
-                        // add callback field
-                        // add sync field
-                        CtField f = new CtField(classPool.get(JavassistInterceptCallback.class.getName()), CALLBACK_FIELDNAME, ctClass);
-                        f.setModifiers(Modifier.PUBLIC); // AccessFlag.SYNTHETIC +
-                        ctClass.addField(f, CtField.Initializer.byCall(classPool.get(JavassistInterceptProvider.class.getName()), "getInterceptor"));
-
-                        for (CtMethod method : ctClass.getDeclaredMethods()) {
-                            if (methods.stream().anyMatch(x -> method.getName().contains(x)) && !Modifier.isAbstract(method.getModifiers())) {
-                                String callback = CALLBACK_FIELDNAME + ".beforeIntercept(this, \"" + method.getName() + "\",";
-                                if (method.getParameterTypes().length > 0) {
-                                    // collect parameters
-                                    String parameters = "";
-                                    for (int i = 0; i < method.getParameterTypes().length; i++) {
-                                        if (method.getParameterTypes()[i].isPrimitive()) {
-                                            switch (method.getParameterTypes()[i].getName()) {
-                                                case "int":
-                                                    parameters += "args[" + i + "] = Integer.valueOf($" + (i + 1) + ");";
-                                                    break;
-                                                default:
-                                                    parameters += "args[" + i + "] = $" + (i + 1) + ";";
-                                            }
-                                        } else {
+        try {
+            analysisLanguageLocation = InstrumentedJarCache.getInstrumentedJar(languageId, languageLocation, JAVASSIST_PREFIX, INSTRUMENTATION_VERSION, (classPool, ctClass) -> {
+                // add callback field
+                CtField f = new CtField(classPool.get(JavassistInterceptCallback.class.getName()), CALLBACK_FIELDNAME, ctClass);
+                f.setModifiers(Modifier.PUBLIC); // AccessFlag.SYNTHETIC +
+                ctClass.addField(f, CtField.Initializer.byCall(classPool.get(JavassistInterceptProvider.class.getName()), "getInterceptor"));
+
+                for (CtMethod method : ctClass.getDeclaredMethods()) {
+                    if (methods.stream().anyMatch(x -> method.getName().contains(x)) && !Modifier.isAbstract(method.getModifiers())) {
+                        String callback = CALLBACK_FIELDNAME + ".beforeIntercept(this, \"" + method.getName() + "\",";
+                        if (method.getParameterTypes().length > 0) {
+                            // collect parameters
+                            String parameters = "";
+                            for (int i = 0; i < method.getParameterTypes().length; i++) {
+                                if (method.getParameterTypes()[i].isPrimitive()) {
+                                    switch (method.getParameterTypes()[i].getName()) {
+                                        case "int":
+                                            parameters += "args[" + i + "] = Integer.valueOf($" + (i + 1) + ");";
+                                            break;
+                                        default:
                                             parameters += "args[" + i + "] = $" + (i + 1) + ";";
-                                        }
                                     }
-                                    method.insertBefore("Object[] args = new Object[" + method.getParameterTypes().length + "];" + parameters +
-                                            callback + "args);");
                                 } else {
-                                    method.insertBefore(callback + "null);");
+                                    parameters += "args[" + i + "] = $" + (i + 1) + ";";
                                 }
                             }
+                            method.insertBefore("Object[] args = new Object[" + method.getParameterTypes().length + "];" + parameters +
+                                    callback + "args);");
+                        } else {
+                            method.insertBefore(callback + "null);");
                         }
-
-                        // override the class file
-                        Path nf = newJar.getPath(ctClass.getName().replace(".", "/") + ".class");
-                        DataOutputStream dataOutputStream = new DataOutputStream(Files.newOutputStream(nf, StandardOpenOption.CREATE));
-                        ctClass.toBytecode(dataOutputStream);
-                        dataOutputStream.close();
-                    } else {
-                        logger.error("Class is frozen");
                     }
-
-                    logger.info("Successfully modified " + ctClass.getName());
                 }
-
-                // write
-                newJar.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to instrument language " + languageLocation, e);
         }
     }
 
@@ -157,9 +110,18 @@ public class JavassistExecutor extends AbstractExecutor {
         long[] performance = new long[repeats];
         Throwable e = null;
 
+        String launchCommand = EngineConfig.JAVA_LOCATION + " " + EngineConfig.JAVA_CALL_PARAMS + " -cp " + analysisLanguageLocation + " " + worker;
+        if (pooled) {
+            try {
+                return conductPooledTest(launchCommand, node, input);
+            } catch (IOException ex) {
+                return new TraceExecutionResult(ex, null, performance, false, -1, -1, null);
+            }
+        }
+
         try {
             // create process and send node
-            Process pr = rt.exec(EngineConfig.JAVA_LOCATION + " " + EngineConfig.JAVA_CALL_PARAMS + " -cp " + analysisLanguageLocation + " " + worker, CommandProcessor.prepareCommand(this.languageId, this.code, this.function, this.repeats, input));
+            Process pr = rt.exec(launchCommand, CommandProcessor.prepareCommand(this.languageId, this.code, this.function, this.repeats, input));
             CommandProcessor.sendNode(node);
 
             // parse results
@@ -10,6 +10,7 @@
 
 package at.fh.hagenberg.aist.gce.optimization.executor;
 
+import at.fh.hagenberg.aist.gce.optimization.infrastructure.BinaryFrameProtocol;
 import at.fh.hagenberg.aist.gce.optimization.infrastructure.MessageBroker;
 import at.fh.hagenberg.aist.gce.optimization.infrastructure.ParanoidPirateProtocolConstants;
 import at.fh.hagenberg.aist.gce.optimization.infrastructure.UuidHelper;
@@ -18,22 +19,27 @@ import at.fh.hagenberg.aist.gce.optimization.util.Logger;
 import at.fh.hagenberg.aist.gce.optimization.util.NanoProfiler;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import com.oracle.truffle.api.nodes.Node;
+import org.ehcache.Cache;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
 import org.nustaq.serialization.FSTConfiguration;
 import org.zeromq.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-public class MessageExecutor extends AbstractExecutor {
+public class MessageExecutor extends AbstractExecutor implements AsyncExecutor {
 
     static FSTConfiguration conf = FSTConfiguration.createDefaultConfiguration();
 
@@ -56,6 +62,32 @@ public class MessageExecutor extends AbstractExecutor {
      */
     protected boolean safeVM = false;
 
+    /**
+     * If the arguments and results are transferred in the {@link BinaryFrameProtocol}.
+     * Turn off (or set the environment variable MSG_PROTOCOL=legacy) to talk to workers that only understand the string format.
+     */
+    protected boolean binaryProtocol = !"legacy".equalsIgnoreCase(System.getenv("MSG_PROTOCOL"));
+
+    /**
+     * If trees that were already sent are only sent as hash. The workers will ask for the full tree if they don't know it.
+     * Only works with the {@link #binaryProtocol}.
+     */
+    protected boolean treeCaching = true;
+
+    /**
+     * Amount of tree hashes we remember as sent
+     */
+    private static final int SENT_TREE_CACHE_SIZE = 4096;
+
+    /**
+     * Hashes of the trees that were already sent to the workers in the current context
+     */
+    private Cache<String, Boolean> sentTrees = CacheManagerBuilder.newCacheManagerBuilder()
+        .withCache("MessageExecutorSentTrees",
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Boolean.class, ResourcePoolsBuilder.heap(SENT_TREE_CACHE_SIZE)))
+        .build(true)
+        .getCache("MessageExecutorSentTrees", String.class, Boolean.class);
+
 
     private static MessageExecutor executor;
 
@@ -66,7 +98,21 @@ public class MessageExecutor extends AbstractExecutor {
      * @return
      */
     public static Executor getSingleton(String languageId, String code, String entryPoint, String function) {
+        return getSingleton(languageId, code, entryPoint, function, true);
+    }
+
+    /**
+     * Returns the singleton for the given context
+     *
+     * @param replace if the workers are re-initialized even if the singleton already runs the given context
+     * @return singleton running the given context
+     */
+    public static synchronized Executor getSingleton(String languageId, String code, String entryPoint, String function, boolean replace) {
         // TODO #257 IF localhost && no broker / control plane we should auto-spawn them.
+        if (executor != null && !replace && executor.languageId.equals(languageId) && executor.code.equals(code)
+            && executor.entryPoint.equals(entryPoint) && executor.function.equals(function)) {
+            return executor;
+        }
         if (executor != null) {
             System.out.println("Initializing Executor singleton with new context");
             return executor.replace(languageId, code, entryPoint, function);
@@ -103,7 +149,26 @@ public class MessageExecutor extends AbstractExecutor {
         sendInit();
     }
 
+    /**
+     * Replaces the context of all workers.
+     * Runs under the {@link #contextLock}, so the dispatcher can't send or receive a request of the old context meanwhile.
+     */
     protected void sendInit() {
+        synchronized (contextLock) {
+            // workers drop their cached trees on a new context
+            sentTrees.clear();
+            // the broker drops all requests of the old context, so they will never be answered
+            PendingRequest request;
+            while ((request = submitted.poll()) != null) {
+                request.future.complete(new ExecutionResult("Context was replaced before the request was sent", null, null, false));
+            }
+            inFlight.values().forEach(x -> x.future.complete(new ExecutionResult("Context was replaced before the request was answered", null, null, false)));
+            inFlight.clear();
+            sendInitMessage();
+        }
+    }
+
+    private void sendInitMessage() {
         ZMQ.Socket executor = getExecutor();
         // Ask Broker to initialize the workers
         ZMsg message = new ZMsg();
@@ -144,47 +209,225 @@ public class MessageExecutor extends AbstractExecutor {
 
     @Override
     public ExecutionResult conductTest(Node node, Object[] input) {
-        // get next available executor or wait for one to become available
-        ZMQ.Socket executor = getExecutor();
+        return submit(node, input).join();
+    }
 
-        // send request
+    @Override
+    public CompletableFuture<ExecutionResult> submit(Node node, Object[] input) {
+        // wrap and encode in the calling thread so the dispatcher only has to send
+        PendingRequest request = new PendingRequest(requestIds.incrementAndGet(), NodeWrapper.wrap(node), input, binaryProtocol);
+        request.cached = request.binary && treeCaching && sentTrees.containsKey(request.wrapper.getHash());
+        submitted.add(request);
+        startDispatcher();
+        return request.future;
+    }
+
+    /**
+     * Request that was submitted but not yet answered
+     */
+    private static class PendingRequest {
+
+        /**
+         * Id that the response is matched with
+         */
+        final long id;
+
+        /**
+         * Tree to be run
+         */
+        final NodeWrapper wrapper;
+
+        /**
+         * Encoded input for the main function
+         */
+        final byte[] input;
+
+        /**
+         * If the {@link BinaryFrameProtocol} is used
+         */
+        final boolean binary;
+
+        /**
+         * If only the hash of the tree is sent
+         */
+        boolean cached;
+
+        final CompletableFuture<ExecutionResult> future = new CompletableFuture<>();
+
+        PendingRequest(long id, NodeWrapper wrapper, Object[] input, boolean binary) {
+            this.id = id;
+            this.wrapper = wrapper;
+            this.binary = binary;
+            if (binary) {
+                this.input = BinaryFrameProtocol.encodeInput(input);
+            } else {
+                this.input = input == null ? new byte[0] : Arrays.stream(input).map(ValueDefinitions::valueToString).collect(Collectors.joining(";")).getBytes(ZMQ.CHARSET);
+            }
+        }
+    }
+
+    /**
+     * Amount of sockets the dispatcher spreads the requests over
+     */
+    private static final int DISPATCH_SOCKETS = 4;
+
+    /**
+     * Maximum amount of requests that are sent to the broker but not yet answered.
+     * The broker caches requests that exceed the available workers, so this only keeps the broker cache from growing indefinitely.
+     */
+    protected int maxInFlight = 512;
+
+    /**
+     * Source of the request ids
+     */
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /**
+     * Requests waiting to be sent by the dispatcher
+     */
+    private final Queue<PendingRequest> submitted = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Requests sent to the broker and waiting for an answer
+     */
+    private final Map<Long, PendingRequest> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Held by the dispatcher while it sends or receives, and while the context is replaced (see {@link #sendInit()}).
+     * Requests are moved from {@link #submitted} to {@link #inFlight} and sent as one step, so a context switch never
+     * happens while the dispatcher holds a request that is in neither of them.
+     */
+    private final Object contextLock = new Object();
+
+    /**
+     * Thread owning the dispatch sockets. ZMQ sockets are not thread safe, so ONLY the dispatcher may touch them.
+     */
+    private Thread dispatcher;
+
+    private synchronized void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+        dispatcher = new Thread(this::dispatch, "MessageExecutor-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Sends the submitted requests round robin over the dispatch sockets and matches the answers to the requests
+     */
+    private void dispatch() {
+        ZMQ.Socket[] sockets = new ZMQ.Socket[DISPATCH_SOCKETS];
+        ZMQ.Poller poller = ctx.createPoller(sockets.length);
+        for (int i = 0; i < sockets.length; i++) {
+            sockets[i] = createSocket();
+            poller.register(sockets[i], ZMQ.Poller.POLLIN);
+        }
+        int next = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            // send what was submitted
+            synchronized (contextLock) {
+                PendingRequest request;
+                while (inFlight.size() < maxInFlight && (request = submitted.poll()) != null) {
+                    inFlight.put(request.id, request);
+                    send(sockets[next], request);
+                    next = (next + 1) % sockets.length;
+                }
+            }
+
+            // collect answers
+            if (poller.poll(1) < 0) {
+                break; // interrupted
+            }
+            synchronized (contextLock) {
+                for (int i = 0; i < sockets.length; i++) {
+                    if (poller.pollin(i)) {
+                        ZMsg msg;
+                        while ((msg = ZMsg.recvMsg(sockets[i], ZMQ.DONTWAIT)) != null) {
+                            receive(sockets[i], msg);
+                        }
+                    }
+                }
+            }
+        }
+        Logger.log(Logger.LogLevel.INFO, "Executor dispatcher stopped");
+    }
+
+    private void send(ZMQ.Socket socket, PendingRequest request) {
         ZMsg message = new ZMsg();
-        message.add(ParanoidPirateProtocolConstants.PPP_RUN);
-        message.add(conf.asByteArray(NodeWrapper.wrap(node)));
-        String inputStr = null;
-        if (input != null) {
-            inputStr = Arrays.stream(input).map(ValueDefinitions::valueToString).collect(Collectors.joining(";"));
+        if (request.cached) {
+            message.add(ParanoidPirateProtocolConstants.PPP_RUN_CACHED);
+            message.add(request.wrapper.getHash());
+        } else if (request.binary) {
+            message.add(ParanoidPirateProtocolConstants.PPP_RUN_BINARY);
+            message.add(conf.asByteArray(request.wrapper));
+        } else {
+            message.add(ParanoidPirateProtocolConstants.PPP_RUN);
+            message.add(conf.asByteArray(request.wrapper));
         }
-        message.add(inputStr);
-        message.send(executor);
+        message.add(request.input);
+        message.add(ByteBuffer.allocate(Long.BYTES).putLong(request.id).array());
+        message.send(socket);
         message.destroy();
         Logger.log(Logger.LogLevel.TRACE, "Sent evaluation request");
+    }
 
-        // Wait for answer
-        ZMsg msg = ZMsg.recvMsg(executor);
-
-        // put the executor back
-        executors.add(executor);
-
+    /**
+     * Handles an answer. The request is echoed in the answer, so it contains the request id in frame 3 and the response from frame 4 on.
+     *
+     * @param socket the answer was received on
+     * @param msg    answer
+     */
+    private void receive(ZMQ.Socket socket, ZMsg msg) {
         ZFrame[] frames = new ZFrame[msg.size()];
         msg.toArray(frames);
+        msg.destroy();
+        if (frames.length < 5) {
+            Logger.log(Logger.LogLevel.ERROR, "Received a response that we can't deal with");
+            return;
+        }
+
+        PendingRequest request = inFlight.get(ByteBuffer.wrap(frames[3].getData()).getLong());
+        if (request == null) {
+            // answer for a request of an old context
+            return;
+        }
 
-        if (frames.length < 3) {
-            int i = 1;
+        String response = new String(frames[4].getData(), ZMQ.CHARSET);
+        if (request.cached && response.equals(ParanoidPirateProtocolConstants.PPP_RUN_CACHE_MISS)) {
+            // worker doesn't know the tree yet
+            Logger.log(Logger.LogLevel.TRACE, "Tree not cached in worker, sending full tree");
+            request.cached = false;
+            send(socket, request);
+            return;
         }
 
-        String response = new String(frames[3].getData(), ZMQ.CHARSET);
+        inFlight.remove(request.id);
+        if (request.binary && treeCaching) {
+            sentTrees.put(request.wrapper.getHash(), Boolean.TRUE);
+        }
+        try {
+            request.future.complete(parseResponse(frames, response, request.binary));
+        } catch (Exception e) {
+            request.future.complete(new ExecutionResult("MQ Failure. Received a response that we can't parse", null, null, false));
+        }
+    }
+
+    private ExecutionResult parseResponse(ZFrame[] frames, String response, boolean binary) {
         if (response.equals(ParanoidPirateProtocolConstants.PPP_RUN_SUCCESS)) {
-            return ExecutionResult.deserialize(frames[4].getData());
+            return binary ? BinaryFrameProtocol.decodeResult(frames[5].getData()) : ExecutionResult.deserialize(frames[5].getData());
         } else if (response.equals(ParanoidPirateProtocolConstants.PPP_RUN_FAILURE)) {
-            String failResponse = new String(frames[4].getData(), ZMQ.CHARSET);
+            String failResponse = new String(frames[5].getData(), ZMQ.CHARSET);
             if (failResponse.equals(ParanoidPirateProtocolConstants.PPP_INVESTIGATE_SUCCESS)) {
-                return new ExecutionResult(new String(frames[5].getData(), ZMQ.CHARSET), new String(frames[6].getData(), ZMQ.CHARSET), null, false);
+                return new ExecutionResult(new String(frames[6].getData(), ZMQ.CHARSET), new String(frames[7].getData(), ZMQ.CHARSET), null, false);
+            } else if (frames.length > 6) {
+                return new ExecutionResult(new String(frames[6].getData(), ZMQ.CHARSET), null, null, false);
             } else {
-                return new ExecutionResult(new String(frames[5].getData(), ZMQ.CHARSET), null, null, false);
+                return new ExecutionResult(failResponse, null, null, false);
             }
         } else if (response.equals(ParanoidPirateProtocolConstants.PPP_RUN_FATAL)) {
-            System.out.println("Experiment can't continue. We have a fatal error: " + frames[4].toString());
+            System.out.println("Experiment can't continue. We have a fatal error: " + frames[5].toString());
         }
 
         return new ExecutionResult("MQ Failure. Received a response that we can't deal with", null, null, false);
@@ -253,6 +496,48 @@ public class MessageExecutor extends AbstractExecutor {
         sendConfig("safeVM=" + safeVM);
     }
 
+    @Override
+    public void setAdaptiveMeasurement(AdaptiveMeasurement adaptiveMeasurement) {
+        super.setAdaptiveMeasurement(adaptiveMeasurement);
+        // workers only need the precision and batch size, the bound is sent separately
+        sendConfig(adaptiveMeasurement != null ?
+            "adaptivePrecision=" + adaptiveMeasurement.getPrecision() + ";adaptiveBatchSize=" + adaptiveMeasurement.getBatchSize() :
+            "adaptivePrecision=0.0");
+    }
+
+    @Override
+    public void setAdaptiveBound(double bound) {
+        if (adaptiveMeasurement == null || Double.compare(adaptiveMeasurement.getBound(), bound) == 0) {
+            return;
+        }
+        super.setAdaptiveBound(bound);
+        sendConfig("adaptiveBound=" + bound);
+    }
+
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    public void setBinaryProtocol(boolean binaryProtocol) {
+        this.binaryProtocol = binaryProtocol;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public boolean isTreeCaching() {
+        return treeCaching;
+    }
+
+    public void setTreeCaching(boolean treeCaching) {
+        this.treeCaching = treeCaching;
+    }
+
     public void setSettings(int repeats, long timeout, boolean safeVM) {
         boolean updated = false;
         if (this.repeats != repeats) {
@@ -15,17 +15,13 @@ import at.fh.hagenberg.aist.gce.optimization.language.JavassistWorker;
 import at.fh.hagenberg.aist.gce.optimization.language.util.CommandProcessor;
 import at.fh.hagenberg.aist.gce.optimization.language.util.WeightWatcherCallback;
 import at.fh.hagenberg.aist.gce.optimization.language.util.EngineConfig;
-import at.fh.hagenberg.aist.gce.optimization.util.ClassLoadingHelper;
-import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import at.fh.hagenberg.aist.gce.optimization.language.util.InstrumentedJarCache;
 import science.aist.seshat.Logger;
 import com.oracle.truffle.api.nodes.Node;
-import com.oracle.truffle.api.nodes.RootNode;
 import javassist.*;
 
-import java.io.DataOutputStream;
 import java.io.File;
-import java.net.URI;
-import java.nio.file.*;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -35,7 +31,7 @@ import java.util.*;
  *
  * @author Oliver Krauss on 28.10.2019
  */
-public class WeightWatcherExecutor extends AbstractExecutor {
+public class WeightWatcherExecutor extends AbstractProcessExecutor {
 
     /**
      * Prefix that the Executor will insert in pre-processed languages
@@ -44,6 +40,11 @@ public class WeightWatcherExecutor extends AbstractExecutor {
 
     protected static final String CALLBACK_FIELDNAME = "_CALLBACK";
 
+    /**
+     * Version of the instrumentation. Increase whenever the instrumentation changes to invalidate the cached jars.
+     */
+    protected static final int INSTRUMENTATION_VERSION = 1;
+
     /**
      * Where the JAR with {@link JavassistWorker} is located.
      */
@@ -54,81 +55,36 @@ public class WeightWatcherExecutor extends AbstractExecutor {
     List<String> methods = Arrays.asList("execute", "AndSpecialize");
 
     /**
-     * Where the JAR is located that was preprocessed by Javassist
+     * Where the JAR is located that was preprocessed by Javassist (in the {@link InstrumentedJarCache})
      */
     private String analysisLanguageLocation;
 
     public WeightWatcherExecutor(String languageId, String code, String entryPoint, String function, String languageLocation) {
         super(languageId, code,entryPoint, function);
+        // the worker measures the unoptimized runtime, which requires a VM that hasn't run the language yet
+        this.freshWorkers = true;
 
         if (languageLocation == null) {
             languageLocation = new File(EngineConfig.DIST_LOCATION).getAbsolutePath() + "/" + ACCESSOR_PREFIX + this.languageId + ".jar";
-            analysisLanguageLocation = new File(EngineConfig.DIST_LOCATION).getAbsolutePath() + "/" + DUMMY_PREFIX + ACCESSOR_PREFIX + this.languageId + ".jar";
         }
         this.languageLocation = languageLocation;
 
-        File analysisLanguage = new File(analysisLanguageLocation);
-        if (!analysisLanguage.exists()) {
-            // pre-load the language as the class-modification will create errors otherwise in the current system
-            TruffleLanguageInformation.getLanguageInformation(languageId);
-            // if analysis language doesn't exist, create it and modify with Javassist
-            try {
-                // create new jar
-                Files.copy(new File(languageLocation).toPath(), analysisLanguage.toPath());
-                Map<String, String> env = new HashMap<>();
-                env.put("create", "true");
-                FileSystem newJar = FileSystems.newFileSystem(URI.create("jar:" + analysisLanguage.toURI()), env);
-
-                // find classes to modify
-                ClassLoadingHelper helper = new ClassLoadingHelper();
-                helper.setPaths(new LinkedList<>());
-                helper.getPaths().add(analysisLanguageLocation);
-                helper.setParentClasses(Arrays.asList(Node.class, RootNode.class));
-                helper.setPackages(Arrays.asList("com.oracle.truffle", "at.fh.hagenberg"));
-                helper.setExcludes(Arrays.asList("com.oracle.truffle.polyglot", "com.oracle.truffle.api", "com.oracle.truffle.tck"));
-                List<Class> classes = helper.findClasses();
-
-                // get classpool of original jar
-                ClassPool classPool = new ClassPool(ClassPool.getDefault());
-                classPool.appendClassPath(languageLocation);
-
-                // edit classes in new jar
-                for (Class nodeClass : classes) {
-                    logger.error("Modifying " + nodeClass.getName());
-                    CtClass ctClass = classPool.get(nodeClass.getName());
-
-                    if (!ctClass.isFrozen()) {
-
-                        // add callback field
-                        // add sync field
-                        CtField f = new CtField(classPool.get(WeightWatcherCallback.class.getName()), CALLBACK_FIELDNAME, ctClass);
-                        f.setModifiers(Modifier.PUBLIC); // AccessFlag.SYNTHETIC +
-                        ctClass.addField(f, CtField.Initializer.byCall(classPool.get(WeightWatcherCallback.class.getName()), "getInterceptor"));
-
-                        for (CtMethod method : ctClass.getDeclaredMethods()) {
-                            if (methods.stream().anyMatch(x -> method.getName().contains(x)) && !Modifier.isAbstract(method.getModifiers())) {
-                                String callback = CALLBACK_FIELDNAME + ".beforeIntercept();";
-                                method.insertBefore(callback);
-                            }
-                        }
-
-                        // override the class file
-                        Path nf = newJar.getPath(ctClass.getName().replace(".", "/") + ".class");
-                        DataOutputStream dataOutputStream = new DataOutputStream(Files.newOutputStream(nf, StandardOpenOption.CREATE));
-                        ctClass.toBytecode(dataOutputStream);
-                        dataOutputStream.close();
-                    } else {
-                        logger.error("Class is frozen");
+        try {
+            analysisLanguageLocation = InstrumentedJarCache.getInstrumentedJar(languageId, languageLocation, DUMMY_PREFIX, INSTRUMENTATION_VERSION, (classPool, ctClass) -> {
+                // add callback field
+                CtField f = new CtField(classPool.get(WeightWatcherCallback.class.getName()), CALLBACK_FIELDNAME, ctClass);
+                f.setModifiers(Modifier.PUBLIC); // AccessFlag.SYNTHETIC +
+                ctClass.addField(f, CtField.Initializer.byCall(classPool.get(WeightWatcherCallback.class.getName()), "getInterceptor"));
+
+                for (CtMethod method : ctClass.getDeclaredMethods()) {
+                    if (methods.stream().anyMatch(x -> method.getName().contains(x)) && !Modifier.isAbstract(method.getModifiers())) {
+                        String callback = CALLBACK_FIELDNAME + ".beforeIntercept();";
+                        method.insertBefore(callback);
                     }
-
-                    logger.info("Successfully modified " + ctClass.getName());
                 }
-
-                // write
-                newJar.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to instrument language " + languageLocation, e);
         }
     }
 
@@ -139,9 +95,18 @@ public class WeightWatcherExecutor extends AbstractExecutor {
         long[] performance = new long[repeats];
         Throwable e = null;
 
+        String launchCommand = EngineConfig.JAVA_LOCATION + " " + EngineConfig.JAVA_CALL_PARAMS + " -cp " + analysisLanguageLocation + " " + WeightWatcherWorker.class.getName();
+        if (pooled) {
+            try {
+                return conductPooledTest(launchCommand, node, input);
+            } catch (IOException ex) {
+                return new TraceExecutionResult(ex, null, performance, false, -1, -1, null);
+            }
+        }
+
         try {
             // create process and send node
-            Process pr = rt.exec(EngineConfig.JAVA_LOCATION + " " + EngineConfig.JAVA_CALL_PARAMS + " -cp " + analysisLanguageLocation + " " + WeightWatcherWorker.class.getName(), CommandProcessor.prepareCommand(this.languageId, this.code, this.function, this.repeats, input));
+            Process pr = rt.exec(launchCommand, CommandProcessor.prepareCommand(this.languageId, this.code, this.function, this.repeats, input));
             CommandProcessor.sendNode(node);
 
             // parse results
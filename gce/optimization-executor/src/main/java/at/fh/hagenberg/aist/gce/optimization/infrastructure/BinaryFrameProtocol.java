@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.infrastructure;
+
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import org.nustaq.serialization.FSTConfiguration;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary frame format for the evaluation traffic between {@link at.fh.hagenberg.aist.gce.optimization.executor.MessageExecutor}
+ * and {@link at.fh.hagenberg.aist.gce.optimization.language.MessageWorker}.
+ * <p>
+ * Every frame starts with a header of [VERSION, KIND]. Arguments are encoded as tagged primitives, arrays and strings are
+ * length-prefixed. Results are encoded as [flags (success, aborted), return value, out stream, performance] with the performance array
+ * written as length-prefixed longs. Only values we don't know (ex. exceptions) fall back to FST.
+ * <p>
+ * Encoding happens in a per-thread direct buffer that only grows, decoding wraps the received frame data without copying.
+ * Frames that are truncated or otherwise malformed are rejected with an {@link IllegalArgumentException}.
+ * The string format ({@link ParanoidPirateProtocolConstants#PPP_RUN}) is still supported for compatibility.
+ */
+public class BinaryFrameProtocol {
+
+    /**
+     * Version of the frame format. Increase whenever the layout changes
+     */
+    public static final byte VERSION = 2;
+
+    // frame kinds
+    public static final byte FRAME_INPUT = 1;
+    public static final byte FRAME_RESULT = 2;
+
+    // result flags
+    private static final byte FLAG_SUCCESS = 1;
+    private static final byte FLAG_ABORTED = 2;
+
+    // value tags
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_CHAR = 2;
+    private static final byte TAG_FLOAT = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_LONG = 5;
+    private static final byte TAG_BOOLEAN = 6;
+    private static final byte TAG_STRING = 7;
+    private static final byte TAG_INT_ARRAY = 8;
+    private static final byte TAG_FLOAT_ARRAY = 9;
+    private static final byte TAG_DOUBLE_ARRAY = 10;
+    private static final byte TAG_CHAR_ARRAY = 11;
+    private static final byte TAG_OBJECT = 127;
+
+    /**
+     * Initial size of the encoding buffer. 200.000 repeats of performance data fit in without growing
+     */
+    private static final int INITIAL_CAPACITY = 2 * 1024 * 1024;
+
+    /**
+     * Fallback for values that have no primitive encoding
+     */
+    private static FSTConfiguration conf = FSTConfiguration.createDefaultConfiguration();
+
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INITIAL_CAPACITY));
+
+    private BinaryFrameProtocol() {
+    }
+
+    /**
+     * Encodes the input arguments of a test
+     *
+     * @param input arguments for the main function (may be null)
+     * @return frame data
+     */
+    public static byte[] encodeInput(Object[] input) {
+        ByteBuffer buffer = header(FRAME_INPUT);
+        if (input == null) {
+            buffer = ensure(buffer, Integer.BYTES);
+            buffer.putInt(-1);
+        } else {
+            buffer = ensure(buffer, Integer.BYTES);
+            buffer.putInt(input.length);
+            for (Object o : input) {
+                buffer = putValue(buffer, o);
+            }
+        }
+        return finish(buffer);
+    }
+
+    /**
+     * Decodes the input arguments of a test
+     *
+     * @param frame data
+     * @return arguments for the main function (may be null)
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static Object[] decodeInput(byte[] frame) {
+        ByteBuffer buffer = checkHeader(frame, FRAME_INPUT);
+        try {
+            // every value has at least its tag
+            int length = getLength(buffer, 1, true);
+            if (length < 0) {
+                return null;
+            }
+            Object[] input = new Object[length];
+            for (int i = 0; i < length; i++) {
+                input[i] = getValue(buffer);
+            }
+            return input;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated input frame", e);
+        }
+    }
+
+    /**
+     * Encodes the result of a test
+     *
+     * @param result to be encoded
+     * @return frame data
+     */
+    public static byte[] encodeResult(ExecutionResult result) {
+        ByteBuffer buffer = header(FRAME_RESULT);
+        buffer = ensure(buffer, 1);
+        buffer.put((byte) ((result.isSuccess() ? FLAG_SUCCESS : 0) | (result.isAborted() ? FLAG_ABORTED : 0)));
+        buffer = putValue(buffer, result.getReturnValue());
+        buffer = putString(buffer, result.getOutStreamValue());
+        long[] performance = result.getPerformance();
+        if (performance == null) {
+            buffer = ensure(buffer, Integer.BYTES);
+            buffer.putInt(-1);
+        } else {
+            buffer = ensure(buffer, Integer.BYTES + performance.length * Long.BYTES);
+            buffer.putInt(performance.length);
+            buffer.asLongBuffer().put(performance);
+            buffer.position(buffer.position() + performance.length * Long.BYTES);
+        }
+        return finish(buffer);
+    }
+
+    /**
+     * Decodes the result of a test
+     *
+     * @param frame data
+     * @return execution result
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static ExecutionResult decodeResult(byte[] frame) {
+        ByteBuffer buffer = checkHeader(frame, FRAME_RESULT);
+        try {
+            byte flags = buffer.get();
+            Object returnValue = getValue(buffer);
+            String outStream = getString(buffer);
+            int length = getLength(buffer, Long.BYTES, true);
+            long[] performance = null;
+            if (length >= 0) {
+                performance = new long[length];
+                buffer.asLongBuffer().get(performance);
+                buffer.position(buffer.position() + length * Long.BYTES);
+            }
+            ExecutionResult result = new ExecutionResult(returnValue, outStream, performance, (flags & FLAG_SUCCESS) != 0);
+            result.setAborted((flags & FLAG_ABORTED) != 0);
+            return result;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated result frame", e);
+        }
+    }
+
+    private static ByteBuffer header(byte kind) {
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        buffer.put(VERSION);
+        buffer.put(kind);
+        return buffer;
+    }
+
+    private static ByteBuffer checkHeader(byte[] frame, byte kind) {
+        if (frame == null || frame.length < 2) {
+            throw new IllegalArgumentException("Frame is missing its header");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame version " + version + ", expected " + VERSION);
+        }
+        byte frameKind = buffer.get();
+        if (frameKind != kind) {
+            throw new IllegalArgumentException("Unexpected frame kind " + frameKind + ", expected " + kind);
+        }
+        return buffer;
+    }
+
+    private static byte[] finish(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * Ensures that the buffer can take the given amount of bytes. Grows the thread local buffer if it can't.
+     *
+     * @param buffer currently used
+     * @param bytes  that will be written next
+     * @return buffer that can hold the bytes
+     */
+    private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffers.set(grown);
+        return grown;
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer = ensure(buffer, Integer.BYTES);
+            buffer.putInt(-1);
+            return buffer;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = ensure(buffer, Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return buffer;
+    }
+
+    /**
+     * Reads a length prefix and checks that the frame still contains that many elements
+     *
+     * @param buffer       to read from
+     * @param elementBytes minimal size of one element
+     * @param nullable     if -1 (null) is a valid length
+     * @return length
+     */
+    private static int getLength(ByteBuffer buffer, int elementBytes, boolean nullable) {
+        int length = buffer.getInt();
+        if (length < 0 && !(nullable && length == -1)) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        if (length > buffer.remaining() / elementBytes) {
+            throw new IllegalArgumentException("Truncated frame, expected " + length + " elements but only " + buffer.remaining() + " bytes are left");
+        }
+        return length;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = getLength(buffer, 1, true);
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer putValue(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer = ensure(buffer, 1);
+            buffer.put(TAG_NULL);
+        } else if (value instanceof Integer) {
+            buffer = ensure(buffer, 1 + Integer.BYTES);
+            buffer.put(TAG_INT).putInt((Integer) value);
+        } else if (value instanceof Character) {
+            buffer = ensure(buffer, 1 + Character.BYTES);
+            buffer.put(TAG_CHAR).putChar((Character) value);
+        } else if (value instanceof Float) {
+            buffer = ensure(buffer, 1 + Float.BYTES);
+            buffer.put(TAG_FLOAT).putFloat((Float) value);
+        } else if (value instanceof Double) {
+            buffer = ensure(buffer, 1 + Double.BYTES);
+            buffer.put(TAG_DOUBLE).putDouble((Double) value);
+        } else if (value instanceof Long) {
+            buffer = ensure(buffer, 1 + Long.BYTES);
+            buffer.put(TAG_LONG).putLong((Long) value);
+        } else if (value instanceof Boolean) {
+            buffer = ensure(buffer, 2);
+            buffer.put(TAG_BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof String) {
+            buffer = ensure(buffer, 1);
+            buffer.put(TAG_STRING);
+            buffer = putString(buffer, (String) value);
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            buffer = ensure(buffer, 1 + Integer.BYTES + array.length * Integer.BYTES);
+            buffer.put(TAG_INT_ARRAY).putInt(array.length);
+            buffer.asIntBuffer().put(array);
+            buffer.position(buffer.position() + array.length * Integer.BYTES);
+        } else if (value instanceof float[]) {
+            float[] array = (float[]) value;
+            buffer = ensure(buffer, 1 + Integer.BYTES + array.length * Float.BYTES);
+            buffer.put(TAG_FLOAT_ARRAY).putInt(array.length);
+            buffer.asFloatBuffer().put(array);
+            buffer.position(buffer.position() + array.length * Float.BYTES);
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            buffer = ensure(buffer, 1 + Integer.BYTES + array.length * Double.BYTES);
+            buffer.put(TAG_DOUBLE_ARRAY).putInt(array.length);
+            buffer.asDoubleBuffer().put(array);
+            buffer.position(buffer.position() + array.length * Double.BYTES);
+        } else if (value instanceof char[]) {
+            char[] array = (char[]) value;
+            buffer = ensure(buffer, 1 + Integer.BYTES + array.length * Character.BYTES);
+            buffer.put(TAG_CHAR_ARRAY).putInt(array.length);
+            buffer.asCharBuffer().put(array);
+            buffer.position(buffer.position() + array.length * Character.BYTES);
+        } else {
+            byte[] bytes = conf.asByteArray(value);
+            buffer = ensure(buffer, 1 + Integer.BYTES + bytes.length);
+            buffer.put(TAG_OBJECT).putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        return buffer;
+    }
+
+    private static Object getValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_INT:
+                return buffer.getInt();
+            case TAG_CHAR:
+                return buffer.getChar();
+            case TAG_FLOAT:
+                return buffer.getFloat();
+            case TAG_DOUBLE:
+                return buffer.getDouble();
+            case TAG_LONG:
+                return buffer.getLong();
+            case TAG_BOOLEAN:
+                return buffer.get() == 1;
+            case TAG_STRING:
+                return getString(buffer);
+            case TAG_INT_ARRAY: {
+                int[] array = new int[getLength(buffer, Integer.BYTES, false)];
+                buffer.asIntBuffer().get(array);
+                buffer.position(buffer.position() + array.length * Integer.BYTES);
+                return array;
+            }
+            case TAG_FLOAT_ARRAY: {
+                float[] array = new float[getLength(buffer, Float.BYTES, false)];
+                buffer.asFloatBuffer().get(array);
+                buffer.position(buffer.position() + array.length * Float.BYTES);
+                return array;
+            }
+            case TAG_DOUBLE_ARRAY: {
+                double[] array = new double[getLength(buffer, Double.BYTES, false)];
+                buffer.asDoubleBuffer().get(array);
+                buffer.position(buffer.position() + array.length * Double.BYTES);
+                return array;
+            }
+            case TAG_CHAR_ARRAY: {
+                char[] array = new char[getLength(buffer, Character.BYTES, false)];
+                buffer.asCharBuffer().get(array);
+                buffer.position(buffer.position() + array.length * Character.BYTES);
+                return array;
+            }
+            case TAG_OBJECT: {
+                byte[] bytes = new byte[getLength(buffer, 1, false)];
+                buffer.get(bytes);
+                return conf.asObject(bytes);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag);
+        }
+    }
+}
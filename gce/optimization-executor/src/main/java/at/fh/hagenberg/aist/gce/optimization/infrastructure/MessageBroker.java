@@ -310,7 +310,7 @@ public class MessageBroker {
                         Logger.log(Logger.LogLevel.INFO, "All workers initialized with new context");
                     }
 
-                    if (request.equals(ParanoidPirateProtocolConstants.PPP_RUN)) {
+                    if (ParanoidPirateProtocolConstants.isRunRequest(request)) {
                         if (queue.size() <= 0) {
                             // cache if we have workers still registered
                             if (!registeredWorkers.isEmpty()) {
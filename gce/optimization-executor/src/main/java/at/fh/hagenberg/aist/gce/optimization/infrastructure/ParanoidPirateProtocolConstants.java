@@ -24,6 +24,8 @@ public class ParanoidPirateProtocolConstants {
     // message requests for eval
     public static final String PPP_INIT = "\003"; // Initialization request for code;
     public static final String PPP_RUN = "\004"; // Request to run code;
+    public static final String PPP_RUN_BINARY = "\014"; // Request to run code with arguments and results in the BinaryFrameProtocol
+    public static final String PPP_RUN_CACHED = "\015"; // Request to run code that the worker already knows. Only the tree hash is sent, otherwise same as PPP_RUN_BINARY
     public static final String PPP_CONF = "\005"; // Request to set a configuration
     public static final String PPP_INVESTIGATE = "\006"; // Request to reboot a worker (from broker to command module)
     public static final String PPP_BOOT = "\007"; // Request to boot a new worker (from broker to command module; only used when workers shutdown after a single request)
@@ -32,10 +34,21 @@ public class ParanoidPirateProtocolConstants {
     public static final String PPP_RUN_SUCCESS = "\008"; // run succeeded. What follows is the run data
     public static final String PPP_RUN_FAILURE = "\009"; // run failed. What follows is the execption message.
     public static final String PPP_RUN_FATAL = "\010"; // fatal exception, happening for example if the infrastructure is not running
+    public static final String PPP_RUN_CACHE_MISS = "\016"; // worker does not know the tree of a PPP_RUN_CACHED request. It must be sent again in full
 
     public static final String PPP_INVESTIGATE_ERROR = "\011"; // failed to investigate the exception
     public static final String PPP_INVESTIGATE_SUCCESS = "\012"; // succeded investigation
 
     public static final String PPP_INIT_ACCEPTED = "\013"; // initialization is finished, worker is ready to be accepted into the ready queue
+
+    /**
+     * Checks if a request asks for code to be run, no matter in which format
+     *
+     * @param request type of the message
+     * @return true if the request is a run request
+     */
+    public static boolean isRunRequest(String request) {
+        return PPP_RUN.equals(request) || PPP_RUN_BINARY.equals(request) || PPP_RUN_CACHED.equals(request);
+    }
 }
 
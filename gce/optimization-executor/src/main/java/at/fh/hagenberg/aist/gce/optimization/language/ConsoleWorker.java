@@ -17,11 +17,18 @@ import at.fh.hagenberg.aist.gce.optimization.executor.TraceExecutionResult;
 import at.fh.hagenberg.aist.gce.optimization.language.util.CommandProcessor;
 import at.fh.hagenberg.aist.gce.optimization.language.util.ExecutionCommand;
 import at.fh.hagenberg.aist.gce.optimization.language.util.JavassistInterceptor;
+import at.fh.hagenberg.aist.gce.optimization.language.util.WorkerPool;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import com.oracle.truffle.api.nodes.Node;
 import science.aist.seshat.SimpleFileLogger;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
 
 /**
  * Helper class that conducts a run on the console.
@@ -70,6 +77,12 @@ public class ConsoleWorker {
     }
 
     public void work(String[] args) {
+        String port = System.getenv(WorkerPool.WORKER_PORT);
+        if (port != null) {
+            serve(Integer.parseInt(port));
+            return;
+        }
+
         before();
         logger.trace("Starting Worker");
         ExecutionCommand command = CommandProcessor.receiveCommands(args);
@@ -98,6 +111,66 @@ public class ConsoleWorker {
         logger.trace("Finished Worker");
     }
 
+    /**
+     * Executor of the pooled worker, kept as long as the commands are for the same program
+     */
+    private InternalExecutor executor;
+
+    /**
+     * Identifies the program the {@link #executor} was created for
+     */
+    private String executorKey;
+
+    /**
+     * Runs as pooled worker (see {@link WorkerPool}) that executes commands until the pool closes the connection.
+     *
+     * @param port the pool is listening on
+     */
+    public void serve(int port) {
+        before();
+        logger.trace("Starting pooled Worker on port " + port);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
+            oos.flush();
+            ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
+
+            while (true) {
+                ExecutionCommand command;
+                try {
+                    command = CommandProcessor.parseCommand((String[]) ois.readObject());
+                    command.setWrapper((NodeWrapper) ois.readObject());
+                } catch (EOFException e) {
+                    // pool closed the connection
+                    break;
+                }
+
+                ExecutionResult result;
+                try {
+                    String key = command.getLanguageId() + "#" + command.getEntryPoint() + "#" + command.getFunction() + "#" + command.getCode();
+                    if (!key.equals(executorKey)) {
+                        executor = new InternalExecutor(command.getLanguageId(), command.getCode(), command.getEntryPoint(), command.getFunction());
+                        executorKey = key;
+                    } else {
+                        // the previous command must not leave its globals behind
+                        executor.resetGlobalScope();
+                    }
+                    executor.setRepeats(command.getRepeats());
+                    result = after(command, executor.test(getParsedNode(command, executor), command.getInput()));
+                } catch (Exception | Error e) {
+                    logger.warn("Worker execution failed", e);
+                    result = new ExecutionResult(e, null, new long[0], false);
+                }
+
+                oos.writeObject(CommandProcessor.makeSerializable(result));
+                oos.flush();
+                oos.reset();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("Pooled worker lost connection", e);
+        }
+        logger.trace("Finished pooled Worker");
+    }
+
     public static void main(String[] args) {
         new ConsoleWorker().work(args);
     }
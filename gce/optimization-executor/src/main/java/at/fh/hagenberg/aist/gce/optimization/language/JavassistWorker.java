@@ -55,7 +55,8 @@ public class JavassistWorker extends ConsoleWorker {
     @Override
     protected Node getParsedNode(ExecutionCommand command, AbstractExecutor executor) {
         parsedNode = command.getParsedNode(executor);
-        interceptor.reset();
+        // assign slot ids so the interception does not need to calculate node positions
+        interceptor.prepare(parsedNode);
         return parsedNode;
     }
 
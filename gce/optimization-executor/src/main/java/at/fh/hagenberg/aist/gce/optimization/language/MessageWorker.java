@@ -10,8 +10,10 @@
 
 package at.fh.hagenberg.aist.gce.optimization.language;
 
+import at.fh.hagenberg.aist.gce.optimization.executor.AdaptiveMeasurement;
 import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
 import at.fh.hagenberg.aist.gce.optimization.executor.InternalExecutor;
+import at.fh.hagenberg.aist.gce.optimization.infrastructure.BinaryFrameProtocol;
 import at.fh.hagenberg.aist.gce.optimization.infrastructure.ParanoidPirateProtocolConstants;
 import at.fh.hagenberg.aist.gce.optimization.infrastructure.UuidHelper;
 import at.fh.hagenberg.aist.gce.optimization.test.ValueDefinitions;
@@ -20,6 +22,10 @@ import at.fh.hagenberg.aist.gce.optimization.util.TruffleClassInformation;
 import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import com.oracle.truffle.api.nodes.Node;
+import org.ehcache.Cache;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
 import org.nustaq.serialization.FSTConfiguration;
 import org.zeromq.*;
 import science.aist.seshat.SimpleFileLogger;
@@ -68,6 +74,21 @@ public class MessageWorker {
      */
     private int repeats = 1;
 
+    /**
+     * Adaptive measurement of the executor, null if the runs are repeated {@link #repeats} times
+     */
+    private AdaptiveMeasurement adaptiveMeasurement;
+
+    /**
+     * Median runtime of the best candidate, for aborting slower candidates in the adaptive measurement
+     */
+    private double adaptiveBound = Double.NaN;
+
+    /**
+     * Batch size of the adaptive measurement, must be the same the executor uses to detect the warmup
+     */
+    private int adaptiveBatchSize = 1000;
+
     /**
      * TODO #257 implement behaviour
      * Specialized setting. If turned on every worker will shut itself down after a single execution.
@@ -88,6 +109,22 @@ public class MessageWorker {
 
     private static SimpleFileLogger logger;
 
+    /**
+     * Amount of trees that are kept for {@link ParanoidPirateProtocolConstants#PPP_RUN_CACHED} requests
+     */
+    private static final int TREE_CACHE_SIZE = 512;
+
+    /**
+     * Received trees by their {@link NodeWrapper#getHash()}, so repeated evaluations don't need to send the tree.
+     * The wrappers are cached instead of the nodes, as a node specializes when it is executed and must not be run again
+     * as if it were fresh. Cleared whenever a new context arrives, as the trees are unwrapped into the frame of the context.
+     */
+    private Cache<String, NodeWrapper> treeCache = CacheManagerBuilder.newCacheManagerBuilder()
+        .withCache("MessageWorkerTreeCache",
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, NodeWrapper.class, ResourcePoolsBuilder.heap(TREE_CACHE_SIZE)))
+        .build(true)
+        .getCache("MessageWorkerTreeCache", String.class, NodeWrapper.class);
+
     /**
      * @param args
      */
@@ -202,6 +239,7 @@ public class MessageWorker {
                                 logger.info("Loaded context from message");
 
                                 // prepare executor & language
+                                treeCache.clear();
                                 this.languageId = language;
                                 initLanguage(this.languageId);
                                 logger.info("Loaded language information");
@@ -240,11 +278,23 @@ public class MessageWorker {
                                     safeVM = Boolean.parseBoolean(value.substring(7));
                                 } else if (value.startsWith("repeats")) {
                                     repeats = Integer.parseInt(value.substring(8));
+                                } else if (value.startsWith("adaptivePrecision=")) {
+                                    double precision = Double.parseDouble(value.substring(18));
+                                    adaptiveMeasurement = precision > 0 ? new AdaptiveMeasurement(precision) : null;
+                                } else if (value.startsWith("adaptiveBound=")) {
+                                    adaptiveBound = Double.parseDouble(value.substring(14));
+                                } else if (value.startsWith("adaptiveBatchSize=")) {
+                                    adaptiveBatchSize = Integer.parseInt(value.substring(18));
                                 }
                             }
+                            if (adaptiveMeasurement != null) {
+                                adaptiveMeasurement.setBound(adaptiveBound);
+                                adaptiveMeasurement.setBatchSize(adaptiveBatchSize);
+                            }
 
                             executor.setTimeout(timeout);
                             executor.setRepeats(repeats);
+                            executor.setAdaptiveMeasurement(adaptiveMeasurement);
 
                             logger.info("Applied new context");
                             msg.destroy();
@@ -252,15 +302,37 @@ public class MessageWorker {
                             continue;
                         }
 
-                        if (messageType.equals(ParanoidPirateProtocolConstants.PPP_RUN)) {
+                        if (ParanoidPirateProtocolConstants.isRunRequest(messageType)) {
                             logger.info("Received new execution request");
-
-                            // parse node
-                            Node node = NodeWrapper.unwrap((NodeWrapper) conf.asObject(objects[2].getData()), executor.getRoot().getFrameDescriptor(), executor.getGlobalScope(), this.languageId);
+                            boolean binary = !messageType.equals(ParanoidPirateProtocolConstants.PPP_RUN);
+
+                            // parse node, or get it from the cache if the executor only sent the hash
+                            NodeWrapper wrapper;
+                            if (messageType.equals(ParanoidPirateProtocolConstants.PPP_RUN_CACHED)) {
+                                wrapper = treeCache.get(objects[2].toString());
+                                if (wrapper == null) {
+                                    logger.debug("Tree not in cache, requesting full tree");
+                                    msg.add(ParanoidPirateProtocolConstants.PPP_RUN_CACHE_MISS);
+                                    msg.send(worker);
+                                    liveness = heartbeatLiveness;
+                                    continue;
+                                }
+                            } else {
+                                wrapper = (NodeWrapper) conf.asObject(objects[2].getData());
+                                if (wrapper.getHash() != null) {
+                                    treeCache.put(wrapper.getHash(), wrapper);
+                                }
+                            }
+                            // every run gets a fresh tree
+                            Node node = NodeWrapper.unwrap(wrapper, executor.getRoot().getFrameDescriptor(), executor.getGlobalScope(), this.languageId);
                             // parse input parametesr
                             Object[] input;
                             try {
-                                input = (objects[3] == null || objects[3].getData().length == 0) ? null : Arrays.stream(objects[3].toString().split(";")).map(ValueDefinitions::stringToValue).toArray();
+                                if (binary) {
+                                    input = BinaryFrameProtocol.decodeInput(objects[3].getData());
+                                } else {
+                                    input = (objects[3] == null || objects[3].getData().length == 0) ? null : Arrays.stream(objects[3].toString().split(";")).map(ValueDefinitions::stringToValue).toArray();
+                                }
                             } catch (Exception ex) {
                                 msg.add(ParanoidPirateProtocolConstants.PPP_RUN_FAILURE);
                                 msg.add("Input args could not be parsed");
@@ -275,22 +347,22 @@ public class MessageWorker {
                             ExecutionResult test = executor.test(node, input);
                             logger.debug("Finished test " + test.isSuccess());
                             try {
-                                msg.add(test.serialize());
+                                msg.add(serialize(test, binary));
                             } catch (Exception e) {
                                 if (test.getReturnValue() instanceof Error) {
                                     StringWriter sw = new StringWriter();
                                     PrintWriter pw = new PrintWriter(sw);
                                     ((Error) test.getReturnValue()).printStackTrace(pw);
                                     test.setReturnValue(sw.toString());
-                                    msg.add(test.serialize());
+                                    msg.add(serialize(test, binary));
                                 } else if (test.getReturnValue() instanceof RuntimeException) {
                                     StringWriter sw = new StringWriter();
                                     PrintWriter pw = new PrintWriter(sw);
                                     ((Exception) test.getReturnValue()).printStackTrace(pw);
                                     test.setReturnValue(sw.toString());
-                                    msg.add(test.serialize());
+                                    msg.add(serialize(test, binary));
                                 } else {
-                                    msg.add(new ExecutionResult("FAILED TO SERIALIZE MESSAGE", "", new long[0], false).serialize());
+                                    msg.add(serialize(new ExecutionResult("FAILED TO SERIALIZE MESSAGE", "", new long[0], false), binary));
                                     logger.error("Failed to serialize message", e);
                                     try {
                                         logger.error("Original message", test.getReturnValue());
@@ -375,6 +447,17 @@ public class MessageWorker {
     }
 
 
+    /**
+     * Serializes the result in the format the executor requested
+     *
+     * @param result to be serialized
+     * @param binary if the {@link BinaryFrameProtocol} shall be used
+     * @return serialized result
+     */
+    private byte[] serialize(ExecutionResult result, boolean binary) {
+        return binary ? BinaryFrameProtocol.encodeResult(result) : result.serialize();
+    }
+
     /**
      * Executor that actually inits the language
      */
@@ -25,6 +25,8 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -67,6 +69,42 @@ public class CommandProcessor {
         };
     }
 
+    /**
+     * Prepares a command to be sent to a pooled worker, see {@link WorkerPool}.
+     *
+     * @param languageId language to be executed
+     * @param code       code to be exeucted
+     * @param entryPoint function to be called
+     * @param function   function to be executed
+     * @param repeats    times the execution is repeated
+     * @param input      input to be used
+     * @return command in the same format as {@link #prepareCommand(String, String, String, int, Object[])}
+     */
+    public static String[] prepareCommand(String languageId, String code, String entryPoint, String function, int repeats, Object[] input) {
+        String[] command = prepareCommand(languageId, code, function, repeats, input);
+        command = Arrays.copyOf(command, command.length + 1);
+        command[command.length - 1] = "entryPoint=" + entryPoint;
+        return command;
+    }
+
+    /**
+     * Parses a command that was created with {@link #prepareCommand(String, String, String, String, int, Object[])}
+     *
+     * @param command key=value pairs
+     * @return parsed command
+     */
+    public static ExecutionCommand parseCommand(String[] command) {
+        Map<String, String> values = new HashMap<>();
+        for (String value : command) {
+            int split = value.indexOf('=');
+            values.put(value.substring(0, split), value.substring(split + 1));
+        }
+        String inputStr = values.get("input");
+        Object[] input = inputStr.equals("null") ? null : Arrays.stream(inputStr.split(";")).map(ValueDefinitions::stringToValue).toArray();
+        return new ExecutionCommand(values.get("languageId"), values.get("code"), values.get("entryPoint"), values.get("function"),
+            Integer.valueOf(values.get("repeats")), values.get("node"), input);
+    }
+
     /**
      * Loads the command either by the given function arguments, or the system environment (args supercede system!)
      *
@@ -141,16 +179,7 @@ public class CommandProcessor {
     public static void sendExecutionResult(PrintStream stream, ExecutionResult result, boolean serial) throws IOException {
         if (serial) {
             logger.trace("Sending serial execution result");
-            if (result.getReturnValue() instanceof Exception) {
-                // must rewrite as truffle exceptions aren't serializable
-                Exception ret = (Exception) result.getReturnValue();
-                String retStr = ret.getClass().getName() + (ret.getMessage() != null ? " " + ret.getMessage() : "");
-                for (int i = 0; i < ret.getStackTrace().length; i++) {
-                    retStr += System.lineSeparator() + ret.getStackTrace()[i].toString();
-                }
-
-                result.setReturnValue(retStr);
-            }
+            makeSerializable(result);
 
             // send over socket
             logger.debug("Execution Result: " + result.toString());
@@ -174,6 +203,25 @@ public class CommandProcessor {
         }
     }
 
+    /**
+     * Rewrites exceptions in the return value, as truffle exceptions aren't serializable
+     *
+     * @param result to be sent
+     * @return the same result
+     */
+    public static ExecutionResult makeSerializable(ExecutionResult result) {
+        if (result.getReturnValue() instanceof Exception) {
+            Exception ret = (Exception) result.getReturnValue();
+            String retStr = ret.getClass().getName() + (ret.getMessage() != null ? " " + ret.getMessage() : "");
+            for (int i = 0; i < ret.getStackTrace().length; i++) {
+                retStr += System.lineSeparator() + ret.getStackTrace()[i].toString();
+            }
+
+            result.setReturnValue(retStr);
+        }
+        return result;
+    }
+
     protected static ServerSocket execServer;
     protected static Socket execClient;
 
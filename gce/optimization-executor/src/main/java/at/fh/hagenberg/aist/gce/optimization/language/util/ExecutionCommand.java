@@ -69,6 +69,12 @@ public class ExecutionCommand {
 
     Node parsedNode;
 
+    /**
+     * Node that was already received by the worker (ex. from the {@link WorkerPool} connection).
+     * Supercedes {@link #node} if set.
+     */
+    NodeWrapper wrapper;
+
     public ExecutionCommand() {
     }
 
@@ -130,16 +136,20 @@ public class ExecutionCommand {
         this.input = input;
     }
 
+    public void setWrapper(NodeWrapper wrapper) {
+        this.wrapper = wrapper;
+    }
+
     public Node getParsedNode(AbstractExecutor executor) {
         if (parsedNode == null) {
-            if (this.node.equals("null")) {
+            if (this.wrapper == null && this.node.equals("null")) {
                 parsedNode = executor.getOrigin();
             } else {
                 // initialize language
                 TruffleLanguageInformation.getLanguageInformationMinimal(this.languageId);
                 // deserialize
-                NodeWrapper wrapper = null;
-                if (this.node.equals("serial")) {
+                NodeWrapper wrapper = this.wrapper;
+                if (wrapper == null && this.node.equals("serial")) {
                     try {
                         Socket client = new Socket("localhost", CommandProcessor.SOCKET_NODE_WRAPPER);
                         try {
@@ -153,7 +163,7 @@ public class ExecutionCommand {
                     } catch (IOException e) {
                         e.printStackTrace();
                     }
-                } else {
+                } else if (wrapper == null) {
                     wrapper = NodeWrapper.deserialize(this.node);
                 }
                 parsedNode = NodeWrapper.unwrap(wrapper, executor.getRoot().getFrameDescriptor(), executor.getGlobalScope(), this.languageId);
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.language.util;
+
+import at.fh.hagenberg.aist.gce.optimization.util.ClassLoadingHelper;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.NotFoundException;
+import science.aist.seshat.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Content addressed cache of language jars that were rewritten with Javassist.
+ * An instrumented jar is identified by the SHA-256 digest of the source jar and the prefix and version of the
+ * instrumentation, so it is created only once and then reused by all executors, workers and runs.
+ * Changing the source jar or the version of the instrumentation creates a new jar.
+ */
+public class InstrumentedJarCache {
+
+    /**
+     * Directory the instrumented jars are stored in
+     */
+    public static final String CACHE_LOCATION = System.getenv("INSTRUMENTED_CACHE_DIR") != null ? System.getenv("INSTRUMENTED_CACHE_DIR") : new File(EngineConfig.DIST_LOCATION).getAbsolutePath() + "/instrumented";
+
+    private static Logger logger = Logger.getInstance();
+
+    /**
+     * Digests of the source jars that were already hashed in this VM, by path, size and modification time
+     */
+    private static final Map<String, String> DIGESTS = new ConcurrentHashMap<>();
+
+    /**
+     * Rewrites a class of the language jar
+     */
+    @FunctionalInterface
+    public interface Instrumentation {
+
+        /**
+         * @param classPool pool of the source jar (one per thread)
+         * @param ctClass   to be modified
+         * @throws Exception if the class can't be modified
+         */
+        void instrument(ClassPool classPool, CtClass ctClass) throws Exception;
+    }
+
+    /**
+     * Returns the instrumented version of the jar, and creates it if it is not in the cache yet
+     *
+     * @param languageId       language in the jar
+     * @param languageLocation location of the source jar
+     * @param prefix           prefix of the instrumentation (ex. "analysis-")
+     * @param version          version of the instrumentation. Must be increased whenever the instrumentation changes
+     * @param instrumentation  that will be applied to every node class in the jar
+     * @return location of the instrumented jar
+     * @throws IOException if the jar can't be read or written, or any of its node classes can't be instrumented
+     */
+    public static String getInstrumentedJar(String languageId, String languageLocation, String prefix, int version, Instrumentation instrumentation) throws IOException {
+        return getInstrumentedJar(CACHE_LOCATION, languageId, languageLocation, prefix, version, instrumentation);
+    }
+
+    /**
+     * Returns the instrumented version of the jar from the given cache, and creates it if it is not in the cache yet
+     *
+     * @param cacheLocation    directory the instrumented jars are stored in
+     * @param languageId       language in the jar
+     * @param languageLocation location of the source jar
+     * @param prefix           prefix of the instrumentation (ex. "analysis-")
+     * @param version          version of the instrumentation. Must be increased whenever the instrumentation changes
+     * @param instrumentation  that will be applied to every node class in the jar
+     * @return location of the instrumented jar
+     * @throws IOException if the jar can't be read or written, or any of its node classes can't be instrumented
+     */
+    public static String getInstrumentedJar(String cacheLocation, String languageId, String languageLocation, String prefix, int version, Instrumentation instrumentation) throws IOException {
+        File source = new File(languageLocation);
+        File target = new File(cacheLocation, prefix + digest(source) + "-v" + version + ".jar");
+        if (target.exists()) {
+            return target.getAbsolutePath();
+        }
+
+        synchronized (InstrumentedJarCache.class) {
+            if (!target.exists()) {
+                logger.info("Instrumenting " + languageLocation + " into " + target.getAbsolutePath());
+                target.getParentFile().mkdirs();
+                // write to a temporary file first, so nobody picks up a half-written jar
+                File tmp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+                try {
+                    instrument(languageId, source, tmp, instrumentation);
+                    Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp.toPath());
+                }
+            }
+        }
+        return target.getAbsolutePath();
+    }
+
+    private static void instrument(String languageId, File source, File target, Instrumentation instrumentation) throws IOException {
+        // pre-load the language as the class-modification will create errors otherwise in the current system
+        TruffleLanguageInformation.getLanguageInformation(languageId);
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // find classes to modify
+        ClassLoadingHelper helper = new ClassLoadingHelper();
+        helper.setPaths(new LinkedList<>());
+        helper.getPaths().add(source.getAbsolutePath());
+        helper.setParentClasses(Arrays.asList(Node.class, RootNode.class));
+        helper.setPackages(Arrays.asList("com.oracle.truffle", "at.fh.hagenberg"));
+        helper.setExcludes(Arrays.asList("com.oracle.truffle.polyglot", "com.oracle.truffle.api", "com.oracle.truffle.tck"));
+        List<Class> classes = helper.findClasses();
+
+        // classes are independent of each other, so each thread rewrites with its own class pool of the original jar
+        ThreadLocal<ClassPool> classPools = ThreadLocal.withInitial(() -> {
+            ClassPool classPool = new ClassPool(ClassPool.getDefault());
+            try {
+                classPool.appendClassPath(source.getAbsolutePath());
+            } catch (NotFoundException e) {
+                throw new IllegalStateException("Language jar not found " + source.getAbsolutePath(), e);
+            }
+            return classPool;
+        });
+        // a jar with only some classes instrumented would be cached for good, so every failure is collected instead
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        Map<String, byte[]> bytecode = classes.parallelStream().map(x -> {
+            try {
+                ClassPool classPool = classPools.get();
+                CtClass ctClass = classPool.get(x.getName());
+                if (ctClass.isFrozen()) {
+                    failures.add(new IllegalStateException("Class is frozen " + x.getName()));
+                    return null;
+                }
+                instrumentation.instrument(classPool, ctClass);
+                byte[] bytes = ctClass.toBytecode();
+                // don't keep the rewritten classes of the whole language in the pools
+                ctClass.detach();
+                return Map.entry(x.getName(), bytes);
+            } catch (Exception e) {
+                failures.add(new IllegalStateException("Failed to modify " + x.getName(), e));
+                return null;
+            }
+        }).filter(Objects::nonNull).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (!failures.isEmpty()) {
+            IOException exception = new IOException("Failed to instrument " + failures.size() + " of " + classes.size() + " classes of " + source.getAbsolutePath(), failures.poll());
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+
+        // override the class files in the new jar
+        Map<String, String> env = new HashMap<>();
+        env.put("create", "true");
+        try (FileSystem newJar = FileSystems.newFileSystem(URI.create("jar:" + target.toURI()), env)) {
+            for (Map.Entry<String, byte[]> entry : bytecode.entrySet()) {
+                Path nf = newJar.getPath(entry.getKey().replace(".", "/") + ".class");
+                Files.write(nf, entry.getValue());
+            }
+        }
+        logger.info("Successfully modified " + bytecode.size() + " of " + classes.size() + " classes");
+    }
+
+    /**
+     * Calculates the SHA-256 digest of a file. Digests are remembered as long as the file doesn't change.
+     *
+     * @param file to be hashed
+     * @return hex encoded digest
+     * @throws IOException if the file can't be read
+     */
+    public static String digest(File file) throws IOException {
+        String key = file.getAbsolutePath() + "#" + file.length() + "#" + file.lastModified();
+        String digest = DIGESTS.get(key);
+        if (digest != null) {
+            return digest;
+        }
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), messageDigest)) {
+            byte[] buffer = new byte[65536];
+            while (in.read(buffer) != -1) {
+                // digest is updated by the stream
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : messageDigest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        digest = hex.toString();
+        DIGESTS.put(key, digest);
+        return digest;
+    }
+}
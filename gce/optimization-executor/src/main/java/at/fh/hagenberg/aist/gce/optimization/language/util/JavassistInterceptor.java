@@ -13,14 +13,25 @@ package at.fh.hagenberg.aist.gce.optimization.language.util;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import com.oracle.truffle.api.nodes.Node;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Default Interceptor for the JavassistWorker.
  * Calculates:
  * - the complexity measure of a test (the amount of nodes called, and the amount of nodes specialized)
+ * <p>
+ * If the executed tree was registered with {@link #prepare(Node)} every node of it gets a dense slot id, and the
+ * interception only increments counters in an array. Position strings are only built when the results are requested.
+ * Nodes outside of the prepared tree (other functions, nodes created by re-specialization) fall back to the
+ * position string keys.
  *
  * @author Oliver Krauss on 11.12.2019
  */
@@ -36,12 +47,96 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
      */
     private Map<String, Integer> specializedNodes = new HashMap<>();
 
+    /**
+     * Root of the tree that was prepared with slot ids, null if no tree was prepared
+     */
+    private Node preparedRoot;
+
+    /**
+     * Hash of the prepared root, taken when the tree is prepared so it is the same hash the position keys of
+     * {@link #getNodePosition(Node)} are built with during the interception
+     */
+    private String preparedRootKey;
+
+    /**
+     * Slot id of every node in the prepared tree
+     */
+    private Map<Node, Integer> slots = new IdentityHashMap<>();
+
+    /**
+     * Slot id of the parent of each slot (-1 for the root)
+     */
+    private int[] slotParent = new int[0];
+
+    /**
+     * Position of each slot in the children of its parent
+     */
+    private int[] slotChildIndex = new int[0];
+
+    /**
+     * Execution count of each slot, -1 if the slot was never intercepted
+     */
+    private int[] executedSlots = new int[0];
+
+    /**
+     * Specialization count of each slot, -1 if the slot was never intercepted
+     */
+    private int[] specializedSlots = new int[0];
+
+    /**
+     * Assigns a dense slot id to every node in the function of the given node, so the interception of those nodes
+     * does not need to compute the node position. Replaces any previously prepared tree and resets all counters.
+     *
+     * @param graph any node in hierarchy of execution
+     */
+    public void prepare(Node graph) {
+        preparedRoot = graph.getRootNode() != null ? graph.getRootNode() : graph;
+        preparedRootKey = NodeWrapper.wrap(preparedRoot).getHash();
+        slots.clear();
+
+        // pre-order traversal, so a parent always has a smaller slot id than its children
+        int[] parents = new int[16];
+        int[] childIndices = new int[16];
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<int[]> positions = new ArrayDeque<>();
+        nodes.push(preparedRoot);
+        positions.push(new int[]{-1, 0});
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int[] position = positions.pop();
+            int slot = slots.size();
+            slots.put(node, slot);
+            if (slot == parents.length) {
+                parents = Arrays.copyOf(parents, slot * 2);
+                childIndices = Arrays.copyOf(childIndices, slot * 2);
+            }
+            parents[slot] = position[0];
+            childIndices[slot] = position[1];
+
+            // push in reverse to keep the child order
+            List<Node> children = new ArrayList<>();
+            node.getChildren().forEach(children::add);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                nodes.push(children.get(i));
+                positions.push(new int[]{slot, i});
+            }
+        }
+
+        slotParent = Arrays.copyOf(parents, slots.size());
+        slotChildIndex = Arrays.copyOf(childIndices, slots.size());
+        executedSlots = new int[slots.size()];
+        specializedSlots = new int[slots.size()];
+        reset();
+    }
+
     /**
      * Resets the execution counter to 0 (ex. for a re-run)
      */
     public void reset() {
         executedNodes.clear();
         specializedNodes.clear();
+        Arrays.fill(executedSlots, -1);
+        Arrays.fill(specializedSlots, -1);
         previousSpecialization = null;
         previous = null;
     }
@@ -50,7 +145,7 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
      * @return how many nodes were executed and intercepted by this class
      */
     public int getExecutedCount() {
-        return executedNodes.size();
+        return getNodeHashes().size();
     }
 
     /**
@@ -60,15 +155,14 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
      * @return how many nodes were executed and intercepted by this class
      */
     public int getExecutedCount(Node graph) {
-        String key = NodeWrapper.wrap(graph.getRootNode()).getHash();
-        return (int) executedNodes.keySet().stream().filter(x -> x.startsWith(key)).count();
+        return getNodeHashes(graph).size();
     }
 
     /**
      * @return how many nodes were specialized and intercepted by this class
      */
     public int getSpecializedCount() {
-        return specializedNodes.size();
+        return collect(specializedNodes, specializedSlots, null).size();
     }
 
     /**
@@ -78,12 +172,11 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
      * @return how many nodes were specialized and intercepted by this class
      */
     public int getSpecializedCount(Node graph) {
-        String key = NodeWrapper.wrap(graph.getRootNode()).getHash();
-        return (int) specializedNodes.keySet().stream().filter(x -> x.startsWith(key)).count();
+        return collect(specializedNodes, specializedSlots, graph).size();
     }
 
     public Map<String, Integer> getNodeHashes() {
-        return executedNodes;
+        return collect(executedNodes, executedSlots, null);
     }
 
     /**
@@ -93,11 +186,44 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
      * @return how many nodes were specialized and intercepted by this class
      */
     public Map<String, Integer> getNodeHashes(Node graph) {
-        String key = NodeWrapper.wrap(graph.getRootNode()).getHash();
+        return collect(executedNodes, executedSlots, graph);
+    }
+
+    /**
+     * Merges the counts of the prepared slots with the counts collected by position keys
+     *
+     * @param nodes  counts by position key
+     * @param counts counts by slot
+     * @param graph  function to restrict the result to (keys are relative to its root), or null for all functions
+     * @return counts by position key
+     */
+    private Map<String, Integer> collect(Map<String, Integer> nodes, int[] counts, Node graph) {
         Map<String, Integer> hashes = new HashMap<>();
-        executedNodes.entrySet().stream().filter(x -> x.getKey().startsWith(key)).forEach(x -> {
-            hashes.put(x.getKey().substring(key.length()), x.getValue());
-        });
+        Node root = graph == null ? null : graph.getRootNode() != null ? graph.getRootNode() : graph;
+
+        // materialize the slot positions
+        if (preparedRoot != null && (graph == null || root == preparedRoot)) {
+            String prefix = graph == null ? preparedRootKey : "";
+            String[] positions = new String[counts.length];
+            for (int slot = 0; slot < counts.length; slot++) {
+                positions[slot] = slotParent[slot] < 0 ? "" : positions[slotParent[slot]] + "." + slotChildIndex[slot];
+                if (counts[slot] >= 0) {
+                    hashes.put(prefix + positions[slot], counts[slot]);
+                }
+            }
+        }
+
+        if (nodes.isEmpty()) {
+            return hashes;
+        }
+        if (graph == null) {
+            nodes.forEach((k, v) -> hashes.merge(k, v, Integer::sum));
+        } else {
+            String key = root == preparedRoot ? preparedRootKey : NodeWrapper.wrap(root).getHash();
+            nodes.entrySet().stream().filter(x -> x.getKey().startsWith(key)).forEach(x -> {
+                hashes.merge(x.getKey().substring(key.length()), x.getValue(), Integer::sum);
+            });
+        }
         return hashes;
     }
 
@@ -107,6 +233,12 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
 
     @Override
     public void beforeIntercept(Object target, String name, Object[] args) {
+        Integer slot = slots.get(target);
+        if (slot != null) {
+            interceptSlot(target, name, slot);
+            return;
+        }
+
         String key = getNodePosition((Node) target);
 
         if (!name.contains("AndSpecialize")) {
@@ -134,6 +266,30 @@ public class JavassistInterceptor implements JavassistInterceptCallback {
         }
     }
 
+    private void interceptSlot(Object target, String name, int slot) {
+        if (!name.contains("AndSpecialize")) {
+            if (executedSlots[slot] < 0) {
+                executedSlots[slot] = 0;
+            }
+            // prevent calls from node to itself to be a duplicate execution
+            if (target != previous) {
+                executedSlots[slot]++;
+            }
+            previous = target;
+        } else {
+            if (specializedSlots[slot] < 0) {
+                specializedSlots[slot] = 0;
+            }
+            // prevent calls from node to itself to be a duplicate execution
+            if (target != previousSpecialization) {
+                specializedSlots[slot]++;
+            }
+            previousSpecialization = target;
+            // execute and specialize sometimes calls back to itself, but never the other way around
+            previous = target;
+        }
+    }
+
     protected String getNodePosition(Node target) {
         Node origin = target;
         String key = "";
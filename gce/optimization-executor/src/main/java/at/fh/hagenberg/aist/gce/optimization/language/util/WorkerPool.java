@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.language.util;
+
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import com.oracle.truffle.api.nodes.Node;
+import science.aist.seshat.LogConfiguration;
+import science.aist.seshat.SimpleFileLogger;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool of long-lived worker processes for the Executor-Worker pairs that would otherwise start a JVM per test.
+ * There is one pool per launch command (java call, jar and worker class). Each worker connects back to an
+ * ephemeral port on the loopback interface and then keeps executing commands on that connection,
+ * so workers stay warm and several pools (or several workers of one pool) can be used concurrently.
+ * Workers are recycled after {@link #maxRuns} runs, and discarded when they crash or time out.
+ */
+public class WorkerPool {
+
+    /**
+     * Environment variable that tells a worker to connect to the pool on the given port instead of running once
+     */
+    public static final String WORKER_PORT = "WORKER_PORT";
+
+    /**
+     * How long we wait for a started worker to connect back (in ms)
+     */
+    private static final int CONNECT_TIMEOUT = 60000;
+
+    private static SimpleFileLogger logger = new SimpleFileLogger(WorkerPool.class);
+
+    /**
+     * All pools by launch command
+     */
+    private static final Map<List<String>, WorkerPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * All pools of single-use workers by launch command
+     */
+    private static final Map<List<String>, WorkerPool> FRESH_POOLS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(WorkerPool::shutdownAll));
+    }
+
+    /**
+     * Command that starts a worker process
+     */
+    private final List<String> command;
+
+    /**
+     * Maximum amount of workers running at the same time
+     */
+    private final int maxWorkers;
+
+    /**
+     * Runs after which a worker is replaced with a fresh process
+     */
+    private int maxRuns = 1000;
+
+    /**
+     * Limits the amount of workers that are borrowed at the same time
+     */
+    private final Semaphore permits;
+
+    /**
+     * Workers that are currently not in use
+     */
+    private final ConcurrentLinkedDeque<PooledWorker> idle = new ConcurrentLinkedDeque<>();
+
+    /**
+     * All running workers, for shutdown
+     */
+    private final Set<PooledWorker> workers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private WorkerPool(List<String> command, int maxWorkers) {
+        this.command = command;
+        this.maxWorkers = maxWorkers;
+        this.permits = new Semaphore(maxWorkers, true);
+    }
+
+    /**
+     * Returns the pool for the given launch command, and creates it if it doesn't exist yet
+     *
+     * @param command launch command of the worker, split by whitespace just like {@link Runtime#exec(String)} does
+     * @return pool for the command
+     */
+    public static WorkerPool getPool(String command) {
+        return POOLS.computeIfAbsent(Arrays.asList(command.trim().split("\\s+")), x -> new WorkerPool(x, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Returns the pool of single-use workers for the given launch command, and creates it if it doesn't exist yet.
+     * Every worker of this pool executes exactly one command, so each command runs in a VM that didn't run anything before.
+     * Unlike starting a process per test this still gives every worker its own port, so tests can run concurrently.
+     *
+     * @param command launch command of the worker, split by whitespace just like {@link Runtime#exec(String)} does
+     * @return pool of single-use workers for the command
+     */
+    public static WorkerPool getFreshPool(String command) {
+        return FRESH_POOLS.computeIfAbsent(Arrays.asList(command.trim().split("\\s+")), x -> {
+            WorkerPool pool = new WorkerPool(x, Runtime.getRuntime().availableProcessors());
+            pool.maxRuns = 1;
+            return pool;
+        });
+    }
+
+    /**
+     * Destroys all workers of all pools
+     */
+    public static void shutdownAll() {
+        POOLS.values().forEach(WorkerPool::shutdown);
+        FRESH_POOLS.values().forEach(WorkerPool::shutdown);
+    }
+
+    /**
+     * Destroys all workers of this pool. The pool can still be used afterwards and will start new workers.
+     */
+    public void shutdown() {
+        workers.forEach(PooledWorker::destroy);
+        workers.clear();
+        idle.clear();
+    }
+
+    /**
+     * Borrows a worker. Blocks if all workers of the pool are in use.
+     *
+     * @return a worker that is exclusively used by the caller until it is released or discarded
+     * @throws IOException if a new worker could not be started
+     */
+    public PooledWorker borrow() throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a worker", e);
+        }
+
+        PooledWorker worker;
+        while ((worker = idle.poll()) != null) {
+            if (worker.process.isAlive()) {
+                worker.borrowed.set(true);
+                return worker;
+            }
+            workers.remove(worker);
+            worker.destroy();
+        }
+
+        try {
+            worker = start();
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        worker.borrowed.set(true);
+        return worker;
+    }
+
+    /**
+     * Returns a worker to the pool. Workers that reached {@link #maxRuns} are replaced.
+     * Releasing a worker that was already released or discarded does nothing.
+     *
+     * @param worker to be returned
+     */
+    public void release(PooledWorker worker) {
+        if (!worker.borrowed.compareAndSet(true, false)) {
+            return;
+        }
+        if (worker.runs < maxRuns && worker.process.isAlive()) {
+            idle.push(worker);
+        } else {
+            workers.remove(worker);
+            worker.destroy();
+        }
+        permits.release();
+    }
+
+    /**
+     * Destroys a worker that crashed, timed out or is in an unknown state.
+     * Discarding a worker that was already released or discarded does nothing.
+     *
+     * @param worker to be destroyed
+     */
+    public void discard(PooledWorker worker) {
+        if (!worker.borrowed.compareAndSet(true, false)) {
+            return;
+        }
+        workers.remove(worker);
+        worker.destroy();
+        permits.release();
+    }
+
+    private PooledWorker start() throws IOException {
+        try (ServerSocket server = new ServerSocket()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.setSoTimeout(CONNECT_TIMEOUT);
+
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.environment().put(WORKER_PORT, String.valueOf(server.getLocalPort()));
+            builder.environment().put("LOG_LOC", LogConfiguration.LOG_LOCATION);
+            // nobody reads the console of pooled workers, and a full pipe would block them
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+            Process process = builder.start();
+
+            try {
+                PooledWorker worker = new PooledWorker(process, server.accept());
+                workers.add(worker);
+                logger.debug("Started pooled worker on port " + server.getLocalPort());
+                return worker;
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+        }
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public int getMaxRuns() {
+        return maxRuns;
+    }
+
+    public void setMaxRuns(int maxRuns) {
+        this.maxRuns = maxRuns;
+    }
+
+    /**
+     * A single worker process and its connection
+     */
+    public static class PooledWorker {
+
+        private final Process process;
+
+        private final Socket socket;
+
+        private final ObjectOutputStream oos;
+
+        private final ObjectInputStream ois;
+
+        private final AtomicBoolean borrowed = new AtomicBoolean(false);
+
+        /**
+         * How many commands this worker has executed
+         */
+        private int runs = 0;
+
+        private PooledWorker(Process process, Socket socket) throws IOException {
+            this.process = process;
+            this.socket = socket;
+            this.oos = new ObjectOutputStream(socket.getOutputStream());
+            this.oos.flush();
+            this.ois = new ObjectInputStream(socket.getInputStream());
+        }
+
+        /**
+         * Executes a command on the worker
+         *
+         * @param command command as created by {@link CommandProcessor#prepareCommand(String, String, String, String, int, Object[])}
+         * @param node    node to be tested
+         * @return result of the execution
+         * @throws IOException if the worker crashed or the connection was closed
+         */
+        public ExecutionResult run(String[] command, Node node) throws IOException {
+            runs++;
+            oos.writeObject(command);
+            oos.writeObject(NodeWrapper.wrap(node));
+            oos.flush();
+            // don't let the stream hold on to the trees we already sent
+            oos.reset();
+            try {
+                return (ExecutionResult) ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Worker sent an unknown result", e);
+            }
+        }
+
+        private void destroy() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close pooled worker socket", e);
+            }
+            process.destroyForcibly();
+        }
+    }
+}
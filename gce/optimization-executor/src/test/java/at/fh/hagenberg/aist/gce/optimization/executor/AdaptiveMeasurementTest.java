@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.executor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class AdaptiveMeasurementTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private AdaptiveMeasurement measurement(double precision) {
+        AdaptiveMeasurement measurement = new AdaptiveMeasurement(precision);
+        measurement.setBatchSize(BATCH_SIZE);
+        measurement.setMinBatches(20);
+        return measurement;
+    }
+
+    /**
+     * Adds runtimes until the measurement is finished
+     *
+     * @return amount of runs added
+     */
+    private int run(AdaptiveMeasurement measurement, int maxRepeats, long runtime) {
+        measurement.start(maxRepeats);
+        int runs = 0;
+        boolean finished = false;
+        while (!finished) {
+            runs++;
+            finished = measurement.add(runtime);
+        }
+        return runs;
+    }
+
+    @Test
+    public void testDetectWarmup() {
+        // given
+        long[] performance = new long[50 * BATCH_SIZE];
+        for (int i = 0; i < performance.length; i++) {
+            performance[i] = i < 10 * BATCH_SIZE ? 1000 : 100;
+        }
+
+        // when
+        int warmup = AdaptiveMeasurement.detectWarmup(performance, BATCH_SIZE);
+
+        // then
+        Assert.assertEquals(warmup, 10 * BATCH_SIZE);
+    }
+
+    @Test
+    public void testDetectWarmupStableFromStart() {
+        // given
+        long[] performance = new long[50 * BATCH_SIZE];
+        for (int i = 0; i < performance.length; i++) {
+            performance[i] = 100 + i % 3;
+        }
+
+        // when
+        int warmup = AdaptiveMeasurement.detectWarmup(performance, BATCH_SIZE);
+
+        // then
+        Assert.assertEquals(warmup, 0);
+    }
+
+    @Test
+    public void testDetectWarmupNotStabilized() {
+        // given
+        long[] performance = new long[50 * BATCH_SIZE];
+        for (int i = 0; i < performance.length; i++) {
+            performance[i] = 10000 - i;
+        }
+
+        // when
+        int warmup = AdaptiveMeasurement.detectWarmup(performance, BATCH_SIZE);
+
+        // then
+        Assert.assertEquals(warmup, -1);
+    }
+
+    @Test
+    public void testStopWhenPrecise() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.01);
+
+        // when
+        int runs = run(measurement, 100000, 100);
+
+        // then
+        Assert.assertEquals(runs, 20 * BATCH_SIZE);
+        Assert.assertEquals(measurement.getPerformance().length, runs);
+        Assert.assertEquals(measurement.getWarmup(), 0);
+        Assert.assertFalse(measurement.isAborted());
+    }
+
+    @Test
+    public void testStopAtMaxRepeats() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.01);
+
+        // when
+        int runs = run(measurement, 5 * BATCH_SIZE + 3, 100);
+
+        // then
+        Assert.assertEquals(runs, 5 * BATCH_SIZE + 3);
+        Assert.assertEquals(measurement.getPerformance().length, runs);
+        Assert.assertFalse(measurement.isAborted());
+    }
+
+    @Test
+    public void testAbortWhenSlowerThanBound() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.0);
+        measurement.setBound(50);
+
+        // when
+        int runs = run(measurement, 100000, 100);
+
+        // then
+        Assert.assertEquals(runs, 20 * BATCH_SIZE);
+        Assert.assertTrue(measurement.isAborted());
+    }
+
+    @Test
+    public void testNoAbortWithinMargin() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.01);
+        measurement.setBound(98);
+
+        // when
+        run(measurement, 100000, 100);
+
+        // then
+        Assert.assertFalse(measurement.isAborted());
+    }
+
+    @Test
+    public void testRestartResetsState() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.0);
+        measurement.setBound(50);
+        run(measurement, 100000, 100);
+
+        // when
+        measurement.setBound(Double.NaN);
+        int runs = run(measurement, 100000, 10);
+
+        // then
+        Assert.assertEquals(runs, 20 * BATCH_SIZE);
+        Assert.assertFalse(measurement.isAborted());
+        Assert.assertEquals(measurement.getPerformance()[0], 10);
+    }
+
+    @Test
+    public void testSmallerBatchSizeOnRestart() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.01);
+        run(measurement, 100000, 100);
+
+        // when
+        measurement.setBatchSize(1);
+        int runs = run(measurement, 100000, 100);
+
+        // then
+        Assert.assertEquals(runs, 20);
+        Assert.assertEquals(measurement.getPerformance().length, runs);
+    }
+
+    @Test
+    public void testCopyKeepsSettingsButNotState() {
+        // given
+        AdaptiveMeasurement measurement = measurement(0.0);
+        measurement.setBound(50);
+        run(measurement, 100000, 100);
+
+        // when
+        AdaptiveMeasurement copy = new AdaptiveMeasurement(measurement);
+
+        // then
+        Assert.assertEquals(copy.getBatchSize(), BATCH_SIZE);
+        Assert.assertEquals(copy.getMinBatches(), 20);
+        Assert.assertEquals(copy.getBound(), 50.0);
+        Assert.assertFalse(copy.isAborted());
+        Assert.assertEquals(run(copy, 100000, 100), 20 * BATCH_SIZE);
+        Assert.assertTrue(copy.isAborted());
+        Assert.assertTrue(measurement.isAborted());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testStartWithoutRepeats() {
+        // when
+        measurement(0.01).start(0);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.infrastructure;
+
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+public class BinaryFrameProtocolTest {
+
+    @Test
+    public void testInputRoundTrip() {
+        // given
+        Object[] input = new Object[]{42, 'c', 1.5f, 2.5, 7L, true, "text with ünicode", new int[]{1, -2, 3},
+            new float[]{0.5f}, new double[]{1.25, -3.75}, new char[]{'a', 'b'}, null};
+
+        // when
+        Object[] decoded = BinaryFrameProtocol.decodeInput(BinaryFrameProtocol.encodeInput(input));
+
+        // then
+        Assert.assertEquals(decoded.length, input.length);
+        Assert.assertEquals(decoded[0], 42);
+        Assert.assertEquals(decoded[1], 'c');
+        Assert.assertEquals(decoded[2], 1.5f);
+        Assert.assertEquals(decoded[3], 2.5);
+        Assert.assertEquals(decoded[4], 7L);
+        Assert.assertEquals(decoded[5], true);
+        Assert.assertEquals(decoded[6], "text with ünicode");
+        Assert.assertEquals((int[]) decoded[7], new int[]{1, -2, 3});
+        Assert.assertEquals((float[]) decoded[8], new float[]{0.5f});
+        Assert.assertEquals((double[]) decoded[9], new double[]{1.25, -3.75});
+        Assert.assertEquals((char[]) decoded[10], new char[]{'a', 'b'});
+        Assert.assertNull(decoded[11]);
+    }
+
+    @Test
+    public void testNullInput() {
+        // given
+        byte[] frame = BinaryFrameProtocol.encodeInput(null);
+
+        // when
+        Object[] decoded = BinaryFrameProtocol.decodeInput(frame);
+
+        // then
+        Assert.assertNull(decoded);
+    }
+
+    @Test
+    public void testEmptyInput() {
+        // given
+        Object[] input = new Object[0];
+
+        // when
+        Object[] decoded = BinaryFrameProtocol.decodeInput(BinaryFrameProtocol.encodeInput(input));
+
+        // then
+        Assert.assertNotNull(decoded);
+        Assert.assertEquals(decoded.length, 0);
+    }
+
+    @Test
+    public void testEmptyArrays() {
+        // given
+        Object[] input = new Object[]{new int[0], new float[0], new double[0], new char[0], ""};
+
+        // when
+        Object[] decoded = BinaryFrameProtocol.decodeInput(BinaryFrameProtocol.encodeInput(input));
+
+        // then
+        Assert.assertEquals(((int[]) decoded[0]).length, 0);
+        Assert.assertEquals(((float[]) decoded[1]).length, 0);
+        Assert.assertEquals(((double[]) decoded[2]).length, 0);
+        Assert.assertEquals(((char[]) decoded[3]).length, 0);
+        Assert.assertEquals(decoded[4], "");
+    }
+
+    @Test
+    public void testLargeInputGrowsBuffer() {
+        // given
+        int[] array = new int[1024 * 1024];
+        Arrays.setAll(array, i -> i);
+
+        // when
+        Object[] decoded = BinaryFrameProtocol.decodeInput(BinaryFrameProtocol.encodeInput(new Object[]{array, "end"}));
+
+        // then
+        Assert.assertEquals((int[]) decoded[0], array);
+        Assert.assertEquals(decoded[1], "end");
+    }
+
+    @Test
+    public void testResultRoundTrip() {
+        // given
+        ExecutionResult result = new ExecutionResult(new int[]{4, 5}, "out", new long[]{100, 200, 300}, true);
+
+        // when
+        ExecutionResult decoded = BinaryFrameProtocol.decodeResult(BinaryFrameProtocol.encodeResult(result));
+
+        // then
+        Assert.assertEquals((int[]) decoded.getReturnValue(), new int[]{4, 5});
+        Assert.assertEquals(decoded.getOutStreamValue(), "out");
+        Assert.assertEquals(decoded.getPerformance(), new long[]{100, 200, 300});
+        Assert.assertTrue(decoded.isSuccess());
+        Assert.assertFalse(decoded.isAborted());
+    }
+
+    @Test
+    public void testResultNullsAndFlags() {
+        // given
+        ExecutionResult result = new ExecutionResult(null, null, null, false);
+        result.setAborted(true);
+
+        // when
+        ExecutionResult decoded = BinaryFrameProtocol.decodeResult(BinaryFrameProtocol.encodeResult(result));
+
+        // then
+        Assert.assertNull(decoded.getReturnValue());
+        Assert.assertNull(decoded.getOutStreamValue());
+        Assert.assertNull(decoded.getPerformance());
+        Assert.assertFalse(decoded.isSuccess());
+        Assert.assertTrue(decoded.isAborted());
+    }
+
+    @Test
+    public void testResultEmptyPerformance() {
+        // given
+        ExecutionResult result = new ExecutionResult(1, "", new long[0], true);
+
+        // when
+        ExecutionResult decoded = BinaryFrameProtocol.decodeResult(BinaryFrameProtocol.encodeResult(result));
+
+        // then
+        Assert.assertEquals(decoded.getPerformance().length, 0);
+        Assert.assertEquals(decoded.getOutStreamValue(), "");
+    }
+
+    @Test
+    public void testResultObjectFallback() {
+        // given
+        ExecutionResult result = new ExecutionResult(new IllegalStateException("failed"), null, null, false);
+
+        // when
+        ExecutionResult decoded = BinaryFrameProtocol.decodeResult(BinaryFrameProtocol.encodeResult(result));
+
+        // then
+        Assert.assertTrue(decoded.getReturnValue() instanceof IllegalStateException);
+        Assert.assertEquals(((IllegalStateException) decoded.getReturnValue()).getMessage(), "failed");
+    }
+
+    @Test
+    public void testTruncatedInputFrames() {
+        // given
+        byte[] frame = BinaryFrameProtocol.encodeInput(new Object[]{42, "text", new int[]{1, 2, 3}, new double[]{1.5}, 'c'});
+
+        for (int length = 0; length < frame.length; length++) {
+            // when
+            byte[] truncated = Arrays.copyOf(frame, length);
+
+            // then
+            Assert.assertThrows(IllegalArgumentException.class, () -> BinaryFrameProtocol.decodeInput(truncated));
+        }
+    }
+
+    @Test
+    public void testTruncatedResultFrames() {
+        // given
+        byte[] frame = BinaryFrameProtocol.encodeResult(new ExecutionResult(new char[]{'a'}, "out", new long[]{1, 2}, true));
+
+        for (int length = 0; length < frame.length; length++) {
+            // when
+            byte[] truncated = Arrays.copyOf(frame, length);
+
+            // then
+            Assert.assertThrows(IllegalArgumentException.class, () -> BinaryFrameProtocol.decodeResult(truncated));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCorruptLength() {
+        // given
+        byte[] frame = BinaryFrameProtocol.encodeInput(new Object[]{new int[]{1}});
+        // length prefix of the array after [version, kind, count, tag]
+        frame[7] = (byte) 0x7f;
+
+        // when
+        BinaryFrameProtocol.decodeInput(frame);
+
+        // then - exception
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullFrame() {
+        // when
+        BinaryFrameProtocol.decodeInput(null);
+
+        // then - exception
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongKind() {
+        // given
+        byte[] frame = BinaryFrameProtocol.encodeInput(new Object[]{1});
+
+        // when
+        BinaryFrameProtocol.decodeResult(frame);
+
+        // then - exception
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongVersion() {
+        // given
+        byte[] frame = BinaryFrameProtocol.encodeInput(new Object[]{1});
+        frame[0] = (byte) (BinaryFrameProtocol.VERSION + 1);
+
+        // when
+        BinaryFrameProtocol.decodeInput(frame);
+
+        // then - exception
+    }
+}
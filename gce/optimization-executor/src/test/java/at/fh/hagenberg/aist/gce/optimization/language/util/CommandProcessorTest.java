@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.language.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CommandProcessorTest {
+
+    @Test
+    public void testPrepareParseRoundTrip() {
+        // given
+        String code = "int main() {\n  int a = 1;\n  return a == 1;\n}";
+        Object[] input = new Object[]{5, 'c', 2.5, new int[]{1, 2, 3}};
+
+        // when
+        ExecutionCommand command = CommandProcessor.parseCommand(CommandProcessor.prepareCommand("c", code, "main", "fn", 100, input));
+
+        // then
+        Assert.assertEquals(command.getLanguageId(), "c");
+        Assert.assertEquals(command.getCode(), code);
+        Assert.assertEquals(command.getEntryPoint(), "main");
+        Assert.assertEquals(command.getFunction(), "fn");
+        Assert.assertEquals(command.getRepeats(), 100);
+        Assert.assertEquals(command.getNode(), "serial");
+        Assert.assertEquals(command.getInput().length, 4);
+        Assert.assertEquals(command.getInput()[0], 5);
+        Assert.assertEquals(command.getInput()[1], 'c');
+        Assert.assertEquals(command.getInput()[2], 2.5);
+        Assert.assertEquals((int[]) command.getInput()[3], new int[]{1, 2, 3});
+    }
+
+    @Test
+    public void testPrepareParseNullInput() {
+        // when
+        ExecutionCommand command = CommandProcessor.parseCommand(CommandProcessor.prepareCommand("c", "int main() {}", "main", "main", 1, null));
+
+        // then
+        Assert.assertNull(command.getInput());
+        Assert.assertEquals(command.getRepeats(), 1);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.language.util;
+
+import com.oracle.truffle.api.nodes.Node;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+public class InstrumentedJarCacheTest {
+
+    private static final InstrumentedJarCache.Instrumentation FAIL = (classPool, ctClass) -> {
+        throw new AssertionError("No class should be instrumented");
+    };
+
+    private File directory;
+
+    private File cache;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("instrumented").toFile();
+        cache = new File(directory, "cache");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testDigest() throws IOException {
+        // given
+        File file = new File(directory, "digest.txt");
+        Files.write(file.toPath(), "abc".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        String digest = InstrumentedJarCache.digest(file);
+
+        // then
+        Assert.assertEquals(digest, "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        Assert.assertEquals(InstrumentedJarCache.digest(file), digest);
+    }
+
+    @Test
+    public void testDigestChangesWithContent() throws IOException {
+        // given
+        File file = new File(directory, "digest.txt");
+        Files.write(file.toPath(), "abc".getBytes(StandardCharsets.UTF_8));
+        String digest = InstrumentedJarCache.digest(file);
+
+        // when
+        Files.write(file.toPath(), "abcd".getBytes(StandardCharsets.UTF_8));
+
+        // then
+        Assert.assertEquals(InstrumentedJarCache.digest(file), "88d4266fd4e6338d13b845fcf289579d209c897823b9217da3e161936f031589");
+        Assert.assertNotEquals(InstrumentedJarCache.digest(file), digest);
+    }
+
+    @Test
+    public void testCacheHit() throws IOException {
+        // given
+        File source = jar("language.jar", "a");
+        File cached = new File(cache, "test-" + InstrumentedJarCache.digest(source) + "-v1.jar");
+        cache.mkdirs();
+        Files.write(cached.toPath(), "cached".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        String location = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, FAIL);
+
+        // then
+        Assert.assertEquals(location, cached.getAbsolutePath());
+        Assert.assertEquals(new String(Files.readAllBytes(cached.toPath()), StandardCharsets.UTF_8), "cached");
+    }
+
+    @Test
+    public void testCreateOnce() throws IOException {
+        // given
+        File source = jar("language.jar", "a");
+
+        // when
+        String created = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, FAIL);
+        long modified = new File(created).lastModified();
+        String reused = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, FAIL);
+
+        // then
+        Assert.assertTrue(new File(created).isFile());
+        Assert.assertEquals(reused, created);
+        Assert.assertEquals(new File(reused).lastModified(), modified);
+        // no temporary files are left behind
+        Assert.assertEquals(cache.list().length, 1);
+    }
+
+    @Test
+    public void testVersionInvalidation() throws IOException {
+        // given
+        File source = jar("language.jar", "a");
+        String v1 = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, FAIL);
+
+        // when
+        String v2 = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 2, FAIL);
+
+        // then
+        Assert.assertNotEquals(v2, v1);
+        Assert.assertTrue(v2.endsWith("-v2.jar"));
+        Assert.assertTrue(new File(v1).isFile());
+        Assert.assertTrue(new File(v2).isFile());
+    }
+
+    @Test
+    public void testSourceInvalidation() throws IOException {
+        // given
+        File source = jar("language.jar", "a");
+        String before = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, FAIL);
+
+        // when
+        jar("language.jar", "changed");
+        String after = InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, FAIL);
+
+        // then
+        Assert.assertNotEquals(after, before);
+    }
+
+    @Test
+    public void testFailedInstrumentationIsNotCached() throws IOException {
+        // given
+        File source = jar("language.jar", "a");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(source))) {
+            String entry = TestNode.class.getName().replace('.', '/') + ".class";
+            out.putNextEntry(new JarEntry(entry));
+            try (InputStream in = TestNode.class.getClassLoader().getResourceAsStream(entry)) {
+                out.write(in.readAllBytes());
+            }
+            out.closeEntry();
+        }
+
+        // when
+        IOException exception = null;
+        try {
+            InstrumentedJarCache.getInstrumentedJar(cache.getAbsolutePath(), null, source.getAbsolutePath(), "test-", 1, (classPool, ctClass) -> {
+                throw new IllegalArgumentException("Can't instrument " + ctClass.getName());
+            });
+        } catch (IOException e) {
+            exception = e;
+        }
+
+        // then
+        Assert.assertNotNull(exception);
+        Assert.assertTrue(exception.getCause().getMessage().contains(TestNode.class.getName()));
+        // neither the partially instrumented jar nor its temporary file are kept
+        Assert.assertEquals(cache.list().length, 0);
+    }
+
+    /**
+     * Node that is found when instrumenting a jar containing it
+     */
+    public static class TestNode extends Node {
+    }
+
+    /**
+     * Creates a jar without any classes
+     */
+    private File jar(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new JarEntry("content.txt"));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return file;
+    }
+}
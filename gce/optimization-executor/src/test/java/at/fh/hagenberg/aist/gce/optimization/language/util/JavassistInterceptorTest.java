@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.language.util;
+
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class JavassistInterceptorTest {
+
+    @AfterMethod
+    public void tearDown() {
+        NodeWrapper.clearCache();
+    }
+
+    @Test
+    public void testSlotCountsEqualPositionCounts() {
+        // given
+        TestRootNode root = tree(3);
+        TestRootNode other = tree(1);
+        List<Object[]> calls = calls(root, other);
+        JavassistInterceptor slots = new JavassistInterceptor();
+        JavassistInterceptor positions = new JavassistInterceptor();
+
+        // when
+        slots.prepare(root);
+        replay(slots, calls);
+        replay(positions, calls);
+
+        // then
+        Assert.assertFalse(slots.getNodeHashes().isEmpty());
+        Assert.assertEquals(slots.getNodeHashes(), positions.getNodeHashes());
+        Assert.assertEquals(slots.getNodeHashes(root), positions.getNodeHashes(root));
+        Assert.assertEquals(slots.getNodeHashes(other), positions.getNodeHashes(other));
+        Assert.assertEquals(slots.getExecutedCount(), positions.getExecutedCount());
+        Assert.assertEquals(slots.getExecutedCount(root), positions.getExecutedCount(root));
+        Assert.assertEquals(slots.getSpecializedCount(), positions.getSpecializedCount());
+        Assert.assertEquals(slots.getSpecializedCount(root), positions.getSpecializedCount(root));
+    }
+
+    @Test
+    public void testSlotCountsEqualPositionCountsAfterReset() {
+        // given
+        TestRootNode root = tree(2);
+        List<Object[]> calls = calls(root, tree(1));
+        JavassistInterceptor slots = new JavassistInterceptor();
+        JavassistInterceptor positions = new JavassistInterceptor();
+        slots.prepare(root);
+        replay(slots, calls.subList(0, 3));
+        replay(positions, calls.subList(0, 3));
+
+        // when
+        slots.reset();
+        positions.reset();
+        replay(slots, calls);
+        replay(positions, calls);
+
+        // then
+        Assert.assertEquals(slots.getNodeHashes(), positions.getNodeHashes());
+        Assert.assertEquals(slots.getSpecializedCount(), positions.getSpecializedCount());
+    }
+
+    @Test
+    public void testKeysUseInterceptionTimeHash() {
+        // given
+        TestRootNode root = tree(2);
+        List<Object[]> calls = calls(root, tree(1));
+        JavassistInterceptor slots = new JavassistInterceptor();
+        JavassistInterceptor positions = new JavassistInterceptor();
+        slots.prepare(root);
+        replay(slots, calls);
+        replay(positions, calls);
+
+        // when - the tree is re-specialized after the execution
+        root.body.children[0].replace(new TestNode());
+        NodeWrapper.clearCache();
+
+        // then
+        Assert.assertEquals(slots.getNodeHashes(), positions.getNodeHashes());
+    }
+
+    /**
+     * Creates a tree of root -> block -> width x (leaf with one child)
+     */
+    private static TestRootNode tree(int width) {
+        TestNode[] children = new TestNode[width];
+        for (int i = 0; i < width; i++) {
+            children[i] = new TestNode(new TestNode());
+        }
+        TestRootNode root = new TestRootNode(new TestNode(children));
+        root.adoptChildren();
+        return root;
+    }
+
+    /**
+     * Interceptions of a run through both trees, including repeated calls, self calls and specializations
+     */
+    private static List<Object[]> calls(TestRootNode root, TestRootNode other) {
+        TestNode block = root.body;
+        TestNode first = block.children[0];
+        TestNode last = block.children[block.children.length - 1];
+        return Arrays.asList(
+            new Object[]{root, "execute"},
+            new Object[]{block, "executeGeneric"},
+            new Object[]{first, "executeGeneric"},
+            new Object[]{first, "executeAndSpecialize"},
+            new Object[]{first, "executeGeneric"},
+            new Object[]{first.children[0], "executeGeneric"},
+            new Object[]{block, "executeGeneric"},
+            new Object[]{last, "executeAndSpecialize"},
+            new Object[]{last, "executeAndSpecialize"},
+            new Object[]{other.body, "executeGeneric"},
+            new Object[]{other.body.children[0], "executeAndSpecialize"},
+            new Object[]{last.children[0], "executeGeneric"},
+            new Object[]{first, "executeGeneric"}
+        );
+    }
+
+    private static void replay(JavassistInterceptor interceptor, List<Object[]> calls) {
+        calls.forEach(x -> interceptor.beforeIntercept(x[0], (String) x[1], new Object[0]));
+    }
+
+    private static class TestRootNode extends RootNode {
+
+        @Child
+        private TestNode body;
+
+        TestRootNode(TestNode body) {
+            super(null);
+            this.body = body;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return null;
+        }
+    }
+
+    private static class TestNode extends Node {
+
+        @Children
+        private final TestNode[] children;
+
+        TestNode(TestNode... children) {
+            this.children = children;
+        }
+    }
+}
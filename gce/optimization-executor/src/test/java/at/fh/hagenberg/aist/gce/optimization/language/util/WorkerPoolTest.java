@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.language.util;
+
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import com.oracle.truffle.api.nodes.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+public class WorkerPoolTest {
+
+    /**
+     * Worker that answers every command with its process id
+     */
+    public static class PidWorker {
+        public static void main(String[] args) throws IOException, ClassNotFoundException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(System.getenv(WorkerPool.WORKER_PORT)))) {
+                ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
+                oos.flush();
+                ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
+                while (true) {
+                    try {
+                        ois.readObject();
+                        ois.readObject();
+                    } catch (EOFException e) {
+                        return;
+                    }
+                    oos.writeObject(new ExecutionResult(null, null, new long[]{ProcessHandle.current().pid()}, true));
+                    oos.flush();
+                }
+            }
+        }
+    }
+
+    private static class TestNode extends Node {
+    }
+
+    private WorkerPool pool(String name) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        // the name only makes sure every test gets its own pool
+        return WorkerPool.getPool(java + " -cp " + System.getProperty("java.class.path") + " " + PidWorker.class.getName() + " " + name);
+    }
+
+    private WorkerPool freshPool(String name) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return WorkerPool.getFreshPool(java + " -cp " + System.getProperty("java.class.path") + " " + PidWorker.class.getName() + " " + name);
+    }
+
+    private long pid(WorkerPool.PooledWorker worker) throws IOException {
+        return worker.run(new String[0], new TestNode()).getPerformance()[0];
+    }
+
+    @Test
+    public void testReleasedWorkerIsReused() throws IOException {
+        // given
+        WorkerPool pool = pool("reuse");
+        WorkerPool.PooledWorker worker = pool.borrow();
+        long pid = pid(worker);
+
+        // when
+        pool.release(worker);
+        WorkerPool.PooledWorker reused = pool.borrow();
+
+        // then
+        Assert.assertSame(reused, worker);
+        Assert.assertEquals(pid(reused), pid);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testDiscardedWorkerIsReplaced() throws IOException {
+        // given
+        WorkerPool pool = pool("discard");
+        WorkerPool.PooledWorker worker = pool.borrow();
+        long pid = pid(worker);
+
+        // when
+        pool.discard(worker);
+        // discarding or releasing twice must not free another permit
+        pool.discard(worker);
+        pool.release(worker);
+        WorkerPool.PooledWorker replacement = pool.borrow();
+
+        // then
+        Assert.assertNotSame(replacement, worker);
+        Assert.assertNotEquals(pid(replacement), pid);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testWorkerIsRecycledAfterMaxRuns() throws IOException {
+        // given
+        WorkerPool pool = pool("maxRuns");
+        pool.setMaxRuns(2);
+        WorkerPool.PooledWorker worker = pool.borrow();
+        long pid = pid(worker);
+        pool.release(worker);
+        worker = pool.borrow();
+        Assert.assertEquals(pid(worker), pid);
+
+        // when
+        pool.release(worker);
+        WorkerPool.PooledWorker recycled = pool.borrow();
+
+        // then
+        Assert.assertNotEquals(pid(recycled), pid);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFreshPoolNeverReusesWorker() throws IOException {
+        // given
+        WorkerPool pool = freshPool("fresh");
+        WorkerPool.PooledWorker worker = pool.borrow();
+        long pid = pid(worker);
+
+        // when
+        pool.release(worker);
+        WorkerPool.PooledWorker next = pool.borrow();
+
+        // then
+        Assert.assertNotSame(next, worker);
+        Assert.assertNotEquals(pid(next), pid);
+        pool.shutdown();
+    }
+}
@@ -15,29 +15,32 @@ import at.fh.hagenberg.aist.gce.optimization.cachet.PerformanceCachetEvaluator;
 import at.fh.hagenberg.aist.gce.optimization.cachet.SelfAdjustingApproximatingPerformanceCachetEvaluator;
 import at.fh.hagenberg.aist.gce.optimization.executor.*;
 import at.fh.hagenberg.aist.gce.optimization.language.util.EngineConfig;
+import at.fh.hagenberg.aist.gce.optimization.memo.EvaluationMemo;
+import at.fh.hagenberg.aist.gce.optimization.memo.MappedEvaluationMemo;
 import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeProfile;
+import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeProfileBuilder;
+import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeTraceStore;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTest;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestComplexity;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestResult;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleTestValue;
 import at.fh.hagenberg.aist.gce.optimization.util.Logger;
 import at.fh.hagenberg.machinelearning.analytics.TruffleGraphAnalytics;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.core.ProblemGene;
 import at.fh.hagenberg.machinelearning.core.Solution;
 import at.fh.hagenberg.machinelearning.core.SolutionGene;
 import at.fh.hagenberg.machinelearning.core.fitness.Cachet;
 import at.fh.hagenberg.machinelearning.core.fitness.GenericEvaluatorImpl;
 import at.fh.hagenberg.machinelearning.core.options.Descriptor;
+import com.oracle.truffle.api.nodes.Node;
 import org.neo4j.driver.internal.messaging.Message;
 import org.springframework.beans.factory.annotation.Required;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -55,6 +58,13 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
      */
     private JavassistExecutor tracingExecutor;
 
+    /**
+     * Memo of evaluations from earlier runs. It is handed to the analytics service (if that has none), as a memo hit
+     * only holds the solution id and quality, and the test results must be loaded from the database.
+     * Without an analytics service the memo is not used.
+     */
+    private EvaluationMemo evaluationMemo;
+
     /**
      * Timeout (ms) set to the executors of this evaluator
      */
@@ -66,9 +76,15 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
     private boolean safeVM = false;
 
     /**
-     * if true the runtimes will be stored
+     * Relative precision of the median at which the benchmark stops repeating (see {@link AdaptiveMeasurement}).
+     * 0 repeats each test exactly {@link TruffleOptimizationProblem#getRepeats()} times.
      */
-    private boolean benchmark = false;
+    private double adaptivePrecision = 0;
+
+    /**
+     * Median runtime of the fastest solution per test, so the adaptive measurement can abort slower solutions
+     */
+    private Map<TruffleOptimizationTest, Double> bestMedians = new ConcurrentHashMap<>();
 
     @Override
     public double evaluateQuality(Solution solution) {
@@ -98,6 +114,75 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
         return quality;
     }
 
+    /**
+     * Evaluates a whole population at once.
+     * Identical trees are only run once, already known solutions are looked up together, all remaining solutions x tests
+     * are submitted to the executor together and the new evaluations are stored in a single batch.
+     * <p>
+     * NOTE: the generation loop of {@link at.fh.hagenberg.machinelearning.algorithm.ga.GeneticAlgorithm} is part of the
+     * machine learning library and calls {@link #evaluateQuality(Solution)} for every offspring, so the generations of a GA
+     * are NOT evaluated with this method. Only populations handed to an algorithm from outside (carried over elites,
+     * migrants, see {@link at.fh.hagenberg.machinelearning.algorithm.ga.RepackagingHelper#addIndividuals}) are.
+     *
+     * @param population to be evaluated
+     * @return the qualities in the same order as the population
+     */
+    public double[] evaluatePopulation(List<Solution> population) {
+        double[] qualities = new double[population.size()];
+        if (population.isEmpty()) {
+            return qualities;
+        }
+        long start = ProfileKeeper.profiler.start();
+
+        List<Solution> known;
+        if (analyticsService != null) {
+            List<Node> nodes = population.stream().map(x -> getGene(x).getNode()).collect(Collectors.toList());
+            known = analyticsService.findSolutions(nodes, (ProblemGene<TruffleOptimizationProblem>) ((SolutionGene) population.get(0).getSolutionGenes().get(0)).getProblemGenes().get(0));
+        } else {
+            known = Collections.nCopies(population.size(), null);
+        }
+        start = ProfileKeeper.profiler.profile("TruffleEvaluatorImpl.evaluatePopulation.find", start);
+
+        // identical trees are only run once, the first occurrence represents all others
+        Map<String, Solution> representatives = new LinkedHashMap<>();
+        List<Solution> unknown = new ArrayList<>();
+        for (int i = 0; i < population.size(); i++) {
+            Solution solution = population.get(i);
+            if (known.get(i) != null) {
+                qualities[i] = known.get(i).getQuality();
+                solution.adopt(known.get(i));
+            } else {
+                representatives.putIfAbsent(NodeWrapper.wrap(getGene(solution).getNode()).getHash(), solution);
+                unknown.add(solution);
+            }
+        }
+
+        run(representatives.values().stream().map(this::getGene).collect(Collectors.toList()));
+        Map<Solution, Double> representativeQualities = new HashMap<>();
+        representatives.values().forEach(x -> representativeQualities.put(x, super.evaluateQuality(x)));
+        start = ProfileKeeper.profiler.profile("TruffleEvaluatorImpl.evaluatePopulation", start);
+
+        for (int i = 0; i < population.size(); i++) {
+            Solution solution = population.get(i);
+            if (known.get(i) == null) {
+                Solution representative = representatives.get(NodeWrapper.wrap(getGene(solution).getNode()).getHash());
+                if (representative != solution) {
+                    solution.adopt(representative);
+                }
+                qualities[i] = representativeQualities.get(representative);
+            }
+        }
+        if (analyticsService != null && !unknown.isEmpty()) {
+            analyticsService.logEvaluations(unknown);
+        }
+        ProfileKeeper.profiler.profile("TruffleEvaluatorImpl.evaluatePopulationLOG", start);
+        return qualities;
+    }
+
+    private TruffleOptimizationSolution getGene(Solution solution) {
+        return (TruffleOptimizationSolution) ((SolutionGene) solution.getSolutionGenes().get(0)).getGene();
+    }
+
     public TruffleGraphAnalytics getAnalyticsService() {
         return analyticsService;
     }
@@ -105,6 +190,22 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
     @Required
     public void setAnalyticsService(TruffleGraphAnalytics analyticsService) {
         this.analyticsService = analyticsService;
+        shareEvaluationMemo();
+    }
+
+    public EvaluationMemo getEvaluationMemo() {
+        return evaluationMemo;
+    }
+
+    public void setEvaluationMemo(EvaluationMemo evaluationMemo) {
+        this.evaluationMemo = evaluationMemo;
+        shareEvaluationMemo();
+    }
+
+    private void shareEvaluationMemo() {
+        if (analyticsService != null && evaluationMemo != null && analyticsService.getEvaluationMemo() == null) {
+            analyticsService.setEvaluationMemo(evaluationMemo);
+        }
     }
 
     public void setExecutor(Executor executor) {
@@ -117,40 +218,101 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
     private static TruffleOptimizationProblem current_problem;
 
     private void run(TruffleOptimizationSolution solution) {
-        TruffleOptimizationProblem problem = solution.getProblem();
-        verifyExecutor(problem, false);
+        run(Collections.singletonList(solution));
+    }
 
-        try {
-            // conduct tests
+    /**
+     * Runs all tests of the given solutions.
+     * The executor context is replaced whenever the problem changes, so the solutions are run per problem and all tests
+     * of a problem are finished before the next problem is run.
+     *
+     * @param solutions to be run
+     */
+    private void run(List<TruffleOptimizationSolution> solutions) {
+        Map<TruffleOptimizationProblem, List<TruffleOptimizationSolution>> byProblem = new IdentityHashMap<>();
+        List<TruffleOptimizationProblem> problems = new ArrayList<>();
+        for (TruffleOptimizationSolution solution : solutions) {
+            TruffleOptimizationProblem problem = solution.getProblem();
             if (problem == null || problem.getTests() == null) {
-                System.out.println("Problem for evaluation is null this should not be happening");
-                return;
+                Logger.log(Logger.LogLevel.ERROR, "Problem for evaluation is null this should not be happening");
+                continue;
             }
+            byProblem.computeIfAbsent(problem, x -> {
+                problems.add(x);
+                return new ArrayList<>();
+            }).add(solution);
+        }
+        problems.forEach(problem -> run(problem, byProblem.get(problem)));
+    }
+
+    /**
+     * Runs all tests of the given solutions of one problem.
+     * If the executor is an {@link AsyncExecutor} and we are not benchmarking, all solutions x tests are submitted before
+     * any result is collected, so the executor can keep all of its workers busy.
+     *
+     * @param problem   the solutions belong to
+     * @param solutions to be run
+     */
+    private void run(TruffleOptimizationProblem problem, List<TruffleOptimizationSolution> solutions) {
+        verifyExecutor(problem, false);
+        // >= 10 we assume that the user wants to create a valid Runtime Profile -> sequential ONLY
+        boolean benchmark = problem.getRepeats() > 10;
+
+        // submit everything we can run asynchronously
+        Map<TruffleOptimizationSolution, Map<TruffleOptimizationTest, CompletableFuture<ExecutionResult>>> submitted = new LinkedHashMap<>();
+        for (TruffleOptimizationSolution solution : solutions) {
+            if (!benchmark && executor instanceof AsyncExecutor) {
+                Map<TruffleOptimizationTest, CompletableFuture<ExecutionResult>> results = new LinkedHashMap<>();
+                problem.getTests().forEach(complexity -> results.put(complexity.getTest(), submit((AsyncExecutor) executor, solution.getNode(), complexity.getTest().getInputArguments(), RETRIES)));
+                submitted.put(solution, results);
+            } else {
+                runBlocking(solution, benchmark);
+            }
+        }
+
+        // collect the results
+        submitted.forEach((solution, results) -> {
+            try {
+                results.forEach((test, result) -> record(solution, test, result.join(), benchmark));
+            } catch (Exception e) {
+                // in this case we had a HARD FAIL and the entire test wasn't able to execute
+                e.printStackTrace();
+                solution.testResults = null;
+            }
+        });
+    }
+
+    /**
+     * Runs the tests of a solution with the blocking {@link Executor#test(Node, Object[])}
+     *
+     * @param solution  to be run
+     * @param benchmark if the runtimes are measured (tests are run sequentially and the runtimes are stored)
+     */
+    private void runBlocking(TruffleOptimizationSolution solution, boolean benchmark) {
+        TruffleOptimizationProblem problem = solution.getProblem();
+        try {
             Stream<TruffleOptimizationTestComplexity> stream = null;
-            if (problem.getRepeats() <= 10) {
-                benchmark = false;
+            if (!benchmark) {
                 // < 10 we assume that Performance is NOT an issue an thus we can parallelize the execs
                 Logger.log(Logger.LogLevel.DEBUG, "Parallel execution as performance is not being measured");
                 stream = problem.getTests().parallelStream();
             } else {
-                // >= 10 we assume that the user wants to create a valid Runtime Profile -> sequential ONLY
-                benchmark = true;
                 stream = problem.getTests().stream();
             }
             stream.forEach(complexity -> {
                 TruffleOptimizationTest test = complexity.getTest();
-                RuntimeProfile runtime = RuntimeProfile.FAILED_PROFILE;
-                RuntimeProfile unoptimizedRuntime = RuntimeProfile.FAILED_PROFILE;
-                TruffleTestValue value = new TruffleTestValue(null, null);
+                if (benchmark && adaptivePrecision > 0 && executor instanceof AbstractExecutor) {
+                    ((AbstractExecutor) executor).setAdaptiveBound(bestMedians.getOrDefault(test, Double.NaN));
+                }
 
                 // get return value
                 ExecutionResult result = executor.test(solution.getNode(), test.getInputArguments());
-                int retries = 20;
-                while (retries > 0 && !result.isSuccess() && result.getReturnValue() instanceof String && (((String) result.getReturnValue()).startsWith("WARNING: An illegal reflective access") || ((String) result.getReturnValue()).startsWith("The worker crashed"))) {
+                int retries = RETRIES;
+                while (retries > 0 && isRetryable(result)) {
                     // redo until we get an actual error
                     retries--;
                     try {
-                        System.out.println("AWAITING REDO FOR " + solution.getId());
+                        Logger.log(Logger.LogLevel.DEBUG, "Awaiting redo for " + solution.getId());
                         // the illegal reflective access exception is a concurrency problem in the threads
                         Thread.sleep(new Random().nextInt(1000));
                     } catch (InterruptedException e) {
@@ -158,81 +320,159 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
                     }
                     result = executor.test(solution.getNode(), test.getInputArguments());
                 }
-                if (result.isSuccess()) {
-                    // get return value
-                    value = new TruffleTestValue(result.getReturnValue(), result.getReturnValue() != null ? decideType(test.getOutput().getType(), result.getReturnValue()) : null);
-
-                    // profile runtime
-                    // currently accepted theory: We want to ignore the first 100.000 runs, or the first half if we have <200000
-                    int size = result.getPerformance().length >= 200000 ? 100000 : result.getPerformance().length / 2;
-                    runtime = new RuntimeProfile(Arrays.copyOfRange(result.getPerformance(), size, result.getPerformance().length));
-                    if (size > 0) {
-                        unoptimizedRuntime = new RuntimeProfile(Arrays.copyOfRange(result.getPerformance(), 0, size));
-                    }
-                    if (benchmark) {
-                        try {
-                            System.out.println("Logging runtime info");
-                            String root = EngineConfig.ROOT_LOCATION + "/Amaru.LOGS/PerformanceProfiles/runtimeProfiles/";
-                            if (solution.getTree().getId() < 0) {
-                                // Switch for performance pattern verification
-                                root = EngineConfig.ROOT_LOCATION + "/Amaru.LOGS/PerformanceProfiles/runtimePATTERNVERIFY/";
-                            }
-                            File runtimeReportDir = new File(root + solution.getTree().getId() + "_" + test.getId() + ".rtp");
-                            BufferedWriter writer = new BufferedWriter(new FileWriter(runtimeReportDir));
-                            writer.write(Arrays.stream(result.getPerformance()).mapToObj(String::valueOf).collect(Collectors.joining(",")));
-                            writer.close();
-                        } catch (Exception e) {
-                            System.out.println("Failed to log runtime info");
-                        }
-                    }
-                } else if (benchmark) {
-                    System.out.println("FAILED TO BENCH" + test.getId());
-                }
+                record(solution, test, result, benchmark);
+            });
+        } catch (Exception e) {
+            // in this case we had a HARD FAIL and the entire test wasn't able to execute
+            e.printStackTrace();
+            solution.testResults = null;
+        }
+    }
 
-                TraceExecutionResult traceResult = null;
-                if (tracingExecutor != null) {
-                    traceResult = tracingExecutor.traceTest(solution.getNode(), test.getInputArguments());
-                }
+    /**
+     * Location of the runtime traces logged in benchmark mode (see {@link RuntimeTraceStore})
+     */
+    public static final String RUNTIME_PROFILE_LOCATION = EngineConfig.ROOT_LOCATION + "/Amaru.LOGS/PerformanceProfiles/runtimeProfiles/";
+
+    /**
+     * Location of the runtime traces logged for the performance pattern verification (negative tree ids)
+     */
+    public static final String RUNTIME_PATTERN_VERIFY_LOCATION = EngineConfig.ROOT_LOCATION + "/Amaru.LOGS/PerformanceProfiles/runtimePATTERNVERIFY/";
+
+    /**
+     * How often a test is repeated when the execution failed for infrastructure reasons
+     */
+    private static final int RETRIES = 20;
+
+    /**
+     * Runs per batch of the adaptive measurement (see {@link AdaptiveMeasurement})
+     */
+    private static final int ADAPTIVE_BATCH_SIZE = 1000;
+
+    /**
+     * Checks if a failure was caused by the infrastructure and not by the solution
+     *
+     * @param result of the execution
+     * @return true if the test should be run again
+     */
+    private boolean isRetryable(ExecutionResult result) {
+        return !result.isSuccess() && result.getReturnValue() instanceof String && (((String) result.getReturnValue()).startsWith("WARNING: An illegal reflective access") || ((String) result.getReturnValue()).startsWith("The worker crashed"));
+    }
+
+    /**
+     * Submits a test, and re-submits it if it fails for infrastructure reasons (see {@link #isRetryable(ExecutionResult)})
+     *
+     * @param executor to submit to
+     * @param node     to be run
+     * @param input    for the main function
+     * @param retries  how often the test may still be re-submitted
+     * @return future for the final result
+     */
+    private CompletableFuture<ExecutionResult> submit(AsyncExecutor executor, Node node, Object[] input, int retries) {
+        return executor.submit(node, input).thenCompose(result -> {
+            if (retries > 0 && isRetryable(result)) {
+                Logger.log(Logger.LogLevel.DEBUG, "Awaiting redo of failed submission");
+                java.util.concurrent.Executor delay = CompletableFuture.delayedExecutor(new Random().nextInt(1000), TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> node, delay).thenCompose(x -> submit(executor, x, input, retries - 1));
+            }
+            return CompletableFuture.completedFuture(result);
+        });
+    }
 
-                synchronized (solution) {
-                    if (result.isSuccess()) {
-                        Throwable exception = null;
-                        // add result
-                        solution.testResults.add(new TruffleOptimizationTestResult(
-                                test,
-                                runtime,
-                                unoptimizedRuntime,
-                                exception,
-                                value,
-                                traceResult));
-                    } else {
-                        if (result.getReturnValue() instanceof Throwable) {
-                            solution.testResults.add(new TruffleOptimizationTestResult(
-                                    test,
-                                    runtime,
-                                    unoptimizedRuntime,
-                                    (Throwable) result.getReturnValue(),
-                                    value,
-                                    traceResult));
-                        } else {
-                            String exception = (result.getReturnValue() != null ? result.getReturnValue().toString() : null);
-                            solution.testResults.add(new TruffleOptimizationTestResult(
-                                    test,
-                                    runtime,
-                                    unoptimizedRuntime,
-                                    exception,
-                                    value,
-                                    traceResult));
-                        }
+    /**
+     * Turns the result of an execution into a test result of the solution
+     *
+     * @param solution  the test was run for
+     * @param test      that was run
+     * @param result    of the execution
+     * @param benchmark if the runtimes are stored
+     */
+    private void record(TruffleOptimizationSolution solution, TruffleOptimizationTest test, ExecutionResult result, boolean benchmark) {
+        RuntimeProfile runtime = RuntimeProfile.FAILED_PROFILE;
+        RuntimeProfile unoptimizedRuntime = RuntimeProfile.FAILED_PROFILE;
+        TruffleTestValue value = new TruffleTestValue(null, null);
+
+        if (result.isSuccess()) {
+            // get return value
+            value = new TruffleTestValue(result.getReturnValue(), result.getReturnValue() != null ? decideType(test.getOutput().getType(), result.getReturnValue()) : null);
+
+            // profile runtime
+            // currently accepted theory: We want to ignore the first 100.000 runs, or the first half if we have <200000
+            // the profiles are streamed from the performance array, so it is never copied or sorted
+            long[] performance = result.getPerformance();
+            int size = performance.length >= 200000 ? 100000 : performance.length / 2;
+            if (adaptivePrecision > 0) {
+                // adaptive measurements stop once the runtime is stable, so only the detected warmup is ignored
+                // (without a detected warmup we keep the default, as the unoptimized profile needs at least one run)
+                int warmup = AdaptiveMeasurement.detectWarmup(performance, ADAPTIVE_BATCH_SIZE);
+                if (warmup > 0) {
+                    size = warmup;
+                }
+            }
+            runtime = new RuntimeProfileBuilder().addAll(performance, size, performance.length).build();
+            if (size > 0) {
+                unoptimizedRuntime = new RuntimeProfileBuilder().addAll(performance, 0, size).build();
+            }
+            if (adaptivePrecision > 0 && !result.isAborted() && runtime.getCount() > 0 && isCorrect(value, test)) {
+                // only correct solutions may serve as bound
+                bestMedians.merge(test, runtime.getMedian(), Math::min);
+            }
+            if (benchmark && result.isAborted()) {
+                // the trace of an aborted run is incomplete
+                Logger.log(Logger.LogLevel.DEBUG, "Not logging runtime info of aborted run " + test.getId());
+            } else if (benchmark) {
+                try {
+                    System.out.println("Logging runtime info");
+                    String root = RUNTIME_PROFILE_LOCATION;
+                    if (solution.getTree().getId() < 0) {
+                        // Switch for performance pattern verification
+                        root = RUNTIME_PATTERN_VERIFY_LOCATION;
                     }
+                    RuntimeTraceStore.getStore(root).write(solution.getTree().getId(), test.getId(), performance);
+                } catch (Exception e) {
+                    System.out.println("Failed to log runtime info");
                 }
+            }
+        } else if (benchmark) {
+            System.out.println("FAILED TO BENCH" + test.getId());
+        }
 
+        TraceExecutionResult traceResult = null;
+        if (tracingExecutor != null) {
+            traceResult = tracingExecutor.traceTest(solution.getNode(), test.getInputArguments());
+        }
 
-            });
-        } catch (Exception e) {
-            // in this case we had a HARD FAIL and the entire test wasn't able to execute
-            e.printStackTrace();
-            solution.testResults = null;
+        synchronized (solution) {
+            if (result.isSuccess()) {
+                Throwable exception = null;
+                // add result
+                solution.testResults.add(new TruffleOptimizationTestResult(
+                        test,
+                        runtime,
+                        unoptimizedRuntime,
+                        exception,
+                        value,
+                        traceResult));
+            } else {
+                if (result.getReturnValue() instanceof Throwable) {
+                    solution.testResults.add(new TruffleOptimizationTestResult(
+                            test,
+                            runtime,
+                            unoptimizedRuntime,
+                            (Throwable) result.getReturnValue(),
+                            value,
+                            traceResult));
+                } else {
+                    String exception = (result.getReturnValue() != null ? result.getReturnValue().toString() : null);
+                    solution.testResults.add(new TruffleOptimizationTestResult(
+                            test,
+                            runtime,
+                            unoptimizedRuntime,
+                            exception,
+                            value,
+                            traceResult));
+                }
+            }
         }
     }
 
@@ -280,9 +520,12 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
         try {
             if (name.equals("timeout")) {
                 this.setTimeout((Long) descriptor.getValue());
+            } else if (name.equals("evaluationMemo")) {
+                // location of a memo that persists the evaluations across runs
+                this.setEvaluationMemo(MappedEvaluationMemo.getMemo((String) descriptor.getValue()));
             }
         } catch (Exception e) {
-            System.out.println("setting timeout failed");
+            System.out.println("setting " + name + " failed");
         }
         return super.setOption(name, descriptor);
     }
@@ -301,6 +544,45 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
         }
     }
 
+    /**
+     * @param value returned by a solution
+     * @param test  the value was returned for
+     * @return if the value is exactly the expected output of the test
+     */
+    private boolean isCorrect(TruffleTestValue value, TruffleOptimizationTest test) {
+        try {
+            return value.compare(test.getOutput()) == 0;
+        } catch (RuntimeException e) {
+            // types that can't be compared are never used as bound
+            return false;
+        }
+    }
+
+    public double getAdaptivePrecision() {
+        return adaptivePrecision;
+    }
+
+    /**
+     * Enables the adaptive measurement in benchmarks
+     *
+     * @param adaptivePrecision relative precision of the median at which a benchmark stops, 0 to disable
+     */
+    public void setAdaptivePrecision(double adaptivePrecision) {
+        this.adaptivePrecision = adaptivePrecision;
+        applyAdaptiveMeasurement();
+    }
+
+    private void applyAdaptiveMeasurement() {
+        if (executor instanceof AbstractExecutor) {
+            AdaptiveMeasurement measurement = null;
+            if (adaptivePrecision > 0) {
+                measurement = new AdaptiveMeasurement(adaptivePrecision);
+                measurement.setBatchSize(ADAPTIVE_BATCH_SIZE);
+            }
+            ((AbstractExecutor) executor).setAdaptiveMeasurement(measurement);
+        }
+    }
+
     public void setSafeVM(boolean safeVM) {
         this.safeVM = safeVM;
         if (executor instanceof MessageExecutor) {
@@ -312,21 +594,53 @@ public class TruffleEvaluatorImpl extends GenericEvaluatorImpl<TruffleOptimizati
         return executor;
     }
 
+    /**
+     * Makes sure the executor runs the context (program) of the problem.
+     * Problems of the same program (ex. the islands of the IslandComplexityGeneticAlgorithm, which only differ in their tests)
+     * share the context, so evaluating them concurrently or in turns doesn't re-initialize the workers.
+     *
+     * @param problem to be evaluated
+     * @param force   if the workers are re-initialized even if they already run the program of the problem
+     */
     public void verifyExecutor(TruffleOptimizationProblem problem, boolean force) {
-        if (executor == null) {
+        synchronized (TruffleEvaluatorImpl.class) {
+            boolean sameContext = current_problem != null && sameContext(problem, current_problem);
+            if (executor != null && !force && sameContext) {
+                current_problem = problem;
+                if (executor instanceof MessageExecutor) {
+                    ((MessageExecutor) executor).setSettings(problem.getRepeats(), timeout, safeVM);
+                }
+                return;
+            }
+            boolean created = executor == null;
+            if (!created) {
+                Logger.log(Logger.LogLevel.INFO, "Recreating executor for different context");
+            }
             current_problem = problem;
-            executor = MessageExecutor.getSingleton(problem.getLanguage(), problem.getCode(), problem.getEntryPoint(), problem.getFunction());
+            executor = MessageExecutor.getSingleton(problem.getLanguage(), problem.getCode(), problem.getEntryPoint(), problem.getFunction(), force || !sameContext);
             ((MessageExecutor) executor).setSettings(problem.getRepeats(), timeout, safeVM);
-            if (this.evaluationIdentity().contains(ApproximatingPerformanceCachetEvaluator.NAME)
-                    || this.evaluationIdentity().contains(SelfAdjustingApproximatingPerformanceCachetEvaluator.NAME)) {
+            if (adaptivePrecision > 0) {
+                applyAdaptiveMeasurement();
+            }
+            if (created && (this.evaluationIdentity().contains(ApproximatingPerformanceCachetEvaluator.NAME)
+                    || this.evaluationIdentity().contains(SelfAdjustingApproximatingPerformanceCachetEvaluator.NAME))) {
                 tracingExecutor = new JavassistExecutor(problem.getLanguage(), problem.getCode(), problem.getEntryPoint(), problem.getFunction(), null);
                 tracingExecutor.setTimeout(timeout);
             }
-        } else if (force || problem != current_problem) {
-            Logger.log(Logger.LogLevel.INFO, "Recreating executor for different context");
-            current_problem = problem;
-            executor = MessageExecutor.getSingleton(problem.getLanguage(), problem.getCode(), problem.getEntryPoint(), problem.getFunction());
-            ((MessageExecutor) executor).setSettings(problem.getRepeats(), timeout, safeVM);
+            if (!created && !sameContext) {
+                // medians of other problems are no bound
+                bestMedians.clear();
+            }
         }
     }
+
+    /**
+     * @param a problem
+     * @param b other problem
+     * @return if both problems run the same program, and can share the context of the workers
+     */
+    private static boolean sameContext(TruffleOptimizationProblem a, TruffleOptimizationProblem b) {
+        return a == b || (Objects.equals(a.getLanguage(), b.getLanguage()) && Objects.equals(a.getCode(), b.getCode())
+            && Objects.equals(a.getEntryPoint(), b.getEntryPoint()) && Objects.equals(a.getFunction(), b.getFunction()));
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.memo;
+
+/**
+ * Memo of all evaluations, identified by the hash of the evaluated tree and the hash of the problem it was evaluated for.
+ * Allows skipping evaluations that were already done in earlier runs, before any executor is called.
+ */
+public interface EvaluationMemo {
+
+    /**
+     * Id stored for evaluations that were never stored in the database
+     */
+    long NO_ID = -1;
+
+    /**
+     * Finds an evaluation
+     *
+     * @param treeHash    hash of the evaluated tree
+     * @param problemHash hash of the problem the tree was evaluated for
+     * @return the evaluation, or null if the tree was never evaluated for the problem
+     */
+    Evaluation get(String treeHash, String problemHash);
+
+    /**
+     * Stores an evaluation. Existing evaluations are overwritten.
+     *
+     * @param treeHash    hash of the evaluated tree
+     * @param problemHash hash of the problem the tree was evaluated for
+     * @param solutionId  id of the solution in the database, or {@link #NO_ID}
+     * @param quality     of the evaluation
+     */
+    void put(String treeHash, String problemHash, long solutionId, double quality);
+
+    /**
+     * @return amount of evaluations in the memo
+     */
+    long size();
+
+    /**
+     * Result of a memoized evaluation
+     */
+    class Evaluation {
+
+        private final long solutionId;
+
+        private final double quality;
+
+        public Evaluation(long solutionId, double quality) {
+            this.solutionId = solutionId;
+            this.quality = quality;
+        }
+
+        /**
+         * @return id of the solution in the database, or {@link #NO_ID}
+         */
+        public long getSolutionId() {
+            return solutionId;
+        }
+
+        public double getQuality() {
+            return quality;
+        }
+    }
+}
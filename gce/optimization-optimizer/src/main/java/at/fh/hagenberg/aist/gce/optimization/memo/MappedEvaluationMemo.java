@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.memo;
+
+import at.fh.hagenberg.aist.gce.optimization.util.HashUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link EvaluationMemo} stored in a memory mapped file, so it survives restarts of the JVM.
+ * The file is an open addressing hash table (linear probing) with fixed size slots of
+ * [tree key, problem key, solution id, quality], where the keys are the first 64 bits of the (SHA-512) hashes.
+ * The table doubles its size when it is half full.
+ * <p>
+ * Only one instance may exist per file, as the instances grow the table independently. Use {@link #getMemo(String)}.
+ */
+public class MappedEvaluationMemo implements EvaluationMemo, Closeable {
+
+    /**
+     * Identifies the file format
+     */
+    private static final int MAGIC = 0x414d454d;
+
+    /**
+     * Header of the file [magic, unused, capacity, size]
+     */
+    private static final int HEADER = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * Bytes per slot [tree key, problem key, solution id, quality]
+     */
+    private static final int SLOT = 4 * Long.BYTES;
+
+    /**
+     * Capacity of a new memo
+     */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * Open memos by their absolute location
+     */
+    private static final Map<String, MappedEvaluationMemo> MEMOS = new HashMap<>();
+
+    /**
+     * File of the memo
+     */
+    private final File file;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer table;
+
+    /**
+     * Amount of slots (always a power of two)
+     */
+    private int capacity;
+
+    /**
+     * Amount of used slots
+     */
+    private long size;
+
+    /**
+     * Returns the memo stored at the given location, and opens (or creates) it if it isn't open yet
+     *
+     * @param location of the memo file
+     * @return the memo
+     */
+    public static synchronized MappedEvaluationMemo getMemo(String location) {
+        return MEMOS.computeIfAbsent(new File(location).getAbsolutePath(), MappedEvaluationMemo::new);
+    }
+
+    private MappedEvaluationMemo(String location) {
+        this.file = new File(location);
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            if (file.exists() && file.length() >= HEADER) {
+                open(file);
+                if (table.getInt(0) != MAGIC) {
+                    throw new IOException("Not an evaluation memo " + location);
+                }
+                capacity = (int) table.getLong(2 * Integer.BYTES);
+                size = table.getLong(2 * Integer.BYTES + Long.BYTES);
+            } else {
+                create(file, INITIAL_CAPACITY);
+                open(file);
+                capacity = INITIAL_CAPACITY;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open evaluation memo " + location, e);
+        }
+    }
+
+    @Override
+    public synchronized Evaluation get(String treeHash, String problemHash) {
+        long treeKey = key(treeHash);
+        long problemKey = key(problemHash);
+        int slot = find(table, capacity, treeKey, problemKey);
+        int position = position(slot);
+        if (table.getLong(position) == 0) {
+            return null;
+        }
+        return new Evaluation(table.getLong(position + 2 * Long.BYTES), table.getDouble(position + 3 * Long.BYTES));
+    }
+
+    @Override
+    public synchronized void put(String treeHash, String problemHash, long solutionId, double quality) {
+        if ((size + 1) * 2 > capacity) {
+            grow();
+        }
+        long treeKey = key(treeHash);
+        long problemKey = key(problemHash);
+        int position = position(find(table, capacity, treeKey, problemKey));
+        if (table.getLong(position) == 0) {
+            size++;
+            table.putLong(2 * Integer.BYTES + Long.BYTES, size);
+        }
+        table.putLong(position, treeKey);
+        table.putLong(position + Long.BYTES, problemKey);
+        table.putLong(position + 2 * Long.BYTES, solutionId);
+        table.putDouble(position + 3 * Long.BYTES, quality);
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (MappedEvaluationMemo.class) {
+            MEMOS.remove(file.getAbsolutePath());
+        }
+        synchronized (this) {
+            table.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Position of a slot in the table. Computed in long, as a table may grow past what int arithmetic can address.
+     *
+     * @param slot in the table
+     * @return byte offset of the slot
+     */
+    private static int position(int slot) {
+        return Math.toIntExact(HEADER + (long) slot * SLOT);
+    }
+
+    /**
+     * Finds the slot of a key, or the empty slot where it would be inserted
+     */
+    private static int find(ByteBuffer table, int capacity, long treeKey, long problemKey) {
+        int slot = (int) (mix(treeKey ^ Long.rotateLeft(problemKey, 32)) & (capacity - 1));
+        while (true) {
+            int position = position(slot);
+            long storedTree = table.getLong(position);
+            if (storedTree == 0 || (storedTree == treeKey && table.getLong(position + Long.BYTES) == problemKey)) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    /**
+     * Doubles the capacity. The new table is written to a temporary file that replaces the old one when it is complete.
+     * The new table stays mapped across the move, so the memo switches to it before the old mapping is released.
+     */
+    private void grow() {
+        try {
+            int newCapacity = capacity * 2;
+            if (HEADER + (long) newCapacity * SLOT > Integer.MAX_VALUE) {
+                // a single mapping is limited to 2 GB
+                throw new RuntimeException("Evaluation memo " + file + " can't grow beyond " + capacity + " slots");
+            }
+            File grown = new File(file.getPath() + ".grow");
+            create(grown, newCapacity);
+            FileChannel grownChannel = FileChannel.open(grown.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer grownTable;
+            try {
+                grownTable = grownChannel.map(FileChannel.MapMode.READ_WRITE, 0, grownChannel.size());
+                for (int i = 0; i < capacity; i++) {
+                    int position = position(i);
+                    long treeKey = table.getLong(position);
+                    if (treeKey != 0) {
+                        long problemKey = table.getLong(position + Long.BYTES);
+                        int newPosition = position(find(grownTable, newCapacity, treeKey, problemKey));
+                        grownTable.putLong(newPosition, treeKey);
+                        grownTable.putLong(newPosition + Long.BYTES, problemKey);
+                        grownTable.putLong(newPosition + 2 * Long.BYTES, table.getLong(position + 2 * Long.BYTES));
+                        grownTable.putLong(newPosition + 3 * Long.BYTES, table.getLong(position + 3 * Long.BYTES));
+                    }
+                }
+                grownTable.putLong(2 * Integer.BYTES + Long.BYTES, size);
+                grownTable.force();
+                Files.move(grown.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                // the old table is still intact and in use
+                grownChannel.close();
+                Files.deleteIfExists(grown.toPath());
+                throw e;
+            }
+
+            FileChannel oldChannel = channel;
+            channel = grownChannel;
+            table = grownTable;
+            capacity = newCapacity;
+            oldChannel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to grow evaluation memo " + file, e);
+        }
+    }
+
+    private void open(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+
+    private static void create(File file, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(0).putLong(capacity).putLong(0).flip();
+            channel.write(header, 0);
+            // extends the file, the slots are zero filled
+            channel.write(ByteBuffer.allocate(1), HEADER + (long) capacity * SLOT - 1);
+        }
+    }
+
+    /**
+     * Turns a hash into a key. 0 is reserved for empty slots.
+     *
+     * @param hash base64 encoded hash
+     * @return first 64 bits of the hash
+     */
+    private static long key(String hash) {
+        byte[] bytes;
+        try {
+            bytes = HashUtil.decodeHash(hash);
+        } catch (IllegalArgumentException e) {
+            bytes = HashUtil.hash(hash.getBytes());
+        }
+        if (bytes.length < Long.BYTES) {
+            bytes = HashUtil.hash(bytes);
+        }
+        long key = ByteBuffer.wrap(bytes).getLong();
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Spreads the bits of the key, so the linear probing doesn't cluster (murmur3 finalizer)
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9a34fe63ec5L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
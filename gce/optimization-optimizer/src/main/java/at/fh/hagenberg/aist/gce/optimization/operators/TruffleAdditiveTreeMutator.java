@@ -159,6 +159,8 @@ public class TruffleAdditiveTreeMutator implements ConfigurableMutator<TruffleOp
         mutatedNode = mutatedNode.deepCopy();
         mutatedNode.adoptChildren();
         Node backup = mutatedNode;
+        // wrapped once, every attempt only wraps the replaced subtree
+        NodeWrapper original = NodeWrapper.wrap(mutatedNode);
 
         int tries = 50;
         Node result = null;
@@ -166,7 +168,7 @@ public class TruffleAdditiveTreeMutator implements ConfigurableMutator<TruffleOp
             // deep copy again to prevent bleedover from continous attempts
             Node attempt = mutatedNode.deepCopy();
             attempt.adoptChildren();
-            result = attemptMutation(attempt, configuration, context, signature);
+            result = attemptMutation(attempt, original, configuration, context, signature);
             tries--;
         }
 
@@ -180,7 +182,7 @@ public class TruffleAdditiveTreeMutator implements ConfigurableMutator<TruffleOp
         return result;
     }
 
-    private Node attemptMutation(Node mutatedNode, CreationConfiguration configuration, TruffleLanguageContextProvider context, TruffleFunctionSignature signature) {
+    private Node attemptMutation(Node mutatedNode, NodeWrapper original, CreationConfiguration configuration, TruffleLanguageContextProvider context, TruffleFunctionSignature signature) {
         Map<Node, LoadedRequirementInformation> rqi = ((TruffleMasterStrategy) subtreeStrategy).loadRequirements(mutatedNode);
         List<Node> choices = rqi.entrySet().stream().filter(x -> x.getValue().isFailed()).map(Map.Entry::getKey).collect(Collectors.toList());
 
@@ -255,7 +257,7 @@ public class TruffleAdditiveTreeMutator implements ConfigurableMutator<TruffleOp
                     }
                     if (newNode != null) {
                         mutationNode.replace(newNode);
-                        NodeWrapper.clearCache();
+                        NodeWrapper.wrap(mutatedNode, original, newNode);
                         System.out.println("MUTATED WITH DEPTH " + ExtendedNodeUtil.maxDepth(mutatedNode) + " of allowed " + configuration.getMaxDepth());
                         System.out.println(NodeWrapper.wrap(newNode).humanReadableTree());
                         return mutatedNode;
@@ -158,6 +158,8 @@ public class TruffleFaultFixingTreeMutator implements ConfigurableMutator<Truffl
         mutatedNode = mutatedNode.deepCopy();
         mutatedNode.adoptChildren();
         Node backup = mutatedNode;
+        // wrapped once, every attempt only wraps the replaced subtree
+        NodeWrapper original = NodeWrapper.wrap(mutatedNode);
 
         int tries = 50;
         Node result = null;
@@ -165,7 +167,7 @@ public class TruffleFaultFixingTreeMutator implements ConfigurableMutator<Truffl
             // deep copy again to prevent bleedover from continous attempts
             Node attempt = mutatedNode.deepCopy();
             attempt.adoptChildren();
-            result = attemptMutation(attempt, configuration, context, signature);
+            result = attemptMutation(attempt, original, configuration, context, signature);
             tries--;
         }
 
@@ -179,7 +181,7 @@ public class TruffleFaultFixingTreeMutator implements ConfigurableMutator<Truffl
         return result;
     }
 
-    private Node attemptMutation(Node mutatedNode, CreationConfiguration configuration, TruffleLanguageContextProvider context, TruffleFunctionSignature signature) {
+    private Node attemptMutation(Node mutatedNode, NodeWrapper original, CreationConfiguration configuration, TruffleLanguageContextProvider context, TruffleFunctionSignature signature) {
         Map<Node, LoadedRequirementInformation> rqi = ((TruffleMasterStrategy) subtreeStrategy).loadRequirements(mutatedNode);
         List<Node> choices = rqi.entrySet().stream().filter(x -> x.getValue().isFailed()).map(Map.Entry::getKey).collect(Collectors.toList());
 
@@ -254,7 +256,7 @@ public class TruffleFaultFixingTreeMutator implements ConfigurableMutator<Truffl
                     }
                     if (newNode != null) {
                         mutationNode.replace(newNode);
-                        NodeWrapper.clearCache();
+                        NodeWrapper.wrap(mutatedNode, original, newNode);
                         System.out.println("MUTATED WITH DEPTH " + ExtendedNodeUtil.maxDepth(mutatedNode) + " of allowed " + configuration.getMaxDepth());
                         System.out.println(NodeWrapper.wrap(newNode).humanReadableTree());
                         return mutatedNode;
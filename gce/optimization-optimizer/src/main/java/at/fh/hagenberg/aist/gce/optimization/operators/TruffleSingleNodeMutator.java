@@ -155,6 +155,8 @@ public class TruffleSingleNodeMutator implements ConfigurableMutator<TruffleOpti
             if (mutationPoint.getParent() != null) {
                 // move mutation to correct parent
                 mutationPoint.replace(newNode);
+                // mutatedNode and mutationPoint were wrapped before the replacement
+                NodeWrapper.invalidate(newNode);
             }
         } catch (Exception e) {
             // make sure one failed mutation doesn't kill our run
@@ -173,7 +173,9 @@ public class TruffleTreeCrossover implements ConfigurableCrossover<TruffleOptimi
             if (leftCrossoverPoint.getParent() == null) {
                 left = rightCrossoverPoint;
             } else {
-                leftCrossoverPoint.replace(rightCrossoverPoint.deepCopy());
+                Node replacement = rightCrossoverPoint.deepCopy();
+                leftCrossoverPoint.replace(replacement);
+                NodeWrapper.wrap(left, leftWrap, replacement);
             }
         }
 
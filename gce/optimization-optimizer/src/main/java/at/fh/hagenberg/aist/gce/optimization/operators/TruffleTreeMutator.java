@@ -154,6 +154,8 @@ public class TruffleTreeMutator implements ConfigurableMutator<TruffleOptimizati
         mutatedNode = mutatedNode.deepCopy();
         mutatedNode.adoptChildren();
         Node backup = mutatedNode;
+        // wrapped once, every attempt only wraps the replaced subtree
+        NodeWrapper original = NodeWrapper.wrap(mutatedNode);
 
         int tries = 5;
         Node result = null;
@@ -161,7 +163,7 @@ public class TruffleTreeMutator implements ConfigurableMutator<TruffleOptimizati
             // deep copy again to prevent bleedover from continous attempts
             Node attempt = mutatedNode.deepCopy();
             attempt.adoptChildren();
-            result = attemptMutation(attempt, configuration, context, signature);
+            result = attemptMutation(attempt, original, configuration, context, signature);
             tries--;
         }
 
@@ -174,7 +176,7 @@ public class TruffleTreeMutator implements ConfigurableMutator<TruffleOptimizati
         return result;
     }
 
-    private Node attemptMutation(Node mutatedNode, CreationConfiguration configuration, TruffleLanguageContextProvider context, TruffleFunctionSignature signature) {
+    private Node attemptMutation(Node mutatedNode, NodeWrapper original, CreationConfiguration configuration, TruffleLanguageContextProvider context, TruffleFunctionSignature signature) {
         // select node to be mutated
         Node mutationNode = selector.selectSubtree(mutatedNode);
         double remainingNodeWeight = 0;
@@ -229,7 +231,7 @@ public class TruffleTreeMutator implements ConfigurableMutator<TruffleOptimizati
                     Node newNode = strategy.next();
                     if (newNode != null) {
                         mutationNode.replace(newNode);
-                        NodeWrapper.clearCache();
+                        NodeWrapper.wrap(mutatedNode, original, newNode);
                         System.out.println("MUTATED WITH DEPTH " + ExtendedNodeUtil.maxDepth(mutatedNode) + " of allowed " + configuration.getMaxDepth());
                         return mutatedNode;
                     } else {
@@ -13,6 +13,10 @@ package at.fh.hagenberg.aist.gce.optimization.operators.selection;
 import at.fh.hagenberg.aist.gce.optimization.operators.TruffleTreeSelector;
 import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.RandomUtil;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleClassInformation;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleClassProperty;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
 import at.fh.hagenberg.aist.gce.optimization.util.strategy.CreationInformation;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.core.options.Descriptor;
@@ -24,6 +28,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Randomly selects a node in a tree with a maximum complexity measure
@@ -44,18 +49,44 @@ public class CodeComplexityTruffleTreeSelector extends ContractualTruffleTreeSel
 
     @Override
     public Node selectSubtree(Node tree) {
-        List<Node> collect = ExtendedNodeUtil.flatten(tree).filter(this::decision).collect(Collectors.toList());
+        TruffleTreeIndex index = new TruffleTreeIndex(tree);
+        int[] controlFlow = controlFlow(index);
+        List<Node> collect = IntStream.range(0, index.size()).filter(i -> decision(index, controlFlow, i)).mapToObj(index::node).collect(Collectors.toList());
         return collect.get(RandomUtil.random.nextInt(collect.size()));
     }
 
     @Override
     public Node selectSubtreeFromChoices(List<Node> choices) {
-        choices.removeIf(x -> !this.decision(x));
+        return selectSubtreeFromChoices(TruffleTreeIndex.of(choices), choices);
+    }
+
+    @Override
+    protected Node selectSubtreeFromChoices(TruffleTreeIndex index, List<Node> choices) {
+        int[] controlFlow = controlFlow(index);
+        choices.removeIf(x -> !this.decision(index, controlFlow, index.indexOf(x)));
         return choices.get(RandomUtil.random.nextInt(choices.size()));
     }
 
-    private boolean decision(Node x) {
-        return !ExtendedNodeUtil.isAPINode(x) && maxComplexity >= NodeWrapper.cyclomaticComplexity(x, language);
+    private boolean decision(TruffleTreeIndex index, int[] controlFlow, int i) {
+        return !ExtendedNodeUtil.isAPINode(index.node(i)) && maxComplexity >= index.count(controlFlow, i);
+    }
+
+    /**
+     * Counts control flow nodes, so the cyclomatic complexity (see {@link NodeWrapper#cyclomaticComplexity(Node, String)})
+     * of every subtree can be looked up with {@link TruffleTreeIndex#count(int[], int)}
+     *
+     * @param index of tree
+     * @return prefix counts of control flow nodes
+     */
+    private int[] controlFlow(TruffleTreeIndex index) {
+        TruffleLanguageInformation tli = TruffleLanguageInformation.getLanguageInformation(language);
+        if (tli == null) {
+            throw new RuntimeException("Language " + language + " unknown. Cannot calculate cyclomatic complexity.");
+        }
+        return index.prefixCounts(x -> {
+            TruffleClassInformation tci = tli.getTci(x.getClass());
+            return tci != null && tci.hasProperty(TruffleClassProperty.CONTROL_FLOW);
+        });
     }
 
 
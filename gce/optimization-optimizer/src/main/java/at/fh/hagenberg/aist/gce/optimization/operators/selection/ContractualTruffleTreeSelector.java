@@ -11,16 +11,15 @@
 package at.fh.hagenberg.aist.gce.optimization.operators.selection;
 
 import at.fh.hagenberg.aist.gce.optimization.operators.TruffleTreeSelector;
-import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
 import at.fh.hagenberg.aist.gce.optimization.util.strategy.CreationInformation;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapperWeightUtil;
 import com.oracle.truffle.api.nodes.Node;
 import org.springframework.beans.factory.annotation.Required;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * The contractual selector analyzes all nodes in a given tree according to the requirements in the CreationInformation
@@ -36,19 +35,36 @@ public abstract class ContractualTruffleTreeSelector implements TruffleTreeSelec
     // TODO #216 make the selector consider available data flow items
     @Override
     public Node selectSubtree(Node tree, CreationInformation info) {
-        List<Node> choices = ExtendedNodeUtil.flatten(tree).filter(x -> !x.getClass().getName().startsWith("com.oracle.truffle.api")).collect(Collectors.toList());
+        TruffleTreeIndex index = new TruffleTreeIndex(tree);
 
         // serve the weight obligation
         double maxWeight = info.getConfiguration().getMaxWeight() - info.getCurrentWeight();
-        if (info.getConfiguration().getMaxWeight() < Double.MAX_VALUE) {
-            choices.removeIf(x -> util.weight(x) > maxWeight);
+        double[] weights = info.getConfiguration().getMaxWeight() < Double.MAX_VALUE ? util.weights(index) : null;
+
+        List<Node> choices = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            Node node = index.node(i);
+            if (!node.getClass().getName().startsWith("com.oracle.truffle.api") && (weights == null || weights[i] <= maxWeight)) {
+                choices.add(node);
+            }
         }
 
-        return selectSubtreeFromChoices(choices);
+        return selectSubtreeFromChoices(index, choices);
     }
 
     public abstract Node selectSubtreeFromChoices(List<Node> choices);
 
+    /**
+     * Same as {@link #selectSubtreeFromChoices(List)}, for implementations that need metrics of the choices (size, depth, ...)
+     *
+     * @param index   of the tree(s) the choices are from
+     * @param choices valid nodes
+     * @return selected node
+     */
+    protected Node selectSubtreeFromChoices(TruffleTreeIndex index, List<Node> choices) {
+        return selectSubtreeFromChoices(choices);
+    }
+
     @Required
     public void setUtil(NodeWrapperWeightUtil util) {
         this.util = util;
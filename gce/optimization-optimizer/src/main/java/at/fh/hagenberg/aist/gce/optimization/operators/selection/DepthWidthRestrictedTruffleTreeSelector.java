@@ -13,6 +13,7 @@ package at.fh.hagenberg.aist.gce.optimization.operators.selection;
 import at.fh.hagenberg.aist.gce.optimization.operators.TruffleTreeSelector;
 import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.RandomUtil;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
 import at.fh.hagenberg.machinelearning.core.options.Descriptor;
 import com.oracle.truffle.api.nodes.Node;
 
@@ -20,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Randomly selects a node in a tree that is of maximal depth and width
@@ -34,20 +36,26 @@ public class DepthWidthRestrictedTruffleTreeSelector extends ContractualTruffleT
 
     @Override
     public Node selectSubtree(Node tree) {
-        List<Node> collect = ExtendedNodeUtil.flatten(tree).filter(this::decision).collect(Collectors.toList());
+        TruffleTreeIndex index = new TruffleTreeIndex(tree);
+        List<Node> collect = IntStream.range(0, index.size()).filter(i -> decision(index, i)).mapToObj(index::node).collect(Collectors.toList());
         return collect.get(RandomUtil.random.nextInt(collect.size()));
     }
 
     @Override
     public Node selectSubtreeFromChoices(List<Node> choices) {
-        choices.removeIf(x -> !this.decision(x));
+        return selectSubtreeFromChoices(TruffleTreeIndex.of(choices), choices);
+    }
+
+    @Override
+    protected Node selectSubtreeFromChoices(TruffleTreeIndex index, List<Node> choices) {
+        choices.removeIf(x -> !this.decision(index, index.indexOf(x)));
         return choices.get(RandomUtil.random.nextInt(choices.size()));
     }
 
-    private boolean decision(Node x) {
-        return !ExtendedNodeUtil.isAPINode(x)
-            && (maxDepth <= 0 || maxDepth >= ExtendedNodeUtil.maxDepth(x))
-            && (maxWidth <= 0 || maxWidth >= ExtendedNodeUtil.maxWidth(x));
+    private boolean decision(TruffleTreeIndex index, int i) {
+        return !ExtendedNodeUtil.isAPINode(index.node(i))
+            && (maxDepth <= 0 || maxDepth >= index.maxDepth(i))
+            && (maxWidth <= 0 || maxWidth >= index.maxWidth(i));
     }
 
     @Override
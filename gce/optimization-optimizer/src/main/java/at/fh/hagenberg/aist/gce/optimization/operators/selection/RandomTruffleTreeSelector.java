@@ -16,6 +16,7 @@ import at.fh.hagenberg.machinelearning.core.options.Descriptor;
 import com.oracle.truffle.api.nodes.Node;
 import at.fh.hagenberg.aist.gce.optimization.operators.TruffleTreeSelector;
 import at.fh.hagenberg.aist.gce.optimization.util.RandomUtil;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,7 +35,7 @@ public class RandomTruffleTreeSelector extends ContractualTruffleTreeSelector {
 
     @Override
     public Node selectSubtree(Node tree) {
-        List<Node> collect = ExtendedNodeUtil.flatten(tree).filter(x -> !ExtendedNodeUtil.isAPINode(x)).collect(Collectors.toList());
+        List<Node> collect = new TruffleTreeIndex(tree).nodes().stream().filter(x -> !ExtendedNodeUtil.isAPINode(x)).collect(Collectors.toList());
         return collect.get(RandomUtil.random.nextInt(collect.size()));
     }
 
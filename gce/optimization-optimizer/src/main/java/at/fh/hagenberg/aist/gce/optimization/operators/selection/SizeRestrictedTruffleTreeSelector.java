@@ -13,6 +13,7 @@ package at.fh.hagenberg.aist.gce.optimization.operators.selection;
 import at.fh.hagenberg.aist.gce.optimization.operators.TruffleTreeSelector;
 import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.RandomUtil;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleTreeIndex;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.core.options.Descriptor;
 import com.oracle.truffle.api.nodes.Node;
@@ -21,8 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.stream.IntStream;
 
 /**
  * Randomly selects a node in a tree with a maximal size
@@ -35,18 +35,24 @@ public class SizeRestrictedTruffleTreeSelector extends ContractualTruffleTreeSel
 
     @Override
     public Node selectSubtree(Node tree) {
-        List<Node> collect = ExtendedNodeUtil.flatten(tree).filter(this::decision).collect(Collectors.toList());
+        TruffleTreeIndex index = new TruffleTreeIndex(tree);
+        List<Node> collect = IntStream.range(0, index.size()).filter(i -> decision(index, i)).mapToObj(index::node).collect(Collectors.toList());
         return collect.get(RandomUtil.random.nextInt(collect.size()));
     }
 
     @Override
     public Node selectSubtreeFromChoices(List<Node> choices) {
-        choices.removeIf(x -> !this.decision(x));
+        return selectSubtreeFromChoices(TruffleTreeIndex.of(choices), choices);
+    }
+
+    @Override
+    protected Node selectSubtreeFromChoices(TruffleTreeIndex index, List<Node> choices) {
+        choices.removeIf(x -> !this.decision(index, index.indexOf(x)));
         return choices.get(RandomUtil.random.nextInt(choices.size()));
     }
 
-    private boolean decision(Node x) {
-        return !ExtendedNodeUtil.isAPINode(x) && ExtendedNodeUtil.size(x) <= maxSize;
+    private boolean decision(TruffleTreeIndex index, int i) {
+        return !ExtendedNodeUtil.isAPINode(index.node(i)) && index.subtreeSize(i) <= maxSize;
     }
 
     @Override
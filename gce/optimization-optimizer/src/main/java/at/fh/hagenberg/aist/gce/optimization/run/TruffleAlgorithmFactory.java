@@ -65,6 +65,8 @@ public class TruffleAlgorithmFactory {
 
     private boolean groupSimilar = true;
 
+    private int migrationInterval = 5;
+
     private final String language;
 
     private final TruffleMasterStrategy masterStrategy;
@@ -177,6 +179,20 @@ public class TruffleAlgorithmFactory {
         return geneticAlgorithm;
     }
 
+    public GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem> createIslandComplexityGeneticAlgorithm() {
+        IslandComplexityGeneticAlgorithm geneticAlgorithm = new IslandComplexityGeneticAlgorithm();
+
+        configureGA(geneticAlgorithm);
+        geneticAlgorithm.setStartingGroups(startingGroups);
+        geneticAlgorithm.setCombinationRate(combinationRate);
+        geneticAlgorithm.setGenerationalElites(generationalElites);
+        geneticAlgorithm.setGroupSimilar(groupSimilar);
+        geneticAlgorithm.setMigrationInterval(migrationInterval);
+        geneticAlgorithm.setIslandFactory(this::createGeneticAlgorithm);
+
+        return geneticAlgorithm;
+    }
+
     public Crossover<TruffleOptimizationSolution, TruffleOptimizationProblem> createCrossover() {
         TruffleTreeCrossover crossover = new TruffleTreeCrossover();
         crossover.setAnalyticsService(getAnalytics());
@@ -359,6 +375,14 @@ public class TruffleAlgorithmFactory {
         this.groupSimilar = groupSimilar;
     }
 
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    public void setMigrationInterval(int migrationInterval) {
+        this.migrationInterval = migrationInterval;
+    }
+
     public void setTimeout(int timeout) {
         this.timeout = timeout;
     }
@@ -32,6 +32,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -43,6 +47,10 @@ import java.util.stream.StreamSupport;
  * - Finding the node cost (weight) of a node
  * - Finding which reads depend on which writes
  * - Finding out which readArgumentNodes accept what types
+ * <p>
+ * The partial results of every phase are stored in a {@link TruffleLanguageLearnerCheckpoint}, so a crashed
+ * learning run resumes where it stopped. The weighing runs the measurements of independent nodes concurrently on
+ * the pooled workers of the executors.
  */
 public abstract class TruffleLanguageLearner {
 
@@ -89,12 +97,12 @@ public abstract class TruffleLanguageLearner {
      * Executor for testing
      * NOTE: for debugging switching to InternalExecutor here is a good idea!
      */
-    private AbstractExecutor exec;
+    protected AbstractExecutor exec;
 
     /**
      * Executor for producing traces containing additional information.
      */
-    private JavassistExecutor traceExec;
+    protected AbstractExecutor traceExec;
 
     /**
      * Executor for testing internally (everything that is NOT performance related)
@@ -117,8 +125,25 @@ public abstract class TruffleLanguageLearner {
      */
     private boolean fast = false;
 
+    /**
+     * Where the checkpoint of the learning progress is stored. If null no checkpoints will be created.
+     */
+    private String checkpointLocation;
+
+    /**
+     * Checkpoint of the current learning run
+     */
+    private TruffleLanguageLearnerCheckpoint checkpoint;
+
+    /**
+     * How many nodes are measured at the same time. Concurrent measurements compete for the cores,
+     * so this should stay well below the amount of physical cores of the system.
+     */
+    private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+
     public TruffleLanguageLearner(TruffleLanguageInformation information) {
         this.information = information;
+        this.checkpointLocation = new File(".") + "/" + information.getName() + "-learner.checkpoint";
     }
 
     /**
@@ -129,28 +154,32 @@ public abstract class TruffleLanguageLearner {
             return;
         }
 
-        // initialize the executors
-        // TODO #196 this should say "main" but then we can't find the pairings for the read args anymore
-        exec = new WeightWatcherExecutor(information.getName(), getMinimalProgram(), "weight", "weight", null);
-        exec.setRepeats(REPEATS);
-        traceExec = new JavassistExecutor(information.getName(), getMinimalProgram(), "weight", "weight", null);
-        internalExec = new InternalExecutor(information.getName(), getMinimalProgram(), "weight", "weight");
+        initializeExecutors();
         weightUtil = new NodeWrapperWeightUtil(information);
 
-        // should not be necessary but ENSURE that timeout is turned off for the learning
-        exec.setTimeout(-1);
-        traceExec.setTimeout(-1);
-        internalExec.setTimeout(-1);
+        checkpoint = checkpointLocation != null ? new TruffleLanguageLearnerCheckpoint(checkpointLocation) : null;
 
         // only re-learn if not already learned
         if (this.information.getInstantiableNodes().values().stream().allMatch(x -> x.getArgumentReadClasses().isEmpty() && x.getWritePairings().isEmpty())) {
             logger.info("Learning language basics");
+            if (checkpoint != null) {
+                checkpoint.restoreBasics(information);
+            }
             // learn which readArgument nodes accept what kind of argument type
-            argumentTypes(information);
+            if (!isDone(TruffleLanguageLearnerCheckpoint.PHASE_ARGUMENT_TYPES)) {
+                argumentTypes(information);
+                done(TruffleLanguageLearnerCheckpoint.PHASE_ARGUMENT_TYPES);
+            }
             // learn which reads can work with which writes
-            writeReadPairs(information);
+            if (!isDone(TruffleLanguageLearnerCheckpoint.PHASE_WRITE_READ_PAIRS)) {
+                writeReadPairs(information);
+                done(TruffleLanguageLearnerCheckpoint.PHASE_WRITE_READ_PAIRS);
+            }
             // learn which classes can be safely replaced with each other
-            replaceability(information);
+            if (!isDone(TruffleLanguageLearnerCheckpoint.PHASE_REPLACEABILITY)) {
+                replaceability(information);
+                done(TruffleLanguageLearnerCheckpoint.PHASE_REPLACEABILITY);
+            }
 
             if (saveToDB) {
                 System.out.println("SAVING");
@@ -162,12 +191,44 @@ public abstract class TruffleLanguageLearner {
         // learn the assumed execution time of a node
         if (!fast) {
             weight(information);
+            done(TruffleLanguageLearnerCheckpoint.PHASE_WEIGHT);
         }
 
         // we cheat here to add the missing node infos TODO #196 when this issue finished should not be necessary anymore
         double average = information.getInstantiableNodes().values().stream().filter(x -> x.getSystemWeight() > 0).mapToDouble(TruffleClassInformation::getSystemWeight).average().orElse(1.0);
         information.getInstantiableNodes().values().stream().filter(x -> !x.getWeight().containsKey(SystemInformation.getCurrentSystem()))
                 .forEach(x -> x.getWeight().put(SystemInformation.getCurrentSystem(), average));
+
+        // learning finished, nothing to resume
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+    }
+
+    /**
+     * Initializes the executors used for learning
+     */
+    protected void initializeExecutors() {
+        // TODO #196 this should say "main" but then we can't find the pairings for the read args anymore
+        exec = new WeightWatcherExecutor(information.getName(), getMinimalProgram(), "weight", "weight", null);
+        exec.setRepeats(REPEATS);
+        traceExec = new JavassistExecutor(information.getName(), getMinimalProgram(), "weight", "weight", null);
+        internalExec = new InternalExecutor(information.getName(), getMinimalProgram(), "weight", "weight");
+
+        // should not be necessary but ENSURE that timeout is turned off for the learning
+        exec.setTimeout(-1);
+        traceExec.setTimeout(-1);
+        internalExec.setTimeout(-1);
+    }
+
+    private boolean isDone(String phase) {
+        return checkpoint != null && checkpoint.isDone(phase);
+    }
+
+    private void done(String phase) {
+        if (checkpoint != null) {
+            checkpoint.done(phase);
+        }
     }
 
     /**
@@ -183,6 +244,9 @@ public abstract class TruffleLanguageLearner {
                         && !x.getProperties().contains(TruffleClassProperty.TRUFFLE_BOUNDARY)).collect(Collectors.toList());
 
         argumentClasses.forEach(arg -> {
+            if (checkpoint != null && checkpoint.hasArgumentTypes(arg)) {
+                return;
+            }
             getSampleInput().forEach((key, input) -> {
                 Object[] inParams = new Object[1];
                 inParams[0] = input.create(null);
@@ -192,6 +256,9 @@ public abstract class TruffleLanguageLearner {
                     arg.getArgumentReadClasses().add(key);
                 }
             });
+            if (checkpoint != null) {
+                checkpoint.argumentTypes(arg);
+            }
         });
     }
 
@@ -254,6 +321,10 @@ public abstract class TruffleLanguageLearner {
                     }
                 });
             });
+
+            if (checkpoint != null) {
+                checkpoint.writePairings(readClasses);
+            }
         }
 
         // log all reads that failed
@@ -296,6 +367,11 @@ public abstract class TruffleLanguageLearner {
             }
         }
 
+        // continue with the weights of a crashed run
+        if (checkpoint != null) {
+            checkpoint.restoreWeights(information);
+        }
+
         // first evaluate the minimal subtree
         ExecutionResult originResult = exec.test(exec.getOrigin().deepCopy(), null);
         double unoptimizedBase = originResult.getPerformance()[0];
@@ -304,28 +380,30 @@ public abstract class TruffleLanguageLearner {
         logger.error("Unoptimized Base: " + unoptimizedBase);
         logger.error("Optimized Base: " + optimizedBase);
 
-        information.getInstantiableNodes().values().stream().filter(x -> !x.weight.containsKey(SystemInformation.getCurrentSystem())).sorted((o1, o2) -> {
+        List<TruffleClassInformation> toWeigh = information.getInstantiableNodes().values().stream().filter(x -> !x.weight.containsKey(SystemInformation.getCurrentSystem())).sorted((o1, o2) -> {
             // sort reads at the end, as all writes must be weighted by that point
             int chain1 = getChainSize(o1), chain2 = getChainSize(o2);
             if (chain1 != chain2) {
                 return Integer.compare(chain1, chain2);
             }
             return Integer.compare(o1.getMinimalSubtreeSize(), o2.getMinimalSubtreeSize());
-        }).forEach(x -> {
+        }).filter(x -> {
             if (x.getProperties().contains(TruffleClassProperty.TRUFFLE_BOUNDARY)) {
                 logger.info("NOT Weighing " + x.getClazz().getName() + " as we are not capable of handling truffle boundaries");
                 notTrulyInstantiable.add(x.getClazz());
-                return;
+                return false;
             }
+            return true;
+        }).collect(Collectors.toList());
 
-            try {
-                // weigh individual node
-                weighNode(x, optimizedBase, unoptimizedBase);
-            } catch (Exception e) {
-                logger.error("Failed to weigh node " + x.getClazz().getName());
-                weightingExceptions.put(x.getClazz(), e);
-            }
-        });
+        // nodes with the same chain and subtree size don't depend on each others weights, so they are measured together
+        Map<List<Integer>, List<TruffleClassInformation>> waves = toWeigh.stream().collect(Collectors.groupingBy(x -> Arrays.asList(getChainSize(x), x.getMinimalSubtreeSize()), LinkedHashMap::new, Collectors.toList()));
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            waves.values().forEach(wave -> weighWave(wave, optimizedBase, unoptimizedBase, pool));
+        } finally {
+            pool.shutdownNow();
+        }
 
         // adjust weights to become positive
         OptionalDouble min = information.getInstantiableNodes().values().stream().filter(x -> x.weight.containsKey(SystemInformation.getCurrentSystem())).mapToDouble(x -> x.weight.get(SystemInformation.getCurrentSystem())).min();
@@ -351,17 +429,75 @@ public abstract class TruffleLanguageLearner {
     }
 
     /**
-     * Weighing individual node in separate function due to java garbage collection issues
+     * Weighs a group of nodes that don't depend on each other. The harnesses are created sequentially, while the
+     * measurements and traces are run concurrently on the workers of the executors.
+     * Executors that don't support concurrent tests (see {@link AbstractExecutor#supportsConcurrentTests()}) run their
+     * tests one after the other in the calling thread instead.
+     * As the tests run concurrently the global state can't be cleared here before each test (see {@link #evaluate(AbstractExecutor, Node, int)}),
+     * instead every worker starts each test from the initial global scope (see {@link AbstractExecutor#resetGlobalScope()}).
      *
-     * @param x Class information to be assigned a weight
+     * @param wave            nodes to be weighed
+     * @param optimizedBase   optimized runtime of the empty harness
+     * @param unoptimizedBase unoptimized runtime of the empty harness
+     * @param pool            for running the measurements
      */
-    protected void weighNode(TruffleClassInformation x, double optimizedBase, double unoptimizedBase) {
-        logger.error("Weighing " + x.getClazz().getName() + " " + java.time.LocalTime.now());
+    protected void weighWave(List<TruffleClassInformation> wave, double optimizedBase, double unoptimizedBase, ExecutorService pool) {
+        Map<TruffleClassInformation, Node> prototypes = new HashMap<>();
+        Map<TruffleClassInformation, Future<ExecutionResult>> measurements = new LinkedHashMap<>();
+        Map<TruffleClassInformation, Future<ExecutionResult>> traces = new LinkedHashMap<>();
+
+        wave.forEach(x -> {
+            logger.error("Weighing " + x.getClazz().getName() + " " + java.time.LocalTime.now());
+            try {
+                // create child and harnesses
+                clearGlobalFrame();
+                Node prototype = loadOrPrepareNode(x, true);
+                prototypes.put(x, prototype);
+                Pair<Node, Object[]> measurement = prepareEvaluation(exec, prototype, NODE_DUPLICATIONS);
+                Pair<Node, Object[]> trace = prepareEvaluation(traceExec, prototype, 1);
+                measurements.put(x, submit(exec, measurement, pool));
+                traces.put(x, submit(traceExec, trace, pool));
+            } catch (Exception e) {
+                logger.error("Failed to weigh node " + x.getClazz().getName());
+                weightingExceptions.put(x.getClazz(), e);
+            }
+        });
 
-        // create child and evaluate
-        Node prototype = loadOrPrepareNode(x, true);
-        ExecutionResult evaluationResult = evaluate(exec, prototype, NODE_DUPLICATIONS);
+        measurements.forEach((x, measurement) -> {
+            try {
+                // weigh individual node
+                weighNode(x, prototypes.get(x), measurement.get(), (TraceExecutionResult) traces.get(x).get(), optimizedBase, unoptimizedBase);
+            } catch (Exception e) {
+                logger.error("Failed to weigh node " + x.getClazz().getName());
+                weightingExceptions.put(x.getClazz(), e);
+            }
+        });
+    }
+
+    /**
+     * Runs the test in the pool if the executor supports concurrent tests, otherwise runs it immediately
+     *
+     * @param executor to run the test
+     * @param test     node and input to be tested
+     * @param pool     for running the test concurrently
+     * @return result of the test
+     */
+    private Future<ExecutionResult> submit(AbstractExecutor executor, Pair<Node, Object[]> test, ExecutorService pool) {
+        if (executor.supportsConcurrentTests()) {
+            return pool.submit(() -> executor.test(test.getKey(), test.getValue()));
+        }
+        return CompletableFuture.completedFuture(executor.test(test.getKey(), test.getValue()));
+    }
 
+    /**
+     * Weighing individual node in separate function due to java garbage collection issues
+     *
+     * @param x                Class information to be assigned a weight
+     * @param prototype        node that was measured in the weighing harness
+     * @param evaluationResult measurement of the node in the weighing harness
+     * @param traceResult      trace of the node in the weighing harness
+     */
+    protected void weighNode(TruffleClassInformation x, Node prototype, ExecutionResult evaluationResult, TraceExecutionResult traceResult, double optimizedBase, double unoptimizedBase) {
         // make sure the evaluation did not FAIL
         if (!evaluationResult.isSuccess()) {
             logger.error("Weigting harness is wrong for " + x.getClazz().getName());
@@ -374,7 +510,6 @@ public abstract class TruffleLanguageLearner {
         double optimized = evaluationResult.getPerformance()[1];
 
         // add trace for additional information
-        TraceExecutionResult traceResult = (TraceExecutionResult) evaluate(traceExec, prototype, 1);
         if (!traceResult.isSuccess()) {
             // this should NEVER happen
             logger.error("Harness failed at javassist tracing for " + x.getClazz().getName());
@@ -397,6 +532,9 @@ public abstract class TruffleLanguageLearner {
         x.setSystemWeight(((optimized - optimizedBase) / (double) NODE_DUPLICATIONS) - childWeight);
         x.setSystemWeightUnoptimized(((unoptimized - unoptimizedBase) / (double) NODE_DUPLICATIONS) - childUnoptimizedWeight);
 
+        if (checkpoint != null) {
+            checkpoint.weight(x);
+        }
         if (saveToDB) {
             AbstractNeo4JRepository providedRepository = (AbstractNeo4JRepository) ApplicationContextProvider.getCtx().getBean("truffleClassInformationRepository");
             providedRepository.save(x);
@@ -437,6 +575,19 @@ public abstract class TruffleLanguageLearner {
     }
 
     protected ExecutionResult evaluate(AbstractExecutor executor, Node n, int count) {
+        Pair<Node, Object[]> evaluation = prepareEvaluation(executor, n, count);
+        return evaluate(executor, evaluation.getKey(), evaluation.getValue());
+    }
+
+    /**
+     * Creates the harness for evaluating a node, without running it
+     *
+     * @param executor the harness is created for
+     * @param n        node to be evaluated
+     * @param count    how often the node is duplicated in the harness
+     * @return node to be tested and input for the test
+     */
+    protected Pair<Node, Object[]> prepareEvaluation(AbstractExecutor executor, Node n, int count) {
         // prepare input if we require it
         Object[] input = null;
         TruffleClassInformation tci = information.getTci(n.getClass());
@@ -450,11 +601,20 @@ public abstract class TruffleLanguageLearner {
                 }
             }
         }
-        return evaluate(executor, n, count, input);
+        return prepareEvaluation(executor, n, count, input);
     }
 
     protected ExecutionResult evaluate(AbstractExecutor executor, Node n, int count, Object[] input) {
+        Pair<Node, Object[]> evaluation = prepareEvaluation(executor, n, count, input);
+        return evaluate(executor, evaluation.getKey(), evaluation.getValue());
+    }
+
+    private ExecutionResult evaluate(AbstractExecutor executor, Node insertNode, Object[] input) {
         clearGlobalFrame();
+        return executor.test(insertNode, input);
+    }
+
+    protected Pair<Node, Object[]> prepareEvaluation(AbstractExecutor executor, Node n, int count, Object[] input) {
         Node insertNode = executor.getOrigin().deepCopy();
 
         // determine size of object chain
@@ -480,7 +640,7 @@ public abstract class TruffleLanguageLearner {
         arrayContainer[0] = array;
         Node newInsertNode = (Node) insertConstructor.instantiate(arrayContainer);
 
-        return executor.test(newInsertNode, input);
+        return new Pair<>(newInsertNode, input);
     }
 
     private int getChainSize(TruffleClassInformation chainInfo) {
@@ -674,6 +834,22 @@ public abstract class TruffleLanguageLearner {
         this.saveToDB = saveToDB;
     }
 
+    public String getCheckpointLocation() {
+        return checkpointLocation;
+    }
+
+    public void setCheckpointLocation(String checkpointLocation) {
+        this.checkpointLocation = checkpointLocation;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     public boolean isFast() {
         return fast;
     }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.util;
+
+import science.aist.seshat.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Checkpoint of the {@link TruffleLanguageLearner}, so a crashed learning run can be resumed.
+ * Stores the partial results of every learning phase per node class:
+ * - the accepted argument types of argument-reading nodes
+ * - the write pairings of read nodes
+ * - the (unadjusted) weights of the current system
+ * and which phases are already complete. The checkpoint is rewritten atomically after every update.
+ */
+public class TruffleLanguageLearnerCheckpoint {
+
+    public static final String PHASE_ARGUMENT_TYPES = "argumentTypes";
+
+    public static final String PHASE_WRITE_READ_PAIRS = "writeReadPairs";
+
+    public static final String PHASE_REPLACEABILITY = "replaceability";
+
+    public static final String PHASE_WEIGHT = "weight";
+
+    private static final String SEPARATOR = ";";
+
+    private Logger logger = Logger.getInstance();
+
+    /**
+     * File the checkpoint is stored in
+     */
+    private final File location;
+
+    /**
+     * Checkpoint values
+     */
+    private final Properties values = new Properties();
+
+    /**
+     * Loads the checkpoint at the given location, or starts an empty one if there is none
+     *
+     * @param location of checkpoint file
+     */
+    public TruffleLanguageLearnerCheckpoint(String location) {
+        this.location = new File(location);
+        if (this.location.exists()) {
+            try (Reader reader = Files.newBufferedReader(this.location.toPath())) {
+                values.load(reader);
+                logger.info("Resuming learning from checkpoint " + this.location.getAbsolutePath());
+            } catch (IOException e) {
+                logger.error("Failed to load checkpoint, starting from scratch " + this.location.getAbsolutePath(), e);
+                values.clear();
+            }
+        }
+    }
+
+    public boolean isDone(String phase) {
+        return values.containsKey("phase." + phase);
+    }
+
+    public synchronized void done(String phase) {
+        values.setProperty("phase." + phase, "done");
+        save();
+    }
+
+    /**
+     * @param tci argument-reading class
+     * @return if the argument types of the class were already learned
+     */
+    public boolean hasArgumentTypes(TruffleClassInformation tci) {
+        return values.containsKey("arguments." + tci.getClazz().getName());
+    }
+
+    public synchronized void argumentTypes(TruffleClassInformation tci) {
+        values.setProperty("arguments." + tci.getClazz().getName(), String.join(SEPARATOR, tci.getArgumentReadClasses()));
+        save();
+    }
+
+    /**
+     * Stores the current write pairings of the given read classes
+     *
+     * @param readClasses that were tested for pairings
+     */
+    public synchronized void writePairings(Collection<TruffleClassInformation> readClasses) {
+        readClasses.forEach(x -> values.setProperty("pairings." + x.getClazz().getName(),
+            x.getWritePairings().stream().map(y -> y.getClazz().getName()).collect(Collectors.joining(SEPARATOR))));
+        save();
+    }
+
+    /**
+     * Stores the weights the given class has on the current system
+     *
+     * @param tci that was weighed
+     */
+    public synchronized void weight(TruffleClassInformation tci) {
+        values.setProperty("weight." + tci.getClazz().getName(), tci.getSystemWeight() + SEPARATOR + tci.getSystemWeightUnoptimized());
+        save();
+    }
+
+    /**
+     * Adds the argument types and write pairings of the checkpoint to the language information
+     *
+     * @param information to be restored
+     */
+    public void restoreBasics(TruffleLanguageInformation information) {
+        information.getInstantiableNodes().values().forEach(tci -> {
+            String arguments = values.getProperty("arguments." + tci.getClazz().getName());
+            if (arguments != null && tci.getArgumentReadClasses().isEmpty()) {
+                Arrays.stream(arguments.split(SEPARATOR)).filter(x -> !x.isEmpty()).forEach(x -> tci.getArgumentReadClasses().add(x));
+            }
+        });
+
+        information.getInstantiableNodes().values().forEach(tci -> {
+            String pairings = values.getProperty("pairings." + tci.getClazz().getName());
+            if (pairings != null && tci.getWritePairings().isEmpty()) {
+                Arrays.stream(pairings.split(SEPARATOR)).filter(x -> !x.isEmpty())
+                    .map(x -> information.getInstantiableNodes().values().stream().filter(y -> y.getClazz().getName().equals(x)).findFirst().orElse(null))
+                    .filter(Objects::nonNull)
+                    .forEach(x -> tci.getWritePairings().add(x));
+            }
+        });
+    }
+
+    /**
+     * Adds the weights of the checkpoint to the language information. Must be called after the weight adjustments
+     * were removed, as the checkpoint contains the unadjusted weights.
+     *
+     * @param information to be restored
+     */
+    public void restoreWeights(TruffleLanguageInformation information) {
+        information.getInstantiableNodes().values().forEach(tci -> {
+            String weight = values.getProperty("weight." + tci.getClazz().getName());
+            if (weight != null) {
+                String[] split = weight.split(SEPARATOR);
+                tci.setSystemWeight(Double.parseDouble(split[0]));
+                tci.setSystemWeightUnoptimized(Double.parseDouble(split[1]));
+            }
+        });
+    }
+
+    /**
+     * Removes the checkpoint, ex. after the learning finished successfully
+     */
+    public synchronized void delete() {
+        values.clear();
+        try {
+            Files.deleteIfExists(location.toPath());
+        } catch (IOException e) {
+            logger.error("Failed to delete checkpoint " + location.getAbsolutePath(), e);
+        }
+    }
+
+    private void save() {
+        try {
+            File parent = location.getAbsoluteFile().getParentFile();
+            File tmp = File.createTempFile(location.getName(), ".tmp", parent);
+            try (Writer writer = Files.newBufferedWriter(tmp.toPath())) {
+                values.store(writer, "TruffleLanguageLearner checkpoint");
+            }
+            Files.move(tmp.toPath(), location.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to write checkpoint " + location.getAbsolutePath(), e);
+        }
+    }
+}
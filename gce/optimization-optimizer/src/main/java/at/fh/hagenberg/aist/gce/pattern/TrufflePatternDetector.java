@@ -109,6 +109,12 @@ public class TrufflePatternDetector {
      */
     protected double maxDifferential = 1;
 
+    /**
+     * Amount of trees loaded per query when finding a search space (see {@link PatternSearchSpaceRepository#streamTrees}).
+     * 0 loads the whole search space with a single query.
+     */
+    protected int loadBatchSize = 1000;
+
     public TrufflePatternDetector() {
         // load the analytics
         ClassPathXmlApplicationContext ctx = ApplicationContextProvider.getCtx();
@@ -476,12 +482,29 @@ public class TrufflePatternDetector {
      * @return all found patterns
      */
     public Solution<TrufflePattern, TrufflePatternProblem> findPatterns(String language, TrufflePatternSearchSpaceDefinition tpsd, String name, int maxPatternSize, int hierarchyFloor, int hierarchyCeil) {
-        TrufflePatternSearchSpace tps = repository.findTrees(tpsd);
+        TrufflePatternSearchSpace tps = findSearchSpace(tpsd);
         return findPatterns(language, tps, name, maxPatternSize, hierarchyFloor, hierarchyCeil);
     }
 
+    /**
+     * Finds the search space, loading {@link #loadBatchSize} trees per query
+     *
+     * @param tpsd problem space definition for the patterns
+     * @return search space
+     */
     public TrufflePatternSearchSpace findSearchSpace(TrufflePatternSearchSpaceDefinition tpsd) {
-        return repository.findTrees(tpsd);
+        return loadBatchSize > 0 ? repository.findTrees(tpsd, loadBatchSize) : repository.findTrees(tpsd);
+    }
+
+    /**
+     * Finds the search space, and keeps it as snapshot on disk so repeated runs don't have to query the database
+     *
+     * @param tpsd              problem space definition for the patterns
+     * @param snapshotDirectory directory the snapshots are stored in
+     * @return search space
+     */
+    public TrufflePatternSearchSpace findSearchSpace(TrufflePatternSearchSpaceDefinition tpsd, String snapshotDirectory) {
+        return repository.findTrees(tpsd, snapshotDirectory);
     }
 
     /**
@@ -553,7 +576,7 @@ public class TrufflePatternDetector {
      */
     public Solution<TruffleDifferentialPatternSolution, TrufflePatternProblem> comparePatternsBySearchSpaceDefinition(String language, List<Pair<TrufflePatternSearchSpaceDefinition, String>> searchSpaceDefinitions, int maxPatternSize, int hierarchyFloor, int hierarchyCeil) {
         List<Pair<TrufflePatternSearchSpace, String>> searchSpaces = new ArrayList<>();
-        searchSpaceDefinitions.forEach(x -> searchSpaces.add(new Pair<>(repository.findTrees(x.getKey()), x.getValue())));
+        searchSpaceDefinitions.forEach(x -> searchSpaces.add(new Pair<>(findSearchSpace(x.getKey()), x.getValue())));
         return comparePatternsBySearchSpace(language, searchSpaces, maxPatternSize, hierarchyFloor, hierarchyCeil);
     }
 
@@ -696,6 +719,14 @@ public class TrufflePatternDetector {
         return problem;
     }
 
+    public int getLoadBatchSize() {
+        return loadBatchSize;
+    }
+
+    public void setLoadBatchSize(int loadBatchSize) {
+        this.loadBatchSize = loadBatchSize;
+    }
+
     public SignificanceType getGrouping() {
         return grouping;
     }
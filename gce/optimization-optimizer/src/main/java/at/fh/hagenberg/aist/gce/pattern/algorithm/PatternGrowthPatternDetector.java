@@ -27,6 +27,7 @@ import at.fh.hagenberg.aist.gce.pattern.algorithm.metric.PatternSizeMetric;
 import at.fh.hagenberg.aist.gce.pattern.algorithm.metric.TopNMetric;
 import at.fh.hagenberg.aist.gce.pattern.encoding.BitwisePatternMeta;
 import at.fh.hagenberg.aist.gce.pattern.encoding.TracableBitwisePattern;
+import at.fh.hagenberg.aist.gce.pattern.encoding.TracableBitwisePatternIndex;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
 import at.fh.hagenberg.machinelearning.core.Problem;
@@ -36,10 +37,18 @@ import at.fh.hagenberg.machinelearning.core.SolutionGene;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.util.*;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -72,6 +81,17 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
 
     protected List<Metric> metrics = new ArrayList<>();
 
+    /**
+     * Fraction of the max heap that may be used before patterns are grown depth first (right away) instead of breadth first (level by level).
+     * Results are identical as long as the budget is not exceeded. Above the budget top-n metrics can no longer evict patterns that are already growing.
+     */
+    protected double heapBudget = 0.8;
+
+    /**
+     * If the patterns of a level are grown in parallel. Sequential growth is slower, but the metrics see the patterns in a fixed order.
+     */
+    protected boolean parallel = true;
+
     @Override
     public Solution<TrufflePattern, TrufflePatternProblem> solve(Problem<TrufflePatternProblem> problem, Solution<TrufflePattern, TrufflePatternProblem> solution) {
         // ensure safe reuse
@@ -102,11 +122,14 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
 
     public PatternNodeWrapper transform(TracableBitwisePattern x, Map<Long, NodeWrapper> wrapperMap, Map<Long, List<OrderedRelationship>> relationshipMap, BitwisePatternMeta meta, Map<Long, String> variableMap, Map<Long, Map<String, Object>> nodeContentMap) {
        try {
+           // finished patterns keep their locations compressed, so we only fetch them once
+           long[][] nodeIds = x.getNodeIds();
+           long[][] variableIdentities = x.getVariableIdentities();
            PatternNodeWrapper rootNode = new PatternNodeWrapper(new NodeWrapper(processName(meta.unmask(x.getPattern()[0]))), x.getNodeIdsAtPosDisplay(0));
-           rootNode.setId(Math.abs(x.getNodeIds()[0][0]));
+           rootNode.setId(Math.abs(nodeIds[0][0]));
            rootNode.setValues(new HashMap<>(nodeContentMap.get(x.getNodes()[0])));
            if (x.getVariables()[0] > -1) {
-               String variables = Arrays.stream(x.getVariableIdentities()[0]).distinct().filter(y -> y > 0).boxed().map(y -> variableMap.getOrDefault(y, "")).collect(Collectors.joining(";"));
+               String variables = Arrays.stream(variableIdentities[0]).distinct().filter(y -> y > 0).boxed().map(y -> variableMap.getOrDefault(y, "")).collect(Collectors.joining(";"));
                variableLabeller.inject(rootNode, variables);
            }
            Stack<PatternNodeWrapper> stack = new Stack<>();
@@ -122,10 +145,10 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
                if (((x.getOpenclosetags()[bitPosLong] >> bitPos) & 1) == 0) {
 
                    PatternNodeWrapper pnw = new PatternNodeWrapper(new NodeWrapper(processName(meta.unmask(x.getPattern()[pos]))), x.getNodeIdsAtPosDisplay(pos));
-                   pnw.setId(Math.abs(x.getNodeIds()[pos][0]));
+                   pnw.setId(Math.abs(nodeIds[pos][0]));
                    pnw.setValues(new HashMap<>(nodeContentMap.get(x.getNodes()[pos])));
                    if (x.getVariables()[pos] > -1) {
-                       String variables = Arrays.stream(x.getVariableIdentities()[pos]).distinct().filter(y -> y > 0).boxed().map(y -> variableMap.getOrDefault(y, "")).collect(Collectors.joining(";"));
+                       String variables = Arrays.stream(variableIdentities[pos]).distinct().filter(y -> y > 0).boxed().map(y -> variableMap.getOrDefault(y, "")).collect(Collectors.joining(";"));
                        variableLabeller.inject(pnw, variables);
                    }
 
@@ -370,8 +393,8 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
         baseMap.values().parallelStream().forEach(ArrayList::trimToSize);
 
         List<TracableBitwisePattern> finalPatterns = Collections.synchronizedList(new ArrayList<>(5000));
-        final int[] expanded = {0};
-        final int[] pruned = {0};
+        final AtomicInteger expanded = new AtomicInteger();
+        final AtomicInteger pruned = new AtomicInteger();
 
         // Special handling for top N metrics to take control of the growth list
         metrics.forEach(m -> m.init(finalClusterMap));
@@ -395,22 +418,9 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
         });
 
         // restrict to most specialized if we deal with hierarchies
-        // TODO #252 with the SpecializationType this changes! + there is a code duplicate below
+        // TODO #252 with the SpecializationType this changes!
         if (hierarchyCeil > 1) {
-            ArrayList<TracableBitwisePattern> specialRestrict = new ArrayList<>(growthList);
-            while (!specialRestrict.isEmpty()) {
-                TracableBitwisePattern x = specialRestrict.remove(0);
-                if (specialRestrict.stream().anyMatch(y -> x.getCount() == y.getCount() && x.generalizesEqContent(y))) {
-                    growthList.remove(x);
-                    pruned[0]++;
-                }
-                List<TracableBitwisePattern> collect = specialRestrict.parallelStream().filter(y -> x.getCount() == y.getCount() && y.generalizesEqContent(x)).collect(Collectors.toList());
-                collect.forEach(y -> {
-                    growthList.remove(y);
-                    specialRestrict.remove(y);
-                    pruned[0]++;
-                });
-            }
+            restrictToMostSpecialized(new ArrayList<>(growthList), growthList::remove, pruned);
         }
 
         // pre prune size 1 patterns
@@ -420,118 +430,256 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
             }
             if (!metrics.stream().allMatch(m -> m.expand(pattern))) {
                 growthList.remove(pattern);
-                pruned[0]++;
+                pruned.incrementAndGet();
             }
         });
 
         NanoProfiler nanoProfiler = new NanoProfiler();
+        GrowthContext context = new GrowthContext(baseMap, metrics, growthList, finalPatterns, pruned, expanded, nanoProfiler);
 
         while (!growthList.isEmpty()) {
-            System.out.println("Evaluated " + expanded[0] + " Found " + finalPatterns.size() + " Remaining " + growthList.size() + " Pruned " + pruned[0] + " Heap " +
+            System.out.println("Evaluated " + expanded.get() + " Found " + finalPatterns.size() + " Remaining " + growthList.size() + " Pruned " + pruned.get() + " Heap " +
                     DecimalFormat.getNumberInstance().format(Runtime.getRuntime().freeMemory()));
-            expanded[0] += growthList.size();
+            expanded.addAndGet(growthList.size());
             nanoProfiler.report();
 
             // move to parallelizable list (growth list collects for next thread split)
             List<TracableBitwisePattern> processList = new ArrayList<>(growthList);
             growthList.clear();
 
-            processList.parallelStream().forEach(pattern -> {
-                // check growth points at every position
-                int pos = 0;
-                while (pos < pattern.getSize()) {
-                    final long[] np = {nanoProfiler.start()};
-
-                    long[] growthPoints = pattern.getGrowthPoints(pos);
-                    int growth = 0;
-                    HashMap<TracableBitwisePattern, ExtensionMapHelperClass> ext_map = new HashMap<>();
-                    //HashSet<Long> extPointAlkreadyDone = new HashSet<>(growthPoints.length);
-                    while (growth < growthPoints.length) {
-                        int finalGrowth = growth;
-                        long extPoint = growthPoints[growth + 1];
-                        extPoint = extPoint < 0 ? extPoint * -1 : extPoint;
-                        growth += 2;
-
-                        // NOTE: I had the genious idea to skip ext points which is almost unrecognizable but introduces a bug (only shown while labelling, but applies everywhere)
-                        // Simple fact is WE CAN'T SKIP EXT POINTS
-//                        if (extPointAlkreadyDone.contains(extPoint)) {
-//                            // the same node can be duplicate over multiple locations. Skip duplicates
-//                            continue;
-//                        }
-//                        extPointAlkreadyDone.add(extPoint);
-
-                        ArrayList<TracableBitwisePattern> patternOps = baseMap.get(extPoint);
-                        patternOps.forEach(x -> {
-                            if (ext_map.containsKey(x)) {
-                                ExtensionMapHelperClass emhc = ext_map.get(x);
-                                // TODO #252 THis is the only line worthy of improvement here
-                                emhc.pattern.addLocation(x);
-                                emhc.appendExtMap(growthPoints[finalGrowth], growthPoints[finalGrowth + 1]);
-                            } else {
-                                TracableBitwisePattern copy = x.copy();
-                                // TODO #252 THis is the only line worthy of improvement here
-                                ext_map.put(copy, new ExtensionMapHelperClass(copy, growthPoints[finalGrowth], growthPoints[finalGrowth + 1], growthPoints.length));
-                            }
-                        });
+            if (parallel) {
+                ForkJoinPool.commonPool().invoke(new PatternGrowthTask(processList, 0, processList.size(), context));
+            } else {
+                // single pattern tasks never fork, so they run in the calling thread
+                for (int i = 0; i < processList.size(); i++) {
+                    new PatternGrowthTask(processList, i, i + 1, context).compute();
+                }
+            }
+        }
+
+        MaxSupportPerGroupMetric metric = (MaxSupportPerGroupMetric) metrics.get(0);
+
+        System.out.println("Finished expanded " + expanded.get() + " patterns of which " + finalPatterns.size() + " are significant and " + pruned.get() + " were pruned");
+        nanoProfiler.report();
+
+        return metric.getPatterns();
+    }
+
+    /**
+     * Grows a pattern by one node at every position
+     *
+     * @param pattern    to be grown
+     * @param context    of the current mining run
+     * @param finals     buffer of the current worker for patterns that are applicable as result
+     * @param depthFirst stack of the current worker for patterns that must be grown right away (heap budget exceeded)
+     */
+    private void growPattern(TracableBitwisePattern pattern, GrowthContext context, List<TracableBitwisePattern> finals, Deque<TracableBitwisePattern> depthFirst) {
+        // check growth points at every position
+        int pos = 0;
+        while (pos < pattern.getSize()) {
+            final long[] np = {context.nanoProfiler.start()};
+
+            long[] growthPoints = pattern.getGrowthPoints(pos);
+            int growth = 0;
+            HashMap<TracableBitwisePattern, ExtensionMapHelperClass> ext_map = new HashMap<>();
+            //HashSet<Long> extPointAlkreadyDone = new HashSet<>(growthPoints.length);
+            while (growth < growthPoints.length) {
+                int finalGrowth = growth;
+                long extPoint = growthPoints[growth + 1];
+                extPoint = extPoint < 0 ? extPoint * -1 : extPoint;
+                growth += 2;
+
+                // NOTE: I had the genious idea to skip ext points which is almost unrecognizable but introduces a bug (only shown while labelling, but applies everywhere)
+                // Simple fact is WE CAN'T SKIP EXT POINTS
+//                if (extPointAlkreadyDone.contains(extPoint)) {
+//                    // the same node can be duplicate over multiple locations. Skip duplicates
+//                    continue;
+//                }
+//                extPointAlkreadyDone.add(extPoint);
+
+                ArrayList<TracableBitwisePattern> patternOps = context.baseMap.get(extPoint);
+                patternOps.forEach(x -> {
+                    if (ext_map.containsKey(x)) {
+                        ExtensionMapHelperClass emhc = ext_map.get(x);
+                        // TODO #252 THis is the only line worthy of improvement here
+                        emhc.pattern.addLocation(x);
+                        emhc.appendExtMap(growthPoints[finalGrowth], growthPoints[finalGrowth + 1]);
+                    } else {
+                        TracableBitwisePattern copy = x.copy();
+                        // TODO #252 THis is the only line worthy of improvement here
+                        ext_map.put(copy, new ExtensionMapHelperClass(copy, growthPoints[finalGrowth], growthPoints[finalGrowth + 1], growthPoints.length));
                     }
+                });
+            }
+
+            np[0] = context.nanoProfiler.profile("growthPoints", np[0]);
 
-                    np[0] = nanoProfiler.profile("growthPoints", np[0]);
-
-                    long start = System.currentTimeMillis();
-                    // restrict ext map to most specialized if we deal with hierarchies
-                    if (hierarchyCeil > 1) {
-                        ArrayList<TracableBitwisePattern> specialRestrict = new ArrayList<>(ext_map.keySet());
-                        while (!specialRestrict.isEmpty()) {
-                            TracableBitwisePattern x = specialRestrict.remove(0);
-                            if (specialRestrict.stream().anyMatch(y -> x.getCount() == y.getCount() && x.generalizesEqContent(y))) {
-                                ext_map.remove(x);
-                                pruned[0]++;
-                            }
-                            List<TracableBitwisePattern> collect = specialRestrict.parallelStream().filter(y -> x.getCount() == y.getCount() && y.generalizesEqContent(x)).collect(Collectors.toList());
-                            collect.forEach(y -> {
-                                ext_map.remove(y);
-                                specialRestrict.remove(y);
-                                pruned[0]++;
-                            });
+            long start = System.currentTimeMillis();
+            // restrict ext map to most specialized if we deal with hierarchies
+            if (hierarchyCeil > 1) {
+                restrictToMostSpecialized(new ArrayList<>(ext_map.keySet()), ext_map::remove, context.pruned);
+            }
+
+            int finalPos = pos;
+            ext_map.forEach((k, v) -> {
+                // check and add patterns that are applicable
+                pattern.grow(finalPos, v.getExtMap(), k, embedded).forEach(x -> {
+                    // check if this should be added to the final results
+                    if (context.metrics.stream().allMatch(m -> m.applicable(x))) {
+                        finals.add(x);
+                    }
+                    // check if pattern shall still be grown
+                    if (context.metrics.stream().allMatch(m -> m.expand(x))) {
+                        if (heapExhausted()) {
+                            // grow right away instead of keeping it for the next level
+                            context.expanded.incrementAndGet();
+                            depthFirst.push(x);
+                        } else {
+                            // the pattern waits for the whole next level, so its locations are kept compressed until then
+                            x.compress();
+                            context.growthList.add(x);
+                        }
+                    } else {
+                        int prunedCount = context.pruned.incrementAndGet();
+                        if (prunedCount % 200 == 0) {
+                            System.out.println(+prunedCount + " (pruned) " + context.growthList.size() + " (remaining) " + context.finalPatterns.size() + " (found) " + LocalDateTime.now() + " " + DecimalFormat.getNumberInstance().format(Runtime.getRuntime().freeMemory()));
+                            context.nanoProfiler.report();
                         }
                     }
+                });
+            });
+            pos++;
 
-                    int finalPos = pos;
-                    ext_map.forEach((k, v) -> {
-                        // check and add patterns that are applicable
-                        pattern.grow(finalPos, v.getExtMap(), k, embedded).forEach(x -> {
-                            // check if this should be added to the final results
-                            if (metrics.stream().allMatch(m -> m.applicable(x))) {
-                                finalPatterns.add(x);
-                            }
-                            // check if pattern shall still be grown
-                            if (metrics.stream().allMatch(m -> m.expand(x))) {
-                                growthList.add(x);
-                            } else {
-                                pruned[0]++;
-                                if (pruned[0] % 200 == 0) {
-                                    System.out.println(+pruned[0] + " (pruned) " + growthList.size() + " (remaining) " + finalPatterns.size() + " (found) " + LocalDateTime.now() + " " + DecimalFormat.getNumberInstance().format(Runtime.getRuntime().freeMemory()));
-                                    nanoProfiler.report();
-                                }
-                            }
-                        });
-                    });
-                    pos++;
+            context.nanoProfiler.profile("growAndMetrics", np[0]);
+        }
 
-                    nanoProfiler.profile("growAndMetrics", np[0]);
-                }
+        // remove growth opportunities from pattern as this has now been thoroughly evaluated (save heap space)
+        pattern.finish();
+    }
 
-                // remove growth opportunities from pattern as this has now been thoroughly evaluated (save heap space)
-                pattern.finish();
+    /**
+     * Restricts patterns to the most specialized ones. In the given order, a pattern is removed if it generalizes any remaining
+     * pattern, and all remaining patterns generalizing it are removed as well.
+     *
+     * @param patterns to be restricted
+     * @param remove   removes a pattern from the collection it came from
+     * @param pruned   counter of removed patterns
+     */
+    private void restrictToMostSpecialized(List<TracableBitwisePattern> patterns, Consumer<TracableBitwisePattern> remove, AtomicInteger pruned) {
+        if (patterns.isEmpty()) {
+            return;
+        }
+        TracableBitwisePatternIndex index = new TracableBitwisePatternIndex(patterns.get(0).getMeta(), patterns);
+        for (TracableBitwisePattern x : patterns) {
+            if (!index.remove(x)) {
+                // already removed as generalization of an earlier pattern
+                continue;
+            }
+            if (index.hasSpecialization(x)) {
+                remove.accept(x);
+                pruned.incrementAndGet();
+            }
+            index.generalizations(x).forEach(y -> {
+                remove.accept(y);
+                index.remove(y);
+                pruned.incrementAndGet();
             });
         }
+    }
 
-        MaxSupportPerGroupMetric metric = (MaxSupportPerGroupMetric) metrics.get(0);
+    /**
+     * Pools of the heap, used to estimate how much of the heap is actually alive (see {@link #heapExhausted()})
+     */
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream().filter(x -> x.getType() == MemoryType.HEAP).collect(Collectors.toList());
 
-        System.out.println("Finished expanded " + expanded[0] + " patterns of which " + finalPatterns.size() + " are significant and " + pruned[0] + " were pruned");
-        nanoProfiler.report();
+    /**
+     * The used heap counts garbage that just wasn't collected yet, which would switch to depth first growth far too early.
+     * Instead the young pools (no usage threshold, as their usage changes all the time) count with their usage after the
+     * last collection. The tenured pools only grow by promotion and are rarely collected, so their current usage counts.
+     * Falls back to the used heap if the pools don't report their collection usage.
+     *
+     * @return if the live heap is above the heap budget
+     */
+    private boolean heapExhausted() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            MemoryUsage usage = pool.isUsageThresholdSupported() ? pool.getUsage() : pool.getCollectionUsage();
+            if (usage == null) {
+                used = -1;
+                break;
+            }
+            used += usage.getUsed();
+        }
+        if (used <= 0) {
+            used = runtime.totalMemory() - runtime.freeMemory();
+        }
+        return used > runtime.maxMemory() * heapBudget;
+    }
 
-        return metric.getPatterns();
+    /**
+     * Everything the growth tasks of one mining run share
+     */
+    private static class GrowthContext {
+        private final Map<Long, ArrayList<TracableBitwisePattern>> baseMap;
+        private final List<Metric> metrics;
+        private final List<TracableBitwisePattern> growthList;
+        private final List<TracableBitwisePattern> finalPatterns;
+        private final AtomicInteger pruned;
+        private final AtomicInteger expanded;
+        private final NanoProfiler nanoProfiler;
+
+        private GrowthContext(Map<Long, ArrayList<TracableBitwisePattern>> baseMap, List<Metric> metrics, List<TracableBitwisePattern> growthList, List<TracableBitwisePattern> finalPatterns, AtomicInteger pruned, AtomicInteger expanded, NanoProfiler nanoProfiler) {
+            this.baseMap = baseMap;
+            this.metrics = metrics;
+            this.growthList = growthList;
+            this.finalPatterns = finalPatterns;
+            this.pruned = pruned;
+            this.expanded = expanded;
+            this.nanoProfiler = nanoProfiler;
+        }
+    }
+
+    /**
+     * Grows a range of the patterns of one level. Ranges are split down to single patterns so idle workers can steal them.
+     * Results are collected per worker and handed over once the pattern (and everything grown depth first from it) is done.
+     */
+    private class PatternGrowthTask extends RecursiveAction {
+
+        private final List<TracableBitwisePattern> patterns;
+
+        private final int from;
+
+        private final int to;
+
+        private final GrowthContext context;
+
+        private PatternGrowthTask(List<TracableBitwisePattern> patterns, int from, int to, GrowthContext context) {
+            this.patterns = patterns;
+            this.from = from;
+            this.to = to;
+            this.context = context;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PatternGrowthTask(patterns, from, middle, context), new PatternGrowthTask(patterns, middle, to, context));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+
+            List<TracableBitwisePattern> finals = new ArrayList<>();
+            Deque<TracableBitwisePattern> depthFirst = new ArrayDeque<>();
+            depthFirst.push(patterns.get(from));
+            while (!depthFirst.isEmpty()) {
+                growPattern(depthFirst.pop(), context, finals, depthFirst);
+            }
+            context.finalPatterns.addAll(finals);
+        }
     }
 
     /**
@@ -669,6 +817,22 @@ public class PatternGrowthPatternDetector extends AbstractPatternDetectorAlgorit
         }
     }
 
+    public double getHeapBudget() {
+        return heapBudget;
+    }
+
+    public void setHeapBudget(double heapBudget) {
+        this.heapBudget = heapBudget;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     public List<Metric> getMetrics() {
         return metrics;
     }
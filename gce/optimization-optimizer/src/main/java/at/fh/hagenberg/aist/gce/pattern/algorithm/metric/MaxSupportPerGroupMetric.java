@@ -124,7 +124,10 @@ public class MaxSupportPerGroupMetric implements Metric {
         return rankingMetric.rank(pattern);
     }
 
-    private boolean checkTopN(int limit, TracableBitwisePattern pattern, SortedMap<Integer, SortedMap<Double, TracableBitwisePattern>> outerCollection, List<TracableBitwisePattern> list) {
+    /**
+     * Synchronized as patterns are checked by concurrent growth workers, and two patterns of the same rank must not overwrite each other
+     */
+    private synchronized boolean checkTopN(int limit, TracableBitwisePattern pattern, SortedMap<Integer, SortedMap<Double, TracableBitwisePattern>> outerCollection, List<TracableBitwisePattern> list) {
         AtomicBoolean okay = new AtomicBoolean(false);
         List<TracableBitwisePattern> remove = new LinkedList<>();
         outerCollection.entrySet().forEach(collection -> {
@@ -156,7 +159,10 @@ public class MaxSupportPerGroupMetric implements Metric {
         return okay.get();
     }
 
-    private boolean checkTopN(TracableBitwisePattern pattern, SortedMap<Double, TracableBitwisePattern> collection, List<TracableBitwisePattern> list, int limit) {
+    /**
+     * Synchronized as patterns are checked by concurrent growth workers, and two patterns of the same rank must not overwrite each other
+     */
+    private synchronized boolean checkTopN(TracableBitwisePattern pattern, SortedMap<Double, TracableBitwisePattern> collection, List<TracableBitwisePattern> list, int limit) {
         double rank = rankingMetric.rank(pattern);
         if (!lowerIsBetter) {
             rank = rank * -1;
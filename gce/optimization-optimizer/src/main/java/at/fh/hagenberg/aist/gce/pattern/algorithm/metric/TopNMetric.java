@@ -119,7 +119,10 @@ public class TopNMetric implements Metric {
         return rankingMetric.rank(pattern);
     }
 
-    private boolean checkTopN(TracableBitwisePattern pattern, SortedMap<Double, TracableBitwisePattern> collection, List<TracableBitwisePattern> list, int limit) {
+    /**
+     * Synchronized as patterns are checked by concurrent growth workers, and two patterns of the same rank must not overwrite each other
+     */
+    private synchronized boolean checkTopN(TracableBitwisePattern pattern, SortedMap<Double, TracableBitwisePattern> collection, List<TracableBitwisePattern> list, int limit) {
         double rank = rankingMetric.rank(pattern);
         if (!lowerIsBetter) {
             rank = rank * -1;
@@ -16,14 +16,23 @@ import science.aist.neo4j.transaction.TransactionManager;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.DbHelper;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
+import at.fh.hagenberg.aist.gce.optimization.util.HashUtil;
+import at.fh.hagenberg.aist.gce.pattern.TrufflePattern;
+import at.fh.hagenberg.util.Pair;
 import junit.framework.TestResult;
+import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.types.Node;
 import org.neo4j.driver.types.Relationship;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Repository that help with finding the TREES that we want to analyze for PATTERNS
@@ -33,15 +42,30 @@ import java.util.stream.Collectors;
  */
 public class PatternSearchSpaceRepository extends ReflectiveNeo4JNodeRepositoryImpl<NodeWrapper> {
 
+    /**
+     * Loads the subgraph (tree) below every dn. One record per tree (record.0 -> nodes, record.1 -> relationships)
+     */
+    private static String SUBGRAPH_LOAD = "CALL apoc.path.subgraphAll(dn, {relationshipFilter:'CHILD>'}) yield nodes, relationships RETURN nodes, relationships";
+
+    /**
+     * Replaces SUBGRAPH_LOAD to only find the ids of the trees (one record per tree)
+     */
+    private static String ROOT_ID_LOAD = "RETURN id(dn)";
+
     /**
      * Query to load without any filters. This loads ALL trees from the db and is quite expensive
      */
-    private static String NO_FILTER = "MATCH (n:Node) WHERE NOT ()-[:CHILD]->(n) call apoc.path.subgraphAll(n, {relationshipFilter:'CHILD>'}) yield nodes, relationships return nodes, relationships";
+    private static String NO_FILTER = "MATCH (n:Node) WHERE NOT ()-[:CHILD]->(n) WITH DISTINCT n as dn " + SUBGRAPH_LOAD;
 
     /**
      * Query to load specific trees not defined through any other filters
      */
-    private static String DIRECT_TREE_LOAD = "MATCH (n:Node) WHERE id(n) in [__ID_CONSTRAINT__] AND NOT ()-[:CHILD]->(n) call apoc.path.subgraphAll(n, {relationshipFilter:'CHILD>'}) yield nodes, relationships return nodes, relationships";
+    private static String DIRECT_TREE_LOAD = "MATCH (dn:Node) WHERE id(dn) in [__ID_CONSTRAINT__] AND NOT ()-[:CHILD]->(dn) " + SUBGRAPH_LOAD;
+
+    /**
+     * Query to load a batch of trees by id (used when streaming)
+     */
+    private static String BATCH_TREE_LOAD = "MATCH (dn:Node) WHERE id(dn) in [__ID_CONSTRAINT__] " + SUBGRAPH_LOAD;
 
     /**
      * Merge option on ID_CONSTRAINT
@@ -55,8 +79,7 @@ public class PatternSearchSpaceRepository extends ReflectiveNeo4JNodeRepositoryI
             "__PATH_CONSTRAINT__ " +
             "WHERE __WHERE_CONSTRAINT__ " +
             "WITH DISTINCT n as dn " +
-            "CALL apoc.path.subgraphAll(dn, {relationshipFilter:'CHILD>'}) yield nodes, relationships " +
-            "RETURN nodes, relationships";
+            SUBGRAPH_LOAD;
 
     private static String SOLUTION_SPACE = "(sg)-[:RWGENE]->()-[:TREE]->(n:Node)";
 
@@ -170,6 +193,167 @@ public class PatternSearchSpaceRepository extends ReflectiveNeo4JNodeRepositoryI
         return trees;
     }
 
+    /**
+     * Same as {@link #findTrees(TrufflePatternSearchSpaceDefinition)}, but the trees are loaded batchSize at a time
+     * (see {@link #streamTrees(TrufflePatternSearchSpaceDefinition, int)}), so no single query returns the whole search space.
+     *
+     * @param ssd       Constraint(s) on which trees we actually want to group into one search space
+     * @param batchSize amount of trees loaded per query
+     * @return all found trees
+     */
+    public TrufflePatternSearchSpace findTrees(TrufflePatternSearchSpaceDefinition ssd, int batchSize) {
+        TrufflePatternSearchSpace trees = new TrufflePatternSearchSpace();
+        streamTrees(ssd, batchSize).forEach(tree -> trees.addTree(tree.getKey(), tree.getValue()));
+        return trees;
+    }
+
+    /**
+     * Same as {@link #findTrees(TrufflePatternSearchSpaceDefinition)}, but the search space is kept as binary snapshot
+     * (see {@link TrufflePatternSearchSpaceSnapshot}) in the given directory. If a snapshot of the same definition exists
+     * the database is not queried at all.
+     * Note that the snapshot does not know about changes in the database. Delete it if new trees should be included.
+     *
+     * @param ssd               Constraint(s) on which trees we actually want to group into one search space
+     * @param snapshotDirectory directory of the snapshots
+     * @return all found trees
+     */
+    public TrufflePatternSearchSpace findTrees(TrufflePatternSearchSpaceDefinition ssd, String snapshotDirectory) {
+        String key = definitionKey(ssd);
+        File file = new File(snapshotDirectory, snapshotName(key));
+        TrufflePatternSearchSpace trees = TrufflePatternSearchSpaceSnapshot.read(key, file);
+        if (trees == null) {
+            trees = findTrees(ssd);
+            TrufflePatternSearchSpaceSnapshot.write(trees, key, file);
+        }
+        return trees;
+    }
+
+    /**
+     * Key identifying everything that defines which trees a search space definition loads
+     *
+     * @param ssd search space definition
+     * @return key (hash) of the definition
+     */
+    public String definitionKey(TrufflePatternSearchSpaceDefinition ssd) {
+        StringBuilder definition = new StringBuilder(buildRequest(ssd.isSolutionSpace(), ssd.getCachets(), ssd.getSolution(), ssd.getProblems(), ssd.getExperiments(), ssd.getTestValues(), ssd.getTestResult()));
+        for (Set<?> set : Arrays.asList(ssd.getIncludedTreeIds(), ssd.getIncludedNodeIds(), ssd.getIncludedTypes(), ssd.getExcludedTreeIds(), ssd.getExcludedNodeIds(), ssd.getExcludedTypes())) {
+            definition.append("|");
+            if (set != null) {
+                definition.append(set.stream().map(String::valueOf).sorted().collect(Collectors.joining(ID_CONSTRAINT_MERGER)));
+            }
+        }
+        definition.append("|");
+        if (ssd.getPatterns() != null) {
+            definition.append(ssd.getPatterns().stream().map(group -> group.stream().map(x -> NodeWrapper.reHash(x.getPatternNode()).getHash()).collect(Collectors.joining("&"))).collect(Collectors.joining("/")));
+        }
+        return HashUtil.hashAndEncode(definition.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param key of the definition
+     * @return file name of the snapshot (the key itself is not a valid file name)
+     */
+    private static String snapshotName(String key) {
+        byte[] hash = HashUtil.decodeHash(key);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            name.append(String.format("%02x", hash[i]));
+        }
+        return name.append(".tpss").toString();
+    }
+
+    /**
+     * Streams the trees of the search space instead of loading them all at once.
+     * Only the ids of the trees are queried up front, the trees themselves are loaded in batches when the stream
+     * reaches them. So at most one batch is held in memory, and the trees can be processed while the rest is still loading.
+     * Contains the same trees as {@link #findTrees(TrufflePatternSearchSpaceDefinition)}, but not necessarily in the same order.
+     *
+     * @param ssd       Constraint(s) on which trees we actually want to group into one search space
+     * @param batchSize amount of trees loaded per query
+     * @return lazy stream of trees (nodes, relationships)
+     */
+    public Stream<Pair<NodeWrapper[], OrderedRelationship[]>> streamTrees(TrufflePatternSearchSpaceDefinition ssd, int batchSize) {
+        String constraint = buildRequest(ssd.isSolutionSpace(), ssd.getCachets(), ssd.getSolution(), ssd.getProblems(), ssd.getExperiments(), ssd.getTestValues(), ssd.getTestResult());
+        Set<Long> includedNodes = new HashSet<>();
+        Set<String> includedTypes = new HashSet<>();
+        Set<Long> excludedNodes = new HashSet<>();
+        Set<String> excludedTypes = new HashSet<>();
+        LinkedHashSet<Long> roots = new LinkedHashSet<>();
+
+        if (!constraint.isEmpty()) {
+            roots.addAll(loadRootIds(constraint));
+            Set<Long> includedTrees = ssd.getIncludedTreeIds() != null ? new HashSet<>(ssd.getIncludedTreeIds()) : new HashSet<>();
+            includedTrees.removeAll(roots);
+            if (ssd.getExcludedTreeIds() != null) {
+                roots.removeAll(ssd.getExcludedTreeIds());
+            }
+            if (!includedTrees.isEmpty()) {
+                // included trees are only loaded if they are roots, same as in loadTrees
+                String idConstraint = includedTrees.stream().map(String::valueOf).collect(Collectors.joining(ID_CONSTRAINT_MERGER));
+                roots.addAll(loadRootIds(DIRECT_TREE_LOAD.replace("__ID_CONSTRAINT__", idConstraint)));
+            }
+            addAll(includedNodes, ssd.getIncludedNodeIds());
+            addAll(includedTypes, ssd.getIncludedTypes());
+            addAll(excludedNodes, ssd.getExcludedNodeIds());
+            addAll(excludedTypes, ssd.getExcludedTypes());
+        } else {
+            roots.addAll(loadRootIds(NO_FILTER));
+        }
+
+        List<List<TrufflePattern>> patterns = ssd.getPatterns();
+        if (patterns != null) {
+            patterns.forEach(group -> group.forEach(individual -> NodeWrapper.reHash(individual.getPatternNode())));
+        }
+
+        Iterator<Long> rootIterator = new ArrayList<>(roots).iterator();
+        Spliterator<Pair<NodeWrapper[], OrderedRelationship[]>> spliterator = new Spliterators.AbstractSpliterator<Pair<NodeWrapper[], OrderedRelationship[]>>(roots.size(), Spliterator.NONNULL) {
+            private final LinkedList<Pair<NodeWrapper[], OrderedRelationship[]>> batch = new LinkedList<>();
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Pair<NodeWrapper[], OrderedRelationship[]>> action) {
+                while (batch.isEmpty() && rootIterator.hasNext()) {
+                    List<Long> ids = new ArrayList<>(batchSize);
+                    while (ids.size() < batchSize && rootIterator.hasNext()) {
+                        ids.add(rootIterator.next());
+                    }
+                    String idConstraint = ids.stream().map(String::valueOf).collect(Collectors.joining(ID_CONSTRAINT_MERGER));
+                    Result result = getTransactionManager().executeRead((transaction) -> transaction.run(BATCH_TREE_LOAD.replace("__ID_CONSTRAINT__", idConstraint)));
+                    result.forEachRemaining(record -> {
+                        Pair<NodeWrapper[], OrderedRelationship[]> tree = loadTree(record, includedNodes, includedTypes, excludedNodes, excludedTypes);
+                        if (tree != null && (patterns == null || patterns.isEmpty() || TrufflePatternSearchSpace.adheres(tree, patterns))) {
+                            batch.add(tree);
+                        }
+                    });
+                }
+                if (batch.isEmpty()) {
+                    return false;
+                }
+                action.accept(batch.removeFirst());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private static <T> void addAll(Set<T> target, Set<T> values) {
+        if (values != null) {
+            target.addAll(values);
+        }
+    }
+
+    /**
+     * Finds the ids of all trees a query would load
+     *
+     * @param dbRequest query ending in SUBGRAPH_LOAD
+     * @return ids of the tree roots
+     */
+    private List<Long> loadRootIds(String dbRequest) {
+        List<Long> ids = new ArrayList<>();
+        Result result = getTransactionManager().executeRead((transaction) -> transaction.run(dbRequest.replace(SUBGRAPH_LOAD, ROOT_ID_LOAD)));
+        result.forEachRemaining(record -> ids.add(record.get(0).asLong()));
+        return ids;
+    }
+
     protected TrufflePatternSearchSpace loadTrees(String dbRequest) {
         return loadTrees(dbRequest, new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>());
     }
@@ -219,85 +403,9 @@ public class PatternSearchSpaceRepository extends ReflectiveNeo4JNodeRepositoryI
 
             // make sure the tree is not excluded
             if (!excludedTrees.contains(treeId)) {
-                // we need to know HOW to sort the nodes. Thus we need to sort by relationships
-                List<SortingHelperClass> unordered = record.get(1).asList(x -> {
-                    Relationship r = x.asRelationship();
-                    if (r.type().equals("CHILD")) {
-                        return new SortingHelperClass(r.startNodeId(), r.endNodeId(), r.get("field").asString(), r.get("order").asInt());
-                    } else {
-                        return null;
-                    }
-                }).stream().filter(Objects::nonNull).sorted(SortingHelperClass::compareTo).collect(Collectors.toList());
-
-                // find root
-                LinkedList<SortingHelperClass> ordered = new LinkedList<>();
-                Map<Long, Integer> order = new HashMap<>();
-                SortingHelperClass root = unordered.stream().filter(x -> unordered.stream().noneMatch(y -> y.end == x.start)).findFirst().orElse(null);
-
-                if (root != null) {
-                    // in case we have relationships do something
-                    unordered.remove(root);
-                    ordered.add(root);
-                    order.put(root.start, 0);
-                    order.put(root.end, 1);
-                    int pos = 2;
-
-                    // order relationships BFS
-                    LinkedList<Long> bfsPoint = new LinkedList<>();
-                    Long current = root.start;
-                    bfsPoint.add(root.end);
-
-                    while (current != null) {
-                        Long finalCurrent = current;
-                        SortingHelperClass target = unordered.stream().filter(x -> x.start == finalCurrent).findFirst().orElse(null);
-                        if (target == null) {
-                            // step up
-                            if (!bfsPoint.isEmpty() && !unordered.isEmpty()) {
-                                current = bfsPoint.removeFirst();
-                            } else {
-                                current = null;
-                            }
-                        } else {
-                            // step down
-                            unordered.remove(target);
-                            ordered.addLast(target);
-                            bfsPoint.addLast(target.end);
-                            order.put(target.end, pos++);
-                        }
-                    }
-                }
-
-                // load all nodes
-                AtomicBoolean orderRebuild = new AtomicBoolean(false);
-                NodeWrapper[] nodes = new NodeWrapper[0];
-                nodes = record.get(0).asList(value -> {
-                    Node n = value.asNode();
-                    long id = n.id();
-                    // manage includes
-                    if (includedNodes.contains(id) || includedTypes.contains(n.get("type").asString())) {
-                        return DbHelper.cast(n);
-                    } else if (excludedNodes.contains(id) || excludedTypes.contains(n.get("type").asString())) {
-                        // clean relationship away
-                        orderRebuild.set(true);
-                        ordered.removeIf(x -> x.start == id || x.end == id);
-                        return null;
-                    }
-                    // manage excludes
-                    return DbHelper.cast(n);
-                }).stream().filter(Objects::nonNull).sorted(Comparator.comparing(x -> order.get(x.getId()))).collect(Collectors.toList()).toArray(nodes);
-
-                if (nodes.length > 0) {
-                    OrderedRelationship[] relationships = new OrderedRelationship[0];
-                    NodeWrapper[] finalNodes = nodes;
-
-                    if (orderRebuild.get()) {
-                        order.clear();
-                        for (int i = 0; i < nodes.length; i++) {
-                            order.put(nodes[i].getId(), i);
-                        }
-                    }
-                    relationships = ordered.stream().map(x -> new OrderedRelationship(finalNodes[order.get(x.start)], finalNodes[order.get(x.end)], x.field, x.order)).collect(Collectors.toList()).toArray(relationships);
-                    searchSpace.addTree(nodes, relationships);
+                Pair<NodeWrapper[], OrderedRelationship[]> tree = loadTree(record, includedNodes, includedTypes, excludedNodes, excludedTypes);
+                if (tree != null) {
+                    searchSpace.addTree(tree.getKey(), tree.getValue());
                 }
             }
         });
@@ -318,6 +426,91 @@ public class PatternSearchSpaceRepository extends ReflectiveNeo4JNodeRepositoryI
         return searchSpace;
     }
 
+    /**
+     * Turns a record (nodes, relationships) into a tree
+     *
+     * @param record        of the subgraph query
+     * @param includedNodes nodes that are never removed
+     * @param includedTypes types that are never removed
+     * @param excludedNodes nodes that are removed from the tree
+     * @param excludedTypes types that are removed from the tree
+     * @return nodes (root first, in BFS order) and relationships, or null if no node remains
+     */
+    private Pair<NodeWrapper[], OrderedRelationship[]> loadTree(Record record, Set<Long> includedNodes, Set<String> includedTypes, Set<Long> excludedNodes, Set<String> excludedTypes) {
+        // we need to know HOW to sort the nodes. Thus we need to sort by relationships
+        List<SortingHelperClass> unordered = record.get(1).asList(x -> {
+            Relationship r = x.asRelationship();
+            if (r.type().equals("CHILD")) {
+                return new SortingHelperClass(r.startNodeId(), r.endNodeId(), r.get("field").asString(), r.get("order").asInt());
+            } else {
+                return null;
+            }
+        }).stream().filter(Objects::nonNull).sorted(SortingHelperClass::compareTo).collect(Collectors.toList());
+
+        // group children by parent (keeps the sorting), so the BFS doesn't have to search through all relationships
+        Map<Long, List<SortingHelperClass>> children = new HashMap<>();
+        Set<Long> childIds = new HashSet<>();
+        unordered.forEach(x -> {
+            children.computeIfAbsent(x.start, k -> new ArrayList<>()).add(x);
+            childIds.add(x.end);
+        });
+
+        // find root
+        LinkedList<SortingHelperClass> ordered = new LinkedList<>();
+        Map<Long, Integer> order = new HashMap<>();
+        SortingHelperClass root = unordered.stream().filter(x -> !childIds.contains(x.start)).findFirst().orElse(null);
+
+        if (root != null) {
+            // in case we have relationships order them BFS
+            order.put(root.start, 0);
+            int pos = 1;
+            LinkedList<Long> bfsPoint = new LinkedList<>();
+            bfsPoint.add(root.start);
+            while (!bfsPoint.isEmpty()) {
+                for (SortingHelperClass target : children.getOrDefault(bfsPoint.removeFirst(), Collections.emptyList())) {
+                    ordered.addLast(target);
+                    bfsPoint.addLast(target.end);
+                    order.put(target.end, pos++);
+                }
+            }
+        }
+
+        // load all nodes
+        AtomicBoolean orderRebuild = new AtomicBoolean(false);
+        NodeWrapper[] nodes = new NodeWrapper[0];
+        nodes = record.get(0).asList(value -> {
+            Node n = value.asNode();
+            long id = n.id();
+            // manage includes
+            if (includedNodes.contains(id) || includedTypes.contains(n.get("type").asString())) {
+                return DbHelper.cast(n);
+            } else if (excludedNodes.contains(id) || excludedTypes.contains(n.get("type").asString())) {
+                // clean relationship away
+                orderRebuild.set(true);
+                ordered.removeIf(x -> x.start == id || x.end == id);
+                return null;
+            }
+            // manage excludes
+            return DbHelper.cast(n);
+        }).stream().filter(Objects::nonNull).sorted(Comparator.comparing(x -> order.get(x.getId()))).collect(Collectors.toList()).toArray(nodes);
+
+        if (nodes.length == 0) {
+            return null;
+        }
+
+        OrderedRelationship[] relationships = new OrderedRelationship[0];
+        NodeWrapper[] finalNodes = nodes;
+
+        if (orderRebuild.get()) {
+            order.clear();
+            for (int i = 0; i < nodes.length; i++) {
+                order.put(nodes[i].getId(), i);
+            }
+        }
+        relationships = ordered.stream().map(x -> new OrderedRelationship(finalNodes[order.get(x.start)], finalNodes[order.get(x.end)], x.field, x.order)).collect(Collectors.toList()).toArray(relationships);
+        return new Pair<>(nodes, relationships);
+    }
+
     private String buildRangeConstraint(String variable, String qualifier, RangeConstraint<Double> constraint) {
         String whereConstraint = "";
         // build where constraints
@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.pattern.selection;
+
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
+import at.fh.hagenberg.util.Pair;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary on-disk snapshot of a {@link TrufflePatternSearchSpace}, so repeated mining runs on the same search space don't need the database.
+ * The file consists of:
+ * <ul>
+ * <li>header - magic, version and the key of the search space definition it was created for</li>
+ * <li>string dictionary - every type, field name, value key and string value exactly once</li>
+ * <li>value map dictionary - every distinct map of node values exactly once</li>
+ * <li>nodes - ids, type, hash and value map as parallel arrays (all trees, one after the other)</li>
+ * <li>trees - offsets into the node and relationship arrays (CSR), relationships as parallel arrays of tree-local node positions</li>
+ * </ul>
+ * The file is written to a temporary file and moved in place, so readers never see a partially written snapshot.
+ * It is memory mapped when read. A snapshot with a different key, or one that can't be decoded, is treated as missing.
+ */
+public class TrufflePatternSearchSpaceSnapshot {
+
+    private static final int MAGIC = 0x54505353;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Marks null for string references
+     */
+    private static final int NONE = -1;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte LONG_VALUE = 2;
+    private static final byte DOUBLE_VALUE = 3;
+    private static final byte BOOLEAN_VALUE = 4;
+    private static final byte STRING_VALUE = 5;
+    private static final byte DB_VALUE = 6;
+    private static final byte SERIALIZED_VALUE = 7;
+
+    /**
+     * Classes that serialized values may consist of, in addition to primitives, arrays of them and java.time values.
+     * These are the remaining value types the db driver returns (see DbHelper), anything else in a snapshot was tampered with.
+     */
+    private static final Set<String> SERIALIZED_CLASSES = new HashSet<>(Arrays.asList(
+        "java.lang.Object", "java.lang.Number", "java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double",
+        "java.lang.Character", "java.lang.Boolean", "java.lang.String", "java.math.BigInteger", "java.math.BigDecimal",
+        "java.util.ArrayList", "java.util.LinkedList", "java.util.Arrays$ArrayList", "java.util.HashMap", "java.util.LinkedHashMap",
+        "java.util.TreeMap", "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet", "java.util.CollSer", "java.util.Date"));
+
+    /**
+     * Packages whose classes may be part of serialized values (immutable and unmodifiable collections, java.time values)
+     */
+    private static final List<String> SERIALIZED_PREFIXES = Arrays.asList("java.util.Collections$", "java.util.ImmutableCollections$", "java.time.");
+
+    private TrufflePatternSearchSpaceSnapshot() {
+    }
+
+    /**
+     * Writes a search space to disk
+     *
+     * @param searchSpace to be written
+     * @param key         of the search space definition (see {@link PatternSearchSpaceRepository#definitionKey(TrufflePatternSearchSpaceDefinition)})
+     * @param file        to write to (will be overwritten)
+     */
+    public static void write(TrufflePatternSearchSpace searchSpace, String key, File file) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<Map<String, Object>, Integer> valueMaps = new LinkedHashMap<>();
+        LinkedList<Pair<NodeWrapper[], OrderedRelationship[]>> trees = searchSpace.getSearchSpace();
+
+        int nodeCount = trees.stream().mapToInt(x -> x.getKey().length).sum();
+        int relationshipCount = trees.stream().mapToInt(x -> x.getValue().length).sum();
+        long[] ids = new long[nodeCount];
+        int[] types = new int[nodeCount];
+        int[] hashes = new int[nodeCount];
+        int[] values = new int[nodeCount];
+        int[] treeNodes = new int[trees.size() + 1];
+        int[] treeRelationships = new int[trees.size() + 1];
+        int[] parents = new int[relationshipCount];
+        int[] children = new int[relationshipCount];
+        int[] fields = new int[relationshipCount];
+        int[] orders = new int[relationshipCount];
+        long[] relationshipIds = new long[relationshipCount];
+
+        int node = 0;
+        int relationship = 0;
+        int tree = 0;
+        for (Pair<NodeWrapper[], OrderedRelationship[]> x : trees) {
+            Map<NodeWrapper, Integer> positions = new IdentityHashMap<>();
+            for (NodeWrapper wrapper : x.getKey()) {
+                positions.put(wrapper, positions.size());
+                ids[node] = wrapper.getId() != null ? wrapper.getId() : Long.MIN_VALUE;
+                types[node] = intern(strings, wrapper.getType());
+                hashes[node] = intern(strings, wrapper.getHash());
+                values[node] = valueMaps.computeIfAbsent(wrapper.getValues(), k -> valueMaps.size());
+                node++;
+            }
+            for (OrderedRelationship r : x.getValue()) {
+                parents[relationship] = position(positions, r.getParent());
+                children[relationship] = position(positions, r.getChild());
+                fields[relationship] = intern(strings, r.getField());
+                orders[relationship] = r.getOrder();
+                relationshipIds[relationship] = r.getId() != null ? r.getId() : Long.MIN_VALUE;
+                relationship++;
+            }
+            tree++;
+            treeNodes[tree] = node;
+            treeRelationships[tree] = relationship;
+        }
+
+        // the value maps reference strings, so they must be encoded before the string dictionary is written
+        ByteArrayOutputStream encodedValues = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(encodedValues)) {
+            out.writeInt(valueMaps.size());
+            for (Map<String, Object> map : valueMaps.keySet()) {
+                out.writeInt(map.size());
+                for (Map.Entry<String, Object> entry : map.entrySet()) {
+                    out.writeInt(intern(strings, entry.getKey()));
+                    writeValue(out, entry.getValue(), strings);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode node values", e);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File tmp = null;
+        try {
+            // write to a temporary file first, so nobody picks up a half-written snapshot
+            tmp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp").toFile();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, key);
+                out.writeInt(strings.size());
+                for (String string : strings.keySet()) {
+                    writeString(out, string);
+                }
+                encodedValues.writeTo(out);
+                out.writeInt(nodeCount);
+                writeArray(out, ids);
+                writeArray(out, types);
+                writeArray(out, hashes);
+                writeArray(out, values);
+                out.writeInt(trees.size());
+                writeArray(out, treeNodes);
+                writeArray(out, treeRelationships);
+                out.writeInt(relationshipCount);
+                writeArray(out, parents);
+                writeArray(out, children);
+                writeArray(out, fields);
+                writeArray(out, orders);
+                writeArray(out, relationshipIds);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write search space snapshot " + file, e);
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads a search space from disk
+     *
+     * @param key  of the search space definition the snapshot must have been created for
+     * @param file to read from
+     * @return search space, or null if the file does not exist, was created for another definition or is corrupt
+     */
+    public static TrufflePatternSearchSpace read(String key, File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION || !key.equals(readString(in))) {
+                return null;
+            }
+
+            String[] strings = new String[count(in, Integer.BYTES)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(in);
+            }
+            List<Map<String, Object>> valueMaps = new ArrayList<>();
+            int mapCount = count(in, Integer.BYTES);
+            for (int i = 0; i < mapCount; i++) {
+                int size = count(in, Integer.BYTES + 1);
+                Map<String, Object> map = new HashMap<>();
+                for (int j = 0; j < size; j++) {
+                    String valueKey = strings[in.getInt()];
+                    map.put(valueKey, readValue(in, strings));
+                }
+                valueMaps.add(map);
+            }
+
+            int nodeCount = count(in, Long.BYTES + 3 * Integer.BYTES);
+            long[] ids = readLongs(in, nodeCount);
+            int[] types = readInts(in, nodeCount);
+            int[] hashes = readInts(in, nodeCount);
+            int[] values = readInts(in, nodeCount);
+            int treeCount = count(in, 2 * Integer.BYTES);
+            int[] treeNodes = readInts(in, treeCount + 1);
+            int[] treeRelationships = readInts(in, treeCount + 1);
+            int relationshipCount = count(in, Long.BYTES + 4 * Integer.BYTES);
+            int[] parents = readInts(in, relationshipCount);
+            int[] children = readInts(in, relationshipCount);
+            int[] fields = readInts(in, relationshipCount);
+            int[] orders = readInts(in, relationshipCount);
+            long[] relationshipIds = readLongs(in, relationshipCount);
+            checkOffsets(treeNodes, nodeCount);
+            checkOffsets(treeRelationships, relationshipCount);
+
+            TrufflePatternSearchSpace searchSpace = new TrufflePatternSearchSpace();
+            for (int tree = 0; tree < treeCount; tree++) {
+                NodeWrapper[] nodes = new NodeWrapper[treeNodes[tree + 1] - treeNodes[tree]];
+                for (int i = 0; i < nodes.length; i++) {
+                    int node = treeNodes[tree] + i;
+                    nodes[i] = new NodeWrapper(strings[types[node]]);
+                    nodes[i].setId(ids[node] != Long.MIN_VALUE ? ids[node] : null);
+                    nodes[i].setHash(hashes[node] != NONE ? strings[hashes[node]] : null);
+                    // every node gets its own map, as the values of nodes may be changed
+                    nodes[i].setValues(new HashMap<>(valueMaps.get(values[node])));
+                }
+                OrderedRelationship[] relationships = new OrderedRelationship[treeRelationships[tree + 1] - treeRelationships[tree]];
+                for (int i = 0; i < relationships.length; i++) {
+                    int r = treeRelationships[tree] + i;
+                    relationships[i] = new OrderedRelationship(nodes[parents[r]], nodes[children[r]], fields[r] != NONE ? strings[fields[r]] : null, orders[r]);
+                    relationships[i].setId(relationshipIds[r] != Long.MIN_VALUE ? relationshipIds[r] : null);
+                }
+                searchSpace.addTree(nodes, relationships);
+            }
+            return searchSpace;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // corrupt snapshot (e.g. written by an older version without the atomic move), it will simply be recreated
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read search space snapshot " + file, e);
+        }
+    }
+
+    private static int intern(Map<String, Integer> strings, String string) {
+        return string == null ? NONE : strings.computeIfAbsent(string, k -> strings.size());
+    }
+
+    private static int position(Map<NodeWrapper, Integer> positions, NodeWrapper node) {
+        Integer position = positions.get(node);
+        if (position == null) {
+            throw new IllegalStateException("Relationship points to a node outside of its tree " + node.getId());
+        }
+        return position;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, Map<String, Integer> strings) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            out.writeInt(intern(strings, (String) value));
+        } else if (value instanceof Value) {
+            // values the db driver did not convert (see DbHelper) are restored as driver values
+            out.writeByte(DB_VALUE);
+            writeValue(out, ((Value) value).asObject(), strings);
+        } else {
+            out.writeByte(SERIALIZED_VALUE);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream object = new ObjectOutputStream(bytes)) {
+                object.writeObject(value);
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static Object readValue(MappedByteBuffer in, String[] strings) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL_VALUE:
+                return null;
+            case INT_VALUE:
+                return in.getInt();
+            case LONG_VALUE:
+                return in.getLong();
+            case DOUBLE_VALUE:
+                return in.getDouble();
+            case BOOLEAN_VALUE:
+                return in.get() != 0;
+            case STRING_VALUE:
+                return strings[in.getInt()];
+            case DB_VALUE:
+                return Values.value(readValue(in, strings));
+            case SERIALIZED_VALUE:
+                byte[] bytes = new byte[count(in, 1)];
+                in.get(bytes);
+                try (ObjectInputStream object = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    object.setObjectInputFilter(x -> filter(x, bytes.length));
+                    return object.readObject();
+                } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                    // corrupt streams can fail in any way during deserialization
+                    throw new IllegalArgumentException("Value of snapshot can't be restored", e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown value type " + tag);
+        }
+    }
+
+    /**
+     * Only allows the classes of values the db driver returns. A corrupt array length is rejected as well,
+     * as it could allocate more than the value was ever serialized from.
+     *
+     * @param info      of the next class or array in the stream
+     * @param maxLength length of the serialized value
+     * @return if the stream may continue
+     */
+    private static ObjectInputFilter.Status filter(ObjectInputFilter.FilterInfo info, int maxLength) {
+        if (info.arrayLength() > maxLength) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        Class<?> clazz = info.serialClass();
+        if (clazz == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        String name = clazz.getName();
+        return clazz.isPrimitive() || SERIALIZED_CLASSES.contains(name) || SERIALIZED_PREFIXES.stream().anyMatch(name::startsWith)
+            ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads an element count and checks that the snapshot can still contain that many elements
+     *
+     * @param in           snapshot
+     * @param elementBytes minimal size of one element
+     * @return element count
+     */
+    private static int count(MappedByteBuffer in, int elementBytes) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / elementBytes) {
+            throw new IllegalArgumentException("Corrupt snapshot, invalid count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the CSR offsets of the trees start at 0, never decrease and end at the element count
+     *
+     * @param offsets of the trees
+     * @param count   of elements
+     */
+    private static void checkOffsets(int[] offsets, int count) {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != count) {
+            throw new IllegalArgumentException("Corrupt snapshot, tree offsets don't cover all " + count + " elements");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("Corrupt snapshot, invalid tree offset " + offsets[i]);
+            }
+        }
+    }
+
+    private static String readString(MappedByteBuffer in) {
+        byte[] bytes = new byte[count(in, 1)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeArray(DataOutputStream out, long[] values) throws IOException {
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeArray(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static long[] readLongs(MappedByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(MappedByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+}
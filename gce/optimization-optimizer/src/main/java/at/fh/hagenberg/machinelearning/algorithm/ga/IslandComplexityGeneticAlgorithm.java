@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.machinelearning.algorithm.ga;
+
+import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationProblem;
+import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationSolution;
+import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestComplexity;
+import at.fh.hagenberg.machinelearning.core.Problem;
+import at.fh.hagenberg.machinelearning.core.Solution;
+import at.fh.hagenberg.machinelearning.core.options.Descriptor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Island model of the {@link ParallelComplexityGeneticAlgorithm}.
+ * Every test group is an island with its own genetic algorithm. The islands of a depth evolve concurrently, each evolving
+ * migrationInterval generations, after which each island sends its generationalElites to the next island (ring)
+ * where they replace the worst individuals.
+ * <p>
+ * All islands run the same program, so they share the context of the {@link at.fh.hagenberg.aist.gce.optimization.executor.MessageExecutor}
+ * and their evaluations are distributed over the same workers of the message broker.
+ * Islands that share the analytics of this algorithm log into one experiment per depth, as the analytics can only log one experiment at a time.
+ */
+public class IslandComplexityGeneticAlgorithm extends ParallelComplexityGeneticAlgorithm {
+
+    /**
+     * Generations between migrations. 0 or less means the islands never migrate (only evolve concurrently)
+     */
+    private int migrationInterval = 5;
+
+    /**
+     * Creates the algorithm of each island. Each island needs its own instance, as the algorithms keep their population.
+     * If not set the groups are evolved one after another as in {@link ParallelComplexityGeneticAlgorithm}
+     */
+    private Supplier<GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem>> islandFactory;
+
+    @Override
+    protected void evolveGroups(Problem<TruffleOptimizationProblem> problem, Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> bestSolution, Set<TruffleOptimizationTestComplexity>[] tests, List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>[] groupPopulations, int depth) {
+        if (islandFactory == null) {
+            super.evolveGroups(problem, bestSolution, tests, groupPopulations, depth);
+            return;
+        }
+
+        // the first depth logs into the experiment started by solve
+        if (depth > 0) {
+            initializeLog(problem);
+            this.analytics.logParam("Algorithm", "IslandComplexityGeneticAlgorithm");
+            this.analytics.logParam("Sequence", 0 + "");
+            this.analytics.logParam("Depth", depth + "");
+        }
+
+        // create islands and their problems once per depth
+        int count = tests.length;
+        List<GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem>> islands = new ArrayList<>();
+        List<Problem<TruffleOptimizationProblem>> problems = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Problem<TruffleOptimizationProblem> currentProblem = RepackagingHelper.createProblem(problem, tests[i]);
+            TruffleOptimizationProblem gene = currentProblem.getProblemGenes().get(0).getGene();
+            GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem> island = islandFactory.get();
+            island.bestSolution = RepackagingHelper.createSolution(gene, bestSolution.getSolutionGenes().get(0).getGene().getNode().deepCopy());
+            if (island.analytics != this.analytics) {
+                // islands with their own analytics log their own experiment
+                island.initializeLog(problem);
+                island.analytics.logParam("Algorithm", "IslandComplexityGeneticAlgorithm");
+                island.analytics.logParam("Sequence", i + "");
+                island.analytics.logParam("Depth", depth + "");
+            }
+            if (groupPopulations[i] != null) {
+                RepackagingHelper.addIndividuals(island, island.evaluator, groupPopulations[i].stream().map(x -> RepackagingHelper.createSolution(gene, x.getSolutionGenes().get(0).getGene().getNode().deepCopy())).collect(Collectors.toList()));
+            }
+            islands.add(island);
+            problems.add(currentProblem);
+        }
+
+        List<Callable<Boolean>> epochs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem> island = islands.get(i);
+            Problem<TruffleOptimizationProblem> islandProblem = problems.get(i);
+            epochs.add(() -> evolve(island, islandProblem));
+        }
+        evolveIslands(epochs, running -> {
+            List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> populations = new ArrayList<>();
+            islands.forEach(x -> populations.add(x.getPopulation()));
+            List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> immigrants = new ArrayList<>();
+            islands.forEach(x -> immigrants.add(new ArrayList<>()));
+            migrate(populations, running, getGenerationalElites(), (target, migrant) -> {
+                // the migrants are copied, so the islands never share nodes
+                TruffleOptimizationProblem gene = problems.get(target).getProblemGenes().get(0).getGene();
+                immigrants.get(target).add(RepackagingHelper.createSolution(gene, migrant.getSolutionGenes().get(0).getGene().getNode().deepCopy()));
+            });
+            for (int i = 0; i < count; i++) {
+                RepackagingHelper.addIndividuals(islands.get(i), islands.get(i).evaluator, immigrants.get(i));
+            }
+        });
+
+        for (int i = 0; i < count; i++) {
+            groupPopulations[i] = islands.get(i).getPopulation();
+            groupPopulations[i].sort(Comparator.comparingDouble(x -> x.getQuality()));
+        }
+    }
+
+    /**
+     * Evolves all islands concurrently until no island has generations left.
+     * After every epoch (all running islands evolved one migration interval) the islands migrate, while no island is evolving.
+     *
+     * @param epochs    evolves island i for one migration interval, and returns if the island has generations left
+     * @param migration exchanges the individuals between the islands, gets which islands have generations left.
+     *                  Only called if there are several islands and any of them is still running.
+     */
+    static void evolveIslands(List<Callable<Boolean>> epochs, Consumer<boolean[]> migration) {
+        int count = epochs.size();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, count));
+        try {
+            boolean[] running = new boolean[count];
+            Arrays.fill(running, true);
+            boolean anyRunning = count > 0;
+            while (anyRunning) {
+                // evolve all running islands until the next migration
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    futures.add(running[i] ? pool.submit(epochs.get(i)) : null);
+                }
+                anyRunning = false;
+                for (int i = 0; i < count; i++) {
+                    if (futures.get(i) != null) {
+                        running[i] = futures.get(i).get();
+                        anyRunning |= running[i];
+                    }
+                }
+
+                if (anyRunning && count > 1) {
+                    migration.accept(running);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Island evolution was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to evolve island", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Evolves an island for one migration interval
+     *
+     * @param island  to be evolved
+     * @param problem of the island
+     * @return true if the island has generations left
+     */
+    private boolean evolve(GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem> island, Problem<TruffleOptimizationProblem> problem) {
+        int generations = 0;
+        while (migrationInterval <= 0 || generations < migrationInterval) {
+            if (island.nextGeneration(problem) == null) {
+                return false;
+            }
+            generations++;
+        }
+        return true;
+    }
+
+    /**
+     * Sends the elites of every island to the next island that is still running (ring).
+     * The migrants replace the worst individuals of the target island, so the population sizes stay the same.
+     *
+     * @param populations live population of every island
+     * @param running     which islands have generations left
+     * @param elites      amount of individuals each island sends
+     * @param immigrate   adds a migrant to the population of the target island (index of the target island, migrant)
+     */
+    static void migrate(List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> populations, boolean[] running, int elites, BiConsumer<Integer, Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> immigrate) {
+        // collect all emigrants before anyone receives, so migrants don't travel further than one island
+        List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> emigrants = new ArrayList<>();
+        for (List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> population : populations) {
+            List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> sorted = new ArrayList<>(population);
+            sorted.sort(Comparator.comparingDouble(x -> x.getQuality()));
+            emigrants.add(sorted.subList(0, Math.min(elites, sorted.size())));
+        }
+
+        for (int i = 0; i < populations.size(); i++) {
+            int target = (i + 1) % populations.size();
+            if (!running[target]) {
+                continue;
+            }
+
+            // make room for the migrants
+            List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> population = populations.get(target);
+            population.sort(Comparator.comparingDouble(x -> x.getQuality()));
+            int replaced = Math.min(emigrants.get(i).size(), population.size());
+            population.subList(population.size() - replaced, population.size()).clear();
+            emigrants.get(i).subList(0, replaced).forEach(x -> immigrate.accept(target, x));
+        }
+    }
+
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    public void setMigrationInterval(int migrationInterval) {
+        this.migrationInterval = migrationInterval;
+    }
+
+    public Supplier<GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem>> getIslandFactory() {
+        return islandFactory;
+    }
+
+    public void setIslandFactory(Supplier<GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem>> islandFactory) {
+        this.islandFactory = islandFactory;
+    }
+
+    @Override
+    protected Map<String, Descriptor> getSpecificOptions() {
+        Map<String, Descriptor> options = super.getSpecificOptions();
+        options.put("migrationInterval", new Descriptor(this.migrationInterval));
+        return options;
+    }
+
+    @Override
+    protected boolean setSpecificOption(String name, Descriptor descriptor) {
+        if (name.equals("migrationInterval")) {
+            this.setMigrationInterval((Integer) descriptor.getValue());
+        } else {
+            return super.setSpecificOption(name, descriptor);
+        }
+        return true;
+    }
+}
@@ -19,6 +19,7 @@ import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestComplex
 import at.fh.hagenberg.util.Pair;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class ParallelComplexityGeneticAlgorithm extends GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem> {
 
@@ -113,33 +114,7 @@ public class ParallelComplexityGeneticAlgorithm extends GeneticAlgorithm<Truffle
 
         while (groups >= 1) {
             depth++;
-            for (int i = 0; i < tests.length; i++) {
-
-                // create problem
-                Problem<TruffleOptimizationProblem> currentProblem = RepackagingHelper.createProblem(problem, tests[i]);
-
-                // do a proper reset if needed
-                if (i > 0 || groupPopulations[i] != null) {
-                    Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> carrySolution = bestSolution;
-                    this.reset();
-                    this.bestSolution = RepackagingHelper.createSolution(currentProblem.getProblemGenes().get(0).getGene(), carrySolution.getSolutionGenes().get(0).getGene().getNode());
-                    initializeLog(problem);
-                    this.analytics.logParam("Algorithm", "ParallelComplexityGeneticAlgorithm");
-                    this.analytics.logParam("Sequence", i + "");
-                    this.analytics.logParam("Depth", depth + "");
-                }
-
-                // load in individuals if necessary
-                if (groupPopulations[i] != null) {
-                    groupPopulations[i].forEach(x -> this.addIndividual(RepackagingHelper.createSolution(currentProblem.getProblemGenes().get(0).getGene(), x.getSolutionGenes().get(0).getGene().getNode())));
-                }
-
-                // store created populations, and reset
-                while (this.nextGeneration(currentProblem) != null) {
-                }
-                groupPopulations[i] = this.getPopulation();
-                groupPopulations[i].sort(Comparator.comparingDouble(x -> x.getQuality()));
-            }
+            evolveGroups(problem, bestSolution, tests, groupPopulations, depth);
 
             groups = groups / combinationRate;
             if (groups > 0) {
@@ -172,6 +147,45 @@ public class ParallelComplexityGeneticAlgorithm extends GeneticAlgorithm<Truffle
         return bestSolution;
     }
 
+    /**
+     * Evolves the population of every test group (one after another). Afterwards groupPopulations contains the sorted final population of each group
+     *
+     * @param problem          original problem
+     * @param bestSolution     solution the groups are based on
+     * @param tests            tests of each group
+     * @param groupPopulations individuals each group starts with (null for none), replaced with the evolved populations
+     * @param depth            how often the groups have been combined already
+     */
+    protected void evolveGroups(Problem<TruffleOptimizationProblem> problem, Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> bestSolution, Set<TruffleOptimizationTestComplexity>[] tests, List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>[] groupPopulations, int depth) {
+        for (int i = 0; i < tests.length; i++) {
+
+            // create problem
+            Problem<TruffleOptimizationProblem> currentProblem = RepackagingHelper.createProblem(problem, tests[i]);
+
+            // do a proper reset if needed
+            if (i > 0 || groupPopulations[i] != null) {
+                Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> carrySolution = bestSolution;
+                this.reset();
+                this.bestSolution = RepackagingHelper.createSolution(currentProblem.getProblemGenes().get(0).getGene(), carrySolution.getSolutionGenes().get(0).getGene().getNode());
+                initializeLog(problem);
+                this.analytics.logParam("Algorithm", "ParallelComplexityGeneticAlgorithm");
+                this.analytics.logParam("Sequence", i + "");
+                this.analytics.logParam("Depth", depth + "");
+            }
+
+            // load in individuals if necessary
+            if (groupPopulations[i] != null) {
+                RepackagingHelper.addIndividuals(this, this.evaluator, groupPopulations[i].stream().map(x -> RepackagingHelper.createSolution(currentProblem.getProblemGenes().get(0).getGene(), x.getSolutionGenes().get(0).getGene().getNode())).collect(Collectors.toList()));
+            }
+
+            // store created populations, and reset
+            while (this.nextGeneration(currentProblem) != null) {
+            }
+            groupPopulations[i] = this.getPopulation();
+            groupPopulations[i].sort(Comparator.comparingDouble(x -> x.getQuality()));
+        }
+    }
+
     public int getStartingGroups() {
         return startingGroups;
     }
@@ -14,7 +14,9 @@ import at.fh.hagenberg.machinelearning.core.Problem;
 import at.fh.hagenberg.machinelearning.core.ProblemGene;
 import at.fh.hagenberg.machinelearning.core.Solution;
 import at.fh.hagenberg.machinelearning.core.SolutionGene;
+import at.fh.hagenberg.machinelearning.core.fitness.Evaluator;
 import com.oracle.truffle.api.nodes.Node;
+import at.fh.hagenberg.aist.gce.optimization.TruffleEvaluatorImpl;
 import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationProblem;
 import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationSolution;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestComplexity;
@@ -49,4 +51,23 @@ public class RepackagingHelper {
         s.addGene(sg);
         return s;
     }
+
+    /**
+     * Adds individuals (e.g. the elites carried over from another problem) to an algorithm.
+     * If the evaluator stores its evaluations the individuals are evaluated together beforehand, so the algorithm only looks them up.
+     * The offspring the algorithm creates itself are still evaluated one by one, as its generation loop is not part of this repository.
+     *
+     * @param algorithm   to receive the individuals
+     * @param evaluator   evaluator of the algorithm
+     * @param individuals to be added
+     */
+    public static void addIndividuals(GeneticAlgorithm<TruffleOptimizationSolution, TruffleOptimizationProblem> algorithm, Evaluator<TruffleOptimizationSolution, TruffleOptimizationProblem> evaluator, List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> individuals) {
+        if (evaluator instanceof TruffleEvaluatorImpl && !individuals.isEmpty()) {
+            TruffleEvaluatorImpl truffleEvaluator = (TruffleEvaluatorImpl) evaluator;
+            if (truffleEvaluator.getAnalyticsService() != null) {
+                truffleEvaluator.evaluatePopulation(new ArrayList<>(individuals));
+            }
+        }
+        individuals.forEach(algorithm::addIndividual);
+    }
 }
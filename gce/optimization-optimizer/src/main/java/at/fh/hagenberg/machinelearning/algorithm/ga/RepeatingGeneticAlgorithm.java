@@ -52,12 +52,12 @@ public class RepeatingGeneticAlgorithm extends GeneticAlgorithm<TruffleOptimizat
 
                 sequencePopulation.sort(Comparator.comparingDouble(x -> x.getQuality()));
                 Iterator<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> iterator = sequencePopulation.iterator();
-                int elites = 0;
-                while (iterator.hasNext() && elites < generationalElites) {
+                List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> elites = new ArrayList<>();
+                while (iterator.hasNext() && elites.size() < generationalElites) {
                     Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> next = iterator.next();
-                    this.addIndividual(RepackagingHelper.createSolution(gene, next.getSolutionGenes().get(0).getGene().getNode()));
-                    elites++;
+                    elites.add(RepackagingHelper.createSolution(gene, next.getSolutionGenes().get(0).getGene().getNode()));
                 }
+                RepackagingHelper.addIndividuals(this, this.evaluator, elites);
             }
 
             try {
@@ -104,11 +104,13 @@ public class SequentialComplexityGeneticAlgorithm extends GeneticAlgorithm<Truff
                 int i = 0;
                 sequencePopulation.sort(Comparator.comparingDouble(x -> x.getQuality()));
                 Iterator<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> iterator = sequencePopulation.iterator();
+                List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> elites = new ArrayList<>();
                 while (iterator.hasNext() && i < generationalElites) {
                     Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> next = iterator.next();
-                    this.addIndividual(RepackagingHelper.createSolution(problemSequence.getProblemGenes().get(0).getGene(), next.getSolutionGenes().get(0).getGene().getNode()));
+                    elites.add(RepackagingHelper.createSolution(problemSequence.getProblemGenes().get(0).getGene(), next.getSolutionGenes().get(0).getGene().getNode()));
                     i++;
                 }
+                RepackagingHelper.addIndividuals(this, this.evaluator, elites);
             }
 
             // go through the motions
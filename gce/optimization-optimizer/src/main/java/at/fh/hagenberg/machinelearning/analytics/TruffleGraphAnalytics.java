@@ -13,29 +13,37 @@ package at.fh.hagenberg.machinelearning.analytics;
 
 import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationProblem;
 import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationSolution;
+import at.fh.hagenberg.aist.gce.optimization.memo.EvaluationMemo;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTest;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestComplexity;
 import at.fh.hagenberg.aist.gce.optimization.test.TruffleTestValue;
+import at.fh.hagenberg.aist.gce.optimization.util.HashKey;
 import at.fh.hagenberg.aist.gce.optimization.util.JavaAssistUtil;
+import at.fh.hagenberg.aist.gce.optimization.util.Logger;
 import at.fh.hagenberg.aist.gce.optimization.util.NanoProfiler;
 import science.aist.neo4j.Neo4jRepository;
 import at.fh.hagenberg.machinelearning.analytics.graph.*;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OperationNode;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.PopulationRelationship;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.StepNode;
 import at.fh.hagenberg.machinelearning.core.Problem;
 import at.fh.hagenberg.machinelearning.core.ProblemGene;
 import at.fh.hagenberg.machinelearning.core.Solution;
+import at.fh.hagenberg.machinelearning.core.SolutionGene;
 import at.fh.hagenberg.util.Pair;
 import com.oracle.truffle.api.nodes.Node;
 import org.springframework.beans.factory.annotation.Required;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
  * Note: This class IS Threadsafe, but NOT safe when running multiple experiments in parallel (sequential is fine!).
  * If you run Experiments in parallel make sure each one has their own analytics instance!
+ * One experiment may optimize several problems at once (ex. the islands of the IslandComplexityGeneticAlgorithm),
+ * as the solutions are cached per problem.
  */
 public class TruffleGraphAnalytics extends GraphAnalytics {
 
@@ -76,7 +84,7 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
      * Caching strategy of loading all hashes from the DB on init.
      * Represents a Factor 20 SPEEDUP
      */
-    private Map<String, Long> treeCache;
+    private Map<HashKey, Long> treeCache;
 
     /**
      * Cache for Test Values (which are unique in DB)
@@ -85,9 +93,14 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
     private Map<String, Long> truffleTestValueCache;
 
     /**
-     * Cache for Solutions (depend on the problem being processed!)
+     * Cache for Solutions per problem hash (solutions depend on the problem being processed!)
      */
-    private Map<String, Long> solutionCache;
+    private Map<String, Map<HashKey, Long>> solutionCaches = new ConcurrentHashMap<>();
+
+    /**
+     * Hash of the problem that was logged last, used for solutions that don't reference their problem
+     */
+    private volatile String currentProblemHash;
 
     /**
      * Cache for Problems
@@ -100,10 +113,164 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
      */
     private Map<String, Long> optimizationTestCache;
 
+    /**
+     * Memo of evaluations that outlives this JVM (optional).
+     * If it is empty at {@link #init()} it is warmed up with all evaluations in the database.
+     */
+    private EvaluationMemo evaluationMemo;
+
+    /**
+     * Amount of lock stripes per cache. Only creations of entities whose hashes share a stripe wait on each other.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Maximum amount of pending write-behind tasks, callers block when it is reached
+     */
+    private static final int WRITE_BEHIND_QUEUE_SIZE = 1024;
+
+    /**
+     * Amount of evaluations collected before they are connected to the step in one batch
+     */
+    private static final int WRITE_BEHIND_BATCH_SIZE = 512;
+
+    // separate stripes per cache, so nested creations (solution -> tree, test -> value) can't deadlock
+    private final Object[] treeLocks = createLocks();
+    private final Object[] solutionLocks = createLocks();
+    private final Object[] testLocks = createLocks();
+    private final Object[] valueLocks = createLocks();
+
+    /**
+     * Background writer for all writes whose result nobody waits for. Runs the writes in order.
+     */
+    private final ThreadPoolExecutor writeBehind = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(WRITE_BEHIND_QUEUE_SIZE), r -> {
+        Thread thread = new Thread(r, "TruffleGraphAnalytics-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    }, (r, executor) -> {
+        try {
+            // back pressure instead of failing or running the write out of order
+            executor.getQueue().put(r);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    });
+
+    /**
+     * Failures of write-behind tasks since the last {@link #flush()}
+     */
+    private final Queue<Exception> writeBehindFailures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Guards {@link #pendingConnections} and {@link #pendingStep}
+     */
+    private final Object connectionLock = new Object();
+
+    /**
+     * Evaluations that still need to be connected to {@link #pendingStep}
+     */
+    private Map<Long, Pair<Solution, Long>> pendingConnections = new HashMap<>();
+
+    /**
+     * Step the pending evaluations belong to
+     */
+    private StepNode pendingStep;
+
 
     public TruffleGraphAnalytics() {
     }
 
+    private static Object[] createLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static Object lock(Object[] locks, Object hash) {
+        return locks[stripe(hash)];
+    }
+
+    private static int stripe(Object hash) {
+        return Math.floorMod(hash.hashCode(), LOCK_STRIPES);
+    }
+
+    /**
+     * Runs an action while holding several stripes. The stripes are taken in ascending order, so two callers can't deadlock.
+     *
+     * @param locks   stripes of the cache
+     * @param stripes sorted distinct indices of the stripes to hold
+     * @param from    first index in stripes that is not held yet
+     * @param action  to be run while all stripes are held
+     */
+    private static void withLocks(Object[] locks, int[] stripes, int from, Runnable action) {
+        if (from == stripes.length) {
+            action.run();
+            return;
+        }
+        synchronized (locks[stripes[from]]) {
+            withLocks(locks, stripes, from + 1, action);
+        }
+    }
+
+    /**
+     * Turns hashes loaded from the db into a cache keyed by {@link HashKey}
+     *
+     * @param hashes hash -> id
+     * @return concurrent cache of key -> id
+     */
+    private static Map<HashKey, Long> keyed(Map<String, Long> hashes) {
+        Map<HashKey, Long> cache = new ConcurrentHashMap<>(hashes.size());
+        hashes.forEach((hash, id) -> cache.put(HashKey.of(hash), id));
+        return cache;
+    }
+
+    /**
+     * Waits until all write-behind tasks were written to the database
+     *
+     * @throws RuntimeException if any write-behind task failed since the last flush (further failures are suppressed exceptions)
+     */
+    public void flush() {
+        synchronized (connectionLock) {
+            writePendingConnections();
+        }
+        try {
+            writeBehind.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            writeBehindFailures.add(e);
+        }
+
+        Exception failure = writeBehindFailures.poll();
+        if (failure != null) {
+            RuntimeException exception = new RuntimeException("Write-behind of analytics failed", failure);
+            Exception suppressed;
+            while ((suppressed = writeBehindFailures.poll()) != null) {
+                exception.addSuppressed(suppressed);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Runs a write in the background. Failures are collected and thrown by the next {@link #flush()}
+     *
+     * @param write to be run
+     */
+    private void submitWrite(Runnable write) {
+        writeBehind.execute(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                Logger.log(Logger.LogLevel.ERROR, "Write-behind of analytics failed " + e.getMessage());
+                writeBehindFailures.add(e);
+            }
+        });
+    }
+
     /**
      * Stores a new operation node in the database
      *
@@ -114,23 +281,22 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
         node.setInput(findTrees(node.getInput()));
         node.setOutput(findTrees(node.getOutput()));
 
+        // Connect operations to steps
+        boolean postfix = postfixStepLogging || currentStep == null;
+        if (!postfix) {
+            // log to step directly
+            node.setStep(currentStep);
+        }
+
         long start = profiler.start();
         node = operationRepository.save(node);
         profiler.profile("saveOperation.save", start);
 
-        // Connect operations to steps
-        if (postfixStepLogging) {
-            // delay because steps logged after operations
-            operations.add(node);
-        } else {
-            if (currentStep == null) {
-                // switch to postfix as operations are logged before step
-                postfixStepLogging = true;
+        if (postfix) {
+            // switch to postfix as operations are logged before step, and delay because steps logged after operations
+            postfixStepLogging = true;
+            synchronized (operations) {
                 operations.add(node);
-            } else {
-                // log to step directly
-                node.setStep(currentStep);
-                node = operationRepository.save(node);
             }
         }
 
@@ -145,30 +311,58 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
 
     private void connectSolutionToStep(Solution evaluation) {
         Long key = evaluation.getId();
-        if (postfixStepLogging) {
-            // store them for later connection
-            if (evaluations.containsKey(key)) {
-                evaluations.put(key, new Pair<>(evaluation, 1 + evaluations.get(key).getValue()));
-            } else {
-                evaluations.put(key, new Pair<>(evaluation, 1L));
+        if (postfixStepLogging || currentStep == null) {
+            // switch to postfix as operations are logged before step, and store them for later connection
+            postfixStepLogging = true;
+            synchronized (evaluations) {
+                evaluations.merge(key, new Pair<>(evaluation, 1L), (a, b) -> new Pair<>(a.getKey(), a.getValue() + 1));
             }
         } else {
-            if (currentStep == null) {
-                // switch to postfix as operations are logged before step
-                postfixStepLogging = true;
-                evaluations.put(key, new Pair<>(evaluation, 1L)); // definitely no evaluations present, as this can only happen on the first eval
-            } else {
-                PopulationRelationship relationship = populationRelationshipRepository.findByStepAndSolution(currentStep.getId(), evaluation.getId());
-                if (relationship != null) {
-                    relationship.setCount(relationship.getCount() + 1);
-                } else {
-                    relationship = new PopulationRelationship(1L, currentStep, evaluation);
+            // connected in batches by the write-behind
+            synchronized (connectionLock) {
+                if (pendingStep != currentStep) {
+                    writePendingConnections();
+                    pendingStep = currentStep;
+                }
+                pendingConnections.merge(key, new Pair<>(evaluation, 1L), (a, b) -> new Pair<>(a.getKey(), a.getValue() + 1));
+                if (pendingConnections.size() >= WRITE_BEHIND_BATCH_SIZE) {
+                    writePendingConnections();
                 }
-                populationRelationshipRepository.save(relationship);
             }
         }
     }
 
+    /**
+     * Hands the pending evaluations to the write-behind. Caller must hold the {@link #connectionLock}
+     */
+    private void writePendingConnections() {
+        if (pendingConnections.isEmpty()) {
+            return;
+        }
+        StepNode step = pendingStep;
+        Map<Long, Pair<Solution, Long>> connections = pendingConnections;
+        pendingConnections = new HashMap<>();
+        submitWrite(() -> writeConnections(step, connections));
+    }
+
+    /**
+     * Connects evaluations to a step: existing relationships are updated with one UNWIND query, new ones saved with one saveAll
+     *
+     * @param step        the evaluations happened in
+     * @param connections evaluated solutions (by id) and how often they were evaluated
+     */
+    private void writeConnections(StepNode step, Map<Long, Pair<Solution, Long>> connections) {
+        long start = profiler.start();
+        Map<Long, Long> counts = new HashMap<>();
+        connections.forEach((id, pair) -> counts.put(id, pair.getValue()));
+        Set<Long> updated = populationRelationshipRepository.incrementCounts(step.getId(), counts);
+        populationRelationshipRepository.saveAll(connections.entrySet().stream()
+            .filter(x -> !updated.contains(x.getKey()))
+            .map(x -> new PopulationRelationship(x.getValue().getValue(), step, x.getValue().getKey()))
+            .collect(Collectors.toList()));
+        profiler.profile("writeConnections", start);
+    }
+
 
     // is true if the algorithm used logs it's executed steps AFTER the executed
     private boolean postfixStepLogging = false;
@@ -182,24 +376,31 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
     public void logAlgorithmStep(List<String> values) {
         long start = profiler.start();
         super.logAlgorithmStep(values);
-        start = profiler.profile("logAlgorithmStep.super", start);
+        profiler.profile("logAlgorithmStep.super", start);
+        StepNode step = currentStep;
 
-        // TODO check if we can improve via a saveall
         // connect with operations
-        operations.forEach(x -> {
-            x.setStep(currentStep);
-            operationRepository.save(x);
-        });
-        operations.clear();
-        start = profiler.profile("logAlgorithmStep.operations", start);
+        List<OperationNode> stepOperations;
+        synchronized (operations) {
+            stepOperations = new ArrayList<>(operations);
+            operations.clear();
+        }
+        stepOperations.forEach(x -> x.setStep(step));
 
         // connect with solutions
-        populationRelationshipRepository.saveAll(evaluations.keySet().stream().map(x -> {
-            Pair<Solution, Long> pair = evaluations.get(x);
-            return new PopulationRelationship(pair.getValue(), currentStep, pair.getKey());
-        }).collect(Collectors.toList()));
-        evaluations.clear();
-        profiler.profile("logAlgorithmStep.solutions", start);
+        List<PopulationRelationship> relationships;
+        synchronized (evaluations) {
+            relationships = evaluations.values().stream().map(x -> new PopulationRelationship(x.getValue(), step, x.getKey())).collect(Collectors.toList());
+            evaluations.clear();
+        }
+
+        submitWrite(() -> {
+            long writeStart = profiler.start();
+            operationRepository.saveAll(stepOperations);
+            writeStart = profiler.profile("logAlgorithmStep.operations", writeStart);
+            populationRelationshipRepository.saveAll(relationships);
+            profiler.profile("logAlgorithmStep.solutions", writeStart);
+        });
     }
 
     /**
@@ -211,7 +412,17 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
      */
     public Solution findSolution(Node node, ProblemGene<TruffleOptimizationProblem> gene) {
         NodeWrapper tree = findTree(NodeWrapper.wrap(node));
-        if (solutionCache.containsKey(tree.getHash())) {
+        Long memoId = findMemoizedId(tree.getHash(), gene.getGene());
+        if (memoId != null) {
+            long start = profiler.start();
+            Solution solution = solutionRepository.findById(memoId);
+            profiler.profile("findSolution.memo", start);
+            if (solution != null) {
+                connectSolutionToStep(solution);
+                return solution;
+            }
+        }
+        if (solutionCache(gene.getGene()).containsKey(tree.getHashKey())) {
             long start = profiler.start();
             // WARNING: As we use a custom cypher in the first "findBy" the children aren't loaded. We re-load by Id as this also finds all direct relationships
             Solution solution = ((TruffleSolutionRepository) solutionRepository).findSolutionNodeByTreeHash(tree.getHash(), gene.getGene().getHash());
@@ -225,6 +436,129 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
         return null;
     }
 
+    /**
+     * Finds the solutions for a whole population. Works like {@link #findSolution(Node, ProblemGene)}, but each evaluated
+     * tree is only loaded once, and trees that were never evaluated don't cause a database query at all.
+     * Every found solution is also logged as an evaluation (no need to call logEvaluations)
+     *
+     * @param nodes Trees that the solutions solve (may contain duplicates)
+     * @param gene  Problem gene the solutions are responsible for
+     * @return Solutions in the same order as the trees, null if the tree was never evaluated
+     */
+    public List<Solution> findSolutions(List<Node> nodes, ProblemGene<TruffleOptimizationProblem> gene) {
+        long start = profiler.start();
+        List<Solution> solutions = new ArrayList<>(nodes.size());
+        Map<Long, Solution> loaded = new HashMap<>();
+        Map<HashKey, Long> solutionCache = solutionCache(gene.getGene());
+        nodes.forEach(node -> {
+            NodeWrapper tree = NodeWrapper.wrap(node);
+            Long id = solutionCache.containsKey(tree.getHashKey()) ? solutionCache.get(tree.getHashKey()) : findMemoizedId(tree.getHash(), gene.getGene());
+            // the solution cache is loaded per problem gene, so the id is already the solution for this gene
+            solutions.add(id != null ? loaded.computeIfAbsent(id, x -> solutionRepository.findById(x)) : null);
+        });
+        profiler.profile("findSolutions.findById", start);
+        connectSolutionsToStep(solutions.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        return solutions;
+    }
+
+    /**
+     * Logs the evaluations of a whole population.
+     * All new solutions are stored with a single save, solutions for the same tree are only stored once.
+     *
+     * @param solutions to be logged (may contain several solutions for the same tree)
+     */
+    public void logEvaluations(List<Solution> solutions) {
+        long start = profiler.start();
+        // trees are found before any solution stripe is taken, just like in storeSolutionNode
+        List<NodeWrapper> trees = new ArrayList<>(solutions.size());
+        solutions.forEach(solution -> {
+            if (!(solution.getSolutionGenes().size() == 1 && ((SolutionGene) solution.getSolutionGenes().get(0)).getGene() instanceof TruffleOptimizationSolution)) {
+                throw new RuntimeException("Multi tree optimizations not yet supported");
+            }
+            trees.add(findTree(((TruffleOptimizationSolution) ((SolutionGene) solution.getSolutionGenes().get(0)).getGene()).getTree()));
+        });
+        profiler.profile("logEvaluations.findTrees", start);
+
+        // the same stripes as storeSolutionNode, so no solution is created twice
+        int[] stripes = trees.stream().mapToInt(x -> stripe(x.getHashKey())).distinct().sorted().toArray();
+        withLocks(solutionLocks, stripes, 0, () -> {
+            long lockedStart = profiler.start();
+            // new solutions per solution cache (problem), so equal trees of different problems are different solutions
+            Map<Map<HashKey, Long>, Map<HashKey, Solution>> created = new IdentityHashMap<>();
+            // duplicate -> solution that is created for the same tree
+            List<Pair<Solution, Solution>> duplicates = new ArrayList<>();
+            for (int i = 0; i < solutions.size(); i++) {
+                Solution solution = solutions.get(i);
+                TruffleOptimizationSolution solutionGene = (TruffleOptimizationSolution) ((SolutionGene) solution.getSolutionGenes().get(0)).getGene();
+                NodeWrapper tree = trees.get(i);
+                Map<HashKey, Long> solutionCache = solutionCache(solutionGene.getProblem());
+                Map<HashKey, Solution> createdForProblem = created.computeIfAbsent(solutionCache, x -> new LinkedHashMap<>());
+
+                if (solutionCache.containsKey(tree.getHashKey())) {
+                    JavaAssistUtil.safeFieldWrite("id", solution, solutionCache.get(tree.getHashKey()));
+                } else if (createdForProblem.containsKey(tree.getHashKey())) {
+                    duplicates.add(new Pair<>(solution, createdForProblem.get(tree.getHashKey())));
+                } else {
+                    solutionGene.setTree(tree);
+                    solutionGene.getTestResults().forEach(x -> x.setOutput(findOrCreateTruffleTestValue(x.getOutput())));
+                    createdForProblem.put(tree.getHashKey(), solution);
+                }
+            }
+            lockedStart = profiler.profile("logEvaluations.connect", lockedStart);
+
+            List<Solution> toSave = created.values().stream().flatMap(x -> x.values().stream()).collect(Collectors.toList());
+            if (!toSave.isEmpty()) {
+                this.solutionRepository.saveAll(toSave);
+                created.forEach((solutionCache, createdForProblem) -> createdForProblem.forEach((key, solution) -> {
+                    TruffleOptimizationSolution solutionGene = (TruffleOptimizationSolution) ((SolutionGene) solution.getSolutionGenes().get(0)).getGene();
+                    solutionCache.put(key, solution.getId());
+                    memoize(solutionGene.getTree().getHash(), solution, solutionGene);
+                }));
+            }
+            duplicates.forEach(x -> JavaAssistUtil.safeFieldWrite("id", x.getKey(), x.getValue().getId()));
+            profiler.profile("logEvaluations.save", lockedStart);
+        });
+        connectSolutionsToStep(solutions);
+    }
+
+    /**
+     * Batch version of {@link #connectSolutionToStep(Solution)}
+     *
+     * @param solutions that were evaluated in the current step
+     */
+    private void connectSolutionsToStep(List<Solution> solutions) {
+        // only collected in memory, the write-behind connects them to the step in batches
+        solutions.forEach(this::connectSolutionToStep);
+    }
+
+    /**
+     * Finds the id of a solution in the evaluation memo
+     *
+     * @param treeHash hash of the tree
+     * @param problem  the tree was evaluated for
+     * @return id of the solution, or null if it is unknown (or was never stored in the db)
+     */
+    private Long findMemoizedId(String treeHash, TruffleOptimizationProblem problem) {
+        if (evaluationMemo == null) {
+            return null;
+        }
+        EvaluationMemo.Evaluation evaluation = evaluationMemo.get(treeHash, problem.getHash());
+        return evaluation == null || evaluation.getSolutionId() == EvaluationMemo.NO_ID ? null : evaluation.getSolutionId();
+    }
+
+    /**
+     * Remembers a stored solution in the evaluation memo
+     *
+     * @param treeHash     hash of the tree
+     * @param solution     that was stored
+     * @param solutionGene of the solution
+     */
+    private void memoize(String treeHash, Solution solution, TruffleOptimizationSolution solutionGene) {
+        if (evaluationMemo != null && solutionGene.getProblem() != null) {
+            evaluationMemo.put(treeHash, solutionGene.getProblem().getHash(), solution.getId(), solution.getQuality());
+        }
+    }
+
     private <GT, PT> Solution storeSolutionNode(Solution<GT, PT> solution) {
         if (!(solution.getSolutionGenes().size() == 1 && solution.getSolutionGenes().get(0).getGene() instanceof TruffleOptimizationSolution)) {
             throw new RuntimeException("Multi tree optimizations not yet supported");
@@ -232,13 +566,13 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
         }
 
 
-        synchronized (this) {
-            TruffleOptimizationSolution solutionGene = (TruffleOptimizationSolution) solution.getSolutionGenes().get(0).getGene();
-            NodeWrapper tree = findTree(solutionGene.getTree());
-
-            if (solutionCache.containsKey(tree.getHash())) {
+        TruffleOptimizationSolution solutionGene = (TruffleOptimizationSolution) solution.getSolutionGenes().get(0).getGene();
+        NodeWrapper tree = findTree(solutionGene.getTree());
+        Map<HashKey, Long> solutionCache = solutionCache(solutionGene.getProblem());
+        synchronized (lock(solutionLocks, tree.getHashKey())) {
+            if (solutionCache.containsKey(tree.getHashKey())) {
                 // load from cache and inject ID
-                JavaAssistUtil.safeFieldWrite("id", solution, solutionCache.get(tree.getHash()));
+                JavaAssistUtil.safeFieldWrite("id", solution, solutionCache.get(tree.getHashKey()));
                 return solution;
             }
             long start = profiler.start();
@@ -248,13 +582,25 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
             solutionGene.getTestResults().forEach(x -> x.setOutput(findOrCreateTruffleTestValue(x.getOutput())));
             profiler.profile("storeSolutionNode.connect", start);
             Solution<GT, PT> savedSolution = this.solutionRepository.save(solution);
-            solutionCache.put(tree.getHash(), solution.getId());
+            solutionCache.put(tree.getHashKey(), solution.getId());
+            memoize(tree.getHash(), solution, solutionGene);
 
             profiler.profile("storeSolutionNode.save", start);
             return savedSolution;
         }
     }
 
+    /**
+     * Returns the solution cache of a problem, and loads it from the db if the problem was never logged
+     *
+     * @param problem the solutions belong to, null for the problem that was logged last
+     * @return cache of tree -> solution id for the problem
+     */
+    private Map<HashKey, Long> solutionCache(TruffleOptimizationProblem problem) {
+        String hash = problem != null ? problem.getHash() : currentProblemHash;
+        return solutionCaches.computeIfAbsent(hash, x -> keyed(((TruffleSolutionRepository) solutionRepository).findExistingHashes(x)));
+    }
+
     private TruffleOptimizationTestComplexity findOrCreateTruffleOptimizationTestComplexity(TruffleOptimizationTestComplexity complexity) {
         complexity.setTest(findOrCreateTruffleOptimizationTest(complexity.getTest()));
         return complexity;
@@ -273,12 +619,17 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
             return test;
         }
 
-        synchronized (this) {
+        synchronized (lock(testLocks, test.getHash())) {
             Set<TruffleTestValue> inValues = test.getInput().stream().map(this::findOrCreateTruffleTestValue).collect(Collectors.toSet());
             test.getInput().clear();
             test.getInput().addAll(inValues);
 
             test.setOutput(findOrCreateTruffleTestValue(test.getOutput()));
+            if (optimizationTestCache.containsKey(test.getHash())) {
+                // created by another thread while we were waiting
+                test.setId(optimizationTestCache.get(test.getHash()));
+                return test;
+            }
             test = truffleTestCaseRepository.save(test);
             optimizationTestCache.put(test.getHash(), test.getId());
         }
@@ -294,7 +645,12 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
             return value;
         }
 
-        synchronized (this) {
+        synchronized (lock(valueLocks, value.getHash())) {
+            if (truffleTestValueCache.containsKey(value.getHash())) {
+                // created by another thread while we were waiting
+                value.setId(truffleTestValueCache.get(value.getHash()));
+                return value;
+            }
             value = truffleTestValueRepository.save(value);
             truffleTestValueCache.put(value.getHash(), value.getId());
         }
@@ -325,18 +681,23 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
      * @return synced NodeWrapper
      */
     private NodeWrapper findTree(NodeWrapper hashedTree) {
-        if (treeCache.containsKey(hashedTree.getHash())) {
-            hashedTree.setId(treeCache.get(hashedTree.getHash()));
+        if (treeCache.containsKey(hashedTree.getHashKey())) {
+            hashedTree.setId(treeCache.get(hashedTree.getHashKey()));
             return hashedTree;
         }
 
         NodeWrapper node = null;
-        synchronized (this) {
+        synchronized (lock(treeLocks, hashedTree.getHashKey())) {
             // TODO #41 This strategy allows race conditions if MULTIPLE clients access the same DB, however it is factor 20 speedup
+            if (treeCache.containsKey(hashedTree.getHashKey())) {
+                // created by another thread while we were waiting
+                hashedTree.setId(treeCache.get(hashedTree.getHashKey()));
+                return hashedTree;
+            }
             long start = profiler.start();
             node = nodeRepository.save(hashedTree);
             profiler.profile("findTree.save", start);
-            treeCache.put(node.getHash(), node.getId());
+            treeCache.put(node.getHashKey(), node.getId());
         }
         return node;
     }
@@ -355,7 +716,8 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
 
         TruffleOptimizationProblem problem = (TruffleOptimizationProblem) gene;
         // init the solution cache which are dependent on the problem
-        solutionCache = ((TruffleSolutionRepository) solutionRepository).findExistingHashes(problem.getHash());
+        solutionCaches.put(problem.getHash(), keyed(((TruffleSolutionRepository) solutionRepository).findExistingHashes(problem.getHash())));
+        currentProblemHash = problem.getHash();
 
         // problem has too many transient fields, just set the ID
         if (problemCache.containsKey(problem.getHash())) {
@@ -423,6 +785,14 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
         this.truffleProblemGeneRepository = truffleProblemGeneRepository;
     }
 
+    public EvaluationMemo getEvaluationMemo() {
+        return evaluationMemo;
+    }
+
+    public void setEvaluationMemo(EvaluationMemo evaluationMemo) {
+        this.evaluationMemo = evaluationMemo;
+    }
+
     @Override
     public void startAnalytics() {
         super.startAnalytics();
@@ -437,24 +807,35 @@ public class TruffleGraphAnalytics extends GraphAnalytics {
         }
         initialized = true;
         if (treeCache == null) {
-            treeCache = nodeRepository.findExistingHashes();
+            treeCache = keyed(nodeRepository.findExistingHashes());
         }
         if (truffleTestValueCache == null) {
-            truffleTestValueCache = truffleTestValueRepository.findExistingHashes();
+            truffleTestValueCache = new ConcurrentHashMap<>(truffleTestValueRepository.findExistingHashes());
         }
         if (problemCache == null) {
-            problemCache = truffleProblemGeneRepository.findExistingHashes();
+            problemCache = new ConcurrentHashMap<>(truffleProblemGeneRepository.findExistingHashes());
         }
         if (optimizationTestCache == null) {
-            optimizationTestCache = truffleTestCaseRepository.findExistingHashes();
+            optimizationTestCache = new ConcurrentHashMap<>(truffleTestCaseRepository.findExistingHashes());
+        }
+        if (evaluationMemo != null && evaluationMemo.size() == 0) {
+            long start = profiler.start();
+            long count = ((TruffleSolutionRepository) solutionRepository).warmUp(evaluationMemo);
+            profiler.profile("init.warmUp", start);
+            Logger.log(Logger.LogLevel.INFO, "Warmed up evaluation memo with " + count + " evaluations");
         }
     }
 
     @Override
     public void finishAnalytics() {
-        super.finishAnalytics();
-        System.out.println("CLOSING STATEMENT OF OUR PROFILER: ");
-        profiler.report();
-        profiler.reset();
+        try {
+            // all write-behind tasks must be in the db before the experiment is closed
+            flush();
+        } finally {
+            super.finishAnalytics();
+            System.out.println("CLOSING STATEMENT OF OUR PROFILER: ");
+            profiler.report();
+            profiler.reset();
+        }
     }
 }
@@ -15,8 +15,12 @@ import science.aist.neo4j.reflective.ReflectiveNeo4JRelationshipRepositoryImpl;
 import science.aist.neo4j.transaction.TransactionManager;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.PopulationRelationship;
 import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Result;
 import org.neo4j.driver.Values;
 
+import java.util.*;
+import java.util.stream.Collectors;
+
 public class PopulationRelationshipRepository extends ReflectiveNeo4JRelationshipRepositoryImpl<PopulationRelationship> {
 
     public PopulationRelationshipRepository(TransactionManager manager) throws NoSuchMethodException, ClassNotFoundException {
@@ -28,4 +32,30 @@ public class PopulationRelationshipRepository extends ReflectiveNeo4JRelationshi
             Values.parameters("stepId", stepId, "solutionId", solutionId), AccessMode.READ);
     }
 
+    /**
+     * Increases the counts of existing relationships between a step and solutions in a single UNWIND query
+     *
+     * @param stepId step the solutions were evaluated in
+     * @param counts how often each solution (by id) was evaluated
+     * @return ids of the solutions that already had a relationship to the step (the others still need to be created)
+     */
+    public Set<Long> incrementCounts(Long stepId, Map<Long, Long> counts) {
+        List<Map<String, Object>> rows = counts.entrySet().stream().map(x -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("solutionId", x.getKey());
+            row.put("count", x.getValue());
+            return row;
+        }).collect(Collectors.toList());
+
+        return this.getTransactionManager().execute((transaction) -> {
+            Result result = transaction.run("UNWIND $rows AS row MATCH (s)-[r:POPULATION]->(t) WHERE id(s) = $stepId and id(t) = row.solutionId " +
+                "SET r.count = r.count + row.count RETURN id(t)", Values.parameters("stepId", stepId, "rows", rows));
+            Set<Long> updated = new HashSet<>();
+            while (result.hasNext()) {
+                updated.add(result.next().get(0).asLong());
+            }
+            return updated;
+        }, AccessMode.WRITE);
+    }
+
 }
@@ -11,6 +11,7 @@
 package at.fh.hagenberg.machinelearning.analytics.graph;
 
 
+import at.fh.hagenberg.aist.gce.optimization.memo.EvaluationMemo;
 import science.aist.neo4j.reflective.ReflectiveNeo4JNodeRepositoryImpl;
 import science.aist.neo4j.transaction.TransactionManager;
 import at.fh.hagenberg.machinelearning.core.Solution;
@@ -59,4 +60,23 @@ public class TruffleSolutionRepository extends ReflectiveNeo4JNodeRepositoryImpl
             }
         }, AccessMode.READ);
     }
+
+    /**
+     * Loads every evaluation (tree hash, problem hash, solution id, quality) in the database into a memo
+     *
+     * @param memo to be filled
+     * @return amount of evaluations loaded
+     */
+    public long warmUp(EvaluationMemo memo) {
+        return this.getTransactionManager().execute((transaction) -> {
+            Result result = transaction.run("match (s:Solution)-[]->(sg:SolutionGene)-[]->(:TruffleOptimizationSolution)-[:TREE]->(t), (sg)-[:SOLVES]->()-[:RWGENE]->(p:TruffleOptimizationProblem) return t.hash, p.hash, id(s), s.quality");
+            long count = 0;
+            while (result.hasNext()) {
+                Record val = result.next();
+                memo.put(val.get(0).asString(), val.get(1).asString(), val.get(2).asLong(), val.get(3).isNull() ? Double.MAX_VALUE : val.get(3).asDouble());
+                count++;
+            }
+            return count;
+        }, AccessMode.READ);
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.memo;
+
+import at.fh.hagenberg.aist.gce.optimization.util.HashUtil;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class MappedEvaluationMemoTest {
+
+    private File location;
+
+    /**
+     * The memo is keyed by tree and problem hashes
+     */
+    private static String hash(String value) {
+        return HashUtil.hashAndEncode(value.getBytes());
+    }
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        location = new File(Files.createTempDirectory("memo").toFile(), "evaluations.memo");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        MappedEvaluationMemo.getMemo(location.getPath()).close();
+        location.delete();
+        location.getParentFile().delete();
+    }
+
+    @Test
+    public void testPutGet() {
+        // given
+        MappedEvaluationMemo memo = MappedEvaluationMemo.getMemo(location.getPath());
+
+        // when
+        memo.put(hash("tree"), hash("problem"), 42, 1.5);
+        memo.put(hash("tree"), hash("problem"), 43, 2.5);
+
+        // then
+        Assert.assertEquals(memo.size(), 1);
+        Assert.assertEquals(memo.get(hash("tree"), hash("problem")).getSolutionId(), 43);
+        Assert.assertEquals(memo.get(hash("tree"), hash("problem")).getQuality(), 2.5);
+        Assert.assertNull(memo.get(hash("tree"), hash("otherProblem")));
+        Assert.assertNull(memo.get(hash("otherTree"), hash("problem")));
+    }
+
+    @Test
+    public void testSameInstancePerLocation() {
+        // when
+        MappedEvaluationMemo memo = MappedEvaluationMemo.getMemo(location.getPath());
+
+        // then
+        Assert.assertSame(MappedEvaluationMemo.getMemo(location.getAbsolutePath()), memo);
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        // given
+        MappedEvaluationMemo memo = MappedEvaluationMemo.getMemo(location.getPath());
+        memo.put(hash("tree"), hash("problem"), 42, 1.5);
+        memo.put(hash("tree2"), hash("problem"), EvaluationMemo.NO_ID, 0.5);
+        memo.close();
+
+        // when
+        MappedEvaluationMemo reopened = MappedEvaluationMemo.getMemo(location.getPath());
+
+        // then
+        Assert.assertNotSame(reopened, memo);
+        Assert.assertEquals(reopened.size(), 2);
+        Assert.assertEquals(reopened.get(hash("tree"), hash("problem")).getSolutionId(), 42);
+        Assert.assertEquals(reopened.get(hash("tree2"), hash("problem")).getSolutionId(), EvaluationMemo.NO_ID);
+        Assert.assertEquals(reopened.get(hash("tree2"), hash("problem")).getQuality(), 0.5);
+    }
+
+    @Test
+    public void testGrow() throws IOException {
+        // given
+        MappedEvaluationMemo memo = MappedEvaluationMemo.getMemo(location.getPath());
+        long initialLength = location.length();
+        int count = 100000;
+
+        // when
+        for (int i = 0; i < count; i++) {
+            memo.put(hash("tree" + i), hash("problem"), i, i / 2.0);
+        }
+
+        // then
+        Assert.assertTrue(location.length() > initialLength);
+        Assert.assertFalse(new File(location.getPath() + ".grow").exists());
+        Assert.assertEquals(memo.size(), count);
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(memo.get(hash("tree" + i), hash("problem")).getSolutionId(), i);
+        }
+
+        // the grown table must also be the one that is persisted
+        memo.close();
+        MappedEvaluationMemo reopened = MappedEvaluationMemo.getMemo(location.getPath());
+        Assert.assertEquals(reopened.size(), count);
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(reopened.get(hash("tree" + i), hash("problem")).getQuality(), i / 2.0);
+        }
+    }
+}
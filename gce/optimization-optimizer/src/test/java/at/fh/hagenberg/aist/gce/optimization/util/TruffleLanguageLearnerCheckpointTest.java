@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.util;
+
+import at.fh.hagenberg.aist.gce.minic.language.MinicLanguage;
+import at.fh.hagenberg.aist.gce.optimization.runtime.SystemInformation;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+
+public class TruffleLanguageLearnerCheckpointTest {
+
+    private TruffleLanguageInformation information;
+
+    private TruffleClassInformation first;
+
+    private TruffleClassInformation second;
+
+    private File location;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        information = TruffleLanguageInformation.getLanguageInformationMinimal(MinicLanguage.ID);
+        // nodes that have nothing learned yet, as the checkpoint never overrides learned values
+        Iterator<TruffleClassInformation> iterator = information.getInstantiableNodes().values().stream()
+            .filter(x -> x.getArgumentReadClasses().isEmpty() && x.getWritePairings().isEmpty()).iterator();
+        first = iterator.next();
+        second = iterator.next();
+        location = new File(Files.createTempDirectory("checkpoint").toFile(), "learner.checkpoint");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        // the language information is shared, so the learned values must not stay behind
+        first.getWeight().remove(SystemInformation.getCurrentSystem());
+        first.getWeightUnoptimized().remove(SystemInformation.getCurrentSystem());
+        first.getArgumentReadClasses().remove("int");
+        second.getWritePairings().remove(first);
+        location.delete();
+        location.getParentFile().delete();
+    }
+
+    @Test
+    public void testResumePhases() {
+        // given
+        TruffleLanguageLearnerCheckpoint checkpoint = new TruffleLanguageLearnerCheckpoint(location.getPath());
+        checkpoint.done(TruffleLanguageLearnerCheckpoint.PHASE_ARGUMENT_TYPES);
+
+        // when
+        TruffleLanguageLearnerCheckpoint resumed = new TruffleLanguageLearnerCheckpoint(location.getPath());
+
+        // then
+        Assert.assertTrue(resumed.isDone(TruffleLanguageLearnerCheckpoint.PHASE_ARGUMENT_TYPES));
+        Assert.assertFalse(resumed.isDone(TruffleLanguageLearnerCheckpoint.PHASE_WRITE_READ_PAIRS));
+        Assert.assertFalse(resumed.isDone(TruffleLanguageLearnerCheckpoint.PHASE_WEIGHT));
+    }
+
+    @Test
+    public void testRestoreWeights() {
+        // given
+        first.setSystemWeight(12.5);
+        first.setSystemWeightUnoptimized(-3.0);
+        new TruffleLanguageLearnerCheckpoint(location.getPath()).weight(first);
+        first.getWeight().remove(SystemInformation.getCurrentSystem());
+        first.getWeightUnoptimized().remove(SystemInformation.getCurrentSystem());
+
+        // when
+        new TruffleLanguageLearnerCheckpoint(location.getPath()).restoreWeights(information);
+
+        // then
+        Assert.assertEquals(first.getSystemWeight(), 12.5);
+        Assert.assertEquals(first.getSystemWeightUnoptimized(), -3.0);
+    }
+
+    @Test
+    public void testRestoreBasics() {
+        // given
+        TruffleLanguageLearnerCheckpoint checkpoint = new TruffleLanguageLearnerCheckpoint(location.getPath());
+        first.getArgumentReadClasses().add("int");
+        second.getWritePairings().add(first);
+        checkpoint.argumentTypes(first);
+        checkpoint.writePairings(Collections.singletonList(second));
+        first.getArgumentReadClasses().remove("int");
+        second.getWritePairings().remove(first);
+
+        // when
+        new TruffleLanguageLearnerCheckpoint(location.getPath()).restoreBasics(information);
+
+        // then
+        Assert.assertTrue(first.getArgumentReadClasses().contains("int"));
+        Assert.assertTrue(second.getWritePairings().contains(first));
+    }
+
+    @Test
+    public void testDelete() {
+        // given
+        TruffleLanguageLearnerCheckpoint checkpoint = new TruffleLanguageLearnerCheckpoint(location.getPath());
+        checkpoint.done(TruffleLanguageLearnerCheckpoint.PHASE_WEIGHT);
+
+        // when
+        checkpoint.delete();
+
+        // then
+        Assert.assertFalse(location.exists());
+        Assert.assertFalse(new TruffleLanguageLearnerCheckpoint(location.getPath()).isDone(TruffleLanguageLearnerCheckpoint.PHASE_WEIGHT));
+    }
+}
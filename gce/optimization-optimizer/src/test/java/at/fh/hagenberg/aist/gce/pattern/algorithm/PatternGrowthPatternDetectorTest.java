@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.pattern.algorithm;
+
+import at.fh.hagenberg.aist.gce.pattern.TrufflePatternProblem;
+import at.fh.hagenberg.aist.gce.pattern.algorithm.metric.MaxSupportPerGroupMetric;
+import at.fh.hagenberg.aist.gce.pattern.algorithm.metric.PatternSizeMetric;
+import at.fh.hagenberg.aist.gce.pattern.encoding.TracableBitwisePattern;
+import at.fh.hagenberg.aist.gce.pattern.selection.TrufflePatternSearchSpace;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Ensures that growing the patterns of a level in parallel, or depth first once the heap budget is exceeded,
+ * finds exactly the patterns the sequential level by level growth finds.
+ */
+public class PatternGrowthPatternDetectorTest {
+
+    private static final String[] TYPES = {"Block", "If", "Assign", "Var", "Const", "Add"};
+
+    private static final int MAX_PATTERN_SIZE = 4;
+
+    @Test
+    public void testParallelGrowthEqualsSequential() {
+        // given
+        List<String> sequential = mine(false, 1.0);
+
+        // when
+        List<String> parallel = mine(true, 1.0);
+
+        // then
+        Assert.assertFalse(sequential.isEmpty());
+        Assert.assertEquals(parallel, sequential);
+    }
+
+    @Test
+    public void testDepthFirstGrowthEqualsSequential() {
+        // given
+        List<String> sequential = mine(false, 1.0);
+
+        // when
+        List<String> depthFirst = mine(true, 0.0);
+
+        // then
+        Assert.assertEquals(depthFirst, sequential);
+    }
+
+    @Test
+    public void testSequentialGrowthReachesMaxPatternSize() {
+        // given
+        List<String> sequential = mine(false, 1.0);
+
+        // when
+        Set<Integer> sizes = sequential.stream().map(x -> Integer.parseInt(x.substring(0, x.indexOf(' ')))).collect(Collectors.toSet());
+
+        // then
+        Assert.assertTrue(sizes.contains(1));
+        Assert.assertTrue(sizes.contains(MAX_PATTERN_SIZE));
+        Assert.assertFalse(sizes.stream().anyMatch(x -> x > MAX_PATTERN_SIZE));
+    }
+
+    @Test
+    public void testTopNEvictionKeepsSupport() {
+        // given
+        List<String> unlimited = mine(false, 1.0);
+        List<String> sequential = mine(false, 1.0, 3, 20);
+
+        // when
+        List<String> parallel = mine(true, 1.0, 3, 20);
+        List<String> depthFirst = mine(true, 0.0, 3, 20);
+
+        // then - patterns of equal support may replace each other, but the supports that were kept must be the same
+        Assert.assertEquals(sequential.size(), 20);
+        Assert.assertTrue(unlimited.size() > sequential.size());
+        Assert.assertTrue(unlimited.containsAll(sequential));
+        Assert.assertTrue(unlimited.containsAll(parallel));
+        Assert.assertTrue(unlimited.containsAll(depthFirst));
+        Assert.assertEquals(counts(parallel), counts(sequential));
+        Assert.assertEquals(counts(depthFirst), counts(sequential));
+    }
+
+    /**
+     * @param keys of patterns
+     * @return the counts of the patterns, highest first
+     */
+    private List<Integer> counts(List<String> keys) {
+        return keys.stream().map(x -> Integer.parseInt(x.substring(x.indexOf(" count ") + 7, x.indexOf(" trees ")))).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    /**
+     * Mines the fixed search space with a fresh detector. Top N limits are disabled so no pattern is dropped due to its rank.
+     *
+     * @param parallel   if the levels are grown in parallel
+     * @param heapBudget budget of the detector, 0 grows every pattern depth first
+     * @return sorted keys of all found patterns
+     */
+    private List<String> mine(boolean parallel, double heapBudget) {
+        return mine(parallel, heapBudget, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Mines the fixed search space with a fresh detector, keeping only the top N patterns
+     *
+     * @param parallel   if the levels are grown in parallel
+     * @param heapBudget budget of the detector, 0 grows every pattern depth first
+     * @param growCount  how many patterns may be grown at once
+     * @param finalCount how many patterns may be found
+     * @return sorted keys of all found patterns
+     */
+    private List<String> mine(boolean parallel, double heapBudget, int growCount, int finalCount) {
+        PatternGrowthPatternDetector detector = new PatternGrowthPatternDetector();
+        detector.setParallel(parallel);
+        detector.setHeapBudget(heapBudget);
+        detector.getMetrics().add(new MaxSupportPerGroupMetric(new PatternSizeMetric(-1), growCount, finalCount, false));
+        detector.setMaxPatternSize(MAX_PATTERN_SIZE);
+        detector.setHierarchyFloor(0);
+        detector.setHierarchyCeil(0);
+
+        TrufflePatternProblem problem = new TrufflePatternProblem(null, searchSpace(), "TEST");
+        List<TracableBitwisePattern> patterns = detector.minePatterns(Collections.singletonList(problem), null, null, null, null, null);
+        return patterns.stream().filter(Objects::nonNull).map(this::key).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * The meta of a pattern is only equal to itself, so patterns of different runs are compared via their content
+     *
+     * @param pattern to describe
+     * @return size, structure, node contents and all locations of the pattern
+     */
+    private String key(TracableBitwisePattern pattern) {
+        StringBuilder key = new StringBuilder();
+        key.append(pattern.getSize()).append(' ')
+                .append(Arrays.toString(pattern.getPattern()))
+                .append(Arrays.toString(pattern.getOpenclosetags()))
+                .append(Arrays.toString(pattern.getNodes()))
+                .append(Arrays.toString(pattern.getVariables()))
+                .append(" count ").append(pattern.getCount())
+                .append(" trees ").append(new TreeSet<>(pattern.getTreeIds()));
+        for (int pos = 0; pos < pattern.getSize(); pos++) {
+            key.append(" ").append(pos).append(pattern.getNodeIdsAtPos(pos).stream().sorted().collect(Collectors.toList()));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the same randomly generated trees on every call
+     */
+    private TrufflePatternSearchSpace searchSpace() {
+        Random random = new Random(42);
+        long[] id = {1};
+        TrufflePatternSearchSpace space = new TrufflePatternSearchSpace();
+        for (int tree = 0; tree < 12; tree++) {
+            List<NodeWrapper> nodes = new ArrayList<>();
+            List<OrderedRelationship> relationships = new ArrayList<>();
+            node(random, id, 0, nodes, relationships);
+            space.addTree(nodes.toArray(new NodeWrapper[0]), relationships.toArray(new OrderedRelationship[0]));
+        }
+        return space;
+    }
+
+    private NodeWrapper node(Random random, long[] id, int depth, List<NodeWrapper> nodes, List<OrderedRelationship> relationships) {
+        NodeWrapper node = new NodeWrapper(TYPES[random.nextInt(depth == 0 ? 3 : TYPES.length)]);
+        node.setId(id[0]++);
+        node.getValues().put("value:int", random.nextInt(3));
+        nodes.add(node);
+        int children = depth < 3 ? random.nextInt(4) : 0;
+        for (int i = 0; i < children; i++) {
+            relationships.add(new OrderedRelationship(node, node(random, id, depth + 1, nodes, relationships), "children", i));
+        }
+        return node;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.pattern.encoding;
+
+import at.fh.hagenberg.aist.gce.minic.language.MinicLanguage;
+import at.fh.hagenberg.aist.gce.minic.nodes.base.MinicExpressionNode;
+import at.fh.hagenberg.aist.gce.minic.nodes.base.MinicNode;
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class TracableBitwisePatternIndexTest extends TestRealNodesDbTest {
+
+    TruffleLanguageInformation information = TruffleLanguageInformation.getLanguageInformation(MinicLanguage.ID);
+    BitwisePatternMeta meta = new BitwisePatternMeta(information);
+
+    private List<TracableBitwisePattern> patterns() {
+        List<TracableBitwisePattern> patterns = new ArrayList<>();
+        patterns.add(new TracableBitwisePattern(1, t1.getId(), t1, meta));
+        patterns.add(new TracableBitwisePattern(1, t1.getId(), t1, meta));
+        patterns.add(new TracableBitwisePattern(2, t2.getId(), t2, meta));
+        patterns.add(new TracableBitwisePattern(3, t3.getId(), t3, meta));
+        patterns.add(new TracableBitwisePattern(4, t4.getId(), t4, meta));
+
+        // generalize every position of every pattern along the class hierarchy
+        new ArrayList<>(patterns).forEach(x -> {
+            for (int i = 0; i < x.getPattern().length; i++) {
+                for (Class<?> clazz : new Class<?>[]{MinicExpressionNode.class, MinicNode.class}) {
+                    TracableBitwisePattern generalized = x.copy();
+                    generalized.pattern[i] = meta.mask(clazz);
+                    patterns.add(generalized);
+                }
+            }
+        });
+        return patterns;
+    }
+
+    @Test
+    public void testLookupEqualsScan() {
+        // given
+        List<TracableBitwisePattern> patterns = patterns();
+
+        // when
+        TracableBitwisePatternIndex index = new TracableBitwisePatternIndex(meta, patterns);
+
+        // then
+        Assert.assertEquals(index.size(), patterns.size());
+        patterns.forEach(x -> {
+            Set<TracableBitwisePattern> generalizations = Collections.newSetFromMap(new IdentityHashMap<>());
+            generalizations.addAll(patterns.stream().filter(y -> y.generalizesEqContent(x)).collect(Collectors.toList()));
+            Set<TracableBitwisePattern> specializations = Collections.newSetFromMap(new IdentityHashMap<>());
+            specializations.addAll(patterns.stream().filter(x::generalizesEqContent).collect(Collectors.toList()));
+
+            List<TracableBitwisePattern> foundGeneralizations = index.generalizations(x);
+            List<TracableBitwisePattern> foundSpecializations = index.specializations(x);
+            Assert.assertEquals(foundGeneralizations.size(), generalizations.size());
+            Assert.assertTrue(generalizations.containsAll(foundGeneralizations));
+            Assert.assertEquals(foundSpecializations.size(), specializations.size());
+            Assert.assertTrue(specializations.containsAll(foundSpecializations));
+            Assert.assertTrue(index.hasSpecialization(x));
+        });
+    }
+
+    @Test
+    public void testRemove() {
+        // given
+        List<TracableBitwisePattern> patterns = patterns();
+        TracableBitwisePatternIndex index = new TracableBitwisePatternIndex(meta, patterns);
+        TracableBitwisePattern pattern = patterns.get(0);
+        TracableBitwisePattern equal = patterns.get(1);
+
+        // when
+        boolean removed = index.remove(pattern);
+
+        // then
+        Assert.assertTrue(removed);
+        Assert.assertFalse(index.remove(pattern));
+        Assert.assertEquals(index.size(), patterns.size() - 1);
+        Assert.assertFalse(index.generalizations(equal).stream().anyMatch(x -> x == pattern));
+        Assert.assertTrue(index.generalizations(equal).stream().anyMatch(x -> x == equal));
+
+        // when removing everything
+        patterns.forEach(index::remove);
+
+        // then
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertFalse(index.hasSpecialization(equal));
+    }
+}
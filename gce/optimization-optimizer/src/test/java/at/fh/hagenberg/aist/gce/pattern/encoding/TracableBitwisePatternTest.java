@@ -176,5 +176,54 @@ public class TracableBitwisePatternTest extends TestRealNodesDbTest {
         }
     }
 
+    @Test
+    public void testFinishCompressesLocations() {
+        // given
+        NodeWrapper wrapper = t4.deepCopy();
+        TracableBitwisePattern bitwisePattern = new TracableBitwisePattern(4, t4.getId(), wrapper, meta, new HashMap<>(), null, 0L);
+        NodeWrapper copy = wrapper.copy();
+        copy.setId(234234234L);
+        bitwisePattern.addLocation(new TracableBitwisePattern(3, copy.getId(), copy, meta, new HashMap<>(), null, 0L));
+        long[][] nodeIds = bitwisePattern.getNodeIds();
+
+        // when
+        bitwisePattern.finish();
+
+        // then
+        Assert.assertEquals(bitwisePattern.getCount(), 2);
+        Assert.assertEquals(bitwisePattern.getTreeId(), new long[]{t4.getId(), 234234234L});
+        Assert.assertEquals(bitwisePattern.getClusterId(), new int[]{4, 3});
+        Assert.assertEquals(bitwisePattern.getClusterTreeCount(3), 1);
+        Assert.assertEquals(bitwisePattern.getNodeIds().length, 6);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(bitwisePattern.getNodeIds()[i], Arrays.copyOf(nodeIds[i], 2));
+        }
+        Assert.assertNull(bitwisePattern.getGrowthPoints());
+    }
+
+    @Test
+    public void testCompressedPatternCanBeExtended() {
+        // given
+        NodeWrapper wrapper = t4.deepCopy();
+        TracableBitwisePattern bitwisePattern = new TracableBitwisePattern(4, t4.getId(), wrapper, meta, new HashMap<>(), null, 0L);
+        NodeWrapper copy = wrapper.copy();
+        copy.setId(234234234L);
+        long[][] nodeIds = bitwisePattern.getNodeIds();
+
+        // when
+        bitwisePattern.compress();
+        Assert.assertEquals(bitwisePattern.getTreeId(), new long[]{t4.getId()});
+        bitwisePattern.addLocation(new TracableBitwisePattern(3, copy.getId(), copy, meta, new HashMap<>(), null, 0L));
+
+        // then
+        Assert.assertNotNull(bitwisePattern.getGrowthPoints());
+        Assert.assertEquals(bitwisePattern.getCount(), 2);
+        Assert.assertEquals(Arrays.copyOf(bitwisePattern.getTreeId(), 2), new long[]{t4.getId(), 234234234L});
+        Assert.assertEquals(Arrays.copyOf(bitwisePattern.getClusterId(), 2), new int[]{4, 3});
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(bitwisePattern.getNodeIds()[i][0], nodeIds[i][0]);
+        }
+        Assert.assertEquals(bitwisePattern.copy().getTreeIds(), bitwisePattern.getTreeIds());
+    }
 
 }
@@ -16,14 +16,19 @@ import at.fh.hagenberg.aist.gce.pattern.TrufflePattern;
 import at.fh.hagenberg.aist.gce.pattern.constraint.CachetConstraint;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
 import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
+import at.fh.hagenberg.util.Pair;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 2) Test that the Repository actually returns what we want
@@ -79,6 +84,92 @@ public class PatternSearchSpaceRepositoryTest extends TestDBTest {
         Assert.assertEquals(trees.searchSpace.size(), 7);
     }
 
+    @Test
+    public void testStreamExcludes() {
+        // given
+        TrufflePatternSearchSpaceDefinition definition = new TrufflePatternSearchSpaceDefinition();
+        definition.setSolutionSpace(true);
+        definition.excludeTree(t1); // tree wont be in searchspace
+        definition.excludeNode(t2, true); // tree wont be in searchspace as all nodes are removed
+        definition.excludeNode(t3, false); // tree will be headless in searchspace
+
+        // when
+        List<Pair<NodeWrapper[], OrderedRelationship[]>> trees = repository.streamTrees(definition, 2).collect(Collectors.toList());
+
+        // then
+        Assert.assertEquals(trees.size(), repository.findTrees(definition).searchSpace.size());
+        Assert.assertEquals(trees.size(), 7);
+    }
+
+    @Test
+    public void testStreamIncludes() {
+        // given
+        TrufflePatternSearchSpaceDefinition definition = new TrufflePatternSearchSpaceDefinition();
+        definition.includeTree(t1);
+        definition.excludeNode(t1, true); // T1 won't be in the search space since we included the tree but excluded all nodes
+        definition.includeTree(t3); // will be completely IN the search space
+
+        // when
+        List<Pair<NodeWrapper[], OrderedRelationship[]>> trees = repository.streamTrees(definition, 1).collect(Collectors.toList());
+
+        // then
+        Assert.assertEquals(trees.size(), 1);
+        Assert.assertEquals(trees.get(0).getKey()[0].getId(), t3.getId());
+    }
+
+    @Test
+    public void testBuildInBatches() {
+        // given
+        TrufflePatternSearchSpaceDefinition definition = new TrufflePatternSearchSpaceDefinition();
+        definition.setSolutionSpace(true);
+        definition.excludeTree(t1);
+        definition.excludeNode(t3, false);
+
+        // when
+        TrufflePatternSearchSpace trees = repository.findTrees(definition, 2);
+
+        // then
+        Assert.assertEquals(trees.searchSpace.size(), repository.findTrees(definition).searchSpace.size());
+        Assert.assertEquals(trees.searchSpace.size(), 8);
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        // given
+        TrufflePatternSearchSpaceDefinition definition = new TrufflePatternSearchSpaceDefinition();
+        definition.setSolutionSpace(true);
+        definition.excludeNode(t3, false);
+        String directory = Files.createTempDirectory("searchspace").toString();
+        TrufflePatternSearchSpace trees = repository.findTrees(definition, directory);
+
+        // when
+        TrufflePatternSearchSpace snapshot = TrufflePatternSearchSpaceSnapshot.read(repository.definitionKey(definition), new File(directory, new File(directory).list()[0]));
+
+        // then
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(snapshot.searchSpace.size(), trees.searchSpace.size());
+        for (int i = 0; i < trees.searchSpace.size(); i++) {
+            NodeWrapper[] nodes = trees.searchSpace.get(i).getKey();
+            NodeWrapper[] snapshotNodes = snapshot.searchSpace.get(i).getKey();
+            Assert.assertEquals(snapshotNodes.length, nodes.length);
+            for (int j = 0; j < nodes.length; j++) {
+                Assert.assertEquals(snapshotNodes[j].getId(), nodes[j].getId());
+                Assert.assertEquals(snapshotNodes[j].getType(), nodes[j].getType());
+                Assert.assertEquals(snapshotNodes[j].getValues(), nodes[j].getValues());
+            }
+            OrderedRelationship[] relationships = trees.searchSpace.get(i).getValue();
+            OrderedRelationship[] snapshotRelationships = snapshot.searchSpace.get(i).getValue();
+            Assert.assertEquals(snapshotRelationships.length, relationships.length);
+            for (int j = 0; j < relationships.length; j++) {
+                Assert.assertEquals(snapshotRelationships[j].getParent().getId(), relationships[j].getParent().getId());
+                Assert.assertEquals(snapshotRelationships[j].getChild().getId(), relationships[j].getChild().getId());
+                Assert.assertEquals(snapshotRelationships[j].getField(), relationships[j].getField());
+                Assert.assertEquals(snapshotRelationships[j].getOrder(), relationships[j].getOrder());
+            }
+        }
+        Assert.assertNull(TrufflePatternSearchSpaceSnapshot.read("another definition", new File(directory, new File(directory).list()[0])));
+    }
+
     @Test
     public void testBuildExcludesType() {
         // given
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.pattern.selection;
+
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TrufflePatternSearchSpaceSnapshotTest {
+
+    private static final String KEY = "definition";
+
+    private File directory;
+
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot").toFile();
+        file = new File(directory, "searchspace.snapshot");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        // given
+        TrufflePatternSearchSpace searchSpace = searchSpace();
+
+        // when
+        TrufflePatternSearchSpaceSnapshot.write(searchSpace, KEY, file);
+        TrufflePatternSearchSpace snapshot = TrufflePatternSearchSpaceSnapshot.read(KEY, file);
+
+        // then
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(snapshot.getSearchSpace().size(), searchSpace.getSearchSpace().size());
+        for (int i = 0; i < searchSpace.getSearchSpace().size(); i++) {
+            NodeWrapper[] nodes = searchSpace.getSearchSpace().get(i).getKey();
+            NodeWrapper[] snapshotNodes = snapshot.getSearchSpace().get(i).getKey();
+            Assert.assertEquals(snapshotNodes.length, nodes.length);
+            for (int j = 0; j < nodes.length; j++) {
+                Assert.assertEquals(snapshotNodes[j].getId(), nodes[j].getId());
+                Assert.assertEquals(snapshotNodes[j].getType(), nodes[j].getType());
+                Assert.assertEquals(snapshotNodes[j].getHash(), nodes[j].getHash());
+                Assert.assertEquals(snapshotNodes[j].getValues(), nodes[j].getValues());
+            }
+            OrderedRelationship[] relationships = searchSpace.getSearchSpace().get(i).getValue();
+            OrderedRelationship[] snapshotRelationships = snapshot.getSearchSpace().get(i).getValue();
+            Assert.assertEquals(snapshotRelationships.length, relationships.length);
+            for (int j = 0; j < relationships.length; j++) {
+                Assert.assertEquals(snapshotRelationships[j].getParent().getId(), relationships[j].getParent().getId());
+                Assert.assertEquals(snapshotRelationships[j].getChild().getId(), relationships[j].getChild().getId());
+                Assert.assertEquals(snapshotRelationships[j].getField(), relationships[j].getField());
+                Assert.assertEquals(snapshotRelationships[j].getOrder(), relationships[j].getOrder());
+            }
+        }
+    }
+
+    @Test
+    public void testOverwrite() {
+        // given
+        TrufflePatternSearchSpaceSnapshot.write(searchSpace(), "old definition", file);
+
+        // when
+        TrufflePatternSearchSpaceSnapshot.write(searchSpace(), KEY, file);
+
+        // then
+        Assert.assertNull(TrufflePatternSearchSpaceSnapshot.read("old definition", file));
+        Assert.assertNotNull(TrufflePatternSearchSpaceSnapshot.read(KEY, file));
+        // no temporary files are left behind
+        Assert.assertEquals(directory.list(), new String[]{file.getName()});
+    }
+
+    @Test
+    public void testMissing() {
+        // when
+        TrufflePatternSearchSpace snapshot = TrufflePatternSearchSpaceSnapshot.read(KEY, file);
+
+        // then
+        Assert.assertNull(snapshot);
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        // given
+        TrufflePatternSearchSpaceSnapshot.write(searchSpace(), KEY, file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        for (int length = 0; length < bytes.length; length++) {
+            // when
+            Files.write(file.toPath(), Arrays.copyOf(bytes, length));
+
+            // then
+            Assert.assertNull(TrufflePatternSearchSpaceSnapshot.read(KEY, file), "truncated to " + length);
+        }
+    }
+
+    @Test
+    public void testCorruptHeader() throws IOException {
+        // given
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x54505353);
+            out.writeInt(1);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        // when
+        TrufflePatternSearchSpace snapshot = TrufflePatternSearchSpaceSnapshot.read(KEY, file);
+
+        // then
+        Assert.assertNull(snapshot);
+    }
+
+    @Test
+    public void testCorruptContent() throws IOException {
+        // given
+        TrufflePatternSearchSpaceSnapshot.write(searchSpace(), KEY, file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // everything after the header and key
+        int start = 3 * Integer.BYTES + KEY.length();
+
+        for (int i = start; i < bytes.length; i += 3) {
+            // when
+            byte[] corrupt = bytes.clone();
+            corrupt[i] = (byte) 0xff;
+            corrupt[i + 1 < bytes.length ? i + 1 : i] = (byte) 0x7f;
+            Files.write(file.toPath(), corrupt);
+
+            // then - either a snapshot or treated as missing, but never an exception
+            TrufflePatternSearchSpaceSnapshot.read(KEY, file);
+        }
+    }
+
+    @Test
+    public void testRejectsUnknownSerializedClass() {
+        // given
+        TrufflePatternSearchSpace searchSpace = searchSpace();
+        searchSpace.getSearchSpace().getLast().getKey()[0].getValues().put("file:java.io.File", new File("snapshot"));
+        TrufflePatternSearchSpaceSnapshot.write(searchSpace, KEY, file);
+
+        // when
+        TrufflePatternSearchSpace snapshot = TrufflePatternSearchSpaceSnapshot.read(KEY, file);
+
+        // then
+        Assert.assertNull(snapshot);
+    }
+
+    /**
+     * Two trees: a root with two children, and a single node with all supported value types
+     */
+    private static TrufflePatternSearchSpace searchSpace() {
+        NodeWrapper root = node(1, "Block", "hashA");
+        NodeWrapper left = node(2, "Const", "hashB");
+        left.getValues().put("value:int", 42);
+        left.getValues().put("name:java.lang.String", "x");
+        NodeWrapper right = node(3, "Const", null);
+        right.getValues().put("value:int", 42);
+        right.getValues().put("name:java.lang.String", "x");
+        OrderedRelationship first = new OrderedRelationship(root, left, "children", 0);
+        first.setId(10L);
+        OrderedRelationship second = new OrderedRelationship(root, right, "children", 1);
+        second.setId(11L);
+
+        NodeWrapper values = node(4, "Values", "hashC");
+        values.getValues().put("int:int", 1);
+        values.getValues().put("long:long", 2L);
+        values.getValues().put("double:double", 3.5);
+        values.getValues().put("boolean:boolean", true);
+        values.getValues().put("string:java.lang.String", "text");
+        values.getValues().put("null:java.lang.Object", null);
+        values.getValues().put("list:java.util.List", new ArrayList<>(Arrays.asList(1, 2, 3)));
+        values.getValues().put("immutable:java.util.List", List.of("a", "b"));
+        values.getValues().put("date:java.time.LocalDate", LocalDate.of(2022, 1, 1));
+
+        TrufflePatternSearchSpace searchSpace = new TrufflePatternSearchSpace();
+        searchSpace.addTree(new NodeWrapper[]{root, left, right}, new OrderedRelationship[]{first, second});
+        searchSpace.addTree(new NodeWrapper[]{values}, new OrderedRelationship[0]);
+        return searchSpace;
+    }
+
+    private static NodeWrapper node(long id, String type, String hash) {
+        NodeWrapper node = new NodeWrapper(type);
+        node.setId(id);
+        node.setHash(hash);
+        return node;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.machinelearning.algorithm.ga;
+
+import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationProblem;
+import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationSolution;
+import at.fh.hagenberg.machinelearning.core.Solution;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class IslandComplexityGeneticAlgorithmTest {
+
+    @Test
+    public void testMigrateRing() {
+        // given
+        List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> populations = new ArrayList<>();
+        populations.add(population(1, 2, 3, 4, 5));
+        populations.add(population(10, 11, 12, 13, 14));
+        populations.add(population(20, 21, 22, 23, 24));
+
+        // when
+        IslandComplexityGeneticAlgorithm.migrate(populations, new boolean[]{true, true, true}, 2, (target, migrant) -> populations.get(target).add(migrant));
+
+        // then
+        Assert.assertEquals(qualities(populations.get(0)), List.of(1.0, 2.0, 3.0, 20.0, 21.0));
+        Assert.assertEquals(qualities(populations.get(1)), List.of(10.0, 11.0, 12.0, 1.0, 2.0));
+        Assert.assertEquals(qualities(populations.get(2)), List.of(20.0, 21.0, 22.0, 10.0, 11.0));
+    }
+
+    @Test
+    public void testMigrateSkipsFinishedIslands() {
+        // given
+        List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> populations = new ArrayList<>();
+        populations.add(population(1, 2, 3));
+        populations.add(population(10, 11, 12));
+
+        // when
+        IslandComplexityGeneticAlgorithm.migrate(populations, new boolean[]{true, false}, 1, (target, migrant) -> populations.get(target).add(migrant));
+
+        // then
+        Assert.assertEquals(qualities(populations.get(0)), List.of(1.0, 2.0, 10.0));
+        Assert.assertEquals(qualities(populations.get(1)), List.of(10.0, 11.0, 12.0));
+    }
+
+    @Test
+    public void testMigrateMoreElitesThanIndividuals() {
+        // given
+        List<List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>>> populations = new ArrayList<>();
+        populations.add(population(1, 2));
+        populations.add(population(10, 11));
+
+        // when
+        IslandComplexityGeneticAlgorithm.migrate(populations, new boolean[]{true, true}, 5, (target, migrant) -> populations.get(target).add(migrant));
+
+        // then
+        Assert.assertEquals(qualities(populations.get(0)), List.of(10.0, 11.0));
+        Assert.assertEquals(qualities(populations.get(1)), List.of(1.0, 2.0));
+    }
+
+    @Test
+    public void testIslandsEvolveConcurrently() {
+        // given
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        AtomicInteger[] evolved = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+        List<Callable<Boolean>> epochs = new ArrayList<>();
+        for (AtomicInteger counter : evolved) {
+            epochs.add(() -> {
+                // only passes if all islands evolve at the same time
+                barrier.await(10, TimeUnit.SECONDS);
+                return counter.incrementAndGet() < 2;
+            });
+        }
+        List<boolean[]> migrations = new ArrayList<>();
+
+        // when
+        IslandComplexityGeneticAlgorithm.evolveIslands(epochs, running -> migrations.add(running.clone()));
+
+        // then
+        Assert.assertEquals(Arrays.stream(evolved).map(AtomicInteger::get).collect(Collectors.toList()), List.of(2, 2, 2));
+        Assert.assertEquals(migrations.size(), 1);
+        Assert.assertEquals(migrations.get(0), new boolean[]{true, true, true});
+    }
+
+    @Test
+    public void testFinishedIslandsStopEvolving() {
+        // given
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        List<Callable<Boolean>> epochs = List.of(() -> first.incrementAndGet() < 1, () -> second.incrementAndGet() < 3);
+        List<boolean[]> migrations = new ArrayList<>();
+
+        // when
+        IslandComplexityGeneticAlgorithm.evolveIslands(epochs, running -> migrations.add(running.clone()));
+
+        // then
+        Assert.assertEquals(first.get(), 1);
+        Assert.assertEquals(second.get(), 3);
+        Assert.assertEquals(migrations.size(), 2);
+        migrations.forEach(x -> Assert.assertEquals(x, new boolean[]{false, true}));
+    }
+
+    @Test
+    public void testSingleIslandNeverMigrates() {
+        // given
+        AtomicInteger evolved = new AtomicInteger();
+        List<Callable<Boolean>> epochs = List.of(() -> evolved.incrementAndGet() < 3);
+        List<boolean[]> migrations = new ArrayList<>();
+
+        // when
+        IslandComplexityGeneticAlgorithm.evolveIslands(epochs, running -> migrations.add(running.clone()));
+
+        // then
+        Assert.assertEquals(evolved.get(), 3);
+        Assert.assertTrue(migrations.isEmpty());
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = "Failed to evolve island")
+    public void testFailingIslandFailsEvolution() {
+        // given
+        List<Callable<Boolean>> epochs = List.of(() -> true, () -> {
+            throw new IllegalStateException("island failed");
+        });
+
+        // when
+        IslandComplexityGeneticAlgorithm.evolveIslands(epochs, running -> {
+        });
+
+        // then exception is thrown
+    }
+
+    private List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> population(double... qualities) {
+        List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> population = new ArrayList<>();
+        for (double quality : qualities) {
+            Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> solution = new Solution<>();
+            solution.setQuality(quality);
+            population.add(solution);
+        }
+        return population;
+    }
+
+    private List<Double> qualities(List<Solution<TruffleOptimizationSolution, TruffleOptimizationProblem>> population) {
+        return population.stream().map(Solution::getQuality).collect(Collectors.toList());
+    }
+}
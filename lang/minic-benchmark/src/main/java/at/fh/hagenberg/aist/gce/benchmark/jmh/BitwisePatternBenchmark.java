@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.aist.gce.optimization.util.TruffleLanguageInformation;
+import at.fh.hagenberg.aist.gce.pattern.encoding.BitwisePattern;
+import at.fh.hagenberg.aist.gce.pattern.encoding.BitwisePatternMeta;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.OrderedRelationship;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairwise generalization checks between all subtrees of a program, as done by the pattern detectors
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BitwisePatternBenchmark {
+
+    /**
+     * Every subtree of the program as pattern
+     */
+    private BitwisePattern[] patterns;
+
+    @Setup(Level.Trial)
+    public void createPatterns(MinicProgramState state) {
+        BitwisePatternMeta meta = new BitwisePatternMeta(TruffleLanguageInformation.getLanguageInformation(state.problem.getLanguage()), false);
+        List<NodeWrapper> subtrees = new ArrayList<>();
+        collect(NodeWrapper.wrap(state.node), subtrees);
+        patterns = subtrees.stream().map(x -> new BitwisePattern(x, meta)).toArray(BitwisePattern[]::new);
+    }
+
+    private void collect(NodeWrapper node, List<NodeWrapper> subtrees) {
+        subtrees.add(node);
+        node.getChildren().stream().map(OrderedRelationship::getChild).forEach(x -> collect(x, subtrees));
+    }
+
+    @Benchmark
+    public int generalizes() {
+        int generalizations = 0;
+        for (BitwisePattern pattern : patterns) {
+            for (BitwisePattern other : patterns) {
+                if (pattern.generalizes(other)) {
+                    generalizations++;
+                }
+            }
+        }
+        return generalizations;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of execution results, which happens for every test a worker runs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionResultBenchmark {
+
+    /**
+     * Amount of runtime values in the result (1 for regular evaluations, many for benchmarks)
+     */
+    @Param({"1", "1000", "100000"})
+    public int repeats;
+
+    private ExecutionResult result;
+
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void createResult() {
+        Random random = new Random(42);
+        long[] performance = new long[repeats];
+        for (int i = 0; i < repeats; i++) {
+            performance[i] = 100000 + random.nextInt(10000);
+        }
+        result = new ExecutionResult(21, "1 2 3 5 8 13 21\n", performance, true);
+        serialized = result.serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return result.serialize();
+    }
+
+    @Benchmark
+    public ExecutionResult deserialize() {
+        return ExecutionResult.deserialize(serialized);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the MiniC programs of the benchmark suites with all their test inputs in the interpreter.
+ * Replaces the manual nanoTime loops as regression check for the interpreter itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class MinicProgramBenchmark {
+
+    @Benchmark
+    public void run(MinicProgramState state, Blackhole blackhole) {
+        for (Object[] input : state.inputs) {
+            ExecutionResult result = state.executor.conductTest(state.node, input);
+            blackhole.consume(result.getReturnValue());
+        }
+    }
+}
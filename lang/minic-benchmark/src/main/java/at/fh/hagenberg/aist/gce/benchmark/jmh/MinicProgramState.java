@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.aist.gce.benchmark.MinicMathBenchmarkSuite;
+import at.fh.hagenberg.aist.gce.benchmark.MinicNNBenchmarkSuite;
+import at.fh.hagenberg.aist.gce.benchmark.MinicSortingAlgorithmBenchmarkSuite;
+import at.fh.hagenberg.aist.gce.benchmark.MinicSqrtBenchmarkSuite;
+import at.fh.hagenberg.aist.gce.optimization.TruffleOptimizationProblem;
+import at.fh.hagenberg.aist.gce.optimization.executor.InternalExecutor;
+import at.fh.hagenberg.aist.gce.optimization.test.TruffleOptimizationTestComplexity;
+import com.oracle.truffle.api.nodes.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Loads a MiniC program of the benchmark suites once per trial, and prepares an executor running it in this JVM.
+ * The program is selected by the same name the suites use (e.g. "sort/bubbleSort", "/nn/nn_relu").
+ */
+@State(Scope.Benchmark)
+public class MinicProgramState {
+
+    /**
+     * Programs from the sort, sqrt, math and neural network suites
+     */
+    @Param({"sort/bubbleSort", "sort/quickSort", "/sqrt_opts/sqrt_java", "/math/log", "/nn/nn_relu"})
+    public String program;
+
+    /**
+     * Problem as the suite created it (tests, search space, creation configuration)
+     */
+    public TruffleOptimizationProblem problem;
+
+    /**
+     * Executor running the problem in this JVM
+     */
+    public InternalExecutor executor;
+
+    /**
+     * Copy of the function body that is swapped into the executor, as the evaluator does with solutions
+     */
+    public Node node;
+
+    /**
+     * Input of every test of the problem
+     */
+    public List<Object[]> inputs;
+
+    @Setup(Level.Trial)
+    public void load() {
+        problem = loadProblem(program);
+        executor = new InternalExecutor(problem.getLanguage(), problem.getCode(), problem.getEntryPoint(), problem.getFunction());
+        node = executor.getOrigin().deepCopy();
+        inputs = problem.getTests().stream().map(TruffleOptimizationTestComplexity::getTest).map(x -> x.getInputArguments()).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads a problem through the suite it belongs to, so special entry points (lookup, nn) are respected
+     *
+     * @param program name of the program in the suite
+     * @return problem
+     */
+    public static TruffleOptimizationProblem loadProblem(String program) {
+        if (program.startsWith("/nn/")) {
+            return MinicNNBenchmarkSuite.getProblem(program).getKey();
+        } else if (program.startsWith("/math/")) {
+            return MinicMathBenchmarkSuite.getProblem(program).getKey();
+        } else if (program.startsWith("/sqrt_opts/")) {
+            return MinicSqrtBenchmarkSuite.getProblem(program).getKey();
+        }
+        return MinicSortingAlgorithmBenchmarkSuite.getProblem(program).getKey();
+    }
+}
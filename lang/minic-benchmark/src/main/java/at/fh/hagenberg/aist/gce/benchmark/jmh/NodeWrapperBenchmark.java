@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.machinelearning.analytics.graph.nodes.NodeWrapper;
+import com.oracle.truffle.api.nodes.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion between Truffle trees and {@link NodeWrapper}, which happens for every evaluated and logged solution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeWrapperBenchmark {
+
+    /**
+     * Wrapped function body of the program
+     */
+    private NodeWrapper wrapper;
+
+    @Setup(Level.Trial)
+    public void wrapProgram(MinicProgramState state) {
+        NodeWrapper.clearCache();
+        wrapper = NodeWrapper.wrap(state.node);
+    }
+
+    @Benchmark
+    public NodeWrapper wrap(MinicProgramState state) {
+        // wrap caches the top level node, which would make every call after the first one free
+        NodeWrapper.clearCache();
+        return NodeWrapper.wrap(state.node);
+    }
+
+    @Benchmark
+    public NodeWrapper hash() {
+        return NodeWrapper.reHash(wrapper);
+    }
+
+    @Benchmark
+    public Node unwrap(MinicProgramState state) {
+        return NodeWrapper.unwrap(wrapper, state.executor.getRoot().getFrameDescriptor(), state.executor.getGlobalScope(), state.problem.getLanguage());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeProfile;
+import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeProfileBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of runtime profiles from the raw values of benchmark runs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuntimeProfileBenchmark {
+
+    /**
+     * Amount of runtime values (repeats of a benchmark)
+     */
+    @Param({"100", "10000", "1000000"})
+    public int count;
+
+    private long[] values;
+
+    @Setup(Level.Trial)
+    public void createValues() {
+        // runtimes are skewed to the right, so we use a log-normal distribution around ~100 us
+        Random random = new Random(42);
+        values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (long) Math.exp(11.5 + random.nextGaussian() * 0.5);
+        }
+    }
+
+    @Benchmark
+    public RuntimeProfile array() {
+        // the constructor sorts the values, so like every caller it works on a copy
+        return new RuntimeProfile(Arrays.copyOf(values, values.length));
+    }
+
+    @Benchmark
+    public RuntimeProfile builder() {
+        return new RuntimeProfileBuilder().addAll(values, 0, values.length).build();
+    }
+}
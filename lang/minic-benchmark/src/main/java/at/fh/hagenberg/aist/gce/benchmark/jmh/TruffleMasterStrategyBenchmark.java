@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.benchmark.jmh;
+
+import at.fh.hagenberg.aist.gce.benchmark.MinicTestfileOptimizer;
+import at.fh.hagenberg.aist.gce.optimization.util.strategy.TruffleMasterStrategy;
+import com.oracle.truffle.api.nodes.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random subtree creation of the master strategy, which is the core of every mutation and initialization
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TruffleMasterStrategyBenchmark {
+
+    /**
+     * Program that defines the search space (functions, variables) of the strategy
+     */
+    @Param({"sort/bubbleSort", "/sqrt_opts/sqrt_java"})
+    public String program;
+
+    private TruffleMasterStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void createStrategy() {
+        strategy = new MinicTestfileOptimizer(program, null).getMasterStrategy();
+    }
+
+    @Benchmark
+    public Node create() {
+        return strategy.next();
+    }
+}
@@ -540,7 +540,7 @@ public class MinicPatternAnalyzer {
             definition.setSolution(new SolutionConstraint(0.0, -1.0));
         }
 
-        TrufflePatternSearchSpace solutions = detector.findSearchSpace(definition);
+        TrufflePatternSearchSpace solutions = detector.findSearchSpace(definition, LOCATION + "searchspaces/");
         TruffleEvaluatorImpl eval = createTruffleEvaluator();
         System.out.println("Examples space is " + solutions.getSearchSpace().size() + " ASTs");
 
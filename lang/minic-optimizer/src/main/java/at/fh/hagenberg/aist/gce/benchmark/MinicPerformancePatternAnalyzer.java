@@ -43,6 +43,7 @@ import at.fh.hagenberg.aist.gce.optimization.operators.ConfigurableMutator;
 import at.fh.hagenberg.aist.gce.optimization.operators.TruffleFaultFixingTreeMutator;
 import at.fh.hagenberg.aist.gce.optimization.operators.selection.DepthWidthRestrictedTruffleTreeSelector;
 import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeProfile;
+import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeTraceStore;
 import at.fh.hagenberg.aist.gce.optimization.test.*;
 import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
 import at.fh.hagenberg.aist.gce.optimization.util.MinicLanguageLearner;
@@ -248,7 +249,7 @@ public class MinicPerformancePatternAnalyzer {
             cachetConstraints.add(new CachetConstraint("Performance-0.3", 1.0, 0.0));
             definition.setCachets(cachetConstraints);
         }
-        TrufflePatternSearchSpace solutions = detector.findSearchSpace(definition);
+        TrufflePatternSearchSpace solutions = detector.findSearchSpace(definition, LOCATION + "searchspaces/");
 
         TruffleEvaluatorImpl eval = createTruffleEvaluator();
         System.out.println("Examples space is " + solutions.getSearchSpace().size() + " ASTs");
@@ -344,7 +345,8 @@ public class MinicPerformancePatternAnalyzer {
                     benchProblem.getTests().addAll(getBenchmarkCases(groupName).stream().map(x -> new TruffleOptimizationTestComplexity(benchProblem, x)).collect(Collectors.toList()));
 
                     Solution<TruffleOptimizationSolution, TruffleOptimizationProblem> benchSolution = createSolution(solution.getSolutionGenes().get(0).getGene().getNode(), benchProblem);
-                    long len = new File(EngineConfig.ROOT_LOCATION + "/Amaru.LOGS/PerformanceProfiles/runtimePATTERNVERIFY/").listFiles().length + 1;
+                    // the ids only need to be unique: traces in the store + legacy .rtp files (and the store files themselves)
+                    long len = RuntimeTraceStore.getStore(TruffleEvaluatorImpl.RUNTIME_PATTERN_VERIFY_LOCATION).size() + new File(TruffleEvaluatorImpl.RUNTIME_PATTERN_VERIFY_LOCATION).listFiles().length + 1;
                     TruffleOptimizationSolution truffleSolution = benchSolution.getSolutionGenes().get(0).getGene();
                     truffleSolution.getTree().setId(-1 * len);
                     eval.verifyExecutor(benchProblem, true);
@@ -24,6 +24,7 @@ import at.fh.hagenberg.aist.gce.optimization.executor.MessageExecutor;
 import at.fh.hagenberg.aist.gce.optimization.language.util.EngineConfig;
 import at.fh.hagenberg.aist.gce.optimization.run.TruffleAlgorithmFactory;
 import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeProfile;
+import at.fh.hagenberg.aist.gce.optimization.runtime.RuntimeTraceStore;
 import at.fh.hagenberg.aist.gce.optimization.runtime.SystemInformation;
 import at.fh.hagenberg.aist.gce.optimization.test.*;
 import at.fh.hagenberg.aist.gce.optimization.util.ExtendedNodeUtil;
@@ -308,10 +309,14 @@ public class MinicSequentialVsParallelPerformanceEvaluation {
         // NOTE: the following code is only for getting the nice performance values.
         for (TruffleOptimizationTestResult testResult : solution.getTestResults()) {
             String testId = String.valueOf(testResult.getTest().getId());
-            File runtimeReportDir = new File(EngineConfig.ROOT_LOCATION + "/Amaru.LOGS/PerformanceProfiles/runtimeProfiles/" + solution.getTree().getId() + "_" + testId + ".rtp");
             try {
-                String content = Files.readString(runtimeReportDir.toPath(), StandardCharsets.US_ASCII);
-                long[] performance = Arrays.stream(content.split(",")).mapToLong(Long::valueOf).toArray();
+                long[] performance = RuntimeTraceStore.getReadOnlyStore(TruffleEvaluatorImpl.RUNTIME_PROFILE_LOCATION).readArray(solution.getTree().getId(), testResult.getTest().getId());
+                if (performance == null) {
+                    // runtimes logged before the trace store existed
+                    File runtimeReportDir = new File(TruffleEvaluatorImpl.RUNTIME_PROFILE_LOCATION + solution.getTree().getId() + "_" + testId + ".rtp");
+                    String content = Files.readString(runtimeReportDir.toPath(), StandardCharsets.US_ASCII);
+                    performance = Arrays.stream(content.split(",")).mapToLong(Long::valueOf).toArray();
+                }
                 testInfo.put(testId, humanReadableTestResult(testResult));
 
                 // evaluate performance
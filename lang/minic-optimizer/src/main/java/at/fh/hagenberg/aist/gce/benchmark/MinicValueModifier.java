@@ -32,7 +32,7 @@ public class MinicValueModifier extends ValueModifier {
                 char[] rawArray = (char[]) in;
                 MinicCharArray minicArray = new MinicCharArray(new int[]{rawArray.length});
                 for (int j = 0; j < rawArray.length; j++) {
-                    minicArray.setAtPos(new int[]{j}, rawArray[j]);
+                    minicArray.setChar(j, rawArray[j]);
                 }
                 in = minicArray;
             } else if (in instanceof double[]) {
@@ -40,7 +40,7 @@ public class MinicValueModifier extends ValueModifier {
                 double[] rawArray = (double[]) in;
                 MinicDoubleArray minicArray = new MinicDoubleArray(new int[]{rawArray.length});
                 for (int j = 0; j < rawArray.length; j++) {
-                    minicArray.setAtPos(new int[]{j}, rawArray[j]);
+                    minicArray.setDouble(j, rawArray[j]);
                 }
                 in = minicArray;
             } else if (in instanceof float[]) {
@@ -48,7 +48,7 @@ public class MinicValueModifier extends ValueModifier {
                 float[] rawArray = (float[]) in;
                 MinicFloatArray minicArray = new MinicFloatArray(new int[]{rawArray.length});
                 for (int j = 0; j < rawArray.length; j++) {
-                    minicArray.setAtPos(new int[]{j}, rawArray[j]);
+                    minicArray.setFloat(j, rawArray[j]);
                 }
                 in = minicArray;
             } else if (in instanceof int[]) {
@@ -56,7 +56,7 @@ public class MinicValueModifier extends ValueModifier {
                 int[] rawArray = (int[]) in;
                 MinicIntArray minicArray = new MinicIntArray(new int[]{rawArray.length});
                 for (int j = 0; j < rawArray.length; j++) {
-                    minicArray.setAtPos(new int[]{j}, rawArray[j]);
+                    minicArray.setInt(j, rawArray[j]);
                 }
                 in = minicArray;
             } else if (in instanceof String[]) {
@@ -64,7 +64,7 @@ public class MinicValueModifier extends ValueModifier {
                 String[] rawArray = (String[]) in;
                 MinicStringArray minicArray = new MinicStringArray(new int[]{rawArray.length});
                 for (int j = 0; j < rawArray.length; j++) {
-                    minicArray.setAtPos(new int[]{j}, rawArray[j]);
+                    minicArray.setString(j, rawArray[j]);
                 }
                 in = minicArray;
             }
@@ -15,6 +15,7 @@ import at.fh.hagenberg.aist.gce.minic.nodes.builtin.PrintNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.builtin.PrintNodeFactory;
 import at.fh.hagenberg.aist.gce.minic.nodes.impl.literals.MinicSimpleLiteralNode;
 import at.fh.hagenberg.aist.gce.optimization.language.MinicAccessor;
+import com.oracle.truffle.api.frame.FrameSlot;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -86,4 +87,26 @@ public class InternalExecutorTest {
         Assert.assertEquals(result.getReturnValue(), null);
         Assert.assertEquals(result.getOutStreamValue(), "1\n");
     }
+
+    @Test
+    public void testResetGlobalScopeKeepsPrimitiveKind() {
+        // given
+        String language = "c";
+        String code = "int g;\n" +
+            "int main() {\n" +
+            "    g = 5;\n" +
+            "    return g;\n" +
+            "}";
+        String function = "main";
+        InternalExecutor test = new InternalExecutor(language, code, function, function);
+        FrameSlot slot = test.getGlobalScope().getFrameDescriptor().findFrameSlot("g");
+        test.getGlobalScope().setInt(slot, 7);
+
+        // when
+        test.resetGlobalScope();
+
+        // then
+        Assert.assertTrue(test.getGlobalScope().isInt(slot));
+        Assert.assertEquals(test.getGlobalScope().getValue(slot), 5);
+    }
 }
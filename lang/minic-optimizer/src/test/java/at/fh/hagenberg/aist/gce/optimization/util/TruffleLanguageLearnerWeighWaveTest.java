@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2022 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package at.fh.hagenberg.aist.gce.optimization.util;
+
+import at.fh.hagenberg.aist.gce.minic.language.MinicLanguage;
+import at.fh.hagenberg.aist.gce.minic.nodes.impl.literals.MinicSimpleLiteralNode;
+import at.fh.hagenberg.aist.gce.optimization.executor.AbstractExecutor;
+import at.fh.hagenberg.aist.gce.optimization.executor.ExecutionResult;
+import at.fh.hagenberg.aist.gce.optimization.executor.InternalExecutor;
+import at.fh.hagenberg.aist.gce.optimization.executor.TraceExecutionResult;
+import at.fh.hagenberg.util.Pair;
+import com.oracle.truffle.api.nodes.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Ensures that weighing a wave concurrently gives every node its own measurement,
+ * and that executors that don't support concurrent tests are never used by two threads at once.
+ */
+public class TruffleLanguageLearnerWeighWaveTest {
+
+    private static final String CODE = "int weight() {\n" +
+            "    return 0;\n" +
+            "}\n" +
+            "int main() {\n" +
+            "    return weight();\n" +
+            "}";
+
+    /**
+     * Executor that answers every test with the tested node, and records how many tests ran at the same time
+     */
+    private static class RecordingExecutor extends InternalExecutor {
+
+        private final boolean concurrent;
+
+        private final long duration;
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        RecordingExecutor(boolean concurrent, long duration) {
+            super(MinicLanguage.ID, CODE, "weight", "weight");
+            this.concurrent = concurrent;
+            this.duration = duration;
+        }
+
+        @Override
+        public boolean supportsConcurrentTests() {
+            return concurrent;
+        }
+
+        @Override
+        public ExecutionResult conductTest(Node node, Object[] input) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(duration);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return new TraceExecutionResult(node, "", new long[]{0, 0}, true, 0, 0, new HashMap<>());
+        }
+    }
+
+    /**
+     * Learner that measures literal nodes and only records the results it was given
+     */
+    private static class RecordingLearner extends MinicLanguageLearner {
+
+        private final Map<TruffleClassInformation, Node> prototypes = new HashMap<>();
+
+        private final Map<TruffleClassInformation, Object> measured = Collections.synchronizedMap(new HashMap<>());
+
+        private final Map<TruffleClassInformation, Object> traced = Collections.synchronizedMap(new HashMap<>());
+
+        RecordingLearner(TruffleLanguageInformation information, AbstractExecutor exec, AbstractExecutor traceExec) {
+            super(information);
+            this.exec = exec;
+            this.traceExec = traceExec;
+        }
+
+        @Override
+        protected void clearGlobalFrame() {
+        }
+
+        @Override
+        protected Node loadOrPrepareNode(TruffleClassInformation tci, boolean weightedOnly) {
+            return prototypes.computeIfAbsent(tci, x -> new MinicSimpleLiteralNode.MinicIntLiteralNode(prototypes.size()));
+        }
+
+        @Override
+        protected Pair<Node, Object[]> prepareEvaluation(AbstractExecutor executor, Node n, int count) {
+            return new Pair<>(n, null);
+        }
+
+        @Override
+        protected void weighNode(TruffleClassInformation x, Node prototype, ExecutionResult evaluationResult, TraceExecutionResult traceResult, double optimizedBase, double unoptimizedBase) {
+            measured.put(x, evaluationResult.getReturnValue());
+            traced.put(x, traceResult.getReturnValue());
+        }
+    }
+
+    @Test
+    public void testWeighWaveConcurrently() {
+        // given
+        TruffleLanguageInformation information = TruffleLanguageInformation.getLanguageInformation(MinicLanguage.ID);
+        List<TruffleClassInformation> wave = information.getInstantiableNodes().values().stream().limit(8).collect(Collectors.toList());
+        RecordingExecutor exec = new RecordingExecutor(false, 5);
+        // traces take longer than all measurements together, so they have to overlap
+        RecordingExecutor traceExec = new RecordingExecutor(true, 200);
+        RecordingLearner learner = new RecordingLearner(information, exec, traceExec);
+        learner.setParallelism(4);
+        ExecutorService pool = Executors.newFixedThreadPool(learner.getParallelism());
+
+        // when
+        try {
+            learner.weighWave(wave, 0, 0, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // then
+        Assert.assertEquals(wave.size(), 8);
+        wave.forEach(x -> {
+            Assert.assertSame(learner.measured.get(x), learner.prototypes.get(x));
+            Assert.assertSame(learner.traced.get(x), learner.prototypes.get(x));
+        });
+        Assert.assertEquals(exec.maxRunning.get(), 1);
+        Assert.assertTrue(traceExec.maxRunning.get() > 1);
+    }
+}
@@ -12,18 +12,16 @@ package at.fh.hagenberg.aist.gce.minic.nodes.impl.vars;
 
 import at.fh.hagenberg.aist.gce.minic.nodes.base.MinicExpressionNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.util.MinicFrameUtil;
-import at.fh.hagenberg.aist.gce.minic.types.complex.MinicStringNode;
+import at.fh.hagenberg.aist.gce.minic.types.complex.*;
 import at.fh.hagenberg.aist.gce.minic.types.floating.MinicDoubleNode;
 import at.fh.hagenberg.aist.gce.minic.types.floating.MinicFloatNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicCharNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicIntNode;
-import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeField;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.NodeInfo;
 
 /**
@@ -47,14 +45,9 @@ public abstract class MinicReadArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected char readChar(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
-            return MinicFrameUtil.getChar(frame, getSlot(), evaluatedPosition);
+            MinicCharArray array = (MinicCharArray) MinicFrameUtil.getArray(frame, getSlot());
+            return array.getChar(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -71,14 +64,9 @@ public abstract class MinicReadArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected int readInt(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
-            return MinicFrameUtil.getInt(frame, getSlot(), evaluatedPosition);
+            MinicIntArray array = (MinicIntArray) MinicFrameUtil.getArray(frame, getSlot());
+            return array.getInt(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -95,14 +83,9 @@ public abstract class MinicReadArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected float readFloat(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
-            return MinicFrameUtil.getFloat(frame, getSlot(), evaluatedPosition);
+            MinicFloatArray array = (MinicFloatArray) MinicFrameUtil.getArray(frame, getSlot());
+            return array.getFloat(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -119,14 +102,9 @@ public abstract class MinicReadArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected double readDouble(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
-            return MinicFrameUtil.getDouble(frame, getSlot(), evaluatedPosition);
+            MinicDoubleArray array = (MinicDoubleArray) MinicFrameUtil.getArray(frame, getSlot());
+            return array.getDouble(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -143,14 +121,9 @@ public abstract class MinicReadArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected String readString(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
-            return MinicFrameUtil.getString(frame, getSlot(), evaluatedPosition);
+            MinicStringArray array = (MinicStringArray) MinicFrameUtil.getArray(frame, getSlot());
+            return array.getString(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -17,12 +17,10 @@ import at.fh.hagenberg.aist.gce.minic.types.floating.MinicDoubleNode;
 import at.fh.hagenberg.aist.gce.minic.types.floating.MinicFloatNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicCharNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicIntNode;
-import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.NodeInfo;
 
 /**
@@ -52,14 +50,9 @@ public abstract class MinicReadGlobalArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected char readChar(VirtualFrame frame) {
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicCharArray array = (MinicCharArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            return array.getAtPos(evaluatedPosition);
+            return array.getChar(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -82,16 +75,9 @@ public abstract class MinicReadGlobalArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected int readInt(VirtualFrame frame) {
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            CompilerAsserts.partialEvaluationConstant(evaluatedPosition.length);
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicIntArray array = (MinicIntArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            return array.getAtPos(evaluatedPosition);
+            return array.getInt(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -114,15 +100,9 @@ public abstract class MinicReadGlobalArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected float readFloat(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicFloatArray array = (MinicFloatArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            return array.getAtPos(evaluatedPosition);
+            return array.getFloat(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -145,15 +125,9 @@ public abstract class MinicReadGlobalArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected double readDouble(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicDoubleArray array = (MinicDoubleArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            return array.getAtPos(evaluatedPosition);
+            return array.getDouble(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
@@ -176,15 +150,9 @@ public abstract class MinicReadGlobalArrayNode extends MinicExpressionNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected String readString(VirtualFrame frame) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicStringArray array = (MinicStringArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            return array.getAtPos(evaluatedPosition);
+            return array.getString(MinicFrameUtil.getPosition(frame, arrayPosition, array));
         }
     }
 
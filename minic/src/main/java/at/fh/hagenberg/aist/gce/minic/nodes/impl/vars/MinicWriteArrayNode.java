@@ -12,12 +12,12 @@ package at.fh.hagenberg.aist.gce.minic.nodes.impl.vars;
 
 import at.fh.hagenberg.aist.gce.minic.nodes.base.MinicExpressionNode;
 import at.fh.hagenberg.aist.gce.minic.nodes.base.MinicNode;
+import at.fh.hagenberg.aist.gce.minic.nodes.util.MinicFrameUtil;
 import at.fh.hagenberg.aist.gce.minic.types.complex.*;
 import at.fh.hagenberg.aist.gce.minic.types.floating.MinicDoubleNode;
 import at.fh.hagenberg.aist.gce.minic.types.floating.MinicFloatNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicCharNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicIntNode;
-import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.NodeField;
@@ -26,7 +26,6 @@ import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.FrameUtil;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.NodeInfo;
 
 /**
@@ -55,16 +54,9 @@ public abstract class MinicWriteArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected void writeChar(VirtualFrame frame, char value) {
-
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicCharArray array = (MinicCharArray) FrameUtil.getObjectSafe(frame, getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setChar(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -80,16 +72,9 @@ public abstract class MinicWriteArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected void writeInt(VirtualFrame frame, int value) {
-
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = arrayPosition[i].executeInt(frame);
-            }
             MinicIntArray array = (MinicIntArray) FrameUtil.getObjectSafe(frame, getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setInt(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -105,16 +90,9 @@ public abstract class MinicWriteArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected void writeFloat(VirtualFrame frame, float value) {
-
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicFloatArray array = (MinicFloatArray) FrameUtil.getObjectSafe(frame, getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setFloat(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -130,16 +108,9 @@ public abstract class MinicWriteArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected void writeDouble(VirtualFrame frame, double value) {
-
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicDoubleArray array = (MinicDoubleArray) FrameUtil.getObjectSafe(frame, getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setDouble(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -155,16 +126,9 @@ public abstract class MinicWriteArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         protected void writeString(VirtualFrame frame, String value) {
-
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicStringArray array = (MinicStringArray) FrameUtil.getObjectSafe(frame, getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setString(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -18,13 +18,11 @@ import at.fh.hagenberg.aist.gce.minic.types.floating.MinicDoubleNode;
 import at.fh.hagenberg.aist.gce.minic.types.floating.MinicFloatNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicCharNode;
 import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicIntNode;
-import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.dsl.*;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.NodeInfo;
 
 /**
@@ -65,15 +63,9 @@ public abstract class MinicWriteGlobalArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         public void writeChar(VirtualFrame frame, char value) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicCharArray array = (MinicCharArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setChar(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -92,15 +84,9 @@ public abstract class MinicWriteGlobalArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         public void writeInt(VirtualFrame frame, int value) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicIntArray array = (MinicIntArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setInt(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -119,15 +105,9 @@ public abstract class MinicWriteGlobalArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         public void writeFloat(VirtualFrame frame, float value) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicFloatArray array = (MinicFloatArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setFloat(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -146,15 +126,9 @@ public abstract class MinicWriteGlobalArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         public void writeDouble(VirtualFrame frame, double value) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicDoubleArray array = (MinicDoubleArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setDouble(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -173,15 +147,9 @@ public abstract class MinicWriteGlobalArrayNode extends MinicNode {
         }
 
         @Specialization
-        @ExplodeLoop
         public void writeString(VirtualFrame frame, String value) {
-            CompilerAsserts.partialEvaluationConstant(arrayPosition.length);
-            int[] evaluatedPosition = new int[arrayPosition.length];
-            for (int i = 0; i < arrayPosition.length; i++) {
-                evaluatedPosition[i] = (int) arrayPosition[i].executeGeneric(frame);
-            }
             MinicStringArray array = (MinicStringArray) MinicFrameUtil.getArray(getGlobalFrame(), getSlot());
-            array.setAtPos(evaluatedPosition, value);
+            array.setString(MinicFrameUtil.getPosition(frame, arrayPosition, array), value);
         }
     }
 
@@ -11,7 +11,10 @@
 package at.fh.hagenberg.aist.gce.minic.nodes.util;
 
 import at.fh.hagenberg.aist.gce.minic.types.complex.*;
+import at.fh.hagenberg.aist.gce.minic.types.integer.signed.MinicIntNode;
+import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
 
 /**
  * Utility class for reading variables upwards in scope
@@ -63,4 +66,24 @@ public class MinicFrameUtil {
     public static Object getArray(Frame frame, FrameSlot slot) {
         return FrameUtil.getObjectSafe(frame, slot);
     }
+
+    /**
+     * Evaluates a (multidimensional) array access directly into the position in the flat array, without allocating
+     * @param frame    to evaluate the position in
+     * @param position one node per dimension of the array
+     * @param array    that is accessed
+     * @return         position in the flat array
+     */
+    @ExplodeLoop
+    public static int getPosition(VirtualFrame frame, MinicIntNode[] position, MinicArray<?> array) {
+        CompilerAsserts.partialEvaluationConstant(position.length);
+        if (position.length != array.getDimensions()) {
+            throw new AssertionError("C only allows single point access to arrays!");
+        }
+        int finalPos = 0;
+        for (int i = 0; i < position.length; i++) {
+            finalPos += position[i].executeInt(frame) * array.getMultiplier(i);
+        }
+        return finalPos;
+    }
 }
\ No newline at end of file
@@ -55,6 +55,35 @@ public abstract class MinicArray<T> {
         this.totalSize = totalSize;
     }
 
+    /**
+     * Checks a position in the flat array (see {@link #getMultiplier(int)})
+     * @param pos position in the flat array
+     * @return    the position
+     */
+    protected int getPos(int pos) {
+        if (pos >= totalSize) {
+            // Just like real c we only calculate towards pos in memory, and don't check for out of bounds per dimension
+            throw new AssertionError("Array Out of Bounds exception");
+        }
+        return pos;
+    }
+
+    /**
+     * @return amount of dimensions of the array
+     */
+    public int getDimensions() {
+        return size.length;
+    }
+
+    /**
+     * Multiplier of a dimension. The position in the flat array is the sum of all positions multiplied by their multiplier.
+     * @param dimension of the array
+     * @return          multiplier of the dimension
+     */
+    public int getMultiplier(int dimension) {
+        return multipliers[dimension];
+    }
+
     protected int getPos(int[] pos) {
         if (pos.length != size.length) {
             throw new AssertionError("C only allows single point access to arrays!");
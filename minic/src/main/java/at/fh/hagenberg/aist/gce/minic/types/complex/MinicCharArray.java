@@ -40,6 +40,24 @@ public class MinicCharArray extends MinicArray<Character> {
         array[getPos(pos)] = value;
     }
 
+    /**
+     * Gets a value in the array without boxing
+     * @param pos position in the flat array (see {@link #getMultiplier(int)})
+     * @return    value at position
+     */
+    public char getChar(int pos) {
+        return array[getPos(pos)];
+    }
+
+    /**
+     * Sets a value in the array without boxing
+     * @param pos   position in the flat array (see {@link #getMultiplier(int)})
+     * @param value to be added to array at pos
+     */
+    public void setChar(int pos, char value) {
+        array[getPos(pos)] = value;
+    }
+
     public String toString() {
         return String.copyValueOf(array);
     }
@@ -39,4 +39,22 @@ public class MinicDoubleArray extends MinicArray<Double> {
     public void setAtPos(int[] pos, Double value) {
         array[getPos(pos)] = value;
     }
+
+    /**
+     * Gets a value in the array without boxing
+     * @param pos position in the flat array (see {@link #getMultiplier(int)})
+     * @return    value at position
+     */
+    public double getDouble(int pos) {
+        return array[getPos(pos)];
+    }
+
+    /**
+     * Sets a value in the array without boxing
+     * @param pos   position in the flat array (see {@link #getMultiplier(int)})
+     * @param value to be added to array at pos
+     */
+    public void setDouble(int pos, double value) {
+        array[getPos(pos)] = value;
+    }
 }
@@ -39,4 +39,22 @@ public class MinicFloatArray extends MinicArray<Float> {
     public void setAtPos(int[] pos, Float value) {
         array[getPos(pos)] = value;
     }
+
+    /**
+     * Gets a value in the array without boxing
+     * @param pos position in the flat array (see {@link #getMultiplier(int)})
+     * @return    value at position
+     */
+    public float getFloat(int pos) {
+        return array[getPos(pos)];
+    }
+
+    /**
+     * Sets a value in the array without boxing
+     * @param pos   position in the flat array (see {@link #getMultiplier(int)})
+     * @param value to be added to array at pos
+     */
+    public void setFloat(int pos, float value) {
+        array[getPos(pos)] = value;
+    }
 }
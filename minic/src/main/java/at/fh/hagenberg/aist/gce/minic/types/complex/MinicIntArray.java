@@ -39,4 +39,22 @@ public class MinicIntArray extends MinicArray<Integer> {
     public void setAtPos(int[] pos, Integer value) {
         array[getPos(pos)] = value;
     }
+
+    /**
+     * Gets a value in the array without boxing
+     * @param pos position in the flat array (see {@link #getMultiplier(int)})
+     * @return    value at position
+     */
+    public int getInt(int pos) {
+        return array[getPos(pos)];
+    }
+
+    /**
+     * Sets a value in the array without boxing
+     * @param pos   position in the flat array (see {@link #getMultiplier(int)})
+     * @param value to be added to array at pos
+     */
+    public void setInt(int pos, int value) {
+        array[getPos(pos)] = value;
+    }
 }
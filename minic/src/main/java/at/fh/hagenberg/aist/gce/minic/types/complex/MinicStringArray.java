@@ -39,4 +39,22 @@ public class MinicStringArray extends MinicArray<String> {
     public void setAtPos(int[] pos, String value) {
         array[getPos(pos)] = value;
     }
+
+    /**
+     * Gets a value in the array
+     * @param pos position in the flat array (see {@link #getMultiplier(int)})
+     * @return    value at position
+     */
+    public String getString(int pos) {
+        return array[getPos(pos)];
+    }
+
+    /**
+     * Sets a value in the array
+     * @param pos   position in the flat array (see {@link #getMultiplier(int)})
+     * @param value to be added to array at pos
+     */
+    public void setString(int pos, String value) {
+        array[getPos(pos)] = value;
+    }
 }